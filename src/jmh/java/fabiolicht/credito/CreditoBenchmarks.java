@@ -0,0 +1,31 @@
+package fabiolicht.credito;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executa os benchmarks JMH (perfil Maven jmh) com o profiler de GC, gravando o
+ * resultado em JSON para comparação com a baseline em src/jmh/baseline.json.
+ * <p>
+ * Argumentos: arquivo de resultado e, opcionalmente, a expressão dos benchmarks a executar.
+ */
+public class CreditoBenchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        String resultado = args.length > 0 ? args[0] : "target/jmh-resultado.json";
+        String incluir = args.length > 1 && !args[1].isBlank() ? args[1] : "fabiolicht\\.credito\\..*Benchmark";
+
+        Options opcoes = new OptionsBuilder()
+                .include(incluir)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultado)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(opcoes).run();
+    }
+}
@@ -0,0 +1,61 @@
+package fabiolicht.credito.controller;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização JSON das páginas devolvidas pelos endpoints de listagem
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaginaSerializacaoBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int tamanho;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private Page<CreditoDTO> pagina;
+
+    @Setup
+    public void setUp() {
+        List<CreditoDTO> creditos = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            creditos.add(CreditoDTO.builder()
+                    .id((long) i)
+                    .numeroCreditoConstituido(String.format("CR%08d", i))
+                    .numeroNFSe(String.format("NFS%08d", i))
+                    .dataConstituicao(LocalDate.of(2024, 1, 1).plusDays(i % 365))
+                    .valorISSQN(BigDecimal.valueOf(100_00L + i, 2))
+                    .tipoCredito(TipoCredito.values()[i % TipoCredito.values().length])
+                    .descricao("Crédito de benchmark " + i)
+                    .status(StatusCredito.ATIVO)
+                    .dataRegistro(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i))
+                    .responsavel("Responsável " + (i % 10))
+                    .cnpjEmpresa(String.format("%014d", i % 50))
+                    .build());
+        }
+        pagina = new PageImpl<>(creditos, PageRequest.of(0, tamanho), 100_000);
+    }
+
+    @Benchmark
+    public byte[] serializarPagina() {
+        return jsonMapper.writeValueAsBytes(pagina);
+    }
+}
@@ -0,0 +1,59 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.config.KafkaTopicConfig;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.model.TipoEventoCredito;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura de um evento recebido do tópico creditos-events: desserialização do
+ * payload e processamento pelo listener, nos formatos binário e texto legado
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsumoEventoBenchmark {
+
+    @Param({"BINARIO", "LEGADO"})
+    private String formato;
+
+    private final CreditoEventoDeserializer deserializer = new CreditoEventoDeserializer();
+    private final CreditoKafkaConsumer consumer = new CreditoKafkaConsumer();
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        CreditoDTO credito = CreditoDTO.builder()
+                .id(123456L)
+                .numeroCreditoConstituido("CR00123456")
+                .numeroNFSe("NFS00123456")
+                .dataConstituicao(LocalDate.of(2024, 1, 15))
+                .valorISSQN(new BigDecimal("1500.75"))
+                .tipoCredito(TipoCredito.PRINCIPAL)
+                .descricao("Crédito de benchmark")
+                .status(StatusCredito.INATIVO)
+                .responsavel("Responsável")
+                .cnpjEmpresa("12345678000100")
+                .build();
+        payload = "BINARIO".equals(formato)
+                ? CreditoEventoCodec.encode(CreditoEvento.of(TipoEventoCredito.CREDITO_STATUS_ALTERADO, credito, StatusCredito.ATIVO))
+                : "CREDITO_STATUS_ALTERADO:123456:INATIVO".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public CreditoEvento consumirEvento() {
+        CreditoEvento evento = deserializer.deserialize(KafkaTopicConfig.TOPICO_EVENTOS, payload);
+        consumer.processarEvento(evento);
+        return evento;
+    }
+}
@@ -0,0 +1,92 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.CreditoApplication;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.CreditoRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CreditoService.buscarPorTermo sobre um H2 em memória, pelo índice de trigramas
+ * e pela consulta LIKE no banco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuscaPorTermoBenchmark {
+
+    private static final int QUANTIDADE_CREDITOS = 50_000;
+    private static final int TAMANHO_LOTE_CARGA = 1_000;
+
+    @Param({"true", "false"})
+    private boolean indice;
+
+    @Param({"0004242"})
+    private String termo;
+
+    private ConfigurableApplicationContext contexto;
+    private CreditoService creditoService;
+    private final Pageable pageable = PageRequest.of(0, 20);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = new SpringApplicationBuilder(CreditoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.fabiolicht.credito=WARN",
+                        "--credito.cache.habilitado=false",
+                        "--credito.busca.indice.habilitado=true");
+        creditoService = contexto.getBean(CreditoService.class);
+        carregarCreditos(contexto.getBean(CreditoRepository.class), contexto.getBean(TransactionTemplate.class));
+
+        CreditoTermoIndex termoIndex = contexto.getBean(CreditoTermoIndex.class);
+        termoIndex.reconstruir();
+        termoIndex.setHabilitado(indice);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Page<CreditoDTO> buscarPorTermo() {
+        return creditoService.buscarPorTermo(termo, pageable);
+    }
+
+    private static void carregarCreditos(CreditoRepository creditoRepository, TransactionTemplate transactionTemplate) {
+        for (int inicio = 0; inicio < QUANTIDADE_CREDITOS; inicio += TAMANHO_LOTE_CARGA) {
+            List<Credito> lote = new ArrayList<>(TAMANHO_LOTE_CARGA);
+            for (int i = inicio; i < inicio + TAMANHO_LOTE_CARGA; i++) {
+                Credito credito = new Credito();
+                credito.setNumeroCreditoConstituido(String.format("CR%08d", i));
+                credito.setNumeroNFSe(String.format("NFS%08d", (i * 7919L) % 100_000_000L));
+                credito.setDataConstituicao(LocalDate.of(2020, 1, 1).plusDays(i % 1_500));
+                credito.setValorISSQN(BigDecimal.valueOf(10_000L + i, 2));
+                credito.setTipoCredito(TipoCredito.values()[i % TipoCredito.values().length]);
+                credito.setStatus(StatusCredito.ATIVO);
+                credito.setCnpjEmpresa(String.format("%014d", i % 500));
+                lote.add(credito);
+            }
+            transactionTemplate.executeWithoutResult(status -> creditoRepository.saveAll(lote));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversões entre entidade e DTO, executadas em toda leitura e escrita
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversaoBenchmark {
+
+    private final CreditoService creditoService = new CreditoService();
+    private Credito credito;
+    private CreditoDTO creditoDTO;
+
+    @Setup
+    public void setUp() {
+        credito = new Credito();
+        credito.setId(1L);
+        credito.setNumeroCreditoConstituido("CR00000001");
+        credito.setNumeroNFSe("NFS00000001");
+        credito.setDataConstituicao(LocalDate.of(2024, 1, 15));
+        credito.setValorISSQN(new BigDecimal("1500.75"));
+        credito.setTipoCredito(TipoCredito.PRINCIPAL);
+        credito.setDescricao("Crédito de benchmark");
+        credito.setStatus(StatusCredito.ATIVO);
+        credito.setDataRegistro(LocalDateTime.of(2024, 1, 15, 10, 0));
+        credito.setResponsavel("Responsável");
+        credito.setCnpjEmpresa("12345678000100");
+        creditoDTO = creditoService.convertToDTO(credito);
+    }
+
+    @Benchmark
+    public CreditoDTO convertToDTO() {
+        return creditoService.convertToDTO(credito);
+    }
+
+    @Benchmark
+    public Credito convertToEntity() {
+        return creditoService.convertToEntity(creditoDTO);
+    }
+}
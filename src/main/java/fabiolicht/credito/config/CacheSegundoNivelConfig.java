@@ -0,0 +1,91 @@
+package fabiolicht.credito.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.repository.CreditoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Regiões do cache de segundo nível do Hibernate (JCache, provedor Caffeine), criadas aqui
+ * com tamanho e TTL próprios e entregues ao Hibernate pelo CacheManager:
+ * <ul>
+ *   <li>credito - entidades Credito (READ_WRITE)</li>
+ *   <li>credito-consultas-enum - páginas por status e por tipo, e suas contagens</li>
+ *   <li>credito-consultas-identificador - busca por número e por NFS-e</li>
+ * </ul>
+ * A região de timestamps das tabelas não tem limite nem TTL: perder uma entrada faria uma
+ * consulta em cache parecer mais nova que a última escrita da tabela.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    @Value("${credito.segundo-nivel.credito.tamanho-maximo:10000}")
+    private long tamanhoCredito;
+
+    @Value("${credito.segundo-nivel.credito.ttl:10m}")
+    private Duration ttlCredito;
+
+    @Value("${credito.segundo-nivel.consultas-enum.tamanho-maximo:500}")
+    private long tamanhoConsultasEnum;
+
+    @Value("${credito.segundo-nivel.consultas-enum.ttl:1m}")
+    private Duration ttlConsultasEnum;
+
+    @Value("${credito.segundo-nivel.consultas-identificador.tamanho-maximo:10000}")
+    private long tamanhoConsultasIdentificador;
+
+    @Value("${credito.segundo-nivel.consultas-identificador.ttl:10m}")
+    private Duration ttlConsultasIdentificador;
+
+    /**
+     * CacheManager próprio (URI única) em vez do padrão do provedor, que é compartilhado
+     * pela JVM: fechar o contexto não fecha as regiões de outro
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerSegundoNivel(MeterRegistry meterRegistry) {
+        CachingProvider provedor = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provedor.getCacheManager(URI.create("credito-segundo-nivel-" + UUID.randomUUID()),
+                provedor.getDefaultClassLoader());
+        criar(cacheManager, meterRegistry, Credito.REGIAO_CACHE, tamanhoCredito, ttlCredito);
+        criar(cacheManager, meterRegistry, CreditoRepository.REGIAO_CONSULTAS_ENUM, tamanhoConsultasEnum, ttlConsultasEnum);
+        criar(cacheManager, meterRegistry, CreditoRepository.REGIAO_CONSULTAS_IDENTIFICADOR,
+                tamanhoConsultasIdentificador, ttlConsultasIdentificador);
+        criar(cacheManager, meterRegistry, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, tamanhoConsultasEnum, ttlConsultasEnum);
+        criar(cacheManager, meterRegistry, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, null, null);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelHibernate(CacheManager cacheManagerSegundoNivel) {
+        return propriedades -> propriedades.put(ConfigSettings.CACHE_MANAGER, cacheManagerSegundoNivel);
+    }
+
+    private static void criar(CacheManager cacheManager, MeterRegistry meterRegistry, String regiao,
+                              Long tamanhoMaximo, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuracao = new CaffeineConfiguration<>();
+        if (tamanhoMaximo != null) {
+            configuracao.setMaximumSize(OptionalLong.of(tamanhoMaximo));
+        }
+        if (ttl != null) {
+            configuracao.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        configuracao.setStatisticsEnabled(true);
+        JCacheMetrics.monitor(meterRegistry, cacheManager.createCache(regiao, configuracao));
+    }
+}
@@ -0,0 +1,50 @@
+package fabiolicht.credito.config;
+
+import fabiolicht.credito.kafka.ConsumoNotificacoes;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    /**
+     * Define a concorrência de cada listener pelo número de partições dos seus tópicos
+     * (declarados em KafkaTopicConfig), limitada ao número de processadores. Threads
+     * além do número de partições ficariam ociosas.
+     * <p>
+     * O container de creditos-notification também informa atribuições e ociosidade ao
+     * ConsumoNotificacoes.
+     */
+    @Bean
+    public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> concorrenciaPorParticao(
+            List<NewTopic> topicos, ConsumoNotificacoes consumoNotificacoes,
+            @Value("${credito.bloom.notificacoes.intervalo-ocioso-ms:1000}") long intervaloOcioso) {
+        Map<String, Integer> particoesPorTopico = topicos.stream()
+                .collect(Collectors.toMap(NewTopic::name, NewTopic::numPartitions));
+        int processadores = Runtime.getRuntime().availableProcessors();
+
+        return container -> {
+            String[] topicosDoListener = container.getContainerProperties().getTopics();
+            if (topicosDoListener == null) {
+                return;
+            }
+            int particoes = Arrays.stream(topicosDoListener)
+                    .mapToInt(topico -> particoesPorTopico.getOrDefault(topico, 1))
+                    .sum();
+            container.setConcurrency(Math.max(1, Math.min(particoes, processadores)));
+            if (Arrays.asList(topicosDoListener).contains(KafkaTopicConfig.TOPICO_NOTIFICACAO)) {
+                container.getContainerProperties().setConsumerRebalanceListener(consumoNotificacoes);
+                container.getContainerProperties().setIdleEventInterval(intervaloOcioso);
+            }
+        };
+    }
+}
@@ -8,9 +8,12 @@ import org.springframework.kafka.config.TopicBuilder;
 @Configuration
 public class KafkaTopicConfig {
 
+    public static final String TOPICO_EVENTOS = "creditos-events";
+    public static final String TOPICO_NOTIFICACAO = "creditos-notification";
+
     @Bean
     public NewTopic creditosEventsTopic() {
-        return TopicBuilder.name("creditos-events")
+        return TopicBuilder.name(TOPICO_EVENTOS)
                 .partitions(3)
                 .replicas(1)
                 .build();
@@ -18,7 +21,7 @@ public class KafkaTopicConfig {
 
     @Bean
     public NewTopic creditosNotificationTopic() {
-        return TopicBuilder.name("creditos-notification")
+        return TopicBuilder.name(TOPICO_NOTIFICACAO)
                 .partitions(2)
                 .replicas(1)
                 .build();
@@ -0,0 +1,35 @@
+package fabiolicht.credito.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Cookie de leitura após escrita, registrado com ou sem réplicas: sem elas, ainda evita
+ * que o filtro de Bloom responda 404 a um crédito recém-criado pelo mesmo cliente em
+ * outro nó. A janela é a mesma do roteamento das réplicas.
+ */
+@Configuration
+public class LeituraAposEscritaConfig {
+
+    @Value("${credito.replicas.atraso-maximo:5s}")
+    private Duration atrasoMaximo;
+
+    @Value("${credito.replicas.verificacao-ms:1000}")
+    private long verificacaoMs;
+
+    @Bean
+    public LeituraAposEscritaFilter leituraAposEscritaFilter() {
+        return new LeituraAposEscritaFilter(janela(atrasoMaximo, verificacaoMs));
+    }
+
+    /**
+     * Tempo em que uma escrita pode ainda não ter chegado a uma réplica no roteamento:
+     * o atraso máximo mais o intervalo entre medições
+     */
+    static Duration janela(Duration atrasoMaximo, long verificacaoMs) {
+        return atrasoMaximo.plusMillis(verificacaoMs);
+    }
+}
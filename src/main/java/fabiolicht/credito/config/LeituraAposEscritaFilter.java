@@ -0,0 +1,62 @@
+package fabiolicht.credito.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Leitura após escrita entre requisições do mesmo cliente: toda requisição de escrita
+ * recebe um cookie que vale pela janela de atraso das réplicas, e as requisições que o
+ * trazem leem do primário e não consultam o filtro de Bloom, que ainda pode não ter
+ * recebido a notificação de uma escrita feita em outro nó. Clientes que não guardam
+ * cookies leem das réplicas, com o atraso limitado pelo máximo configurado.
+ */
+public class LeituraAposEscritaFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "credito-leitura-primario";
+    private static final Set<String> METODOS_SEGUROS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final int janelaSegundos;
+
+    public LeituraAposEscritaFilter(Duration janela) {
+        this.janelaSegundos = (int) Math.max(1, (janela.toMillis() + 999) / 1000);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!METODOS_SEGUROS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE, "1");
+            cookie.setMaxAge(janelaSegundos);
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+        if (!temCookie(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try (LeituraPrimaria.Escopo primario = LeituraPrimaria.noPrimario()) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private static boolean temCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
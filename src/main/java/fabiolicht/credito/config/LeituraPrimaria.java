@@ -0,0 +1,62 @@
+package fabiolicht.credito.config;
+
+/**
+ * Leituras que precisam ver as escritas já confirmadas no primário. Com réplicas
+ * habilitadas (ReplicasConfig), as transações read-only da thread vão ao primário:
+ * <ul>
+ *   <li>dentro de um escopo noPrimario() - cargas de caches e índices em memória, que
+ *   guardariam por muito tempo o estado atrasado de uma réplica</li>
+ *   <li>durante a janela de leitura após escrita, contada da última conexão de escrita
+ *   obtida pela thread (mesma requisição, mesmo listener)</li>
+ * </ul>
+ * Sem réplicas, o escopo só faz as consultas por identificador ignorarem o filtro de
+ * Bloom (CreditoFiltroBloom).
+ */
+public final class LeituraPrimaria {
+
+    private static final ThreadLocal<Boolean> FORCADA = new ThreadLocal<>();
+    private static final ThreadLocal<Long> ULTIMA_ESCRITA = new ThreadLocal<>();
+
+    private LeituraPrimaria() {
+    }
+
+    /**
+     * Envia ao primário as leituras da thread até o fechamento do escopo (aninhável)
+     */
+    public static Escopo noPrimario() {
+        if (Boolean.TRUE.equals(FORCADA.get())) {
+            return () -> {
+            };
+        }
+        FORCADA.set(Boolean.TRUE);
+        return FORCADA::remove;
+    }
+
+    /**
+     * Há um escopo noPrimario() aberto na thread
+     */
+    public static boolean noEscopo() {
+        return Boolean.TRUE.equals(FORCADA.get());
+    }
+
+    static void registrarEscrita() {
+        ULTIMA_ESCRITA.set(System.nanoTime());
+    }
+
+    static boolean exigida(long janelaNanos) {
+        if (noEscopo()) {
+            return true;
+        }
+        Long ultimaEscrita = ULTIMA_ESCRITA.get();
+        return ultimaEscrita != null && System.nanoTime() - ultimaEscrita < janelaNanos;
+    }
+
+    /**
+     * Escopo de try-with-resources, sem exceção checada no fechamento
+     */
+    @FunctionalInterface
+    public interface Escopo extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
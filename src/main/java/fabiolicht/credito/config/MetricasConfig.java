@@ -0,0 +1,38 @@
+package fabiolicht.credito.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Map;
+
+/**
+ * Métricas de latência publicadas pelo Actuator (ver management.metrics.* em application.properties):
+ * <ul>
+ *   <li>http.server.requests - por rota (uri), método, status e outcome</li>
+ *   <li>spring.data.repository.invocations - por repositório, método e state</li>
+ *   <li>spring.kafka.template - por template, tópico e result</li>
+ * </ul>
+ * Todos com histograma de percentis, agregável entre nós no Prometheus.
+ */
+@Configuration
+public class MetricasConfig {
+
+    /**
+     * Acrescenta o tópico às tags do timer spring.kafka.template, que por padrão
+     * só distingue o bean do template e o resultado do envio
+     */
+    @Bean
+    public static BeanPostProcessor tagTopicoKafkaTemplate() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof KafkaTemplate<?, ?> template) {
+                    template.setMicrometerTagsProvider(registro -> Map.of("topico", registro.topic()));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package fabiolicht.credito.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Réplicas de leitura (credito.replicas.habilitado=true). O DataSource da aplicação é um
+ * LazyConnectionDataSourceProxy: a conexão física só é obtida no primeiro comando, quando
+ * a transação já marcou a conexão como read-only. Transações read-only vão ao
+ * RoteamentoReplicas; as demais, ao pool do primário (spring.datasource.*).
+ * <p>
+ * Cada réplica tem um pool próprio, com as mesmas configurações do primário.
+ */
+@Configuration
+@ConditionalOnProperty(name = "credito.replicas.habilitado", havingValue = "true")
+@Slf4j
+public class ReplicasConfig {
+
+    @Value("${credito.replicas.urls}")
+    private List<String> urls;
+
+    @Value("${credito.replicas.username:${spring.datasource.username:}}")
+    private String username;
+
+    @Value("${credito.replicas.password:${spring.datasource.password:}}")
+    private String password;
+
+    @Value("${credito.replicas.selecao:MENOS_CARREGADA}")
+    private RoteamentoReplicas.Selecao selecao;
+
+    @Value("${credito.replicas.atraso-maximo:5s}")
+    private Duration atrasoMaximo;
+
+    @Value("${credito.replicas.verificacao-ms:1000}")
+    private long verificacaoMs;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public RoteamentoReplicas roteamentoReplicas(HikariDataSource dataSourcePrimario, MeterRegistry meterRegistry) {
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            dataSourcePrimario.copyStateTo(config);
+            config.setPoolName("credito-replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url.trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setReadOnly(true);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(config.getPoolName(), new HikariDataSource(config));
+        }
+        log.info("Réplicas de leitura: {} - seleção: {}, atraso máximo: {}", replicas.keySet(), selecao, atrasoMaximo);
+        return new RoteamentoReplicas(dataSourcePrimario, replicas, selecao, atrasoMaximo, janelaLeituraAposEscrita(),
+                meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource dataSourcePrimario, RoteamentoReplicas roteamentoReplicas) {
+        return roteado(dataSourcePrimario, roteamentoReplicas);
+    }
+
+    /**
+     * Proxy preguiçoso: conexões read-only do roteamento das réplicas, as demais do
+     * primário. Conexões do primário obtidas em transação contam como escrita da thread
+     * (leitura após escrita); a verificação inicial do proxy, fora de transação, não.
+     */
+    static DataSource roteado(DataSource primario, RoteamentoReplicas roteamentoReplicas) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(new DelegatingDataSource(primario) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    LeituraPrimaria.registrarEscrita();
+                }
+                return super.getConnection();
+            }
+        });
+        dataSource.setReadOnlyDataSource(roteamentoReplicas);
+        return dataSource;
+    }
+
+    private Duration janelaLeituraAposEscrita() {
+        return LeituraAposEscritaConfig.janela(atrasoMaximo, verificacaoMs);
+    }
+}
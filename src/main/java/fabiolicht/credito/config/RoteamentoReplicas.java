@@ -0,0 +1,199 @@
+package fabiolicht.credito.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource das transações read-only: escolhe uma das réplicas disponíveis (round-robin
+ * ou a de menos conexões em uso) e cai no primário quando nenhuma está disponível ou a
+ * leitura precisa ver escritas recentes (LeituraPrimaria).
+ * <p>
+ * O atraso é medido por heartbeat: a cada verificação o primário grava o instante atual
+ * em creditos_replica_heartbeat e cada réplica é consultada pelo último instante
+ * replicado. Os dois lados usam o relógio do primário (LOCALTIMESTAMP na gravação e na
+ * comparação): a linha é compartilhada por todos os nós, e um nó com o relógio adiantado
+ * esconderia o atraso de uma réplica dos demais. Réplica inacessível, sem heartbeat ou com atraso acima do máximo sai do
+ * roteamento até a próxima verificação que a encontre em dia. O atraso medido inclui até
+ * um intervalo de verificação, que deve ser bem menor que o atraso máximo.
+ */
+@Slf4j
+public class RoteamentoReplicas extends AbstractRoutingDataSource {
+
+    static final String TABELA_HEARTBEAT = "creditos_replica_heartbeat";
+    private static final String PRIMARIO = "primario";
+
+    public enum Selecao {
+        ROUND_ROBIN,
+        MENOS_CARREGADA
+    }
+
+    private final JdbcTemplate primario;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Selecao selecao;
+    private final Duration atrasoMaximo;
+    private final long janelaLeituraAposEscrita;
+    private final AtomicInteger proxima = new AtomicInteger();
+    private final Counter leiturasNoPrimario;
+
+    public RoteamentoReplicas(DataSource primario, Map<String, HikariDataSource> replicas, Selecao selecao,
+                              Duration atrasoMaximo, Duration janelaLeituraAposEscrita, MeterRegistry meterRegistry) {
+        this.primario = new JdbcTemplate(primario);
+        this.selecao = selecao;
+        this.atrasoMaximo = atrasoMaximo;
+        this.janelaLeituraAposEscrita = janelaLeituraAposEscrita.toNanos();
+        this.leiturasNoPrimario = leituras(meterRegistry, PRIMARIO);
+        Map<Object, Object> destinos = new HashMap<>();
+        replicas.forEach((nome, pool) -> {
+            Replica replica = new Replica(nome, pool, leituras(meterRegistry, nome));
+            Gauge.builder("credito.replica.atraso", replica, r -> r.atrasoSegundos)
+                    .tag("replica", nome).baseUnit("seconds")
+                    .description("Atraso da réplica medido pelo heartbeat (NaN se inacessível)")
+                    .register(meterRegistry);
+            Gauge.builder("credito.replica.disponivel", replica, r -> r.disponivel ? 1 : 0)
+                    .tag("replica", nome)
+                    .description("1 se a réplica recebe leituras, 0 se está fora do roteamento")
+                    .register(meterRegistry);
+            this.replicas.add(replica);
+            destinos.put(nome, pool);
+        });
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(primario);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        primario.execute("CREATE TABLE IF NOT EXISTS " + TABELA_HEARTBEAT
+                + " (id INTEGER PRIMARY KEY, instante TIMESTAMP NOT NULL)");
+        medirAtraso();
+    }
+
+    /**
+     * Grava o heartbeat no primário e atualiza o atraso e a disponibilidade das réplicas
+     */
+    @Scheduled(fixedDelayString = "${credito.replicas.verificacao-ms:1000}",
+            initialDelayString = "${credito.replicas.verificacao-ms:1000}")
+    public void medirAtraso() {
+        LocalDateTime agora;
+        try {
+            if (primario.update("UPDATE " + TABELA_HEARTBEAT + " SET instante = LOCALTIMESTAMP WHERE id = 1") == 0) {
+                primario.update("INSERT INTO " + TABELA_HEARTBEAT
+                        + " (id, instante) VALUES (1, LOCALTIMESTAMP) ON CONFLICT DO NOTHING");
+            }
+            agora = primario.queryForObject("SELECT LOCALTIMESTAMP", LocalDateTime.class);
+        } catch (DataAccessException e) {
+            // Sem o relógio do primário não há com o que comparar: as réplicas ficam como estão
+            log.warn("Falha ao gravar o heartbeat das réplicas no primário: {}", e.getMessage());
+            return;
+        }
+        for (Replica replica : replicas) {
+            double atraso;
+            try {
+                LocalDateTime replicado = replica.jdbc.queryForObject(
+                        "SELECT instante FROM " + TABELA_HEARTBEAT + " WHERE id = 1", LocalDateTime.class);
+                atraso = Math.max(0, Duration.between(replicado, agora).toMillis() / 1000.0);
+            } catch (DataAccessException e) {
+                log.debug("Heartbeat indisponível na réplica {}: {}", replica.nome, e.getMessage());
+                atraso = Double.NaN;
+            }
+            boolean disponivel = !Double.isNaN(atraso) && atraso * 1000 <= atrasoMaximo.toMillis();
+            if (disponivel != replica.disponivel) {
+                if (disponivel) {
+                    log.info("Réplica {} de volta ao roteamento - atraso: {}s", replica.nome, atraso);
+                } else {
+                    log.warn("Réplica {} fora do roteamento - atraso: {}s, máximo: {}", replica.nome, atraso, atrasoMaximo);
+                }
+            }
+            replica.atrasoSegundos = atraso;
+            replica.disponivel = disponivel;
+        }
+    }
+
+    /**
+     * Nome da réplica escolhida, ou null para o primário
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica escolhida = LeituraPrimaria.exigida(janelaLeituraAposEscrita) ? null : escolher();
+        if (escolhida == null) {
+            leiturasNoPrimario.increment();
+            return null;
+        }
+        escolhida.leituras.increment();
+        return escolhida.nome;
+    }
+
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private Replica escolher() {
+        List<Replica> disponiveis = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.disponivel) {
+                disponiveis.add(replica);
+            }
+        }
+        if (disponiveis.isEmpty()) {
+            return null;
+        }
+        if (selecao == Selecao.ROUND_ROBIN) {
+            return disponiveis.get(Math.floorMod(proxima.getAndIncrement(), disponiveis.size()));
+        }
+        Replica menosCarregada = disponiveis.get(0);
+        for (Replica replica : disponiveis) {
+            if (replica.carga() < menosCarregada.carga()) {
+                menosCarregada = replica;
+            }
+        }
+        return menosCarregada;
+    }
+
+    private static Counter leituras(MeterRegistry meterRegistry, String destino) {
+        return Counter.builder("credito.replicas.leituras").tag("destino", destino)
+                .description("Conexões de transações read-only por destino")
+                .register(meterRegistry);
+    }
+
+    private static final class Replica {
+
+        private final String nome;
+        private final HikariDataSource pool;
+        private final JdbcTemplate jdbc;
+        private final Counter leituras;
+        private volatile double atrasoSegundos = Double.NaN;
+        private volatile boolean disponivel;
+
+        private Replica(String nome, HikariDataSource pool, Counter leituras) {
+            this.nome = nome;
+            this.pool = pool;
+            this.jdbc = new JdbcTemplate(pool);
+            this.leituras = leituras;
+        }
+
+        /**
+         * Conexões em uso mais threads esperando por uma
+         */
+        private int carga() {
+            HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+            return mxBean == null ? 0 : mxBean.getActiveConnections() + mxBean.getThreadsAwaitingConnection();
+        }
+    }
+}
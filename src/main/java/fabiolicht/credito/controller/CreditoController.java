@@ -1,32 +1,93 @@
 package fabiolicht.credito.controller;
 
+import fabiolicht.credito.dto.AgregadoPeriodoDTO;
 import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.CursorPageDTO;
+import fabiolicht.credito.dto.ExportacaoDTO;
+import fabiolicht.credito.dto.FiltroCredito;
+import fabiolicht.credito.dto.ImportacaoDTO;
+import fabiolicht.credito.dto.ResultadoAlteracaoStatusDTO;
+import fabiolicht.credito.dto.ResultadoLoteDTO;
+import fabiolicht.credito.dto.ResumoCnpjDTO;
+import fabiolicht.credito.model.FormatoExportacao;
+import fabiolicht.credito.model.GranularidadePeriodo;
 import fabiolicht.credito.model.StatusCredito;
 import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.CreditoVersao;
+import fabiolicht.credito.service.ChaveIdempotenciaReutilizadaException;
+import fabiolicht.credito.service.CreditoDuplicadoException;
+import fabiolicht.credito.service.CreditoExportacao;
+import fabiolicht.credito.service.CreditoIdempotencia;
+import fabiolicht.credito.service.CreditoImportacao;
+import fabiolicht.credito.service.CreditoNaoEncontradoException;
 import fabiolicht.credito.service.CreditoService;
+import fabiolicht.credito.service.ExportacaoNaoEncontradaException;
+import fabiolicht.credito.service.IdempotenciaEmAndamentoException;
+import fabiolicht.credito.service.ImportacaoNaoEncontradaException;
+import fabiolicht.credito.service.VersaoDivergenteException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/v1/creditos")
 @Slf4j
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = {HttpHeaders.ETAG, CreditoController.IDEMPOTENT_REPLAYED})
 public class CreditoController {
 
+    private static final int TAMANHO_BUFFER_NDJSON = 64 * 1024;
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     @Autowired
     private CreditoService creditoService;
 
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private CreditoIdempotencia creditoIdempotencia;
+
+    @Autowired
+    private CreditoImportacao creditoImportacao;
+
+    @Autowired
+    private CreditoExportacao creditoExportacao;
+
     /**
      * GET /api/v1/creditos
      * Busca todos os créditos com paginação
@@ -43,34 +104,77 @@ public class CreditoController {
         return ResponseEntity.ok(creditoService.buscarTodos(pageable));
     }
 
+    /**
+     * GET /api/v1/creditos?cursor=
+     * Busca todos os créditos com paginação por cursor (sem contagem)
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPageDTO<CreditoDTO>> buscarTodosComCursor(
+            @RequestParam(defaultValue = "") String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+
+        log.info("GET /api/v1/creditos - cursor: {}, size: {}, sortBy: {}, direction: {}", cursor, size, sortBy, direction);
+        return ResponseEntity.ok(creditoService.buscarTodosComCursor(cursor, size, sortBy, direction));
+    }
+
+    /**
+     * GET /api/v1/creditos?fields=
+     * Busca todos os créditos retornando apenas os campos pedidos
+     */
+    @GetMapping(params = {"fields", "!cursor"})
+    public ResponseEntity<Page<Map<String, Object>>> buscarTodosCampos(
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+
+        log.info("GET /api/v1/creditos - fields: {}, page: {}, size: {}", fields, page, size);
+        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        return ResponseEntity.ok(creditoService.buscarCampos(new FiltroCredito(), fields, pageable));
+    }
+
     /**
      * GET /api/v1/creditos/{id}
-     * Busca crédito por ID
+     * Busca crédito por ID (responde 304 se If-None-Match traz a ETag atual)
      */
     @GetMapping("/{id}")
-    public ResponseEntity<CreditoDTO> buscarPorId(@PathVariable Long id) {
+    public ResponseEntity<CreditoDTO> buscarPorId(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
         log.info("GET /api/v1/creditos/{} - Buscando crédito por ID", id);
-        return ResponseEntity.ok(creditoService.buscarPorId(id));
+        return condicional(ifNoneMatch, () -> creditoService.buscarVersaoPorId(id), () -> creditoService.buscarPorId(id));
     }
 
     /**
      * GET /api/v1/creditos/numero/{numero}
-     * Busca crédito por número
+     * Busca crédito por número (responde 304 se If-None-Match traz a ETag atual)
      */
     @GetMapping("/numero/{numero}")
-    public ResponseEntity<CreditoDTO> buscarPorNumero(@PathVariable String numero) {
+    public ResponseEntity<CreditoDTO> buscarPorNumero(
+            @PathVariable String numero,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
         log.info("GET /api/v1/creditos/numero/{} - Buscando crédito por número", numero);
-        return ResponseEntity.ok(creditoService.buscarPorNumeroCreditoConstituido(numero));
+        return condicional(ifNoneMatch, () -> creditoService.buscarVersaoPorNumero(numero),
+                () -> creditoService.buscarPorNumeroCreditoConstituido(numero));
     }
 
     /**
      * GET /api/v1/creditos/nfse/{nfse}
-     * Busca crédito por NFS-e
+     * Busca crédito por NFS-e (responde 304 se If-None-Match traz a ETag atual)
      */
     @GetMapping("/nfse/{nfse}")
-    public ResponseEntity<CreditoDTO> buscarPorNFSe(@PathVariable String nfse) {
+    public ResponseEntity<CreditoDTO> buscarPorNFSe(
+            @PathVariable String nfse,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
         log.info("GET /api/v1/creditos/nfse/{} - Buscando crédito por NFS-e", nfse);
-        return ResponseEntity.ok(creditoService.buscarPorNFSe(nfse));
+        return condicional(ifNoneMatch, () -> creditoService.buscarVersaoPorNFSe(nfse),
+                () -> creditoService.buscarPorNFSe(nfse));
     }
 
     /**
@@ -88,6 +192,64 @@ public class CreditoController {
         return ResponseEntity.ok(creditoService.buscarPorStatus(status, pageable));
     }
 
+    /**
+     * GET /api/v1/creditos/status/{status}?contar=false
+     * Busca créditos por status sem contagem: a resposta informa apenas se há próxima página
+     */
+    @GetMapping(value = "/status/{status}", params = {"contar=false", "!cursor", "!fields"})
+    public ResponseEntity<Slice<CreditoDTO>> buscarPorStatusSemContagem(
+            @PathVariable StatusCredito status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/status/{} - sem contagem, page: {}, size: {}", status, page, size);
+        return ResponseEntity.ok(creditoService.buscarPorStatusSemContagem(status, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/status/{status}?contar=aproximado
+     * Busca créditos por status com totalElements aproximado, servido da memória
+     */
+    @GetMapping(value = "/status/{status}", params = {"contar=aproximado", "!cursor", "!fields"})
+    public ResponseEntity<Page<CreditoDTO>> buscarPorStatusComTotalAproximado(
+            @PathVariable StatusCredito status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/status/{} - total aproximado, page: {}, size: {}", status, page, size);
+        return ResponseEntity.ok(creditoService.buscarPorStatusComTotalAproximado(status, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/status/{status}?fields=
+     * Busca créditos por status retornando apenas os campos pedidos
+     */
+    @GetMapping(value = "/status/{status}", params = {"fields", "!cursor"})
+    public ResponseEntity<Page<Map<String, Object>>> buscarPorStatusCampos(
+            @PathVariable StatusCredito status,
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/status/{} - fields: {}", status, fields);
+        FiltroCredito filtro = FiltroCredito.builder().status(status).build();
+        return ResponseEntity.ok(creditoService.buscarCampos(filtro, fields, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/status/{status}?cursor=
+     * Busca créditos por status com paginação por cursor
+     */
+    @GetMapping(value = "/status/{status}", params = "cursor")
+    public ResponseEntity<CursorPageDTO<CreditoDTO>> buscarPorStatusComCursor(
+            @PathVariable StatusCredito status,
+            @RequestParam(defaultValue = "") String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/status/{} - cursor: {}, size: {}", status, cursor, size);
+        return ResponseEntity.ok(creditoService.buscarPorStatusComCursor(status, cursor, size));
+    }
+
     /**
      * GET /api/v1/creditos/tipo/{tipo}
      * Busca créditos por tipo
@@ -103,6 +265,64 @@ public class CreditoController {
         return ResponseEntity.ok(creditoService.buscarPorTipo(tipo, pageable));
     }
 
+    /**
+     * GET /api/v1/creditos/tipo/{tipo}?contar=false
+     * Busca créditos por tipo sem contagem: a resposta informa apenas se há próxima página
+     */
+    @GetMapping(value = "/tipo/{tipo}", params = {"contar=false", "!cursor", "!fields"})
+    public ResponseEntity<Slice<CreditoDTO>> buscarPorTipoSemContagem(
+            @PathVariable TipoCredito tipo,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/tipo/{} - sem contagem, page: {}, size: {}", tipo, page, size);
+        return ResponseEntity.ok(creditoService.buscarPorTipoSemContagem(tipo, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/tipo/{tipo}?contar=aproximado
+     * Busca créditos por tipo com totalElements aproximado, servido da memória
+     */
+    @GetMapping(value = "/tipo/{tipo}", params = {"contar=aproximado", "!cursor", "!fields"})
+    public ResponseEntity<Page<CreditoDTO>> buscarPorTipoComTotalAproximado(
+            @PathVariable TipoCredito tipo,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/tipo/{} - total aproximado, page: {}, size: {}", tipo, page, size);
+        return ResponseEntity.ok(creditoService.buscarPorTipoComTotalAproximado(tipo, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/tipo/{tipo}?fields=
+     * Busca créditos por tipo retornando apenas os campos pedidos
+     */
+    @GetMapping(value = "/tipo/{tipo}", params = {"fields", "!cursor"})
+    public ResponseEntity<Page<Map<String, Object>>> buscarPorTipoCampos(
+            @PathVariable TipoCredito tipo,
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/tipo/{} - fields: {}", tipo, fields);
+        FiltroCredito filtro = FiltroCredito.builder().tipoCredito(tipo).build();
+        return ResponseEntity.ok(creditoService.buscarCampos(filtro, fields, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/tipo/{tipo}?cursor=
+     * Busca créditos por tipo com paginação por cursor
+     */
+    @GetMapping(value = "/tipo/{tipo}", params = "cursor")
+    public ResponseEntity<CursorPageDTO<CreditoDTO>> buscarPorTipoComCursor(
+            @PathVariable TipoCredito tipo,
+            @RequestParam(defaultValue = "") String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/tipo/{} - cursor: {}, size: {}", tipo, cursor, size);
+        return ResponseEntity.ok(creditoService.buscarPorTipoComCursor(tipo, cursor, size));
+    }
+
     /**
      * GET /api/v1/creditos/cnpj/{cnpj}
      * Busca créditos por CNPJ
@@ -113,6 +333,63 @@ public class CreditoController {
         return ResponseEntity.ok(creditoService.buscarPorCNPJ(cnpj));
     }
 
+    /**
+     * GET /api/v1/creditos/cnpj/{cnpj}?fields=
+     * Busca créditos por CNPJ retornando apenas os campos pedidos, paginado
+     */
+    @GetMapping(value = "/cnpj/{cnpj}", params = "fields")
+    public ResponseEntity<Page<Map<String, Object>>> buscarPorCNPJCampos(
+            @PathVariable String cnpj,
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/cnpj/{} - fields: {}, page: {}, size: {}", cnpj, fields, page, size);
+        FiltroCredito filtro = FiltroCredito.builder().cnpjEmpresa(cnpj).build();
+        return ResponseEntity.ok(creditoService.buscarCampos(filtro, fields, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/cnpj/{cnpj}/resumo
+     * Quantidade e soma do ISSQN do CNPJ por status e por tipo
+     */
+    @GetMapping("/cnpj/{cnpj}/resumo")
+    public ResponseEntity<ResumoCnpjDTO> buscarResumoPorCNPJ(@PathVariable String cnpj) {
+        log.info("GET /api/v1/creditos/cnpj/{}/resumo - Buscando resumo do CNPJ", cnpj);
+        return ResponseEntity.ok(creditoService.buscarResumoPorCNPJ(cnpj));
+    }
+
+    /**
+     * POST /api/v1/creditos/cnpj/{cnpj}/resumo/reconstruir
+     * Recalcula o resumo do CNPJ a partir dos créditos gravados
+     */
+    @PostMapping("/cnpj/{cnpj}/resumo/reconstruir")
+    public ResponseEntity<ResumoCnpjDTO> reconstruirResumoPorCNPJ(@PathVariable String cnpj) {
+        log.info("POST /api/v1/creditos/cnpj/{}/resumo/reconstruir - Reconstruindo resumo do CNPJ", cnpj);
+        return ResponseEntity.ok(creditoService.reconstruirResumoPorCNPJ(cnpj));
+    }
+
+    /**
+     * POST /api/v1/creditos/resumo/reconstruir
+     * Recalcula os resumos de todos os CNPJs
+     */
+    @PostMapping("/resumo/reconstruir")
+    public ResponseEntity<Void> reconstruirResumos() {
+        log.info("POST /api/v1/creditos/resumo/reconstruir - Reconstruindo resumos por CNPJ");
+        creditoService.reconstruirResumos();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * GET /api/v1/creditos/cnpj/{cnpj} (Accept: application/x-ndjson)
+     * Exporta os créditos do CNPJ em NDJSON, escrevendo cada linha à medida que é lida
+     */
+    @GetMapping(value = "/cnpj/{cnpj}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarPorCNPJ(@PathVariable String cnpj) {
+        log.info("GET /api/v1/creditos/cnpj/{} - Exportando créditos em NDJSON", cnpj);
+        return ndjson(consumidor -> creditoService.exportarPorCNPJ(cnpj, consumidor));
+    }
+
     /**
      * GET /api/v1/creditos/periodo
      * Busca créditos por período
@@ -126,6 +403,116 @@ public class CreditoController {
         return ResponseEntity.ok(creditoService.buscarPorPeriodo(dataInicio, dataFim));
     }
 
+    /**
+     * GET /api/v1/creditos/periodo?fields=
+     * Busca créditos por período retornando apenas os campos pedidos, paginado
+     */
+    @GetMapping(value = "/periodo", params = "fields")
+    public ResponseEntity<Page<Map<String, Object>>> buscarPorPeriodoCampos(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/periodo - dataInicio: {}, dataFim: {}, fields: {}, page: {}, size: {}",
+                dataInicio, dataFim, fields, page, size);
+        FiltroCredito filtro = FiltroCredito.builder().dataInicio(dataInicio).dataFim(dataFim).build();
+        return ResponseEntity.ok(creditoService.buscarCampos(filtro, fields, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/periodo/agregado
+     * Quantidade e soma do ISSQN por dia ou mês de constituição, separadas por tipo
+     */
+    @GetMapping("/periodo/agregado")
+    public ResponseEntity<List<AgregadoPeriodoDTO>> buscarAgregadoPorPeriodo(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(defaultValue = "MES") GranularidadePeriodo granularidade) {
+
+        log.info("GET /api/v1/creditos/periodo/agregado - dataInicio: {}, dataFim: {}, granularidade: {}",
+                dataInicio, dataFim, granularidade);
+        return ResponseEntity.ok(creditoService.buscarAgregadoPorPeriodo(dataInicio, dataFim, granularidade));
+    }
+
+    /**
+     * POST /api/v1/creditos/periodo/agregado/reconstruir
+     * Recalcula os agregados por período a partir dos créditos gravados
+     */
+    @PostMapping("/periodo/agregado/reconstruir")
+    public ResponseEntity<Void> reconstruirAgregadosPorPeriodo() {
+        log.info("POST /api/v1/creditos/periodo/agregado/reconstruir - Reconstruindo agregados por período");
+        creditoService.reconstruirAgregadosPorPeriodo();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * GET /api/v1/creditos/periodo (Accept: application/x-ndjson)
+     * Exporta os créditos do período em NDJSON, escrevendo cada linha à medida que é lida
+     */
+    @GetMapping(value = "/periodo", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarPorPeriodo(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim) {
+
+        log.info("GET /api/v1/creditos/periodo - Exportando NDJSON - dataInicio: {}, dataFim: {}", dataInicio, dataFim);
+        return ndjson(consumidor -> creditoService.exportarPorPeriodo(dataInicio, dataFim, consumidor));
+    }
+
+    /**
+     * POST /api/v1/creditos/exportacoes
+     * Agenda a exportação compactada (gzip) dos créditos de um CNPJ ou de um período de
+     * constituição; o andamento fica em Location
+     */
+    @PostMapping("/exportacoes")
+    public ResponseEntity<ExportacaoDTO> exportar(
+            @RequestParam(required = false) String cnpjEmpresa,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(defaultValue = "CSV") FormatoExportacao formato) {
+
+        log.info("POST /api/v1/creditos/exportacoes - CNPJ: {}, período: {} a {}, formato: {}",
+                cnpjEmpresa, dataInicio, dataFim, formato);
+        if ((cnpjEmpresa != null) == (dataInicio != null || dataFim != null)) {
+            throw new IllegalArgumentException("Informe cnpjEmpresa ou o período (dataInicio e dataFim)");
+        }
+        ExportacaoDTO exportacao = cnpjEmpresa != null
+                ? creditoExportacao.exportarPorCNPJ(cnpjEmpresa, formato)
+                : creditoExportacao.exportarPorPeriodo(dataInicio, dataFim, formato);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/creditos/exportacoes/" + exportacao.getId()))
+                .body(exportacao);
+    }
+
+    /**
+     * GET /api/v1/creditos/exportacoes/{id}
+     * Andamento da exportação: total do filtro, linhas escritas e último id
+     */
+    @GetMapping("/exportacoes/{id}")
+    public ResponseEntity<ExportacaoDTO> buscarExportacao(@PathVariable String id) {
+        log.info("GET /api/v1/creditos/exportacoes/{}", id);
+        return ResponseEntity.ok(creditoExportacao.buscar(id));
+    }
+
+    /**
+     * GET /api/v1/creditos/exportacoes/{id}/arquivo
+     * Download do arquivo gzip de uma exportação concluída, com Range para retomar downloads
+     */
+    @GetMapping("/exportacoes/{id}/arquivo")
+    public void baixarExportacao(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        log.info("GET /api/v1/creditos/exportacoes/{}/arquivo - Range: {}", id, range);
+        CreditoExportacao.Arquivo arquivo = creditoExportacao.arquivo(id);
+        EnvioArquivo.enviar(arquivo.caminho(), arquivo.tamanho(), arquivo.etag(), arquivo.nome(), "application/gzip",
+                range, ifRange, request, response);
+    }
+
     /**
      * GET /api/v1/creditos/cnpj/{cnpj}/status/{status}
      * Busca créditos por CNPJ e status
@@ -142,6 +529,53 @@ public class CreditoController {
         return ResponseEntity.ok(creditoService.buscarPorCNPJEStatus(cnpj, status, pageable));
     }
 
+    /**
+     * GET /api/v1/creditos/cnpj/{cnpj}/status/{status}?contar=false
+     * Busca créditos por CNPJ e status sem contagem
+     */
+    @GetMapping(value = "/cnpj/{cnpj}/status/{status}", params = {"contar=false", "!cursor", "!fields"})
+    public ResponseEntity<Slice<CreditoDTO>> buscarPorCNPJEStatusSemContagem(
+            @PathVariable String cnpj,
+            @PathVariable StatusCredito status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/cnpj/{}/status/{} - sem contagem, page: {}, size: {}", cnpj, status, page, size);
+        return ResponseEntity.ok(creditoService.buscarPorCNPJEStatusSemContagem(cnpj, status, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/cnpj/{cnpj}/status/{status}?fields=
+     * Busca créditos por CNPJ e status retornando apenas os campos pedidos
+     */
+    @GetMapping(value = "/cnpj/{cnpj}/status/{status}", params = {"fields", "!cursor"})
+    public ResponseEntity<Page<Map<String, Object>>> buscarPorCNPJEStatusCampos(
+            @PathVariable String cnpj,
+            @PathVariable StatusCredito status,
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/cnpj/{}/status/{} - fields: {}", cnpj, status, fields);
+        FiltroCredito filtro = FiltroCredito.builder().cnpjEmpresa(cnpj).status(status).build();
+        return ResponseEntity.ok(creditoService.buscarCampos(filtro, fields, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/cnpj/{cnpj}/status/{status}?cursor=
+     * Busca créditos por CNPJ e status com paginação por cursor
+     */
+    @GetMapping(value = "/cnpj/{cnpj}/status/{status}", params = "cursor")
+    public ResponseEntity<CursorPageDTO<CreditoDTO>> buscarPorCNPJEStatusComCursor(
+            @PathVariable String cnpj,
+            @PathVariable StatusCredito status,
+            @RequestParam(defaultValue = "") String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/cnpj/{}/status/{} - cursor: {}, size: {}", cnpj, status, cursor, size);
+        return ResponseEntity.ok(creditoService.buscarPorCNPJEStatusComCursor(cnpj, status, cursor, size));
+    }
+
     /**
      * GET /api/v1/creditos/buscar
      * Busca créditos por termo (número ou NFS-e)
@@ -157,41 +591,185 @@ public class CreditoController {
         return ResponseEntity.ok(creditoService.buscarPorTermo(termo, pageable));
     }
 
+    /**
+     * GET /api/v1/creditos/buscar?contar=false
+     * Busca créditos por termo sem contagem
+     */
+    @GetMapping(value = "/buscar", params = {"contar=false", "!cursor", "!fields"})
+    public ResponseEntity<Slice<CreditoDTO>> buscarPorTermoSemContagem(
+            @RequestParam String termo,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/buscar - termo: {}, sem contagem, page: {}, size: {}", termo, page, size);
+        return ResponseEntity.ok(creditoService.buscarPorTermoSemContagem(termo, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/buscar?fields=
+     * Busca créditos por termo retornando apenas os campos pedidos
+     */
+    @GetMapping(value = "/buscar", params = {"fields", "!cursor"})
+    public ResponseEntity<Page<Map<String, Object>>> buscarPorTermoCampos(
+            @RequestParam String termo,
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/buscar - termo: {}, fields: {}", termo, fields);
+        FiltroCredito filtro = FiltroCredito.builder().termo(termo).build();
+        return ResponseEntity.ok(creditoService.buscarCampos(filtro, fields, PageRequest.of(page, size)));
+    }
+
+    /**
+     * GET /api/v1/creditos/buscar?cursor=
+     * Busca créditos por termo com paginação por cursor
+     */
+    @GetMapping(value = "/buscar", params = "cursor")
+    public ResponseEntity<CursorPageDTO<CreditoDTO>> buscarPorTermoComCursor(
+            @RequestParam String termo,
+            @RequestParam(defaultValue = "") String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+
+        log.info("GET /api/v1/creditos/buscar - termo: {}, cursor: {}, size: {}", termo, cursor, size);
+        return ResponseEntity.ok(creditoService.buscarPorTermoComCursor(termo, cursor, size));
+    }
+
     /**
      * POST /api/v1/creditos
-     * Cria um novo crédito
+     * Cria um novo crédito. Com Idempotency-Key, a repetição da chave devolve a resposta
+     * da primeira criação (com Idempotent-Replayed: true) em vez de criar de novo.
      */
     @PostMapping
-    public ResponseEntity<CreditoDTO> criar(@RequestBody CreditoDTO creditoDTO) {
+    public ResponseEntity<CreditoDTO> criar(
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String chaveIdempotencia,
+            @RequestBody CreditoDTO creditoDTO) {
         log.info("POST /api/v1/creditos - Criando novo crédito");
-        CreditoDTO created = creditoService.criar(creditoDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        if (chaveIdempotencia == null || chaveIdempotencia.isBlank()) {
+            CreditoDTO created = creditoService.criar(creditoDTO);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(EtagCredito.de(created)).body(created);
+        }
+        CreditoIdempotencia.Resposta resposta = creditoIdempotencia.criar(
+                chaveIdempotencia, creditoDTO, () -> creditoService.criar(creditoDTO));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.CREATED).eTag(EtagCredito.de(resposta.credito()));
+        if (resposta.repetida()) {
+            builder.header(IDEMPOTENT_REPLAYED, "true");
+        }
+        return builder.body(resposta.credito());
+    }
+
+    /**
+     * POST /api/v1/creditos/lote
+     * Cria ou atualiza um lote de créditos pelo número do crédito constituído
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<ResultadoLoteDTO> processarLote(@RequestBody List<CreditoDTO> creditos) {
+        log.info("POST /api/v1/creditos/lote - Processando lote de {} créditos", creditos.size());
+        return ResponseEntity.ok(creditoService.processarLote(creditos));
+    }
+
+    /**
+     * POST /api/v1/creditos/importacoes
+     * Recebe um arquivo CSV (multipart, campo "arquivo") e agenda a importação; o andamento
+     * fica em Location
+     */
+    @PostMapping(value = "/importacoes", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportacaoDTO> importar(@RequestParam("arquivo") MultipartFile arquivo) {
+        log.info("POST /api/v1/creditos/importacoes - Arquivo: {} ({} bytes)", arquivo.getOriginalFilename(), arquivo.getSize());
+        ImportacaoDTO importacao = creditoImportacao.iniciar(arquivo);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/creditos/importacoes/" + importacao.getId()))
+                .body(importacao);
+    }
+
+    /**
+     * GET /api/v1/creditos/importacoes/{id}
+     * Andamento da importação: bytes e linhas processados, totais e linhas por segundo
+     */
+    @GetMapping("/importacoes/{id}")
+    public ResponseEntity<ImportacaoDTO> buscarImportacao(@PathVariable String id) {
+        log.info("GET /api/v1/creditos/importacoes/{}", id);
+        return ResponseEntity.ok(creditoImportacao.buscar(id));
+    }
+
+    /**
+     * POST /api/v1/creditos/importacoes/{id}/retomar
+     * Retoma do último bloco confirmado uma importação que falhou
+     */
+    @PostMapping("/importacoes/{id}/retomar")
+    public ResponseEntity<ImportacaoDTO> retomarImportacao(@PathVariable String id) {
+        log.info("POST /api/v1/creditos/importacoes/{}/retomar", id);
+        return ResponseEntity.accepted().body(creditoImportacao.retomar(id));
+    }
+
+    /**
+     * GET /api/v1/creditos/importacoes/{id}/rejeitos
+     * Linhas rejeitadas da importação (CSV com linha, erro e registro original)
+     */
+    @GetMapping("/importacoes/{id}/rejeitos")
+    public ResponseEntity<Resource> buscarRejeitosImportacao(@PathVariable String id) {
+        log.info("GET /api/v1/creditos/importacoes/{}/rejeitos", id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .body(new FileSystemResource(creditoImportacao.rejeitos(id)));
     }
 
     /**
      * PUT /api/v1/creditos/{id}
-     * Atualiza um crédito existente
+     * Atualiza um crédito existente. If-Match (ou o campo versao do corpo) exige a versão atual
      */
     @PutMapping("/{id}")
     public ResponseEntity<CreditoDTO> atualizar(
             @PathVariable Long id,
-            @RequestBody CreditoDTO creditoDTO) {
+            @RequestBody CreditoDTO creditoDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         log.info("PUT /api/v1/creditos/{} - Atualizando crédito", id);
-        return ResponseEntity.ok(creditoService.atualizar(id, creditoDTO));
+        if (ifMatch != null) {
+            creditoDTO.setVersao(EtagCredito.versaoExigida(ifMatch, id));
+        }
+        CreditoDTO atualizado = creditoService.atualizar(id, creditoDTO);
+        return ResponseEntity.ok().eTag(EtagCredito.de(atualizado)).body(atualizado);
     }
 
     /**
      * PATCH /api/v1/creditos/{id}/status
-     * Altera o status de um crédito
+     * Altera o status de um crédito. If-Match exige a versão atual
      */
     @PatchMapping("/{id}/status")
     public ResponseEntity<CreditoDTO> alterarStatus(
             @PathVariable Long id,
-            @RequestParam StatusCredito novoStatus) {
+            @RequestParam StatusCredito novoStatus,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         log.info("PATCH /api/v1/creditos/{}/status - Novo status: {}", id, novoStatus);
-        return ResponseEntity.ok(creditoService.alterarStatus(id, novoStatus));
+        Long versaoExigida = ifMatch != null ? EtagCredito.versaoExigida(ifMatch, id) : null;
+        CreditoDTO alterado = creditoService.alterarStatus(id, novoStatus, versaoExigida);
+        return ResponseEntity.ok().eTag(EtagCredito.de(alterado)).body(alterado);
+    }
+
+    /**
+     * PATCH /api/v1/creditos/status
+     * Altera o status de todos os créditos do filtro (ao menos um critério), em blocos
+     */
+    @PatchMapping("/status")
+    public ResponseEntity<ResultadoAlteracaoStatusDTO> alterarStatusEmLote(
+            @RequestParam StatusCredito novoStatus,
+            @RequestParam(required = false) String cnpjEmpresa,
+            @RequestParam(required = false) TipoCredito tipoCredito,
+            @RequestParam(required = false) StatusCredito status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim) {
+
+        log.info("PATCH /api/v1/creditos/status - Novo status: {}", novoStatus);
+        FiltroCredito filtro = FiltroCredito.builder()
+                .cnpjEmpresa(cnpjEmpresa)
+                .tipoCredito(tipoCredito)
+                .status(status)
+                .dataInicio(dataInicio)
+                .dataFim(dataFim)
+                .build();
+        return ResponseEntity.ok(creditoService.alterarStatusEmLote(filtro, novoStatus));
     }
 
     /**
@@ -205,6 +783,155 @@ public class CreditoController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Monta a resposta NDJSON: a exportação roda fora da thread da requisição,
+     * com um objeto JSON por linha
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<CreditoDTO>> exportacao) {
+        StreamingResponseBody corpo = saida -> {
+            OutputStream buffer = new BufferedOutputStream(saida, TAMANHO_BUFFER_NDJSON);
+            exportacao.accept(creditoDTO -> {
+                try {
+                    buffer.write(jsonMapper.writeValueAsBytes(creditoDTO));
+                    buffer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            buffer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(corpo);
+    }
+
+    /**
+     * GET condicional: com If-None-Match, consulta só a versão e responde 304 se a ETag
+     * ainda é a atual; caso contrário carrega o crédito e devolve a ETag nova
+     */
+    private ResponseEntity<CreditoDTO> condicional(String ifNoneMatch, Supplier<Optional<CreditoVersao>> versao,
+                                                   Supplier<CreditoDTO> buscar) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = versao.get().map(v -> EtagCredito.de(v.getId(), v.getVersao()));
+            if (etag.isPresent() && EtagCredito.corresponde(ifNoneMatch, etag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+            }
+        }
+        CreditoDTO credito = buscar.get();
+        return ResponseEntity.ok().eTag(EtagCredito.de(credito)).body(credito);
+    }
+
+    /**
+     * If-Match (ou versao no corpo) diferente da versão atual
+     */
+    @ExceptionHandler(VersaoDivergenteException.class)
+    public ResponseEntity<ErrorResponse> handleVersaoDivergente(VersaoDivergenteException ex) {
+        log.warn("Pré-condição falhou: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag(EtagCredito.de(ex.getId(), ex.getVersaoAtual()))
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    /**
+     * Crédito inexistente: resultado esperado das consultas por número digitado errado,
+     * registrado só em debug
+     */
+    @ExceptionHandler(CreditoNaoEncontradoException.class)
+    public ResponseEntity<ErrorResponse> handleNaoEncontrado(CreditoNaoEncontradoException ex) {
+        log.debug("Crédito não encontrado: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    @ExceptionHandler(ImportacaoNaoEncontradaException.class)
+    public ResponseEntity<ErrorResponse> handleImportacaoNaoEncontrada(ImportacaoNaoEncontradaException ex) {
+        log.warn("Importação não encontrada: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    @ExceptionHandler(ExportacaoNaoEncontradaException.class)
+    public ResponseEntity<ErrorResponse> handleExportacaoNaoEncontrada(ExportacaoNaoEncontradaException ex) {
+        log.warn("Exportação não encontrada: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    /**
+     * Criação com número já existente (inclusive a perdedora de duas criações simultâneas)
+     */
+    @ExceptionHandler(CreditoDuplicadoException.class)
+    public ResponseEntity<ErrorResponse> handleCreditoDuplicado(CreditoDuplicadoException ex) {
+        log.warn("Crédito duplicado: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    /**
+     * Idempotency-Key repetida com outro corpo de requisição
+     */
+    @ExceptionHandler(ChaveIdempotenciaReutilizadaException.class)
+    public ResponseEntity<ErrorResponse> handleChaveIdempotenciaReutilizada(ChaveIdempotenciaReutilizadaException ex) {
+        log.warn("Idempotency-Key reutilizada: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_CONTENT)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    /**
+     * A criação original com a mesma Idempotency-Key ainda não terminou: o cliente repete depois
+     */
+    @ExceptionHandler(IdempotenciaEmAndamentoException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotenciaEmAndamento(IdempotenciaEmAndamentoException ex) {
+        log.warn("Idempotency-Key em andamento: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    /**
+     * Restrição de integridade violada na gravação (ex.: número duplicado no upsert em lote concorrente)
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleIntegridade(DataIntegrityViolationException ex) {
+        log.warn("Violação de integridade: {}", ex.getMostSpecificCause().getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorResponse("Crédito em conflito com um registro existente"));
+    }
+
+    /**
+     * Outra requisição gravou o crédito entre a leitura e o commit (@Version)
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleConflitoDeVersao(OptimisticLockingFailureException ex) {
+        log.warn("Conflito de escrita concorrente: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorResponse("Crédito alterado por outra requisição; busque a versão atual e tente novamente"));
+    }
+
+    /**
+     * Pool de conexões esgotado: nenhuma conexão ficou livre dentro do connection-timeout.
+     * Com réplicas, a conexão só é obtida no primeiro comando da transação, e a falha chega
+     * como DataAccessResourceFailureException (ou CannotGetJdbcConnectionException)
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class,
+            CannotGetJdbcConnectionException.class})
+    public ResponseEntity<ErrorResponse> handleSemConexao(RuntimeException ex) {
+        log.warn("Sem conexão disponível com o banco: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse("Serviço temporariamente sobrecarregado, tente novamente"));
+    }
+
+    /**
+     * Parâmetros inválidos (ex.: cursor malformado)
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
+        log.warn("Requisição inválida: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
     /**
      * Exception handler
      */
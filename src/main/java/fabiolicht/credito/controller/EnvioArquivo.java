@@ -0,0 +1,134 @@
+package fabiolicht.credito.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Envio de arquivos com Range (um intervalo de bytes) e If-Range, para downloads que podem
+ * ser retomados. No Tomcat o corpo sai por sendfile: o conector copia o arquivo para o socket
+ * com FileChannel.transferTo, fora da thread da requisição. Sem sendfile (TLS, outro
+ * container), a cópia é um FileChannel.transferTo para o canal da resposta.
+ */
+final class EnvioArquivo {
+
+    // Atributos de requisição do sendfile do Tomcat
+    static final String SENDFILE_SUPORTADO = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_ARQUIVO = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_FIM = "org.apache.tomcat.sendfile.end";
+
+    private static final String UNIDADE_BYTES = "bytes";
+    private static final String PREFIXO_RANGE = UNIDADE_BYTES + "=";
+
+    private EnvioArquivo() {
+    }
+
+    static void enviar(Path arquivo, long tamanho, String etag, String nome, String contentType,
+                       String range, String ifRange, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, UNIDADE_BYTES);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(nome).build().toString());
+        response.setContentType(contentType);
+
+        // If-Range com outra ETag: o arquivo mudou desde o download parcial, vai inteiro
+        Intervalo intervalo = ifRange == null || ifRange.trim().equals(etag)
+                ? Intervalo.de(range, tamanho) : Intervalo.inteiro(tamanho);
+        if (intervalo == null) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, UNIDADE_BYTES + " */" + tamanho);
+            return;
+        }
+        if (intervalo.parcial()) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    UNIDADE_BYTES + " " + intervalo.inicio() + "-" + intervalo.fim() + "/" + tamanho);
+        }
+        long quantidade = intervalo.quantidade();
+        response.setContentLengthLong(quantidade);
+        if (quantidade == 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPORTADO))) {
+            request.setAttribute(SENDFILE_ARQUIVO, arquivo.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, intervalo.inicio());
+            request.setAttribute(SENDFILE_FIM, intervalo.fim() + 1);
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            WritableByteChannel saida = Channels.newChannel(response.getOutputStream());
+            long posicao = intervalo.inicio();
+            long restante = quantidade;
+            while (restante > 0) {
+                long enviados = canal.transferTo(posicao, restante, saida);
+                if (enviados <= 0) {
+                    throw new IOException("Arquivo menor que o esperado: " + arquivo);
+                }
+                posicao += enviados;
+                restante -= enviados;
+            }
+        }
+    }
+
+    /**
+     * Intervalo de bytes a enviar, com fim inclusivo
+     */
+    record Intervalo(long inicio, long fim, boolean parcial) {
+
+        static Intervalo inteiro(long tamanho) {
+            return new Intervalo(0, tamanho - 1, false);
+        }
+
+        /**
+         * Intervalo pedido em Range; Range ausente, malformado ou com vários intervalos resulta no
+         * arquivo inteiro (o servidor pode ignorar o Range) e um início além do fim, em null (416)
+         */
+        static Intervalo de(String range, long tamanho) {
+            if (range == null || !range.regionMatches(true, 0, PREFIXO_RANGE, 0, PREFIXO_RANGE.length())) {
+                return inteiro(tamanho);
+            }
+            String especificacao = range.substring(PREFIXO_RANGE.length()).trim();
+            int hifen = especificacao.indexOf('-');
+            if (hifen < 0 || especificacao.indexOf(',') >= 0) {
+                return inteiro(tamanho);
+            }
+            try {
+                String inicio = especificacao.substring(0, hifen).trim();
+                String fim = especificacao.substring(hifen + 1).trim();
+                if (inicio.isEmpty()) {
+                    // bytes=-n: os últimos n bytes
+                    long sufixo = Long.parseLong(fim);
+                    if (sufixo <= 0 || tamanho == 0) {
+                        return null;
+                    }
+                    return new Intervalo(Math.max(0, tamanho - sufixo), tamanho - 1, true);
+                }
+                long primeiro = Long.parseLong(inicio);
+                long ultimo = fim.isEmpty() ? Long.MAX_VALUE : Long.parseLong(fim);
+                if (primeiro < 0 || ultimo < primeiro) {
+                    return inteiro(tamanho);
+                }
+                if (primeiro >= tamanho) {
+                    return null;
+                }
+                return new Intervalo(primeiro, Math.min(ultimo, tamanho - 1), true);
+            } catch (NumberFormatException e) {
+                return inteiro(tamanho);
+            }
+        }
+
+        long quantidade() {
+            return fim - inicio + 1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package fabiolicht.credito.controller;
+
+import fabiolicht.credito.dto.CreditoDTO;
+
+/**
+ * ETags dos créditos no formato "id-versao". O id entra na ETag para que um crédito
+ * removido e recriado com o mesmo número ou NFS-e não seja confundido com o anterior.
+ */
+final class EtagCredito {
+
+    /**
+     * Versão que nenhum crédito tem: If-Match malformado ou de outro crédito sempre falha
+     */
+    static final long VERSAO_INEXISTENTE = -1L;
+
+    private static final String QUALQUER = "*";
+    private static final String PREFIXO_FRACA = "W/";
+
+    private EtagCredito() {
+    }
+
+    static String de(Long id, Long versao) {
+        return "\"" + id + "-" + versao + "\"";
+    }
+
+    static String de(CreditoDTO credito) {
+        return de(credito.getId(), credito.getVersao());
+    }
+
+    /**
+     * If-None-Match: comparação fraca contra a lista recebida
+     */
+    static boolean corresponde(String ifNoneMatch, String etag) {
+        for (String candidata : ifNoneMatch.split(",")) {
+            String valor = candidata.trim();
+            if (valor.startsWith(PREFIXO_FRACA)) {
+                valor = valor.substring(PREFIXO_FRACA.length());
+            }
+            if (QUALQUER.equals(valor) || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-Match: versão exigida para o crédito, ou null para "*". A comparação é forte e
+     * aceita uma única ETag; qualquer outro valor resulta em VERSAO_INEXISTENTE.
+     */
+    static Long versaoExigida(String ifMatch, Long id) {
+        String valor = ifMatch.trim();
+        if (QUALQUER.equals(valor)) {
+            return null;
+        }
+        String prefixo = "\"" + id + "-";
+        if (valor.length() > prefixo.length() + 1 && valor.startsWith(prefixo) && valor.endsWith("\"")) {
+            try {
+                return Long.parseLong(valor.substring(prefixo.length(), valor.length() - 1));
+            } catch (NumberFormatException e) {
+                return VERSAO_INEXISTENTE;
+            }
+        }
+        return VERSAO_INEXISTENTE;
+    }
+}
@@ -0,0 +1,35 @@
+package fabiolicht.credito.dto;
+
+import fabiolicht.credito.model.TipoCredito;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Totais de um dia ou mês de constituição; no mês, periodo é o primeiro dia
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgregadoPeriodoDTO {
+
+    private LocalDate periodo;
+    private long quantidade;
+    private BigDecimal valorTotal;
+    private Map<TipoCredito, TotaisDTO> porTipo;
+
+    public static AgregadoPeriodoDTO vazio(LocalDate periodo) {
+        return new AgregadoPeriodoDTO(periodo, 0, BigDecimal.ZERO, new EnumMap<>(TipoCredito.class));
+    }
+
+    public void somar(TipoCredito tipo, long quantidade, BigDecimal valor) {
+        this.quantidade += quantidade;
+        this.valorTotal = this.valorTotal.add(valor);
+        porTipo.computeIfAbsent(tipo, t -> TotaisDTO.zero()).somar(quantidade, valor);
+    }
+}
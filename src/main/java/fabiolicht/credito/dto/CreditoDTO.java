@@ -29,4 +29,5 @@ public class CreditoDTO {
     private LocalDateTime dataAtualizacao;
     private String responsavel;
     private String cnpjEmpresa;
+    private Long versao;
 }
@@ -0,0 +1,37 @@
+package fabiolicht.credito.dto;
+
+import fabiolicht.credito.model.FormatoExportacao;
+import fabiolicht.credito.model.SituacaoExportacao;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Andamento de uma exportação; durante a execução, as linhas vêm do nó que a executa
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExportacaoDTO {
+
+    private String id;
+    private FormatoExportacao formato;
+    private String cnpjEmpresa;
+    private LocalDate periodoInicio;
+    private LocalDate periodoFim;
+    private SituacaoExportacao situacao;
+    private long total;
+    private long linhas;
+    private double percentual;
+    private long ultimoId;
+    private long tamanhoArquivo;
+    private String mensagemErro;
+    private LocalDateTime dataCriacao;
+    private LocalDateTime dataInicio;
+    private LocalDateTime dataFim;
+}
@@ -0,0 +1,31 @@
+package fabiolicht.credito.dto;
+
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Critérios das consultas dinâmicas de créditos. Campos nulos não filtram.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroCredito {
+
+    private StatusCredito status;
+    private TipoCredito tipoCredito;
+    private String cnpjEmpresa;
+    private LocalDate dataInicio;
+    private LocalDate dataFim;
+    // Substring do número do crédito ou da NFS-e
+    private String termo;
+    // Ids já resolvidos fora do banco (ex.: pelo índice de trigramas)
+    private Collection<Long> ids;
+}
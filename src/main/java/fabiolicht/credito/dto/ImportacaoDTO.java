@@ -0,0 +1,36 @@
+package fabiolicht.credito.dto;
+
+import fabiolicht.credito.model.SituacaoImportacao;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Andamento de uma importação até o último bloco confirmado
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportacaoDTO {
+
+    private String id;
+    private String nomeArquivo;
+    private SituacaoImportacao situacao;
+    private long tamanhoArquivo;
+    private long bytesProcessados;
+    private double percentual;
+    private long linhas;
+    private long criados;
+    private long atualizados;
+    private long rejeitados;
+    // Linhas por segundo de processamento (sem contar o tempo parado entre execuções)
+    private double linhasPorSegundo;
+    private String mensagemErro;
+    private LocalDateTime dataCriacao;
+    private LocalDateTime dataInicio;
+    private LocalDateTime dataFim;
+}
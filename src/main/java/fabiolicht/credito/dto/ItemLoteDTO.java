@@ -0,0 +1,28 @@
+package fabiolicht.credito.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado do processamento de um item do lote, na posição em que foi enviado
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ItemLoteDTO {
+
+    private int indice;
+    private String numeroCreditoConstituido;
+    private Long id;
+    private Operacao operacao;
+    private String mensagem;
+
+    public enum Operacao {
+        CRIADO,
+        ATUALIZADO,
+        REJEITADO
+    }
+}
@@ -0,0 +1,27 @@
+package fabiolicht.credito.dto;
+
+import fabiolicht.credito.model.StatusCredito;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Resultado da alteração de status em lote: totais dos blocos confirmados
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultadoAlteracaoStatusDTO {
+
+    private StatusCredito novoStatus;
+    private long alterados;
+    private int blocos;
+    private Map<StatusCredito, Long> porStatusAnterior;
+    // Maior id alterado (0 se nenhum)
+    private long ultimoId;
+    private long duracaoMs;
+}
@@ -0,0 +1,32 @@
+package fabiolicht.credito.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLoteDTO {
+
+    private int total;
+    private long criados;
+    private long atualizados;
+    private long rejeitados;
+    private List<ItemLoteDTO> itens;
+
+    public static ResultadoLoteDTO of(List<ItemLoteDTO> itens) {
+        return new ResultadoLoteDTO(
+                itens.size(),
+                contar(itens, ItemLoteDTO.Operacao.CRIADO),
+                contar(itens, ItemLoteDTO.Operacao.ATUALIZADO),
+                contar(itens, ItemLoteDTO.Operacao.REJEITADO),
+                itens);
+    }
+
+    private static long contar(List<ItemLoteDTO> itens, ItemLoteDTO.Operacao operacao) {
+        return itens.stream().filter(item -> item.getOperacao() == operacao).count();
+    }
+}
@@ -0,0 +1,22 @@
+package fabiolicht.credito.dto;
+
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoCnpjDTO {
+
+    private String cnpjEmpresa;
+    private long quantidade;
+    private BigDecimal valorTotal;
+    private Map<StatusCredito, TotaisDTO> porStatus;
+    private Map<TipoCredito, TotaisDTO> porTipo;
+}
@@ -0,0 +1,28 @@
+package fabiolicht.credito.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Quantidade de créditos e soma do ISSQN de um grupo
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TotaisDTO {
+
+    private long quantidade;
+    private BigDecimal valorTotal;
+
+    public static TotaisDTO zero() {
+        return new TotaisDTO(0, BigDecimal.ZERO);
+    }
+
+    public void somar(long quantidade, BigDecimal valor) {
+        this.quantidade += quantidade;
+        this.valorTotal = this.valorTotal.add(valor);
+    }
+}
@@ -0,0 +1,121 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.config.KafkaTopicConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estado do consumo de creditos-notification neste nó, usado pelo filtro de Bloom para
+ * decidir se pode responder que um crédito não existe. O consumo está em dia quando
+ * todas as partições do tópico estão atribuídas e cada uma teve lag zero confirmado
+ * há pouco, ao fim de um lote ou num evento de ociosidade do container.
+ * <p>
+ * Registrado no container do tópico pelo KafkaConsumerConfig. Na atribuição a posição
+ * é resolvida antes de anotar o instante: com auto.offset.reset=latest, tudo o que for
+ * publicado depois dele é entregue a este nó.
+ */
+@Component
+@Slf4j
+public class ConsumoNotificacoes implements ConsumerAwareRebalanceListener {
+
+    private static final long NUNCA = Long.MIN_VALUE;
+
+    private final Map<TopicPartition, Particao> particoes = new ConcurrentHashMap<>();
+    private volatile int totalParticoes;
+
+    @Value("${credito.bloom.notificacoes.validade-lag:5s}")
+    private Duration validadeLag = Duration.ofSeconds(5);
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> atribuidas) {
+        for (TopicPartition particao : atribuidas) {
+            if (KafkaTopicConfig.TOPICO_NOTIFICACAO.equals(particao.topic())) {
+                consumer.position(particao);
+                particoes.put(particao, new Particao(System.nanoTime()));
+            }
+        }
+        totalParticoes = consumer.partitionsFor(KafkaTopicConfig.TOPICO_NOTIFICACAO).size();
+        log.info("Partições de notificação atribuídas: {} de {}", particoes.size(), totalParticoes);
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revogadas) {
+        revogadas.forEach(particoes::remove);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> perdidas) {
+        perdidas.forEach(particoes::remove);
+    }
+
+    /**
+     * Anota o lag das partições do consumer; chamado na thread dele, após processar o lote
+     */
+    public void registrarLag(Consumer<?, ?> consumer) {
+        long agora = System.nanoTime();
+        for (TopicPartition particao : consumer.assignment()) {
+            Particao estado = particoes.get(particao);
+            if (estado != null) {
+                OptionalLong lag = consumer.currentLag(particao);
+                estado.lagZeroEm = lag.isPresent() && lag.getAsLong() == 0 ? agora : NUNCA;
+            }
+        }
+    }
+
+    /**
+     * Sem registros a entregar o listener não é chamado: a ociosidade renova a confirmação do lag
+     */
+    @EventListener
+    public void onOcioso(ListenerContainerIdleEvent event) {
+        if (event.getConsumer() != null && event.getTopicPartitions() != null
+                && event.getTopicPartitions().stream()
+                .anyMatch(particao -> KafkaTopicConfig.TOPICO_NOTIFICACAO.equals(particao.topic()))) {
+            registrarLag(event.getConsumer());
+        }
+    }
+
+    /**
+     * Instante (System.nanoTime) da atribuição mais recente, ou vazio se falta alguma partição
+     */
+    public OptionalLong atribuidoEm() {
+        int total = totalParticoes;
+        if (total == 0 || particoes.size() < total) {
+            return OptionalLong.empty();
+        }
+        return particoes.values().stream().mapToLong(particao -> particao.atribuidaEm).max();
+    }
+
+    /**
+     * Todas as partições atribuídas e com lag zero confirmado dentro da validade
+     */
+    public boolean isEmDia() {
+        if (atribuidoEm().isEmpty()) {
+            return false;
+        }
+        long limite = System.nanoTime() - validadeLag.toNanos();
+        return particoes.values().stream()
+                .allMatch(particao -> particao.lagZeroEm != NUNCA && particao.lagZeroEm - limite >= 0);
+    }
+
+    private static final class Particao {
+
+        private final long atribuidaEm;
+        private volatile long lagZeroEm = NUNCA;
+
+        private Particao(long atribuidaEm) {
+            this.atribuidaEm = atribuidaEm;
+        }
+    }
+}
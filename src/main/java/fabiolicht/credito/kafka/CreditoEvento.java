@@ -0,0 +1,92 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.model.TipoEventoCredito;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Evento publicado em creditos-events. Carrega o estado completo do crédito após a
+ * alteração (ou antes dela, na exclusão) e o status anterior quando ele mudou.
+ * Eventos de lote trazem apenas os totais e os ids gravados; os de alteração de status
+ * em lote, o status novo, o anterior (se era um só) e os ids alterados.
+ * <p>
+ * Ordem de entrega (chave da mensagem):
+ * <ul>
+ *   <li>eventos de um crédito: chave = id; chegam na ordem das escritas do crédito</li>
+ *   <li>eventos de lote e de status em lote: chave = "cnpj:" + CNPJ quando todos os
+ *   créditos do bloco são da mesma empresa, senão "lote"; chegam na ordem entre si
+ *   para a mesma chave</li>
+ * </ul>
+ * Não há ordem entre um evento de lote e os eventos individuais dos mesmos créditos,
+ * que estão em outras partições: quem precisa do estado atual após um evento de lote
+ * deve consultá-lo pela API.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreditoEvento {
+
+    private TipoEventoCredito tipo;
+    private long id;
+    private String numeroCreditoConstituido;
+    private String numeroNFSe;
+    private LocalDate dataConstituicao;
+    private BigDecimal valorISSQN;
+    private TipoCredito tipoCredito;
+    private StatusCredito status;
+    private StatusCredito statusAnterior;
+    private String cnpjEmpresa;
+    private String responsavel;
+    private String descricao;
+
+    // Somente em CREDITO_LOTE_PROCESSADO
+    private int criados;
+    private int atualizados;
+    // Em CREDITO_LOTE_PROCESSADO e CREDITO_STATUS_LOTE_ALTERADO
+    private List<Long> ids;
+
+    public static CreditoEvento of(TipoEventoCredito tipo, CreditoDTO credito, StatusCredito statusAnterior) {
+        return CreditoEvento.builder()
+                .tipo(tipo)
+                .id(credito.getId())
+                .numeroCreditoConstituido(credito.getNumeroCreditoConstituido())
+                .numeroNFSe(credito.getNumeroNFSe())
+                .dataConstituicao(credito.getDataConstituicao())
+                .valorISSQN(credito.getValorISSQN())
+                .tipoCredito(credito.getTipoCredito())
+                .status(credito.getStatus())
+                .statusAnterior(statusAnterior)
+                .cnpjEmpresa(credito.getCnpjEmpresa())
+                .responsavel(credito.getResponsavel())
+                .descricao(credito.getDescricao())
+                .build();
+    }
+
+    public static CreditoEvento lote(int criados, int atualizados, List<Long> ids) {
+        return CreditoEvento.builder()
+                .tipo(TipoEventoCredito.CREDITO_LOTE_PROCESSADO)
+                .criados(criados)
+                .atualizados(atualizados)
+                .ids(ids)
+                .build();
+    }
+
+    public static CreditoEvento statusLote(StatusCredito status, StatusCredito statusAnterior, List<Long> ids) {
+        return CreditoEvento.builder()
+                .tipo(TipoEventoCredito.CREDITO_STATUS_LOTE_ALTERADO)
+                .status(status)
+                .statusAnterior(statusAnterior)
+                .ids(ids)
+                .build();
+    }
+}
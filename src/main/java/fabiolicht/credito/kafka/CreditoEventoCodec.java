@@ -0,0 +1,311 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.model.TipoEventoCredito;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato binário versionado dos eventos de crédito.
+ *
+ * <pre>
+ * byte   magic (0xCE)
+ * byte   versão
+ * byte   tipo do evento (TipoEventoCredito.codigo)
+ * long   id do crédito
+ * -- eventos de crédito
+ * str    numeroCreditoConstituido, numeroNFSe
+ * int    dataConstituicao (epoch day; Integer.MIN_VALUE = nulo)
+ * byte   escala do valorISSQN (-128 = nulo), long valor sem escala
+ * byte   tipoCredito, status, statusAnterior (código; -1 = nulo)
+ * str    cnpjEmpresa, responsavel, descricao
+ * -- CREDITO_LOTE_PROCESSADO
+ * int    criados, atualizados, quantidade de ids; long[] ids
+ * -- CREDITO_STATUS_LOTE_ALTERADO
+ * byte   status, statusAnterior (código; -1 = nulo)
+ * int    quantidade de ids; long[] ids
+ * </pre>
+ *
+ * Strings são UTF-8 prefixadas por um short com o tamanho (-1 = nulo). Os enums vão
+ * pelos códigos fixos de TipoCredito e StatusCredito (os ordinais da versão 1), não
+ * pelo ordinal: reordenar as constantes não muda o formato.
+ * <p>
+ * Compatibilidade: versões futuras só acrescentam campos ao final. O leitor aceita
+ * versões maiores que a sua e ignora os bytes além dos campos que conhece, de modo que
+ * os consumidores podem ser atualizados depois dos produtores. Um tipo de evento novo
+ * não muda a versão: CREDITO_STATUS_LOTE_ALTERADO (código 6) foi acrescentado na
+ * versão 1, e um consumidor anterior a ele não reconhece o código e descarta a
+ * mensagem com erro no log (CreditoEventoDeserializer). Por isso os consumidores
+ * precisam conhecer um tipo novo antes que algum produtor o publique.
+ * <p>
+ * A leitura usa posições absolutas sobre o ByteBuffer recebido, sem cópias.
+ * Mensagens que não começam pelo magic são lidas no formato texto legado
+ * ("TIPO:id:dados"), aceito durante a migração.
+ */
+public final class CreditoEventoCodec {
+
+    public static final byte MAGIC = (byte) 0xCE;
+    public static final byte VERSAO = 1;
+
+    private static final int POSICAO_TIPO = 2;
+    private static final int POSICAO_ID = 3;
+    private static final int TAMANHO_CABECALHO = 11;
+    private static final short STRING_NULA = -1;
+    private static final byte ESCALA_NULA = Byte.MIN_VALUE;
+    private static final byte ENUM_NULO = -1;
+    private static final int DATA_NULA = Integer.MIN_VALUE;
+
+    private CreditoEventoCodec() {
+    }
+
+    public static byte[] encode(CreditoEvento evento) {
+        byte[] numero = utf8(evento.getNumeroCreditoConstituido());
+        byte[] nfse = utf8(evento.getNumeroNFSe());
+        byte[] cnpj = utf8(evento.getCnpjEmpresa());
+        byte[] responsavel = utf8(evento.getResponsavel());
+        byte[] descricao = utf8(evento.getDescricao());
+        List<Long> ids = evento.getIds() != null ? evento.getIds() : List.of();
+
+        int tamanho = TAMANHO_CABECALHO;
+        if (evento.getTipo() == TipoEventoCredito.CREDITO_LOTE_PROCESSADO) {
+            tamanho += 12 + 8 * ids.size();
+        } else if (evento.getTipo() == TipoEventoCredito.CREDITO_STATUS_LOTE_ALTERADO) {
+            tamanho += 6 + 8 * ids.size();
+        } else {
+            tamanho += tamanho(numero) + tamanho(nfse) + 4 + 1 + 8 + 3
+                    + tamanho(cnpj) + tamanho(responsavel) + tamanho(descricao);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+        buffer.put(MAGIC).put(VERSAO).put(evento.getTipo().getCodigo()).putLong(evento.getId());
+        if (evento.getTipo() == TipoEventoCredito.CREDITO_LOTE_PROCESSADO) {
+            buffer.putInt(evento.getCriados()).putInt(evento.getAtualizados());
+            putIds(buffer, ids);
+        } else if (evento.getTipo() == TipoEventoCredito.CREDITO_STATUS_LOTE_ALTERADO) {
+            buffer.put(codigo(evento.getStatus())).put(codigo(evento.getStatusAnterior()));
+            putIds(buffer, ids);
+        } else {
+            putString(buffer, numero);
+            putString(buffer, nfse);
+            buffer.putInt(evento.getDataConstituicao() != null ? (int) evento.getDataConstituicao().toEpochDay() : DATA_NULA);
+            putValor(buffer, evento.getValorISSQN());
+            buffer.put(codigo(evento.getTipoCredito()))
+                    .put(codigo(evento.getStatus()))
+                    .put(codigo(evento.getStatusAnterior()));
+            putString(buffer, cnpj);
+            putString(buffer, responsavel);
+            putString(buffer, descricao);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodifica o evento a partir da posição atual do buffer, sem alterá-la
+     */
+    public static CreditoEvento decode(ByteBuffer buffer) {
+        if (!isBinario(buffer)) {
+            return decodeLegado(buffer);
+        }
+        int inicio = buffer.position();
+        // Versões maiores só acrescentam campos ao final, ignorados aqui
+        byte versao = buffer.get(inicio + 1);
+        if (versao < 1) {
+            throw new IllegalArgumentException("Versão de evento não suportada: " + versao);
+        }
+
+        CreditoEvento evento = new CreditoEvento();
+        evento.setTipo(lerTipo(buffer));
+        evento.setId(lerId(buffer));
+
+        int pos = inicio + TAMANHO_CABECALHO;
+        if (evento.getTipo() == TipoEventoCredito.CREDITO_LOTE_PROCESSADO) {
+            evento.setCriados(buffer.getInt(pos));
+            evento.setAtualizados(buffer.getInt(pos + 4));
+            evento.setIds(getIds(buffer, pos + 8));
+            return evento;
+        }
+        if (evento.getTipo() == TipoEventoCredito.CREDITO_STATUS_LOTE_ALTERADO) {
+            evento.setStatus(statusOuNulo(buffer.get(pos)));
+            evento.setStatusAnterior(statusOuNulo(buffer.get(pos + 1)));
+            evento.setIds(getIds(buffer, pos + 2));
+            return evento;
+        }
+
+        evento.setNumeroCreditoConstituido(getString(buffer, pos));
+        pos = proximaString(buffer, pos);
+        evento.setNumeroNFSe(getString(buffer, pos));
+        pos = proximaString(buffer, pos);
+
+        int data = buffer.getInt(pos);
+        evento.setDataConstituicao(data != DATA_NULA ? LocalDate.ofEpochDay(data) : null);
+        byte escala = buffer.get(pos + 4);
+        evento.setValorISSQN(escala != ESCALA_NULA ? BigDecimal.valueOf(buffer.getLong(pos + 5), escala) : null);
+        pos += 13;
+
+        byte tipoCredito = buffer.get(pos);
+        evento.setTipoCredito(tipoCredito == ENUM_NULO ? null : TipoCredito.porCodigo(tipoCredito));
+        evento.setStatus(statusOuNulo(buffer.get(pos + 1)));
+        evento.setStatusAnterior(statusOuNulo(buffer.get(pos + 2)));
+        pos += 3;
+
+        evento.setCnpjEmpresa(getString(buffer, pos));
+        pos = proximaString(buffer, pos);
+        evento.setResponsavel(getString(buffer, pos));
+        pos = proximaString(buffer, pos);
+        evento.setDescricao(getString(buffer, pos));
+        return evento;
+    }
+
+    public static boolean isBinario(ByteBuffer buffer) {
+        return buffer.remaining() >= TAMANHO_CABECALHO && buffer.get(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Lê o tipo do evento binário sem alocar objetos
+     */
+    public static TipoEventoCredito lerTipo(ByteBuffer buffer) {
+        return TipoEventoCredito.porCodigo(buffer.get(buffer.position() + POSICAO_TIPO));
+    }
+
+    /**
+     * Lê o id do crédito do evento binário sem alocar objetos
+     */
+    public static long lerId(ByteBuffer buffer) {
+        return buffer.getLong(buffer.position() + POSICAO_ID);
+    }
+
+    /**
+     * Lê o formato texto legado: "TIPO:id:numero", "CREDITO_STATUS_ALTERADO:id:status"
+     * ou "CREDITO_LOTE_PROCESSADO:criados:atualizados:id,id,..."
+     */
+    static CreditoEvento decodeLegado(ByteBuffer buffer) {
+        String mensagem = StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+        int fimTipo = mensagem.indexOf(':');
+        if (fimTipo < 0) {
+            throw new IllegalArgumentException("Evento legado sem separador: " + mensagem);
+        }
+        CreditoEvento evento = new CreditoEvento();
+        evento.setTipo(TipoEventoCredito.valueOf(mensagem.substring(0, fimTipo)));
+
+        int fimPrimeiro = fimDoCampo(mensagem, fimTipo + 1);
+        long primeiro = Long.parseLong(mensagem, fimTipo + 1, fimPrimeiro, 10);
+        String dados = fimPrimeiro < mensagem.length() ? mensagem.substring(fimPrimeiro + 1) : "";
+
+        switch (evento.getTipo()) {
+            case CREDITO_LOTE_PROCESSADO -> {
+                int fimAtualizados = fimDoCampo(dados, 0);
+                evento.setCriados((int) primeiro);
+                evento.setAtualizados(Integer.parseInt(dados, 0, fimAtualizados, 10));
+                List<Long> ids = new ArrayList<>();
+                for (int inicio = fimAtualizados + 1; inicio < dados.length(); ) {
+                    int fim = dados.indexOf(',', inicio);
+                    fim = fim < 0 ? dados.length() : fim;
+                    ids.add(Long.parseLong(dados, inicio, fim, 10));
+                    inicio = fim + 1;
+                }
+                evento.setIds(ids);
+            }
+            case CREDITO_STATUS_ALTERADO -> {
+                evento.setId(primeiro);
+                evento.setStatus(StatusCredito.valueOf(dados));
+            }
+            default -> {
+                // O número do crédito é tudo o que vem após o id, inclusive eventuais ':'
+                evento.setId(primeiro);
+                evento.setNumeroCreditoConstituido(dados);
+            }
+        }
+        return evento;
+    }
+
+    private static int fimDoCampo(String mensagem, int inicio) {
+        int fim = mensagem.indexOf(':', inicio);
+        return fim < 0 ? mensagem.length() : fim;
+    }
+
+    private static byte[] utf8(String valor) {
+        return valor != null ? valor.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int tamanho(byte[] valor) {
+        return 2 + (valor != null ? valor.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] valor) {
+        if (valor == null) {
+            buffer.putShort(STRING_NULA);
+            return;
+        }
+        if (valor.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Campo excede o tamanho máximo do evento: " + valor.length + " bytes");
+        }
+        buffer.putShort((short) valor.length).put(valor);
+    }
+
+    private static void putValor(ByteBuffer buffer, BigDecimal valor) {
+        if (valor == null) {
+            buffer.put(ESCALA_NULA).putLong(0L);
+            return;
+        }
+        if (valor.scale() <= ESCALA_NULA || valor.scale() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Escala do valor não suportada: " + valor.scale());
+        }
+        buffer.put((byte) valor.scale()).putLong(valor.unscaledValue().longValueExact());
+    }
+
+    private static void putIds(ByteBuffer buffer, List<Long> ids) {
+        buffer.putInt(ids.size());
+        for (Long id : ids) {
+            buffer.putLong(id);
+        }
+    }
+
+    /**
+     * Lê a quantidade de ids na posição informada e os ids que a seguem
+     */
+    private static List<Long> getIds(ByteBuffer buffer, int pos) {
+        int quantidade = buffer.getInt(pos);
+        pos += 4;
+        List<Long> ids = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++, pos += 8) {
+            ids.add(buffer.getLong(pos));
+        }
+        return ids;
+    }
+
+    private static String getString(ByteBuffer buffer, int pos) {
+        short tamanho = buffer.getShort(pos);
+        if (tamanho == STRING_NULA) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + pos + 2, tamanho, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[tamanho];
+        buffer.get(pos + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int proximaString(ByteBuffer buffer, int pos) {
+        short tamanho = buffer.getShort(pos);
+        return pos + 2 + (tamanho == STRING_NULA ? 0 : tamanho);
+    }
+
+    private static byte codigo(TipoCredito tipo) {
+        return tipo != null ? tipo.getCodigo() : ENUM_NULO;
+    }
+
+    private static byte codigo(StatusCredito status) {
+        return status != null ? status.getCodigo() : ENUM_NULO;
+    }
+
+    private static StatusCredito statusOuNulo(byte codigo) {
+        return codigo == ENUM_NULO ? null : StatusCredito.porCodigo(codigo);
+    }
+}
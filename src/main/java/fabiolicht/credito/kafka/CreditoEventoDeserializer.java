@@ -0,0 +1,39 @@
+package fabiolicht.credito.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Desserializa eventos binários e, durante a migração, os eventos texto legados.
+ * Usa o ByteBuffer entregue pelo consumer sem copiar o payload. Mensagens
+ * malformadas são registradas no log e entregues como nulas, sem travar a partição.
+ */
+@Slf4j
+public class CreditoEventoDeserializer implements Deserializer<CreditoEvento> {
+
+    @Override
+    public CreditoEvento deserialize(String topic, byte[] data) {
+        return data != null ? deserialize(topic, null, ByteBuffer.wrap(data)) : null;
+    }
+
+    @Override
+    public CreditoEvento deserialize(String topic, Headers headers, byte[] data) {
+        return deserialize(topic, data);
+    }
+
+    @Override
+    public CreditoEvento deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return CreditoEventoCodec.decode(data);
+        } catch (RuntimeException e) {
+            log.error("Evento de crédito inválido no tópico {} ({} bytes): {}", topic, data.remaining(), e.getMessage());
+            return null;
+        }
+    }
+}
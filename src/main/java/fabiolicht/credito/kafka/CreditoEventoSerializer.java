@@ -0,0 +1,14 @@
+package fabiolicht.credito.kafka;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Serializa o CreditoEvento no formato binário do CreditoEventoCodec
+ */
+public class CreditoEventoSerializer implements Serializer<CreditoEvento> {
+
+    @Override
+    public byte[] serialize(String topic, CreditoEvento data) {
+        return data != null ? CreditoEventoCodec.encode(data) : null;
+    }
+}
@@ -1,55 +1,147 @@
 package fabiolicht.credito.kafka;
 
+import fabiolicht.credito.config.KafkaTopicConfig;
+import fabiolicht.credito.service.CreditoCache;
+import fabiolicht.credito.service.CreditoCacheSegundoNivel;
+import fabiolicht.credito.service.CreditoFiltroBloom;
+import fabiolicht.credito.service.CreditoTermoIndex;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Listeners em lote: cada poll entrega uma lista de registros e os offsets são
+ * confirmados uma vez por lote. A concorrência vem do KafkaConsumerConfig.
+ */
 @Service
 @Slf4j
 public class CreditoKafkaConsumer {
 
-    @KafkaListener(topics = "creditos-events", groupId = "creditos-group")
-    public void consumeCreditosEvent(String message) {
-        log.info("Recebido evento de créditos: {}", message);
-        processarEvento(message);
+    static final String METRICA_TAMANHO_LOTE = "creditos.kafka.lote.tamanho";
+    static final String METRICA_LAG = "creditos.kafka.consumer.lag";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CreditoCache creditoCache;
+
+    @Autowired
+    private CreditoCacheSegundoNivel creditoCacheSegundoNivel;
+
+    @Autowired
+    private CreditoFiltroBloom creditoFiltroBloom;
+
+    @Autowired
+    private CreditoTermoIndex creditoTermoIndex;
+
+    @Autowired
+    private ConsumoNotificacoes consumoNotificacoes;
+
+    private final Map<TopicPartition, AtomicLong> lagPorParticao = new ConcurrentHashMap<>();
+
+    @KafkaListener(topics = KafkaTopicConfig.TOPICO_EVENTOS, groupId = "creditos-group")
+    public void consumeCreditosEvent(List<ConsumerRecord<String, CreditoEvento>> registros, Consumer<?, ?> consumer) {
+        log.debug("Recebido lote de {} eventos de créditos", registros.size());
+        for (ConsumerRecord<String, CreditoEvento> registro : registros) {
+            // Valor nulo: mensagem malformada, o CreditoEventoDeserializer já registrou o erro
+            if (registro.value() != null) {
+                processarEvento(registro.value());
+            }
+        }
+        registrarMetricas(KafkaTopicConfig.TOPICO_EVENTOS, registros.size(), consumer);
     }
 
-    @KafkaListener(topics = "creditos-notification", groupId = "creditos-notification-group")
-    public void consumeNotification(String message) {
-        log.info("Recebida notificação de créditos: {}", message);
-        processarNotificacao(message);
+    /**
+     * Notificações de invalidação de cache: cada nó usa um group id próprio para
+     * receber todas as mensagens, a partir das mais recentes
+     */
+    @KafkaListener(topics = KafkaTopicConfig.TOPICO_NOTIFICACAO, groupId = "creditos-notification-#{@creditoCache.idNo}",
+            properties = {
+                    "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+                    "auto.offset.reset=latest"
+            })
+    public void consumeNotification(List<ConsumerRecord<String, String>> registros, Consumer<?, ?> consumer) {
+        log.debug("Recebido lote de {} notificações de créditos", registros.size());
+        for (ConsumerRecord<String, String> registro : registros) {
+            processarNotificacao(registro.key(), registro.value());
+        }
+        consumoNotificacoes.registrarLag(consumer);
+        registrarMetricas(KafkaTopicConfig.TOPICO_NOTIFICACAO, registros.size(), consumer);
     }
 
-    private void processarEvento(String message) {
+    void processarEvento(CreditoEvento evento) {
         try {
-            String[] partes = message.split(":");
-            if (partes.length >= 2) {
-                String tipoEvento = partes[0];
-                String dados = String.join(":", java.util.Arrays.copyOfRange(partes, 1, partes.length));
-
-                switch (tipoEvento) {
-                    case "CREDITO_CRIADO":
-                        log.info("Processando criação de crédito: {}", dados);
-                        break;
-                    case "CREDITO_ATUALIZADO":
-                        log.info("Processando atualização de crédito: {}", dados);
-                        break;
-                    case "CREDITO_DELETADO":
-                        log.info("Processando exclusão de crédito: {}", dados);
-                        break;
-                    case "CREDITO_STATUS_ALTERADO":
-                        log.info("Processando alteração de status: {}", dados);
-                        break;
-                    default:
-                        log.warn("Tipo de evento desconhecido: {}", tipoEvento);
-                }
+            switch (evento.getTipo()) {
+                case CREDITO_CRIADO ->
+                        log.info("Processando criação de crédito: {}", evento.getNumeroCreditoConstituido());
+                case CREDITO_ATUALIZADO ->
+                        log.info("Processando atualização de crédito: {}", evento.getNumeroCreditoConstituido());
+                case CREDITO_DELETADO ->
+                        log.info("Processando exclusão de crédito: {}", evento.getNumeroCreditoConstituido());
+                case CREDITO_STATUS_ALTERADO ->
+                        log.info("Processando alteração de status: {} -> {}", evento.getStatusAnterior(), evento.getStatus());
+                case CREDITO_LOTE_PROCESSADO ->
+                        log.info("Processando lote de créditos - criados: {}, atualizados: {}",
+                                evento.getCriados(), evento.getAtualizados());
+                case CREDITO_STATUS_LOTE_ALTERADO ->
+                        log.info("Processando alteração de status em lote: {} créditos -> {}",
+                                evento.getIds().size(), evento.getStatus());
             }
         } catch (Exception e) {
-            log.error("Erro ao processar evento: {}", message, e);
+            log.error("Erro ao processar evento: {}", evento, e);
+        }
+    }
+
+    private void processarNotificacao(String origem, String message) {
+        try {
+            creditoCache.onNotificacao(origem, message);
+            creditoCacheSegundoNivel.onNotificacao(origem, message);
+            creditoFiltroBloom.onNotificacao(message);
+            creditoTermoIndex.onNotificacao(origem, message);
+            log.debug("Notificação processada - origem: {}", origem);
+        } catch (Exception e) {
+            log.error("Erro ao processar notificação: {}", message, e);
+        }
+    }
+
+    /**
+     * Registra o tamanho do lote e o lag de cada partição atribuída ao consumer.
+     * O lag vem dos metadados do último fetch, sem chamada extra ao broker.
+     */
+    private void registrarMetricas(String topico, int tamanhoLote, Consumer<?, ?> consumer) {
+        DistributionSummary.builder(METRICA_TAMANHO_LOTE)
+                .description("Registros entregues por lote aos listeners")
+                .tag("topico", topico)
+                .register(meterRegistry)
+                .record(tamanhoLote);
+
+        for (TopicPartition particao : consumer.assignment()) {
+            consumer.currentLag(particao).ifPresent(lag -> lagDaParticao(particao).set(lag));
         }
     }
 
-    private void processarNotificacao(String message) {
-        log.info("Notificação processada: {}", message);
+    private AtomicLong lagDaParticao(TopicPartition particao) {
+        return lagPorParticao.computeIfAbsent(particao, p -> {
+            AtomicLong lag = new AtomicLong();
+            Gauge.builder(METRICA_LAG, lag, AtomicLong::get)
+                    .description("Registros ainda não consumidos na partição")
+                    .tag("topico", p.topic())
+                    .tag("particao", String.valueOf(p.partition()))
+                    .register(meterRegistry);
+            return lag;
+        });
     }
 }
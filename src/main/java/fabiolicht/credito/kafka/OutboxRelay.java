@@ -0,0 +1,177 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.model.OutboxEvento;
+import fabiolicht.credito.repository.OutboxEventoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Publica no Kafka os eventos gravados no outbox. Os envios de cada lote são
+ * disparados de uma vez (pipeline) e só então aguardados; os confirmados são
+ * marcados como enviados e os que falharem voltam a ser tentados no próximo ciclo.
+ * <p>
+ * Eventos da mesma chave são encadeados: o seguinte só sai após a confirmação do
+ * anterior, e uma falha adia os demais da chave para o próximo ciclo, sem contar
+ * tentativa. Assim um reenvio nunca chega depois de um evento posterior da mesma
+ * chave. Ao atingir o máximo de tentativas, o evento recebe dataFalha e deixa a fila;
+ * os seguintes da chave voltam a ser publicados.
+ * <p>
+ * Cada lote roda sob a trava de publicação do outbox: com vários nós, só um publica por
+ * vez e o próximo lote, em qualquer nó, começa pelo evento pendente de menor id.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "credito.outbox.relay.habilitado", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    @Autowired
+    private OutboxEventoRepository outboxEventoRepository;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${credito.outbox.relay.tamanho-lote:500}")
+    private int tamanhoLote = 500;
+
+    @Value("${credito.outbox.relay.timeout-envio-ms:10000}")
+    private long timeoutEnvioMs = 10000;
+
+    @Value("${credito.outbox.relay.maximo-tentativas:20}")
+    private int maximoTentativas = 20;
+
+    @Value("${credito.outbox.retencao-dias:7}")
+    private int retencaoDias = 7;
+
+    /**
+     * Drena o outbox em lotes até não restarem eventos pendentes ou ocorrer uma falha
+     */
+    @Scheduled(fixedDelayString = "${credito.outbox.relay.intervalo-ms:500}")
+    public void publicarPendentes() {
+        ResultadoEnvio resultado;
+        do {
+            resultado = transactionTemplate.execute(status -> publicarLote());
+        } while (resultado != null && resultado.falhas() == 0 && resultado.enviados() == tamanhoLote);
+    }
+
+    /**
+     * Remove os eventos já publicados há mais tempo que a retenção
+     */
+    @Scheduled(cron = "${credito.outbox.limpeza.cron:0 0 3 * * *}")
+    public void removerEnviados() {
+        Integer removidos = transactionTemplate.execute(status ->
+                outboxEventoRepository.removerEnviadosAntesDe(LocalDateTime.now().minusDays(retencaoDias)));
+        log.info("Eventos publicados removidos do outbox: {}", removidos);
+    }
+
+    ResultadoEnvio publicarLote() {
+        if (!outboxEventoRepository.travarPublicacao()) {
+            log.debug("Outbox sendo publicado por outro nó");
+            return new ResultadoEnvio(0, 0);
+        }
+        List<OutboxEvento> pendentes = outboxEventoRepository.buscarPendentes(Limit.of(tamanhoLote));
+        if (pendentes.isEmpty()) {
+            return new ResultadoEnvio(0, 0);
+        }
+
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutEnvioMs);
+        List<CompletableFuture<SendResult<String, byte[]>>> envios = new ArrayList<>(pendentes.size());
+        Map<String, CompletableFuture<SendResult<String, byte[]>>> ultimoPorChave = new HashMap<>();
+        for (OutboxEvento evento : pendentes) {
+            if (evento.getChave() == null) {
+                envios.add(enviar(evento));
+                continue;
+            }
+            String chave = evento.getTopico() + ':' + evento.getChave();
+            CompletableFuture<SendResult<String, byte[]>> anterior = ultimoPorChave.get(chave);
+            CompletableFuture<SendResult<String, byte[]>> envio = anterior == null
+                    ? enviar(evento)
+                    : anterior.handle((resultado, falha) -> falha == null && System.nanoTime() < prazo
+                            ? enviar(evento)
+                            : CompletableFuture.<SendResult<String, byte[]>>failedFuture(new EnvioAdiado()))
+                    .thenCompose(Function.identity());
+            ultimoPorChave.put(chave, envio);
+            envios.add(envio);
+        }
+
+        List<Long> enviados = new ArrayList<>(pendentes.size());
+        List<Long> falhos = new ArrayList<>();
+        int adiados = 0;
+        for (int i = 0; i < pendentes.size(); i++) {
+            Long id = pendentes.get(i).getId();
+            try {
+                envios.get(i).get(Math.max(0, prazo - System.nanoTime()), TimeUnit.NANOSECONDS);
+                enviados.add(id);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof EnvioAdiado) {
+                    adiados++;
+                } else {
+                    log.warn("Falha ao publicar evento {} do outbox: {}", id, e.getMessage());
+                    falhos.add(id);
+                }
+            } catch (TimeoutException e) {
+                log.warn("Evento {} do outbox sem confirmação no prazo de {} ms", id, timeoutEnvioMs);
+                falhos.add(id);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                falhos.add(id);
+            }
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        if (!enviados.isEmpty()) {
+            outboxEventoRepository.marcarEnviados(enviados, agora);
+        }
+        if (!falhos.isEmpty()) {
+            outboxEventoRepository.registrarFalha(falhos);
+            int esgotados = outboxEventoRepository.marcarFalhaDefinitiva(falhos, maximoTentativas, agora);
+            if (esgotados > 0) {
+                log.error("{} eventos do outbox atingiram {} tentativas e saíram da fila de publicação",
+                        esgotados, maximoTentativas);
+            }
+        }
+        log.debug("Lote do outbox publicado - enviados: {}, falhas: {}, adiados: {}", enviados.size(), falhos.size(), adiados);
+        return new ResultadoEnvio(enviados.size(), falhos.size() + adiados);
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> enviar(OutboxEvento evento) {
+        try {
+            return kafkaTemplate.send(evento.getTopico(), evento.getChave(), evento.getPayload());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    record ResultadoEnvio(int enviados, int falhas) {
+    }
+
+    /**
+     * Evento não enviado porque um anterior da mesma chave falhou ou o prazo do lote acabou
+     */
+    private static final class EnvioAdiado extends RuntimeException {
+        private EnvioAdiado() {
+            super(null, null, false, false);
+        }
+    }
+}
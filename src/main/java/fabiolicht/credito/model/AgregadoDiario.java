@@ -0,0 +1,45 @@
+package fabiolicht.credito.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totais de créditos por dia de constituição e tipo, atualizados a cada escrita.
+ * Os dias mais antigos que a retenção são compactados no AgregadoMensal.
+ */
+@Entity
+@Table(name = "creditos_agregado_dia")
+@IdClass(AgregadoDiario.Chave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgregadoDiario {
+
+    @Id
+    private LocalDate dia;
+
+    @Id
+    @Column(length = 50)
+    @Enumerated(EnumType.STRING)
+    private TipoCredito tipoCredito;
+
+    @Column(nullable = false)
+    private long quantidade;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal valorTotal;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private LocalDate dia;
+        private TipoCredito tipoCredito;
+    }
+}
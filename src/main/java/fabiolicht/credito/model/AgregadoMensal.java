@@ -0,0 +1,45 @@
+package fabiolicht.credito.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totais de créditos por mês de constituição (primeiro dia do mês) e tipo,
+ * formados pela compactação dos AgregadoDiario antigos.
+ */
+@Entity
+@Table(name = "creditos_agregado_mes")
+@IdClass(AgregadoMensal.Chave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgregadoMensal {
+
+    @Id
+    private LocalDate mes;
+
+    @Id
+    @Column(length = 50)
+    @Enumerated(EnumType.STRING)
+    private TipoCredito tipoCredito;
+
+    @Column(nullable = false)
+    private long quantidade;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal valorTotal;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private LocalDate mes;
+        private TipoCredito tipoCredito;
+    }
+}
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -11,13 +13,19 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "creditos")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Credito.REGIAO_CACHE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Credito {
 
+    // Região do cache de segundo nível (ver CacheSegundoNivelConfig)
+    public static final String REGIAO_CACHE = "credito";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "creditos_seq")
+    @SequenceGenerator(name = "creditos_seq", sequenceName = "creditos_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 50)
@@ -55,6 +63,12 @@ public class Credito {
     @Column(length = 20)
     private String cnpjEmpresa;
 
+    // Bloqueio otimista: incrementada a cada atualização; também compõe a ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long versao;
+
     @PrePersist
     protected void onCreate() {
         dataRegistro = LocalDateTime.now();
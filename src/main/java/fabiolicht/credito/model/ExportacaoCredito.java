@@ -0,0 +1,77 @@
+package fabiolicht.credito.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Exportação de créditos por CNPJ ou período para um arquivo compactado (gzip) no disco
+ * local do nó que a recebeu
+ */
+@Entity
+@Table(name = "creditos_exportacao", indexes = @Index(name = "idx_creditos_exportacao_situacao", columnList = "situacao, dataFim"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportacaoCredito {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private FormatoExportacao formato;
+
+    // Filtro: CNPJ ou período de constituição
+    @Column(length = 20)
+    private String cnpjEmpresa;
+
+    @Column
+    private LocalDate periodoInicio;
+
+    @Column
+    private LocalDate periodoFim;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private SituacaoExportacao situacao;
+
+    @Column(nullable = false, length = 1000)
+    private String arquivo;
+
+    // Créditos do filtro no início da exportação
+    @Column(nullable = false)
+    private long total;
+
+    @Column(nullable = false)
+    private long linhas;
+
+    @Column(nullable = false)
+    private long ultimoId;
+
+    // Tamanho do arquivo compactado
+    @Column(nullable = false)
+    private long tamanhoArquivo;
+
+    @Column(length = 1000)
+    private String mensagemErro;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+
+    @Column
+    private LocalDateTime dataInicio;
+
+    @Column
+    private LocalDateTime dataFim;
+
+    @PrePersist
+    protected void onCreate() {
+        dataCriacao = LocalDateTime.now();
+    }
+}
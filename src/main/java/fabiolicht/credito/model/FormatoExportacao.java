@@ -0,0 +1,16 @@
+package fabiolicht.credito.model;
+
+public enum FormatoExportacao {
+    CSV("csv"),
+    NDJSON("ndjson");
+
+    private final String extensao;
+
+    FormatoExportacao(String extensao) {
+        this.extensao = extensao;
+    }
+
+    public String getExtensao() {
+        return extensao;
+    }
+}
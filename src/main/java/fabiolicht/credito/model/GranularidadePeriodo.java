@@ -0,0 +1,16 @@
+package fabiolicht.credito.model;
+
+public enum GranularidadePeriodo {
+    DIA("Diária"),
+    MES("Mensal");
+
+    private final String descricao;
+
+    GranularidadePeriodo(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
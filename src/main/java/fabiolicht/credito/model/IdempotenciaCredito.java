@@ -0,0 +1,37 @@
+package fabiolicht.credito.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency-Key de uma criação, gravada na mesma transação que o crédito: a chave
+ * primária é o que impede dois nós de criarem para a mesma chave
+ */
+@Entity
+@Table(name = "creditos_idempotencia", indexes = @Index(name = "idx_creditos_idempotencia_criacao", columnList = "dataCriacao"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotenciaCredito {
+
+    public static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+    @Id
+    @Column(length = TAMANHO_MAXIMO_CHAVE)
+    private String chave;
+
+    // CreditoDTO da requisição, em JSON, para recusar a mesma chave com outro corpo
+    @Column(nullable = false, length = 4000)
+    private String requisicao;
+
+    // CreditoDTO devolvido na criação, em JSON
+    @Column(length = 4000)
+    private String resposta;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+}
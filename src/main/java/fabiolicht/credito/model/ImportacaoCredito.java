@@ -0,0 +1,83 @@
+package fabiolicht.credito.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Importação de créditos a partir de um arquivo CSV enviado. Guarda também o checkpoint:
+ * a posição em bytes e os totais até o último bloco confirmado, atualizados na mesma
+ * transação que grava o bloco.
+ */
+@Entity
+@Table(name = "creditos_importacao", indexes = @Index(name = "idx_creditos_importacao_situacao", columnList = "situacao"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacaoCredito {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(length = 255)
+    private String nomeArquivo;
+
+    // Caminho do arquivo no disco local do nó que recebeu o envio
+    @Column(nullable = false, length = 1000)
+    private String arquivo;
+
+    @Column(nullable = false)
+    private long tamanhoArquivo;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private SituacaoImportacao situacao;
+
+    // Byte seguinte à última linha do último bloco confirmado
+    @Column(nullable = false)
+    private long posicao;
+
+    @Column(nullable = false)
+    private long linhas;
+
+    @Column(nullable = false)
+    private long criados;
+
+    @Column(nullable = false)
+    private long atualizados;
+
+    @Column(nullable = false)
+    private long rejeitados;
+
+    // Tamanho do arquivo de rejeições no checkpoint: o que passar disso é descartado ao retomar
+    @Column(nullable = false)
+    private long tamanhoRejeitos;
+
+    // Tempo de processamento somado entre as execuções, sem as paradas
+    @Column(nullable = false)
+    private long duracaoMs;
+
+    @Column(length = 1000)
+    private String mensagemErro;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+
+    @Column
+    private LocalDateTime dataInicio;
+
+    @Column
+    private LocalDateTime dataAtualizacao;
+
+    @Column
+    private LocalDateTime dataFim;
+
+    @PrePersist
+    protected void onCreate() {
+        dataCriacao = LocalDateTime.now();
+    }
+}
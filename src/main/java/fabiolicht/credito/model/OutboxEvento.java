@@ -0,0 +1,54 @@
+package fabiolicht.credito.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento pendente de publicação no Kafka, gravado na mesma transação da escrita
+ * que o originou (transactional outbox)
+ */
+@Entity
+@Table(name = "creditos_outbox", indexes = @Index(name = "idx_creditos_outbox_envio", columnList = "dataEnvio, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvento {
+
+    // Incremento 1: com blocos por nó, a ordem do id deixaria de seguir a ordem de gravação
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "creditos_outbox_seq")
+    @SequenceGenerator(name = "creditos_outbox_seq", sequenceName = "creditos_outbox_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String topico;
+
+    @Column(length = 100)
+    private String chave;
+
+    // Evento no formato binário do CreditoEventoCodec
+    @Column(nullable = false, length = 1048576)
+    private byte[] payload;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+
+    @Column
+    private LocalDateTime dataEnvio;
+
+    @Column(nullable = false)
+    private int tentativas;
+
+    // Tentativas esgotadas: o evento sai da fila de publicação e aguarda tratamento manual
+    @Column
+    private LocalDateTime dataFalha;
+
+    @PrePersist
+    protected void onCreate() {
+        dataCriacao = LocalDateTime.now();
+    }
+}
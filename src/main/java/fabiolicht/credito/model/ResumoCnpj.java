@@ -0,0 +1,51 @@
+package fabiolicht.credito.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Totais de créditos de um CNPJ por status e tipo. Mantido de forma incremental
+ * pelo CreditoResumoCnpj a cada escrita e reconstruível a partir da tabela creditos.
+ */
+@Entity
+@Table(name = "creditos_resumo_cnpj")
+@IdClass(ResumoCnpj.Chave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoCnpj {
+
+    @Id
+    @Column(length = 20)
+    private String cnpjEmpresa;
+
+    @Id
+    @Column(length = 50)
+    @Enumerated(EnumType.STRING)
+    private StatusCredito status;
+
+    @Id
+    @Column(length = 50)
+    @Enumerated(EnumType.STRING)
+    private TipoCredito tipoCredito;
+
+    @Column(nullable = false)
+    private long quantidade;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal valorTotal;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private String cnpjEmpresa;
+        private StatusCredito status;
+        private TipoCredito tipoCredito;
+    }
+}
@@ -0,0 +1,18 @@
+package fabiolicht.credito.model;
+
+public enum SituacaoImportacao {
+    AGUARDANDO("Aguardando"),
+    EM_ANDAMENTO("Em andamento"),
+    CONCLUIDA("Concluída"),
+    FALHOU("Falhou");
+
+    private final String descricao;
+
+    SituacaoImportacao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
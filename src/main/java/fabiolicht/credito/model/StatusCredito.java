@@ -1,19 +1,43 @@
 package fabiolicht.credito.model;
 
 public enum StatusCredito {
-    ATIVO("Ativo"),
-    INATIVO("Inativo"),
-    PENDENTE("Pendente"),
-    PROCESSANDO("Processando"),
-    ERRO("Erro");
+    ATIVO((byte) 0, "Ativo"),
+    INATIVO((byte) 1, "Inativo"),
+    PENDENTE((byte) 2, "Pendente"),
+    PROCESSANDO((byte) 3, "Processando"),
+    ERRO((byte) 4, "Erro");
 
+    private static final StatusCredito[] POR_CODIGO = new StatusCredito[5];
+
+    static {
+        for (StatusCredito valor : values()) {
+            POR_CODIGO[valor.codigo] = valor;
+        }
+    }
+
+    private final byte codigo;
     private final String descricao;
 
-    StatusCredito(String descricao) {
+    StatusCredito(byte codigo, String descricao) {
+        this.codigo = codigo;
         this.descricao = descricao;
     }
 
+    public byte getCodigo() {
+        return codigo;
+    }
+
     public String getDescricao() {
         return descricao;
     }
+
+    /**
+     * Status pelo código gravado nos eventos binários; um status novo recebe código novo
+     */
+    public static StatusCredito porCodigo(byte codigo) {
+        if (codigo < 0 || codigo >= POR_CODIGO.length || POR_CODIGO[codigo] == null) {
+            throw new IllegalArgumentException("Código de status desconhecido: " + codigo);
+        }
+        return POR_CODIGO[codigo];
+    }
 }
@@ -1,19 +1,43 @@
 package fabiolicht.credito.model;
 
 public enum TipoCredito {
-    PRINCIPAL("Principal"),
-    COMPLEMENTAR("Complementar"),
-    ADICIONAL("Adicional"),
-    RETIFICACAO("Retificação"),
-    CANCELAMENTO("Cancelamento");
+    PRINCIPAL((byte) 0, "Principal"),
+    COMPLEMENTAR((byte) 1, "Complementar"),
+    ADICIONAL((byte) 2, "Adicional"),
+    RETIFICACAO((byte) 3, "Retificação"),
+    CANCELAMENTO((byte) 4, "Cancelamento");
 
+    private static final TipoCredito[] POR_CODIGO = new TipoCredito[5];
+
+    static {
+        for (TipoCredito valor : values()) {
+            POR_CODIGO[valor.codigo] = valor;
+        }
+    }
+
+    private final byte codigo;
     private final String descricao;
 
-    TipoCredito(String descricao) {
+    TipoCredito(byte codigo, String descricao) {
+        this.codigo = codigo;
         this.descricao = descricao;
     }
 
+    public byte getCodigo() {
+        return codigo;
+    }
+
     public String getDescricao() {
         return descricao;
     }
+
+    /**
+     * Código estável do formato binário dos eventos, independente da ordem de declaração
+     */
+    public static TipoCredito porCodigo(byte codigo) {
+        if (codigo < 0 || codigo >= POR_CODIGO.length || POR_CODIGO[codigo] == null) {
+            throw new IllegalArgumentException("Código de tipo de crédito desconhecido: " + codigo);
+        }
+        return POR_CODIGO[codigo];
+    }
 }
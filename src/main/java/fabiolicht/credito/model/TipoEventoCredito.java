@@ -0,0 +1,46 @@
+package fabiolicht.credito.model;
+
+public enum TipoEventoCredito {
+    CREDITO_CRIADO((byte) 1, "Crédito criado"),
+    CREDITO_ATUALIZADO((byte) 2, "Crédito atualizado"),
+    CREDITO_DELETADO((byte) 3, "Crédito deletado"),
+    CREDITO_STATUS_ALTERADO((byte) 4, "Status do crédito alterado"),
+    CREDITO_LOTE_PROCESSADO((byte) 5, "Lote de créditos processado"),
+    CREDITO_STATUS_LOTE_ALTERADO((byte) 6, "Status de créditos alterado em lote");
+
+    private static final TipoEventoCredito[] POR_CODIGO = new TipoEventoCredito[7];
+
+    static {
+        for (TipoEventoCredito tipo : values()) {
+            POR_CODIGO[tipo.codigo] = tipo;
+        }
+    }
+
+    private final byte codigo;
+    private final String descricao;
+
+    TipoEventoCredito(byte codigo, String descricao) {
+        this.codigo = codigo;
+        this.descricao = descricao;
+    }
+
+    public byte getCodigo() {
+        return codigo;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    /**
+     * Código estável usado no formato binário dos eventos; não deve ser reaproveitado.
+     * Um código novo não muda a versão do formato: os consumidores precisam conhecê-lo
+     * antes dos produtores (ver CreditoEventoCodec).
+     */
+    public static TipoEventoCredito porCodigo(byte codigo) {
+        if (codigo <= 0 || codigo >= POR_CODIGO.length || POR_CODIGO[codigo] == null) {
+            throw new IllegalArgumentException("Código de evento desconhecido: " + codigo);
+        }
+        return POR_CODIGO[codigo];
+    }
+}
@@ -0,0 +1,67 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.model.AgregadoDiario;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AgregadoDiarioRepository extends JpaRepository<AgregadoDiario, AgregadoDiario.Chave> {
+
+    // Tabela afetada pelas escritas nativas (mesmo motivo de ResumoCnpjRepository.TABELA)
+    String TABELA = "creditos_agregado_dia";
+
+    List<AgregadoDiario> findByDiaBetween(LocalDate inicio, LocalDate fim);
+
+    /**
+     * Trava os dias anteriores ao limite para a compactação: deltas concorrentes
+     * nesses dias esperam a compactação terminar
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM AgregadoDiario a WHERE a.dia < :limite")
+    List<AgregadoDiario> travarAnterioresA(@Param("limite") LocalDate limite);
+
+    /**
+     * Soma o delta à linha do dia, criando-a zerada se ainda não existir
+     * (mesma sequência do ResumoCnpjRepository.aplicarDelta)
+     */
+    default int aplicarDelta(LocalDate dia, String tipo, long quantidade, BigDecimal valor) {
+        criarSeAusente(dia, tipo);
+        return somarDelta(dia, tipo, quantidade, valor);
+    }
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = TABELA))
+    @Query(value = """
+            INSERT INTO creditos_agregado_dia (dia, tipo_credito, quantidade, valor_total)
+            VALUES (CAST(:dia AS DATE), CAST(:tipo AS VARCHAR(50)), 0, 0)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int criarSeAusente(@Param("dia") LocalDate dia, @Param("tipo") String tipo);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = TABELA))
+    @Query(value = """
+            UPDATE creditos_agregado_dia
+            SET quantidade = quantidade + :quantidade, valor_total = valor_total + :valor
+            WHERE dia = :dia AND tipo_credito = :tipo
+            """, nativeQuery = true)
+    int somarDelta(@Param("dia") LocalDate dia, @Param("tipo") String tipo,
+                   @Param("quantidade") long quantidade,
+                   @Param("valor") BigDecimal valor);
+
+    @Modifying
+    @Query("DELETE FROM AgregadoDiario a")
+    int removerTodos();
+}
@@ -0,0 +1,56 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.model.AgregadoMensal;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AgregadoMensalRepository extends JpaRepository<AgregadoMensal, AgregadoMensal.Chave> {
+
+    // Tabela afetada pelas escritas nativas (mesmo motivo de ResumoCnpjRepository.TABELA)
+    String TABELA = "creditos_agregado_mes";
+
+    List<AgregadoMensal> findByMesBetween(LocalDate inicio, LocalDate fim);
+
+    /**
+     * Soma o delta à linha do mês, criando-a zerada se ainda não existir
+     */
+    default int aplicarDelta(LocalDate mes, String tipo, long quantidade, BigDecimal valor) {
+        criarSeAusente(mes, tipo);
+        return somarDelta(mes, tipo, quantidade, valor);
+    }
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = TABELA))
+    @Query(value = """
+            INSERT INTO creditos_agregado_mes (mes, tipo_credito, quantidade, valor_total)
+            VALUES (CAST(:mes AS DATE), CAST(:tipo AS VARCHAR(50)), 0, 0)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int criarSeAusente(@Param("mes") LocalDate mes, @Param("tipo") String tipo);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = TABELA))
+    @Query(value = """
+            UPDATE creditos_agregado_mes
+            SET quantidade = quantidade + :quantidade, valor_total = valor_total + :valor
+            WHERE mes = :mes AND tipo_credito = :tipo
+            """, nativeQuery = true)
+    int somarDelta(@Param("mes") LocalDate mes, @Param("tipo") String tipo,
+                   @Param("quantidade") long quantidade,
+                   @Param("valor") BigDecimal valor);
+
+    @Modifying
+    @Query("DELETE FROM AgregadoMensal a")
+    int removerTodos();
+}
@@ -0,0 +1,48 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.dto.FiltroCredito;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.StatusCredito;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Escritas em um único comando SQL, sem o findById prévio nem o flush por dirty checking.
+ * Os créditos retornados são desanexados e o contexto de persistência não é atualizado.
+ */
+public interface CreditoEscritaRepository {
+
+    /**
+     * Altera o status, incrementa a versao e grava dataAtualizacao. Retorna o crédito como
+     * estava antes da alteração, ou vazio se o id não existe ou a versão não é a esperada
+     * (versaoEsperada null aceita qualquer versão).
+     */
+    Optional<Credito> alterarStatusRetornandoAnterior(Long id, StatusCredito novoStatus, Long versaoEsperada,
+                                                      LocalDateTime dataAtualizacao);
+
+    /**
+     * Altera o status dos primeiros créditos do filtro (em ordem de id) com id maior que
+     * aposId e status diferente de novoStatus, no máximo limite, como em
+     * alterarStatusRetornandoAnterior. Retorna os créditos como estavam antes, em qualquer
+     * ordem. O termo do filtro não é considerado.
+     */
+    List<Credito> alterarStatusEmBloco(FiltroCredito filtro, StatusCredito novoStatus, long aposId, int limite,
+                                       LocalDateTime dataAtualizacao);
+
+    /**
+     * Remove o crédito e retorna a linha removida, ou vazio se o id não existe
+     */
+    Optional<Credito> removerRetornando(Long id);
+
+    /**
+     * Insere o crédito com INSERT ... ON CONFLICT (numero_credito_constituido) DO NOTHING e
+     * atribui a ele o id gerado pela sequence da entidade. Retorna false, sem gravar nada,
+     * se o número já existe (no PostgreSQL, outras violações, como a do id, lançam exceção);
+     * um crédito com o mesmo número ainda não confirmado por outra transação faz o comando
+     * esperar pelo commit ou rollback dela. Os valores de @PrePersist e @Version não são
+     * aplicados: dataRegistro, status e versao precisam vir preenchidos.
+     */
+    boolean inserirSeAusente(Credito credito);
+}
@@ -0,0 +1,241 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.dto.FiltroCredito;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.query.NativeQuery;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * No PostgreSQL usa UPDATE/DELETE ... RETURNING; nos demais bancos (H2 nos testes) lê a
+ * linha anterior da tabela delta OLD TABLE (comando). Nos dois casos é um único comando.
+ * O INSERT ... ON CONFLICT DO NOTHING vale nos dois (o H2 roda em MODE=PostgreSQL); só o
+ * PostgreSQL aceita restringi-lo à coluna do número.
+ */
+class CreditoEscritaRepositoryImpl implements CreditoEscritaRepository {
+
+    private static final List<String> COLUNAS = List.of(
+            "id", "numero_credito_constituido", "numeronfse", "data_constituicao", "valorissqn", "tipo_credito",
+            "descricao", "status", "data_registro", "data_atualizacao", "responsavel", "cnpj_empresa", "versao");
+
+    private static final String[] ESPACOS = {"creditos"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Boolean postgres;
+
+    @Override
+    public Optional<Credito> alterarStatusRetornandoAnterior(Long id, StatusCredito novoStatus, Long versaoEsperada,
+                                                             LocalDateTime dataAtualizacao) {
+        String condicaoVersao = versaoEsperada != null ? " AND c.versao = :versao" : "";
+        String sql = isPostgres()
+                // A subconsulta trava a linha e lê a versão mais recente dela, que é a devolvida
+                ? "UPDATE creditos c SET status = :status, versao = c.versao + 1, data_atualizacao = :dataAtualizacao "
+                + "FROM (SELECT " + colunas("") + " FROM creditos WHERE id = :id FOR UPDATE) anterior "
+                + "WHERE c.id = anterior.id" + condicaoVersao + " RETURNING " + colunas("anterior.")
+                : "SELECT " + colunas("") + " FROM OLD TABLE (UPDATE creditos c SET status = :status, "
+                + "versao = c.versao + 1, data_atualizacao = :dataAtualizacao WHERE c.id = :id" + condicaoVersao + ")";
+
+        NativeQuery<Object[]> query = consulta(sql)
+                .setParameter("id", id)
+                .setParameter("status", novoStatus.name())
+                .setParameter("dataAtualizacao", dataAtualizacao);
+        if (versaoEsperada != null) {
+            query.setParameter("versao", versaoEsperada);
+        }
+        invalidarCacheSegundoNivel(List.of(id));
+        return primeira(query.getResultList());
+    }
+
+    @Override
+    public List<Credito> alterarStatusEmBloco(FiltroCredito filtro, StatusCredito novoStatus, long aposId, int limite,
+                                              LocalDateTime dataAtualizacao) {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        String selecao = " FROM creditos WHERE id > :aposId AND status <> :status" + condicoes(filtro, parametros)
+                + " ORDER BY id LIMIT :limite";
+        String sql = isPostgres()
+                ? "UPDATE creditos c SET status = :status, versao = c.versao + 1, data_atualizacao = :dataAtualizacao "
+                + "FROM (SELECT " + colunas("") + selecao + " FOR UPDATE) anterior "
+                + "WHERE c.id = anterior.id RETURNING " + colunas("anterior.")
+                : "SELECT " + colunas("") + " FROM OLD TABLE (UPDATE creditos c SET status = :status, "
+                + "versao = c.versao + 1, data_atualizacao = :dataAtualizacao WHERE c.id IN (SELECT id" + selecao + "))";
+
+        NativeQuery<Object[]> query = consulta(sql)
+                .setParameter("aposId", aposId)
+                .setParameter("status", novoStatus.name())
+                .setParameter("limite", limite)
+                .setParameter("dataAtualizacao", dataAtualizacao);
+        parametros.forEach(query::setParameter);
+        List<Credito> anteriores = query.getResultList().stream().map(CreditoEscritaRepositoryImpl::credito).toList();
+        invalidarCacheSegundoNivel(anteriores.stream().map(Credito::getId).toList());
+        return anteriores;
+    }
+
+    @Override
+    public Optional<Credito> removerRetornando(Long id) {
+        String sql = isPostgres()
+                ? "DELETE FROM creditos WHERE id = :id RETURNING " + colunas("")
+                : "SELECT " + colunas("") + " FROM OLD TABLE (DELETE FROM creditos WHERE id = :id)";
+        invalidarCacheSegundoNivel(List.of(id));
+        return primeira(consulta(sql).setParameter("id", id).getResultList());
+    }
+
+    @Override
+    public boolean inserirSeAusente(Credito credito) {
+        SharedSessionContractImplementor sessao = entityManager.unwrap(SharedSessionContractImplementor.class);
+        // Mesmo gerador (pooled) do persist: os ids não colidem com os gravados pelo Hibernate
+        BeforeExecutionGenerator gerador = (BeforeExecutionGenerator) sessao.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Credito.class).getGenerator();
+        Long id = (Long) gerador.generate(sessao, credito, null, EventType.INSERT);
+        // No PostgreSQL só o número repetido é ignorado: outra violação (ex.: id já usado) continua
+        // sendo erro. O H2 não aceita o alvo do ON CONFLICT.
+        String conflito = isPostgres() ? "ON CONFLICT (numero_credito_constituido) DO NOTHING" : "ON CONFLICT DO NOTHING";
+
+        NativeQuery<?> insercao = entityManager.createNativeQuery("INSERT INTO creditos (" + colunas("")
+                        + ") VALUES (:id, :numero, :nfse, :dataConstituicao, :valor, :tipo, :descricao, :status, "
+                        + ":dataRegistro, :dataAtualizacao, :responsavel, :cnpj, :versao) " + conflito)
+                .unwrap(NativeQuery.class);
+        int inseridos = insercao.addSynchronizedEntityClass(Credito.class)
+                .setParameter("id", id)
+                .setParameter("numero", credito.getNumeroCreditoConstituido(), String.class)
+                .setParameter("nfse", credito.getNumeroNFSe(), String.class)
+                .setParameter("dataConstituicao", credito.getDataConstituicao(), LocalDate.class)
+                .setParameter("valor", credito.getValorISSQN(), BigDecimal.class)
+                .setParameter("tipo", credito.getTipoCredito() != null ? credito.getTipoCredito().name() : null, String.class)
+                .setParameter("descricao", credito.getDescricao(), String.class)
+                .setParameter("status", credito.getStatus().name(), String.class)
+                .setParameter("dataRegistro", credito.getDataRegistro(), LocalDateTime.class)
+                .setParameter("dataAtualizacao", credito.getDataAtualizacao(), LocalDateTime.class)
+                .setParameter("responsavel", credito.getResponsavel(), String.class)
+                .setParameter("cnpj", credito.getCnpjEmpresa(), String.class)
+                .setParameter("versao", credito.getVersao(), Long.class)
+                .executeUpdate();
+        if (inseridos == 0) {
+            return false;
+        }
+        credito.setId(id);
+        return true;
+    }
+
+    /**
+     * UPDATE/DELETE executados como consulta não passam pela limpeza do executeUpdate: marca
+     * a tabela como alterada para as consultas em cache (antes do comando e após o fim da
+     * transação, como o Hibernate faz) e remove só os créditos escritos do cache de entidades.
+     */
+    private void invalidarCacheSegundoNivel(List<Long> ids) {
+        SharedSessionContractImplementor sessao = entityManager.unwrap(SharedSessionContractImplementor.class);
+        CacheImplementor cache = sessao.getFactory().getCache();
+        TimestampsCache timestamps = cache.getTimestampsCache();
+        if (timestamps != null) {
+            timestamps.preInvalidate(ESPACOS, sessao);
+        }
+        sessao.getTransactionCompletionCallbacks().registerCallback((sucesso, s) -> {
+            if (timestamps != null) {
+                timestamps.invalidate(ESPACOS, s);
+            }
+            ids.forEach(id -> cache.evictEntityData(Credito.class, id));
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object[]> consulta(String sql) {
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        // Só o cache da entidade Credito fica sujeito à invalidação pelo comando nativo
+        query.addSynchronizedEntityClass(Credito.class);
+        query.addScalar("id", Long.class)
+                .addScalar("numero_credito_constituido", String.class)
+                .addScalar("numeronfse", String.class)
+                .addScalar("data_constituicao", LocalDate.class)
+                .addScalar("valorissqn", BigDecimal.class)
+                .addScalar("tipo_credito", String.class)
+                .addScalar("descricao", String.class)
+                .addScalar("status", String.class)
+                .addScalar("data_registro", LocalDateTime.class)
+                .addScalar("data_atualizacao", LocalDateTime.class)
+                .addScalar("responsavel", String.class)
+                .addScalar("cnpj_empresa", String.class)
+                .addScalar("versao", Long.class);
+        return query;
+    }
+
+    /**
+     * Filtro em SQL nativo sobre as colunas de creditos, como o montarWhere das projeções
+     */
+    private static String condicoes(FiltroCredito filtro, Map<String, Object> parametros) {
+        StringBuilder condicoes = new StringBuilder();
+        if (filtro.getStatus() != null) {
+            condicoes.append(" AND status = :statusAtual");
+            parametros.put("statusAtual", filtro.getStatus().name());
+        }
+        if (filtro.getTipoCredito() != null) {
+            condicoes.append(" AND tipo_credito = :tipoCredito");
+            parametros.put("tipoCredito", filtro.getTipoCredito().name());
+        }
+        if (filtro.getCnpjEmpresa() != null) {
+            condicoes.append(" AND cnpj_empresa = :cnpjEmpresa");
+            parametros.put("cnpjEmpresa", filtro.getCnpjEmpresa());
+        }
+        if (filtro.getDataInicio() != null) {
+            condicoes.append(" AND data_constituicao >= :dataInicio");
+            parametros.put("dataInicio", filtro.getDataInicio());
+        }
+        if (filtro.getDataFim() != null) {
+            condicoes.append(" AND data_constituicao <= :dataFim");
+            parametros.put("dataFim", filtro.getDataFim());
+        }
+        return condicoes.toString();
+    }
+
+    private static Optional<Credito> primeira(List<Object[]> linhas) {
+        return linhas.isEmpty() ? Optional.empty() : Optional.of(credito(linhas.get(0)));
+    }
+
+    private static Credito credito(Object[] linha) {
+        Credito credito = new Credito();
+        credito.setId((Long) linha[0]);
+        credito.setNumeroCreditoConstituido((String) linha[1]);
+        credito.setNumeroNFSe((String) linha[2]);
+        credito.setDataConstituicao((LocalDate) linha[3]);
+        credito.setValorISSQN((BigDecimal) linha[4]);
+        credito.setTipoCredito(linha[5] != null ? TipoCredito.valueOf((String) linha[5]) : null);
+        credito.setDescricao((String) linha[6]);
+        credito.setStatus(linha[7] != null ? StatusCredito.valueOf((String) linha[7]) : null);
+        credito.setDataRegistro((LocalDateTime) linha[8]);
+        credito.setDataAtualizacao((LocalDateTime) linha[9]);
+        credito.setResponsavel((String) linha[10]);
+        credito.setCnpjEmpresa((String) linha[11]);
+        credito.setVersao((Long) linha[12]);
+        return credito;
+    }
+
+    private static String colunas(String prefixo) {
+        return COLUNAS.stream().map(coluna -> prefixo + coluna).collect(Collectors.joining(", "));
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        }
+        return postgres;
+    }
+}
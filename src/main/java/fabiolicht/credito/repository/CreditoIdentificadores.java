@@ -0,0 +1,14 @@
+package fabiolicht.credito.repository;
+
+/**
+ * Projeção com apenas os identificadores do crédito,
+ * usada nas varreduras que alimentam estruturas em memória
+ */
+public interface CreditoIdentificadores {
+
+    Long getId();
+
+    String getNumeroCreditoConstituido();
+
+    String getNumeroNFSe();
+}
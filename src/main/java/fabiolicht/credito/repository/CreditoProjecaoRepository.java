@@ -0,0 +1,30 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.dto.FiltroCredito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consultas por projeção: seleciona apenas as colunas pedidas, sem carregar entidades.
+ * <p>
+ * O resultado é um mapa campo → valor montado a partir de um Tuple, e não um DTO: a
+ * expressão construtora do JPQL ({@code SELECT new ...}) exige um construtor para cada
+ * combinação de colunas, e uma projeção por interface ou o CreditoDTO com os demais campos
+ * nulos serializaria os campos não pedidos. O mapa leva à resposta só o que foi pedido,
+ * na ordem pedida, com o mesmo custo de leitura de uma projeção em DTO.
+ */
+public interface CreditoProjecaoRepository {
+
+    Set<String> CAMPOS_PROJETAVEIS = Set.of(
+            "id", "numeroCreditoConstituido", "numeroNFSe", "dataConstituicao", "valorISSQN", "tipoCredito",
+            "descricao", "status", "dataRegistro", "dataAtualizacao", "responsavel", "cnpjEmpresa", "versao");
+
+    /**
+     * Retorna, para cada crédito do filtro, um mapa campo → valor na ordem dos campos pedidos
+     */
+    Page<Map<String, Object>> buscarCampos(FiltroCredito filtro, List<String> campos, Pageable pageable);
+}
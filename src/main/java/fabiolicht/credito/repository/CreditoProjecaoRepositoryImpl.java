@@ -0,0 +1,115 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.dto.FiltroCredito;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+class CreditoProjecaoRepositoryImpl implements CreditoProjecaoRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Map<String, Object>> buscarCampos(FiltroCredito filtro, List<String> campos, Pageable pageable) {
+        if (campos.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um campo");
+        }
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < campos.size(); i++) {
+            String campo = validarCampo(campos.get(i));
+            select.append(i > 0 ? ", " : "").append("c.").append(campo).append(" AS ").append(campo);
+        }
+
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        String where = montarWhere(filtro, parametros);
+
+        StringBuilder jpql = new StringBuilder(select).append(" FROM Credito c").append(where);
+        if (pageable.getSort().isSorted()) {
+            jpql.append(" ORDER BY ");
+            String separador = "";
+            for (Sort.Order ordem : pageable.getSort()) {
+                jpql.append(separador).append("c.").append(validarCampo(ordem.getProperty()))
+                        .append(ordem.isAscending() ? " ASC" : " DESC");
+                separador = ", ";
+            }
+        }
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        parametros.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        List<Tuple> linhas = query.getResultList();
+        List<Map<String, Object>> conteudo = new ArrayList<>(linhas.size());
+        for (Tuple linha : linhas) {
+            Map<String, Object> valores = new LinkedHashMap<>(campos.size() * 2);
+            for (int i = 0; i < campos.size(); i++) {
+                valores.put(campos.get(i), linha.get(i));
+            }
+            conteudo.add(valores);
+        }
+
+        // A contagem só é executada quando não dá para deduzir o total pela própria página
+        return PageableExecutionUtils.getPage(conteudo, pageable, () -> {
+            Query count = entityManager.createQuery("SELECT COUNT(c) FROM Credito c" + where);
+            parametros.forEach(count::setParameter);
+            return (Long) count.getSingleResult();
+        });
+    }
+
+    private static String montarWhere(FiltroCredito filtro, Map<String, Object> parametros) {
+        List<String> condicoes = new ArrayList<>();
+        if (filtro.getStatus() != null) {
+            condicoes.add("c.status = :status");
+            parametros.put("status", filtro.getStatus());
+        }
+        if (filtro.getTipoCredito() != null) {
+            condicoes.add("c.tipoCredito = :tipoCredito");
+            parametros.put("tipoCredito", filtro.getTipoCredito());
+        }
+        if (filtro.getCnpjEmpresa() != null) {
+            condicoes.add("c.cnpjEmpresa = :cnpjEmpresa");
+            parametros.put("cnpjEmpresa", filtro.getCnpjEmpresa());
+        }
+        if (filtro.getDataInicio() != null) {
+            condicoes.add("c.dataConstituicao >= :dataInicio");
+            parametros.put("dataInicio", filtro.getDataInicio());
+        }
+        if (filtro.getDataFim() != null) {
+            condicoes.add("c.dataConstituicao <= :dataFim");
+            parametros.put("dataFim", filtro.getDataFim());
+        }
+        if (filtro.getTermo() != null) {
+            condicoes.add("(LOWER(c.numeroCreditoConstituido) LIKE :termo OR LOWER(c.numeroNFSe) LIKE :termo)");
+            parametros.put("termo", "%" + filtro.getTermo().toLowerCase(Locale.ROOT) + "%");
+        }
+        if (filtro.getIds() != null) {
+            condicoes.add("c.id IN :ids");
+            parametros.put("ids", filtro.getIds());
+        }
+        return condicoes.isEmpty() ? "" : " WHERE " + String.join(" AND ", condicoes);
+    }
+
+    private static String validarCampo(String campo) {
+        // Os nomes entram no JPQL: só campos conhecidos da entidade são aceitos
+        if (!CAMPOS_PROJETAVEIS.contains(campo)) {
+            throw new IllegalArgumentException("Campo inválido: " + campo);
+        }
+        return campo;
+    }
+}
@@ -3,32 +3,76 @@ package fabiolicht.credito.repository;
 import fabiolicht.credito.model.Credito;
 import fabiolicht.credito.model.StatusCredito;
 import fabiolicht.credito.model.TipoCredito;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CreditoRepository extends JpaRepository<Credito, Long> {
+public interface CreditoRepository extends JpaRepository<Credito, Long>, CreditoProjecaoRepository,
+        CreditoEscritaRepository {
 
+    String TAMANHO_FETCH_STREAM = "500";
+
+    // Regiões do cache de consultas do Hibernate (ver CacheSegundoNivelConfig). O resultado
+    // guarda só os ids; as entidades vêm da região do Credito.
+    String REGIAO_CONSULTAS_IDENTIFICADOR = "credito-consultas-identificador";
+    String REGIAO_CONSULTAS_ENUM = "credito-consultas-enum";
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGIAO_CONSULTAS_IDENTIFICADOR)
+    })
     Optional<Credito> findByNumeroCreditoConstituido(String numeroCreditoConstituido);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGIAO_CONSULTAS_IDENTIFICADOR)
+    })
     Optional<Credito> findByNumeroNFSe(String numeroNFSe);
 
+    // Versão atual sem carregar a entidade, para responder If-None-Match
+
+    @Query("SELECT c.id AS id, c.versao AS versao FROM Credito c WHERE c.id = :id")
+    Optional<CreditoVersao> buscarVersaoPorId(@Param("id") Long id);
+
+    @Query("SELECT c.id AS id, c.versao AS versao FROM Credito c WHERE c.numeroCreditoConstituido = :numero")
+    Optional<CreditoVersao> buscarVersaoPorNumero(@Param("numero") String numero);
+
+    @Query("SELECT c.id AS id, c.versao AS versao FROM Credito c WHERE c.numeroNFSe = :nfse")
+    Optional<CreditoVersao> buscarVersaoPorNFSe(@Param("nfse") String nfse);
+
+    List<Credito> findByNumeroCreditoConstituidoIn(Collection<String> numerosCreditoConstituido);
+
     List<Credito> findByStatus(StatusCredito status);
 
     List<Credito> findByTipoCredito(TipoCredito tipoCredito);
 
     List<Credito> findByCnpjEmpresa(String cnpjEmpresa);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGIAO_CONSULTAS_ENUM)
+    })
     Page<Credito> findByStatus(StatusCredito status, Pageable pageable);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGIAO_CONSULTAS_ENUM)
+    })
     Page<Credito> findByTipoCredito(TipoCredito tipoCredito, Pageable pageable);
 
     @Query("SELECT c FROM Credito c WHERE c.dataConstituicao BETWEEN :dataInicio AND :dataFim")
@@ -47,4 +91,135 @@ public interface CreditoRepository extends JpaRepository<Credito, Long> {
     @Query("SELECT c FROM Credito c WHERE LOWER(c.numeroCreditoConstituido) LIKE LOWER(CONCAT('%', :termo, '%')) " +
             "OR LOWER(c.numeroNFSe) LIKE LOWER(CONCAT('%', :termo, '%'))")
     Page<Credito> buscarPorTermo(@Param("termo") String termo, Pageable pageable);
+
+    // Variantes em Slice: buscam size + 1 linhas para saber se há próxima página, sem COUNT
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGIAO_CONSULTAS_ENUM)
+    })
+    Slice<Credito> findSliceByStatus(StatusCredito status, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGIAO_CONSULTAS_ENUM)
+    })
+    Slice<Credito> findSliceByTipoCredito(TipoCredito tipoCredito, Pageable pageable);
+
+    @Query("SELECT c FROM Credito c WHERE c.cnpjEmpresa = :cnpj AND c.status = :status")
+    Slice<Credito> buscarSlicePorCnpjEmpresaEStatus(
+            @Param("cnpj") String cnpj,
+            @Param("status") StatusCredito status,
+            Pageable pageable
+    );
+
+    @Query("SELECT c FROM Credito c WHERE LOWER(c.numeroCreditoConstituido) LIKE LOWER(CONCAT('%', :termo, '%')) " +
+            "OR LOWER(c.numeroNFSe) LIKE LOWER(CONCAT('%', :termo, '%'))")
+    Slice<Credito> buscarSlicePorTermo(@Param("termo") String termo, Pageable pageable);
+
+    // Totais por status e por tipo, usados para ressincronizar o CreditoContagem
+
+    @Query("SELECT c.status, COUNT(c) FROM Credito c GROUP BY c.status")
+    List<Object[]> contarPorStatus();
+
+    @Query("SELECT c.tipoCredito, COUNT(c) FROM Credito c GROUP BY c.tipoCredito")
+    List<Object[]> contarPorTipo();
+
+    // Totais por dia de constituição e tipo, usados na reconstrução dos agregados por período
+
+    @Query("SELECT c.dataConstituicao, c.tipoCredito, COUNT(c), SUM(c.valorISSQN) FROM Credito c GROUP BY c.dataConstituicao, c.tipoCredito")
+    List<Object[]> agregarPorDiaETipo();
+
+    // Consultas em stream: o driver traz as linhas em blocos, sem materializar o resultado. As
+    // linhas não devem entrar no cache de segundo nível (uma exportação inteira expulsaria da
+    // região credito as entradas quentes): o hint cobre a execução, e quem itera o stream deixa
+    // a sessão em CacheMode.IGNORE (CreditoService.exportar), pois as linhas são montadas depois
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TAMANHO_FETCH_STREAM),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT c FROM Credito c WHERE c.cnpjEmpresa = :cnpj ORDER BY c.id")
+    Stream<Credito> streamPorCnpjEmpresa(@Param("cnpj") String cnpj);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TAMANHO_FETCH_STREAM),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT c FROM Credito c WHERE c.dataConstituicao BETWEEN :dataInicio AND :dataFim ORDER BY c.id")
+    Stream<Credito> streamPorDataConstituicaoEntre(
+            @Param("dataInicio") LocalDate dataInicio,
+            @Param("dataFim") LocalDate dataFim
+    );
+
+    // Totais das exportações, para o andamento
+
+    long countByCnpjEmpresa(String cnpjEmpresa);
+
+    long countByDataConstituicaoBetween(LocalDate dataInicio, LocalDate dataFim);
+
+    // Paginação por cursor (keyset): a posição é dada por (chave, id), sem OFFSET e sem COUNT
+
+    @Query("SELECT c FROM Credito c")
+    Slice<Credito> buscarSlice(Pageable pageable);
+
+    @Query("SELECT c FROM Credito c WHERE c.id < :ultimoId")
+    Slice<Credito> buscarAntesDoId(@Param("ultimoId") Long ultimoId, Pageable pageable);
+
+    @Query("SELECT c FROM Credito c WHERE c.id > :ultimoId")
+    Slice<Credito> buscarDepoisDoId(@Param("ultimoId") Long ultimoId, Pageable pageable);
+
+    @Query("SELECT c FROM Credito c WHERE (c.dataConstituicao, c.id) < (:data, :ultimoId)")
+    Slice<Credito> buscarAntesDaDataConstituicao(
+            @Param("data") LocalDate data,
+            @Param("ultimoId") Long ultimoId,
+            Pageable pageable
+    );
+
+    @Query("SELECT c FROM Credito c WHERE (c.dataConstituicao, c.id) > (:data, :ultimoId)")
+    Slice<Credito> buscarDepoisDaDataConstituicao(
+            @Param("data") LocalDate data,
+            @Param("ultimoId") Long ultimoId,
+            Pageable pageable
+    );
+
+    @Query("SELECT c FROM Credito c WHERE c.status = :status AND c.id < :ultimoId")
+    Slice<Credito> buscarPorStatusAntesDoId(
+            @Param("status") StatusCredito status,
+            @Param("ultimoId") Long ultimoId,
+            Pageable pageable
+    );
+
+    @Query("SELECT c FROM Credito c WHERE c.tipoCredito = :tipo AND c.id < :ultimoId")
+    Slice<Credito> buscarPorTipoAntesDoId(
+            @Param("tipo") TipoCredito tipo,
+            @Param("ultimoId") Long ultimoId,
+            Pageable pageable
+    );
+
+    @Query("SELECT c FROM Credito c WHERE c.cnpjEmpresa = :cnpj AND c.status = :status AND c.id < :ultimoId")
+    Slice<Credito> buscarPorCnpjEmpresaEStatusAntesDoId(
+            @Param("cnpj") String cnpj,
+            @Param("status") StatusCredito status,
+            @Param("ultimoId") Long ultimoId,
+            Pageable pageable
+    );
+
+    @Query("SELECT c FROM Credito c WHERE (LOWER(c.numeroCreditoConstituido) LIKE LOWER(CONCAT('%', :termo, '%')) " +
+            "OR LOWER(c.numeroNFSe) LIKE LOWER(CONCAT('%', :termo, '%'))) AND c.id < :ultimoId")
+    Slice<Credito> buscarPorTermoAntesDoId(
+            @Param("termo") String termo,
+            @Param("ultimoId") Long ultimoId,
+            Pageable pageable
+    );
+
+    @Query("SELECT c.id AS id, c.numeroCreditoConstituido AS numeroCreditoConstituido, c.numeroNFSe AS numeroNFSe " +
+            "FROM Credito c WHERE c.id > :ultimoId ORDER BY c.id")
+    List<CreditoIdentificadores> buscarIdentificadoresAposId(@Param("ultimoId") Long ultimoId, Limit limit);
+
+    @Query("SELECT c.id AS id, c.numeroCreditoConstituido AS numeroCreditoConstituido, c.numeroNFSe AS numeroNFSe " +
+            "FROM Credito c WHERE c.id IN :ids")
+    List<CreditoIdentificadores> buscarIdentificadoresPorIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,12 @@
+package fabiolicht.credito.repository;
+
+/**
+ * Projeção com o id e a versão do crédito, usada nas requisições
+ * condicionais sem carregar a entidade inteira
+ */
+public interface CreditoVersao {
+
+    Long getId();
+
+    Long getVersao();
+}
@@ -0,0 +1,18 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.model.ExportacaoCredito;
+import fabiolicht.credito.model.SituacaoExportacao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ExportacaoCreditoRepository extends JpaRepository<ExportacaoCredito, String> {
+
+    List<ExportacaoCredito> findBySituacaoInOrderByDataCriacao(Collection<SituacaoExportacao> situacoes);
+
+    List<ExportacaoCredito> findBySituacaoInAndDataFimBefore(Collection<SituacaoExportacao> situacoes, LocalDateTime limite);
+}
@@ -0,0 +1,35 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.model.IdempotenciaCredito;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotenciaCreditoRepository extends JpaRepository<IdempotenciaCredito, String> {
+
+    /**
+     * Reserva a chave para esta transação. Se outra transação reservou a mesma chave e
+     * ainda não terminou, o INSERT espera por ela; retorna 0 quando a chave já existe.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO creditos_idempotencia (chave, requisicao, data_criacao)
+            VALUES (:chave, :requisicao, :dataCriacao)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int reservar(@Param("chave") String chave, @Param("requisicao") String requisicao,
+                 @Param("dataCriacao") LocalDateTime dataCriacao);
+
+    @Modifying
+    @Query("UPDATE IdempotenciaCredito i SET i.resposta = :resposta WHERE i.chave = :chave")
+    int registrarResposta(@Param("chave") String chave, @Param("resposta") String resposta);
+
+    @Modifying
+    @Query("DELETE FROM IdempotenciaCredito i WHERE i.dataCriacao < :limite")
+    int removerCriadasAntesDe(@Param("limite") LocalDateTime limite);
+}
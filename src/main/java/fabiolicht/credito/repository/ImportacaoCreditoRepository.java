@@ -0,0 +1,15 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.model.ImportacaoCredito;
+import fabiolicht.credito.model.SituacaoImportacao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ImportacaoCreditoRepository extends JpaRepository<ImportacaoCredito, String> {
+
+    List<ImportacaoCredito> findBySituacaoInOrderByDataCriacao(Collection<SituacaoImportacao> situacoes);
+}
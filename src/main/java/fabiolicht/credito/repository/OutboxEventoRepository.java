@@ -0,0 +1,52 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.model.OutboxEvento;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventoRepository extends JpaRepository<OutboxEvento, Long>, OutboxTravaRepository {
+
+    /**
+     * Trava os eventos pendentes mais antigos, na ordem do id. Com a trava de publicação só
+     * um nó lê a fila por vez; o SKIP LOCKED fica como proteção caso ela não esteja ativa.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvento e WHERE e.dataEnvio IS NULL AND e.dataFalha IS NULL ORDER BY e.id")
+    List<OutboxEvento> buscarPendentes(Limit limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvento e SET e.dataEnvio = :dataEnvio WHERE e.id IN :ids")
+    int marcarEnviados(@Param("ids") Collection<Long> ids, @Param("dataEnvio") LocalDateTime dataEnvio);
+
+    @Modifying
+    @Query("UPDATE OutboxEvento e SET e.tentativas = e.tentativas + 1 WHERE e.id IN :ids")
+    int registrarFalha(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Tira da fila os eventos que chegaram ao máximo de tentativas
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvento e SET e.dataFalha = :dataFalha WHERE e.id IN :ids AND e.tentativas >= :maximo")
+    int marcarFalhaDefinitiva(@Param("ids") Collection<Long> ids, @Param("maximo") int maximo,
+                              @Param("dataFalha") LocalDateTime dataFalha);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvento e WHERE e.dataEnvio < :limite")
+    int removerEnviadosAntesDe(@Param("limite") LocalDateTime limite);
+
+    long countByDataEnvioIsNull();
+}
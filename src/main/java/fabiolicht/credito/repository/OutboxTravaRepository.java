@@ -0,0 +1,15 @@
+package fabiolicht.credito.repository;
+
+/**
+ * Trava de publicação do outbox: só um nó por vez publica, para que os eventos de cada
+ * chave saiam na ordem do id
+ */
+public interface OutboxTravaRepository {
+
+    /**
+     * Tenta obter a trava até o fim da transação atual, sem esperar
+     *
+     * @return false se outro nó já está publicando
+     */
+    boolean travarPublicacao();
+}
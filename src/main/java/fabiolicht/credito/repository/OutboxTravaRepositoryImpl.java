@@ -0,0 +1,39 @@
+package fabiolicht.credito.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * No PostgreSQL usa um advisory lock de transação (liberado no commit ou rollback, sem
+ * depender da conexão do pool). Nos demais bancos (H2 nos testes, um único nó) não trava.
+ */
+class OutboxTravaRepositoryImpl implements OutboxTravaRepository {
+
+    // Identificador do advisory lock do OutboxRelay
+    private static final long CHAVE_TRAVA = 0x6372656469746f31L;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Boolean postgres;
+
+    @Override
+    public boolean travarPublicacao() {
+        if (!isPostgres()) {
+            return true;
+        }
+        return (Boolean) entityManager.createNativeQuery("SELECT pg_try_advisory_xact_lock(:chave)", Boolean.class)
+                .setParameter("chave", CHAVE_TRAVA)
+                .getSingleResult();
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        }
+        return postgres;
+    }
+}
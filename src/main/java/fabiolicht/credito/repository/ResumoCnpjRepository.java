@@ -0,0 +1,83 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.model.ResumoCnpj;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface ResumoCnpjRepository extends JpaRepository<ResumoCnpj, ResumoCnpj.Chave> {
+
+    // Tabela afetada pelas escritas nativas abaixo. Sem o espaço declarado, o Hibernate não sabe
+    // o que o SQL alterou e limpa todas as regiões do cache de segundo nível a cada delta.
+    String TABELA = "creditos_resumo_cnpj";
+
+    List<ResumoCnpj> findByCnpjEmpresa(String cnpjEmpresa);
+
+    /**
+     * Soma o delta à linha do grupo, criando-a se ainda não existir. Sem MERGE: o ramo
+     * WHEN NOT MATCHED de duas transações simultâneas insere a mesma chave e uma delas
+     * falha por violação de unicidade. O INSERT ... ON CONFLICT DO NOTHING espera a
+     * outra transação e o UPDATE seguinte soma sobre a linha travada.
+     */
+    default int aplicarDelta(String cnpj, String status, String tipo, long quantidade, BigDecimal valor) {
+        criarSeAusente(cnpj, status, tipo);
+        return somarDelta(cnpj, status, tipo, quantidade, valor);
+    }
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = TABELA))
+    @Query(value = """
+            INSERT INTO creditos_resumo_cnpj (cnpj_empresa, status, tipo_credito, quantidade, valor_total)
+            VALUES (CAST(:cnpj AS VARCHAR(20)), CAST(:status AS VARCHAR(50)), CAST(:tipo AS VARCHAR(50)), 0, 0)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int criarSeAusente(@Param("cnpj") String cnpj, @Param("status") String status, @Param("tipo") String tipo);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = TABELA))
+    @Query(value = """
+            UPDATE creditos_resumo_cnpj
+            SET quantidade = quantidade + :quantidade, valor_total = valor_total + :valor
+            WHERE cnpj_empresa = :cnpj AND status = :status AND tipo_credito = :tipo
+            """, nativeQuery = true)
+    int somarDelta(@Param("cnpj") String cnpj, @Param("status") String status, @Param("tipo") String tipo,
+                   @Param("quantidade") long quantidade,
+                   @Param("valor") BigDecimal valor);
+
+    @Modifying
+    @Query("DELETE FROM ResumoCnpj r WHERE r.cnpjEmpresa = :cnpj")
+    int removerPorCnpj(@Param("cnpj") String cnpj);
+
+    @Modifying
+    @Query("DELETE FROM ResumoCnpj r")
+    int removerTodos();
+
+    @Modifying
+    @Query("""
+            INSERT INTO ResumoCnpj (cnpjEmpresa, status, tipoCredito, quantidade, valorTotal)
+            SELECT c.cnpjEmpresa, c.status, c.tipoCredito, COUNT(c), SUM(c.valorISSQN)
+            FROM Credito c
+            WHERE c.cnpjEmpresa = :cnpj
+            GROUP BY c.cnpjEmpresa, c.status, c.tipoCredito
+            """)
+    int recalcularPorCnpj(@Param("cnpj") String cnpj);
+
+    @Modifying
+    @Query("""
+            INSERT INTO ResumoCnpj (cnpjEmpresa, status, tipoCredito, quantidade, valorTotal)
+            SELECT c.cnpjEmpresa, c.status, c.tipoCredito, COUNT(c), SUM(c.valorISSQN)
+            FROM Credito c
+            WHERE c.cnpjEmpresa IS NOT NULL
+            GROUP BY c.cnpjEmpresa, c.status, c.tipoCredito
+            """)
+    int recalcularTodos();
+}
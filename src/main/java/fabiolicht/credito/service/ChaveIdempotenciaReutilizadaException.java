@@ -0,0 +1,11 @@
+package fabiolicht.credito.service;
+
+/**
+ * A Idempotency-Key já foi usada com uma requisição diferente
+ */
+public class ChaveIdempotenciaReutilizadaException extends RuntimeException {
+
+    public ChaveIdempotenciaReutilizadaException(String chave) {
+        super("Idempotency-Key " + chave + " já foi usada com outra requisição");
+    }
+}
@@ -0,0 +1,182 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.AgregadoPeriodoDTO;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.AgregadoDiario;
+import fabiolicht.credito.model.AgregadoMensal;
+import fabiolicht.credito.model.GranularidadePeriodo;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.AgregadoDiarioRepository;
+import fabiolicht.credito.repository.AgregadoMensalRepository;
+import fabiolicht.credito.repository.CreditoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Agregados de quantidade e ISSQN por data de constituição e tipo.
+ * <p>
+ * Cada escrita soma deltas em creditos_agregado_dia antes do commit. Uma tarefa
+ * agendada compacta os dias anteriores ao limite (primeiro dia do mês de hoje
+ * menos a retenção) em creditos_agregado_mes. Todo delta está em exatamente uma
+ * das duas tabelas, então a visão mensal soma as duas; a visão diária só existe
+ * dentro da retenção. Antes dela a granularidade DIA é recusada: a alternativa seria
+ * um GROUP BY sobre creditos a cada consulta, com custo proporcional ao período.
+ */
+@Component
+@Slf4j
+public class CreditoAgregadoPeriodo {
+
+    @Autowired
+    private AgregadoDiarioRepository agregadoDiarioRepository;
+
+    @Autowired
+    private AgregadoMensalRepository agregadoMensalRepository;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${credito.agregado.retencao-diaria-dias:90}")
+    private int retencaoDiariaDias = 90;
+
+    private final DeltasPorTransacao<Dia> deltas = new DeltasPorTransacao<>(
+            Comparator.comparing(Dia::dia).thenComparing(Dia::tipo),
+            (dia, delta) -> agregadoDiarioRepository.aplicarDelta(dia.dia(), dia.tipo().name(),
+                    delta.getQuantidade(), delta.getValor()));
+
+    /**
+     * Acumula os deltas da escrita na transação corrente
+     */
+    @EventListener
+    public void onCreditoAlterado(CreditoAlteradoEvent event) {
+        acumular(event.getAnterior(), -1);
+        acumular(event.getAtual(), 1);
+    }
+
+    /**
+     * Totais por dia ou por mês. Na granularidade MES o intervalo é estendido
+     * aos meses inteiros que contêm o início e o fim; na DIA o início não pode
+     * ser anterior ao limite de compactação.
+     */
+    public List<AgregadoPeriodoDTO> buscar(LocalDate inicio, LocalDate fim, GranularidadePeriodo granularidade) {
+        Map<LocalDate, AgregadoPeriodoDTO> periodos = new TreeMap<>();
+        if (granularidade == GranularidadePeriodo.MES) {
+            LocalDate primeiroMes = inicio.withDayOfMonth(1);
+            for (AgregadoMensal linha : agregadoMensalRepository.findByMesBetween(primeiroMes, fim.withDayOfMonth(1))) {
+                somar(periodos, linha.getMes(), linha.getTipoCredito(), linha.getQuantidade(), linha.getValorTotal());
+            }
+            for (AgregadoDiario linha : agregadoDiarioRepository.findByDiaBetween(primeiroMes,
+                    fim.with(TemporalAdjusters.lastDayOfMonth()))) {
+                somar(periodos, linha.getDia().withDayOfMonth(1), linha.getTipoCredito(),
+                        linha.getQuantidade(), linha.getValorTotal());
+            }
+        } else {
+            LocalDate limite = limiteCompactacao();
+            if (inicio.isBefore(limite)) {
+                throw new IllegalArgumentException("Granularidade DIA disponível a partir de " + limite
+                        + "; para períodos anteriores use granularidade=MES");
+            }
+            for (AgregadoDiario linha : agregadoDiarioRepository.findByDiaBetween(inicio, fim)) {
+                somar(periodos, linha.getDia(), linha.getTipoCredito(), linha.getQuantidade(), linha.getValorTotal());
+            }
+        }
+        return periodos.values().stream()
+                .filter(periodo -> periodo.getQuantidade() != 0)
+                .toList();
+    }
+
+    /**
+     * Move os dias anteriores ao limite da tabela diária para a mensal
+     */
+    @Scheduled(cron = "${credito.agregado.compactacao.cron:0 30 3 * * *}")
+    public void compactar() {
+        LocalDate limite = limiteCompactacao();
+        Integer dias = transactionTemplate.execute(status -> {
+            List<AgregadoDiario> linhas = agregadoDiarioRepository.travarAnterioresA(limite);
+            Map<AgregadoMensal.Chave, AgregadoMensal> meses = new HashMap<>();
+            for (AgregadoDiario linha : linhas) {
+                AgregadoMensal.Chave chave = new AgregadoMensal.Chave(linha.getDia().withDayOfMonth(1), linha.getTipoCredito());
+                AgregadoMensal mes = meses.computeIfAbsent(chave,
+                        c -> new AgregadoMensal(c.getMes(), c.getTipoCredito(), 0, BigDecimal.ZERO));
+                mes.setQuantidade(mes.getQuantidade() + linha.getQuantidade());
+                mes.setValorTotal(mes.getValorTotal().add(linha.getValorTotal()));
+            }
+            for (AgregadoMensal mes : meses.values()) {
+                agregadoMensalRepository.aplicarDelta(mes.getMes(), mes.getTipoCredito().name(),
+                        mes.getQuantidade(), mes.getValorTotal());
+            }
+            agregadoDiarioRepository.deleteAll(linhas);
+            return linhas.size();
+        });
+        log.info("Agregados diários anteriores a {} compactados: {}", limite, dias);
+    }
+
+    /**
+     * Recalcula os agregados a partir da tabela creditos; pensado para
+     * manutenção, com as escritas pausadas
+     */
+    public void reconstruir() {
+        LocalDate limite = limiteCompactacao();
+        agregadoDiarioRepository.removerTodos();
+        agregadoMensalRepository.removerTodos();
+
+        List<AgregadoDiario> diarios = new ArrayList<>();
+        Map<AgregadoMensal.Chave, AgregadoMensal> mensais = new HashMap<>();
+        for (Object[] linha : creditoRepository.agregarPorDiaETipo()) {
+            LocalDate dia = (LocalDate) linha[0];
+            TipoCredito tipo = (TipoCredito) linha[1];
+            long quantidade = (Long) linha[2];
+            BigDecimal valor = (BigDecimal) linha[3];
+            if (!dia.isBefore(limite)) {
+                diarios.add(new AgregadoDiario(dia, tipo, quantidade, valor));
+                continue;
+            }
+            AgregadoMensal mes = mensais.computeIfAbsent(new AgregadoMensal.Chave(dia.withDayOfMonth(1), tipo),
+                    c -> new AgregadoMensal(c.getMes(), tipo, 0, BigDecimal.ZERO));
+            mes.setQuantidade(mes.getQuantidade() + quantidade);
+            mes.setValorTotal(mes.getValorTotal().add(valor));
+        }
+        agregadoDiarioRepository.saveAll(diarios);
+        agregadoMensalRepository.saveAll(mensais.values());
+        log.info("Agregados por período reconstruídos - dias: {}, meses: {}", diarios.size(), mensais.size());
+    }
+
+    /**
+     * Primeiro dia não compactado: dias anteriores a ele só existem na visão mensal
+     */
+    LocalDate limiteCompactacao() {
+        return LocalDate.now().minusDays(retencaoDiariaDias).withDayOfMonth(1);
+    }
+
+    private void acumular(CreditoDTO credito, int sinal) {
+        if (credito == null || credito.getDataConstituicao() == null || credito.getTipoCredito() == null) {
+            return;
+        }
+        deltas.somar(new Dia(credito.getDataConstituicao(), credito.getTipoCredito()), sinal, credito.getValorISSQN());
+    }
+
+    private static void somar(Map<LocalDate, AgregadoPeriodoDTO> periodos, LocalDate periodo, TipoCredito tipo,
+                              long quantidade, BigDecimal valor) {
+        periodos.computeIfAbsent(periodo, AgregadoPeriodoDTO::vazio).somar(tipo, quantidade, valor);
+    }
+
+    private record Dia(LocalDate dia, TipoCredito tipo) {
+    }
+}
@@ -0,0 +1,26 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.TipoEventoCredito;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Evento de aplicação publicado pelo CreditoService a cada escrita.
+ * Carrega o estado anterior (nulo na criação) e o atual (nulo na exclusão)
+ * para que os componentes derivados (índices, caches, agregados) se atualizem.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class CreditoAlteradoEvent {
+
+    private final TipoEventoCredito tipo;
+    private final CreditoDTO anterior;
+    private final CreditoDTO atual;
+
+    public Long getId() {
+        return atual != null ? atual.getId() : anterior.getId();
+    }
+}
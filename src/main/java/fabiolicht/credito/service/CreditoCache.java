@@ -0,0 +1,172 @@
+package fabiolicht.credito.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fabiolicht.credito.config.LeituraPrimaria;
+import fabiolicht.credito.dto.CreditoDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Cache local (read-through) dos créditos consultados por id, número e NFS-e.
+ * Cada crédito carregado é guardado sob as três chaves. As entradas são removidas
+ * após o commit de cada escrita e os demais nós são avisados pelo tópico
+ * creditos-notification (CreditoNotificacao); o TTL limita a janela de uma eventual
+ * leitura obsoleta.
+ */
+@Component
+public class CreditoCache {
+
+    static final String NOME_CACHE = "creditos";
+    static final String PREFIXO_ID = "id:";
+    private static final String SEPARADOR = "\n";
+
+    private final String idNo = UUID.randomUUID().toString();
+    private Cache<String, CreditoDTO> cache;
+
+    @Value("${credito.cache.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${credito.cache.tamanho-maximo:10000}")
+    private long tamanhoMaximo = 10000;
+
+    @Value("${credito.cache.ttl:10m}")
+    private Duration ttl = Duration.ofMinutes(10);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void inicializar() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME_CACHE);
+        }
+    }
+
+    public CreditoDTO porId(Long id, Supplier<CreditoDTO> carregar) {
+        return obter(chaveId(id), carregar);
+    }
+
+    public CreditoDTO porNumero(String numero, Supplier<CreditoDTO> carregar) {
+        return obter(chaveNumero(numero), carregar);
+    }
+
+    public CreditoDTO porNFSe(String nfse, Supplier<CreditoDTO> carregar) {
+        return obter(chaveNFSe(nfse), carregar);
+    }
+
+    /**
+     * Invalida as entradas do crédito alterado após o commit
+     */
+    @TransactionalEventListener
+    public void onCreditoAlterado(CreditoAlteradoEvent event) {
+        if (!habilitado) {
+            return;
+        }
+        Set<String> chaves = new LinkedHashSet<>();
+        adicionarChaves(chaves, event.getAnterior());
+        adicionarChaves(chaves, event.getAtual());
+        invalidar(chaves);
+    }
+
+    /**
+     * Trata a notificação de invalidação recebida de outro nó
+     */
+    public void onNotificacao(String origem, String mensagem) {
+        if (!habilitado || idNo.equals(origem) || mensagem == null || mensagem.isEmpty()) {
+            return;
+        }
+        invalidar(List.of(mensagem.split(SEPARADOR)));
+    }
+
+    /**
+     * Identificador deste nó: usado como group id próprio no tópico de notificações
+     * e para ignorar as notificações enviadas por ele mesmo
+     */
+    public String getIdNo() {
+        return idNo;
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    private CreditoDTO obter(String chave, Supplier<CreditoDTO> carregar) {
+        if (!habilitado) {
+            return carregar.get();
+        }
+        CreditoDTO credito = cache.getIfPresent(chave);
+        if (credito != null) {
+            return credito;
+        }
+        // A exceção do loader (crédito inexistente) propaga sem cachear nada. A carga lê
+        // do primário: o estado atrasado de uma réplica ficaria no cache até o TTL.
+        try (LeituraPrimaria.Escopo primario = LeituraPrimaria.noPrimario()) {
+            credito = cache.get(chave, c -> carregar.get());
+        }
+        Set<String> chaves = new LinkedHashSet<>();
+        adicionarChaves(chaves, credito);
+        chaves.remove(chave);
+        for (String outra : chaves) {
+            cache.asMap().putIfAbsent(outra, credito);
+        }
+        // Uma escrita confirmada entre a carga e as cópias acima já invalidou a chave
+        // carregada e pode ter passado antes das cópias: elas são desfeitas
+        if (cache.asMap().get(chave) != credito) {
+            for (String outra : chaves) {
+                cache.asMap().remove(outra, credito);
+            }
+        }
+        return credito;
+    }
+
+    private void invalidar(Iterable<String> chaves) {
+        cache.invalidateAll(chaves);
+    }
+
+    static void adicionarChaves(Set<String> chaves, CreditoDTO credito) {
+        if (credito == null) {
+            return;
+        }
+        chaves.add(chaveId(credito.getId()));
+        if (credito.getNumeroCreditoConstituido() != null) {
+            chaves.add(chaveNumero(credito.getNumeroCreditoConstituido()));
+        }
+        if (credito.getNumeroNFSe() != null) {
+            chaves.add(chaveNFSe(credito.getNumeroNFSe()));
+        }
+    }
+
+    private static String chaveId(Long id) {
+        return PREFIXO_ID + id;
+    }
+
+    private static String chaveNumero(String numero) {
+        return "numero:" + numero;
+    }
+
+    private static String chaveNFSe(String nfse) {
+        return "nfse:" + nfse;
+    }
+}
@@ -0,0 +1,121 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.repository.CreditoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remoções do cache de segundo nível do Hibernate ligadas às escritas do CreditoService.
+ * No nó que escreve, o próprio Hibernate atualiza ou remove a entidade e invalida as
+ * consultas em cache da tabela creditos. As regiões dos outros nós são avisadas pela
+ * notificação do CreditoCache (tópico creditos-notification): removem os créditos
+ * avisados e as consultas em cache.
+ * <p>
+ * Com réplicas de leitura, uma leitura feita logo após a escrita numa réplica atrasada
+ * pode recolocar o estado anterior no cache. Por isso a remoção se repete quando passa a
+ * janela de leitura após escrita.
+ */
+@Component
+@Slf4j
+public class CreditoCacheSegundoNivel {
+
+    private static final String SEPARADOR = "\n";
+    private static final List<String> REGIOES_CONSULTAS = List.of(
+            CreditoRepository.REGIAO_CONSULTAS_ENUM,
+            CreditoRepository.REGIAO_CONSULTAS_IDENTIFICADOR,
+            RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+    @Value("${credito.replicas.habilitado:false}")
+    private boolean replicas;
+
+    @Value("${credito.replicas.atraso-maximo:5s}")
+    private Duration atrasoMaximoReplicas = Duration.ofSeconds(5);
+
+    @Value("${credito.replicas.verificacao-ms:1000}")
+    private long verificacaoReplicasMs = 1000;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private CreditoCache creditoCache;
+
+    /**
+     * Remove os créditos escritos após o commit e, com réplicas, de novo após a janela
+     */
+    @TransactionalEventListener
+    public void onCreditoAlterado(CreditoAlteradoEvent event) {
+        List<Long> ids = new ArrayList<>(2);
+        adicionarId(ids, event.getAnterior());
+        adicionarId(ids, event.getAtual());
+        remover(ids, false);
+        repetirAposJanela(ids, false);
+    }
+
+    /**
+     * Trata a notificação de escrita em outro nó (mesmas chaves do CreditoCache)
+     */
+    public void onNotificacao(String origem, String mensagem) {
+        if (creditoCache.getIdNo().equals(origem) || mensagem == null || mensagem.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String chave : mensagem.split(SEPARADOR)) {
+            if (chave.startsWith(CreditoCache.PREFIXO_ID)) {
+                try {
+                    ids.add(Long.parseLong(chave.substring(CreditoCache.PREFIXO_ID.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Chave de notificação inválida: {}", chave);
+                }
+            }
+        }
+        remover(ids, true);
+        repetirAposJanela(ids, true);
+    }
+
+    void setReplicas(boolean replicas) {
+        this.replicas = replicas;
+    }
+
+    private void remover(List<Long> ids, boolean consultas) {
+        jakarta.persistence.Cache cache = entityManagerFactory.getCache();
+        for (Long id : ids) {
+            cache.evict(Credito.class, id);
+        }
+        if (consultas) {
+            org.hibernate.Cache regioes = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+            REGIOES_CONSULTAS.forEach(regioes::evictQueryRegion);
+        }
+    }
+
+    private void repetirAposJanela(List<Long> ids, boolean consultas) {
+        if (!replicas || ids.isEmpty()) {
+            return;
+        }
+        Instant quando = Instant.now().plus(atrasoMaximoReplicas).plusMillis(verificacaoReplicasMs);
+        taskScheduler.schedule(() -> remover(ids, consultas), quando);
+    }
+
+    private static void adicionarId(List<Long> ids, CreditoDTO credito) {
+        if (credito != null && credito.getId() != null) {
+            ids.add(credito.getId());
+        }
+    }
+}
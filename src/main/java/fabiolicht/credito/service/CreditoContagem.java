@@ -0,0 +1,97 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.config.LeituraPrimaria;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.CreditoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Totais aproximados de créditos por status e por tipo, mantidos em memória.
+ * Cada escrita confirmada ajusta os contadores e uma ressincronização periódica
+ * (GROUP BY no banco) corrige a deriva de escritas feitas por outros nós.
+ */
+@Component
+@Slf4j
+public class CreditoContagem {
+
+    private final Map<StatusCredito, AtomicLong> porStatus = new EnumMap<>(StatusCredito.class);
+    private final Map<TipoCredito, AtomicLong> porTipo = new EnumMap<>(TipoCredito.class);
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    public CreditoContagem() {
+        for (StatusCredito status : StatusCredito.values()) {
+            porStatus.put(status, new AtomicLong());
+        }
+        for (TipoCredito tipo : TipoCredito.values()) {
+            porTipo.put(tipo, new AtomicLong());
+        }
+    }
+
+    public long totalPorStatus(StatusCredito status) {
+        return Math.max(0, porStatus.get(status).get());
+    }
+
+    public long totalPorTipo(TipoCredito tipo) {
+        return Math.max(0, porTipo.get(tipo).get());
+    }
+
+    /**
+     * Recalcula os totais a partir do banco
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${credito.contagem.ressincronizacao-ms:300000}",
+            initialDelayString = "${credito.contagem.ressincronizacao-ms:300000}")
+    public void ressincronizar() {
+        try (LeituraPrimaria.Escopo primario = LeituraPrimaria.noPrimario()) {
+            atribuir(porStatus, creditoRepository.contarPorStatus());
+            atribuir(porTipo, creditoRepository.contarPorTipo());
+        }
+        log.debug("Contagem de créditos ressincronizada - por status: {}, por tipo: {}", porStatus, porTipo);
+    }
+
+    /**
+     * Ajusta os totais após o commit de cada escrita
+     */
+    @TransactionalEventListener
+    public void onCreditoAlterado(CreditoAlteradoEvent event) {
+        ajustar(event.getAnterior(), -1);
+        ajustar(event.getAtual(), 1);
+    }
+
+    private void ajustar(CreditoDTO credito, int delta) {
+        if (credito == null) {
+            return;
+        }
+        if (credito.getStatus() != null) {
+            porStatus.get(credito.getStatus()).addAndGet(delta);
+        }
+        if (credito.getTipoCredito() != null) {
+            porTipo.get(credito.getTipoCredito()).addAndGet(delta);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Enum<K>> void atribuir(Map<K, AtomicLong> contadores, List<Object[]> totais) {
+        Map<K, Long> novos = new HashMap<>();
+        for (Object[] linha : totais) {
+            novos.put((K) linha[0], (Long) linha[1]);
+        }
+        contadores.forEach((chave, contador) -> contador.set(novos.getOrDefault(chave, 0L)));
+    }
+}
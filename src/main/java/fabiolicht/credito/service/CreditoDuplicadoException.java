@@ -0,0 +1,17 @@
+package fabiolicht.credito.service;
+
+import lombok.Getter;
+
+/**
+ * Já existe crédito com o número informado na criação
+ */
+@Getter
+public class CreditoDuplicadoException extends RuntimeException {
+
+    private final String numeroCreditoConstituido;
+
+    public CreditoDuplicadoException(String numeroCreditoConstituido) {
+        super("Crédito já existe com este número: " + numeroCreditoConstituido);
+        this.numeroCreditoConstituido = numeroCreditoConstituido;
+    }
+}
@@ -0,0 +1,385 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.ExportacaoDTO;
+import fabiolicht.credito.model.ExportacaoCredito;
+import fabiolicht.credito.model.FormatoExportacao;
+import fabiolicht.credito.model.SituacaoExportacao;
+import fabiolicht.credito.repository.CreditoRepository;
+import fabiolicht.credito.repository.ExportacaoCreditoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportações assíncronas de créditos por CNPJ ou período. A requisição só registra a
+ * exportação; em segundo plano, os créditos são lidos em stream, na ordem do id, e gravados em
+ * um arquivo gzip (CSV ou NDJSON) no diretório local. O arquivo é escrito com a extensão
+ * .parcial e renomeado ao final, de modo que um download nunca vê uma exportação incompleta.
+ * <p>
+ * O andamento (linhas e último id) é mantido em memória pelo nó que executa e gravado no
+ * banco no início e no fim. Exportações interrompidas por parada do nó recomeçam do início
+ * na inicialização; as concluídas ou falhas são removidas após a retenção.
+ */
+@Component
+@Slf4j
+public class CreditoExportacao {
+
+    static final String EXTENSAO_PARCIAL = ".parcial";
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final int TAMANHO_MAXIMO_MENSAGEM = 1000;
+    private static final char SEPARADOR_CSV = ';';
+    private static final String CABECALHO_CSV = String.join(String.valueOf(SEPARADOR_CSV), "id",
+            "numeroCreditoConstituido", "numeroNFSe", "dataConstituicao", "valorISSQN", "tipoCredito", "descricao",
+            "status", "dataRegistro", "dataAtualizacao", "responsavel", "cnpjEmpresa", "versao") + "\n";
+
+    @Autowired
+    private ExportacaoCreditoRepository exportacaoRepository;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Value("${credito.exportacao.diretorio:${java.io.tmpdir}/credito-exportacao}")
+    private String diretorio;
+
+    @Value("${credito.exportacao.execucoes-simultaneas:2}")
+    private int execucoesSimultaneas = 2;
+
+    @Value("${credito.exportacao.retencao:24h}")
+    private Duration retencao = Duration.ofHours(24);
+
+    private Path pasta;
+    private ExecutorService executor;
+    private final Map<String, Andamento> emExecucao = new ConcurrentHashMap<>();
+    private volatile boolean encerrando;
+
+    @PostConstruct
+    public void inicializar() throws IOException {
+        pasta = Files.createDirectories(Path.of(diretorio).toAbsolutePath());
+        executor = Executors.newFixedThreadPool(execucoesSimultaneas,
+                Thread.ofPlatform().name("credito-exportacao-", 1).factory());
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        encerrando = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Refaz as exportações que este nó deixou pela metade (o .parcial marca o nó dono)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void retomarInterrompidas() {
+        for (ExportacaoCredito exportacao : exportacaoRepository.findBySituacaoInOrderByDataCriacao(
+                List.of(SituacaoExportacao.AGUARDANDO, SituacaoExportacao.EM_ANDAMENTO))) {
+            if (Files.exists(parcial(exportacao)) && agendar(exportacao.getId())) {
+                log.info("Exportação {} interrompida será refeita", exportacao.getId());
+            }
+        }
+    }
+
+    public ExportacaoDTO exportarPorCNPJ(String cnpj, FormatoExportacao formato) {
+        if (cnpj == null || cnpj.isBlank()) {
+            throw new IllegalArgumentException("Informe o CNPJ da exportação");
+        }
+        return iniciar(formato, cnpj, null, null);
+    }
+
+    public ExportacaoDTO exportarPorPeriodo(LocalDate dataInicio, LocalDate dataFim, FormatoExportacao formato) {
+        if (dataInicio == null || dataFim == null || dataFim.isBefore(dataInicio)) {
+            throw new IllegalArgumentException("Informe um período válido (dataInicio até dataFim)");
+        }
+        return iniciar(formato, null, dataInicio, dataFim);
+    }
+
+    public ExportacaoDTO buscar(String id) {
+        return toDTO(carregar(id));
+    }
+
+    /**
+     * Arquivo de uma exportação concluída, para download
+     */
+    public Arquivo arquivo(String id) {
+        ExportacaoCredito exportacao = carregar(id);
+        Path caminho = Path.of(exportacao.getArquivo());
+        if (exportacao.getSituacao() != SituacaoExportacao.CONCLUIDA || !Files.exists(caminho)) {
+            throw new ExportacaoNaoEncontradaException("Arquivo da exportação " + id + " não disponível (situação: "
+                    + exportacao.getSituacao() + ")");
+        }
+        String filtro = exportacao.getCnpjEmpresa() != null
+                ? exportacao.getCnpjEmpresa() : exportacao.getPeriodoInicio() + "_" + exportacao.getPeriodoFim();
+        return new Arquivo(caminho, exportacao.getTamanhoArquivo(),
+                "creditos-" + filtro + "." + exportacao.getFormato().getExtensao() + ".gz",
+                "\"" + id + "-" + exportacao.getTamanhoArquivo() + "\"");
+    }
+
+    /**
+     * Remove os arquivos e registros das exportações encerradas há mais que a retenção. Cada
+     * nó remove só as que estão no seu disco (as falhas não têm arquivo)
+     */
+    @Scheduled(fixedDelayString = "${credito.exportacao.limpeza-ms:3600000}",
+            initialDelayString = "${credito.exportacao.limpeza-ms:3600000}")
+    public void removerExpiradas() {
+        int removidas = 0;
+        for (ExportacaoCredito exportacao : exportacaoRepository.findBySituacaoInAndDataFimBefore(
+                List.of(SituacaoExportacao.CONCLUIDA, SituacaoExportacao.FALHOU), LocalDateTime.now().minus(retencao))) {
+            Path arquivo = Path.of(exportacao.getArquivo());
+            if (exportacao.getSituacao() == SituacaoExportacao.FALHOU || Files.exists(arquivo)) {
+                apagar(arquivo);
+                exportacaoRepository.delete(exportacao);
+                removidas++;
+            }
+        }
+        if (removidas > 0) {
+            log.info("{} exportações expiradas removidas", removidas);
+        }
+    }
+
+    private ExportacaoDTO iniciar(FormatoExportacao formato, String cnpj, LocalDate dataInicio, LocalDate dataFim) {
+        String id = UUID.randomUUID().toString();
+        ExportacaoCredito exportacao = new ExportacaoCredito();
+        exportacao.setId(id);
+        exportacao.setFormato(formato);
+        exportacao.setCnpjEmpresa(cnpj);
+        exportacao.setPeriodoInicio(dataInicio);
+        exportacao.setPeriodoFim(dataFim);
+        exportacao.setSituacao(SituacaoExportacao.AGUARDANDO);
+        exportacao.setArquivo(pasta.resolve(id + "." + formato.getExtensao() + ".gz").toString());
+        try {
+            Files.createFile(parcial(exportacao));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao criar o arquivo da exportação", e);
+        }
+        exportacao = exportacaoRepository.save(exportacao);
+        log.info("Exportação {} registrada - formato: {}, CNPJ: {}, período: {} a {}", id, formato, cnpj,
+                dataInicio, dataFim);
+
+        agendar(id);
+        return toDTO(exportacao);
+    }
+
+    private boolean agendar(String id) {
+        if (emExecucao.putIfAbsent(id, new Andamento()) != null) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                executar(id);
+            } finally {
+                emExecucao.remove(id);
+            }
+        });
+        return true;
+    }
+
+    private void executar(String id) {
+        ExportacaoCredito exportacao = exportacaoRepository.findById(id).orElse(null);
+        Andamento andamento = emExecucao.get(id);
+        if (exportacao == null || andamento == null) {
+            return;
+        }
+        Path parcial = parcial(exportacao);
+        try {
+            exportacao.setSituacao(SituacaoExportacao.EM_ANDAMENTO);
+            exportacao.setDataInicio(LocalDateTime.now());
+            exportacao.setTotal(exportacao.getCnpjEmpresa() != null
+                    ? creditoRepository.countByCnpjEmpresa(exportacao.getCnpjEmpresa())
+                    : creditoRepository.countByDataConstituicaoBetween(exportacao.getPeriodoInicio(), exportacao.getPeriodoFim()));
+            exportacao = exportacaoRepository.save(exportacao);
+            log.info("Exportação {} em andamento - {} créditos", id, exportacao.getTotal());
+
+            long inicio = System.nanoTime();
+            try (OutputStream saida = new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(parcial), TAMANHO_BUFFER), TAMANHO_BUFFER)) {
+                Consumer<CreditoDTO> escrever = escritor(exportacao.getFormato(), saida, andamento);
+                if (exportacao.getCnpjEmpresa() != null) {
+                    creditoService.exportarPorCNPJ(exportacao.getCnpjEmpresa(), escrever);
+                } else {
+                    creditoService.exportarPorPeriodo(exportacao.getPeriodoInicio(), exportacao.getPeriodoFim(), escrever);
+                }
+            }
+            Path arquivo = Path.of(exportacao.getArquivo());
+            Files.move(parcial, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            exportacao.setSituacao(SituacaoExportacao.CONCLUIDA);
+            exportacao.setLinhas(andamento.linhas);
+            exportacao.setUltimoId(andamento.ultimoId);
+            exportacao.setTamanhoArquivo(Files.size(arquivo));
+            exportacao.setDataFim(LocalDateTime.now());
+            exportacaoRepository.save(exportacao);
+            log.info("Exportação {} concluída - {} créditos, {} bytes em {} ms", id, andamento.linhas,
+                    exportacao.getTamanhoArquivo(), Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+        } catch (CancellationException e) {
+            log.info("Exportação {} interrompida pela parada do nó; será refeita na próxima inicialização", id);
+        } catch (Exception e) {
+            log.error("Exportação {} falhou: {}", id, e.getMessage(), e);
+            apagar(parcial);
+            falhar(id, e, andamento);
+        }
+    }
+
+    /**
+     * Escreve cada crédito como uma linha CSV ou JSON, registrando o andamento
+     */
+    private Consumer<CreditoDTO> escritor(FormatoExportacao formato, OutputStream saida, Andamento andamento)
+            throws IOException {
+        if (formato == FormatoExportacao.CSV) {
+            saida.write(CABECALHO_CSV.getBytes(StandardCharsets.UTF_8));
+        }
+        return credito -> {
+            if (encerrando) {
+                throw new CancellationException();
+            }
+            try {
+                if (formato == FormatoExportacao.CSV) {
+                    saida.write(csv(credito).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    saida.write(jsonMapper.writeValueAsBytes(credito));
+                    saida.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            andamento.linhas++;
+            andamento.ultimoId = credito.getId();
+        };
+    }
+
+    private static String csv(CreditoDTO credito) {
+        StringBuilder linha = new StringBuilder(192);
+        Object[] valores = {credito.getId(), credito.getNumeroCreditoConstituido(), credito.getNumeroNFSe(),
+                credito.getDataConstituicao(), credito.getValorISSQN(), credito.getTipoCredito(),
+                credito.getDescricao(), credito.getStatus(), credito.getDataRegistro(), credito.getDataAtualizacao(),
+                credito.getResponsavel(), credito.getCnpjEmpresa(), credito.getVersao()};
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                linha.append(SEPARADOR_CSV);
+            }
+            linha.append(campoCsv(valores[i]));
+        }
+        return linha.append('\n').toString();
+    }
+
+    private static String campoCsv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor instanceof BigDecimal numero ? numero.toPlainString() : valor.toString();
+        if (texto.indexOf(SEPARADOR_CSV) < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0
+                && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+
+    private void falhar(String id, Exception erro, Andamento andamento) {
+        try {
+            exportacaoRepository.findById(id).ifPresent(exportacao -> {
+                String mensagem = String.valueOf(erro.getMessage());
+                exportacao.setSituacao(SituacaoExportacao.FALHOU);
+                exportacao.setLinhas(andamento.linhas);
+                exportacao.setUltimoId(andamento.ultimoId);
+                exportacao.setMensagemErro(mensagem.length() > TAMANHO_MAXIMO_MENSAGEM
+                        ? mensagem.substring(0, TAMANHO_MAXIMO_MENSAGEM) : mensagem);
+                exportacao.setDataFim(LocalDateTime.now());
+                exportacaoRepository.save(exportacao);
+            });
+        } catch (RuntimeException e) {
+            log.error("Não foi possível registrar a falha da exportação {}: {}", id, e.getMessage());
+        }
+    }
+
+    private ExportacaoCredito carregar(String id) {
+        return exportacaoRepository.findById(id)
+                .orElseThrow(() -> new ExportacaoNaoEncontradaException("Exportação não encontrada: " + id));
+    }
+
+    private static Path parcial(ExportacaoCredito exportacao) {
+        return Path.of(exportacao.getArquivo() + EXTENSAO_PARCIAL);
+    }
+
+    private static void apagar(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            log.warn("Não foi possível apagar {}: {}", arquivo, e.getMessage());
+        }
+    }
+
+    private ExportacaoDTO toDTO(ExportacaoCredito exportacao) {
+        Andamento andamento = exportacao.getSituacao() == SituacaoExportacao.EM_ANDAMENTO
+                ? emExecucao.get(exportacao.getId()) : null;
+        long linhas = andamento != null ? andamento.linhas : exportacao.getLinhas();
+        double percentual = exportacao.getSituacao() == SituacaoExportacao.CONCLUIDA ? 100
+                : exportacao.getTotal() > 0 ? Math.min(100, linhas * 100.0 / exportacao.getTotal()) : 0;
+        return ExportacaoDTO.builder()
+                .id(exportacao.getId())
+                .formato(exportacao.getFormato())
+                .cnpjEmpresa(exportacao.getCnpjEmpresa())
+                .periodoInicio(exportacao.getPeriodoInicio())
+                .periodoFim(exportacao.getPeriodoFim())
+                .situacao(exportacao.getSituacao())
+                .total(exportacao.getTotal())
+                .linhas(linhas)
+                .percentual(Math.round(percentual * 100) / 100.0)
+                .ultimoId(andamento != null ? andamento.ultimoId : exportacao.getUltimoId())
+                .tamanhoArquivo(exportacao.getTamanhoArquivo())
+                .mensagemErro(exportacao.getMensagemErro())
+                .dataCriacao(exportacao.getDataCriacao())
+                .dataInicio(exportacao.getDataInicio())
+                .dataFim(exportacao.getDataFim())
+                .build();
+    }
+
+    /**
+     * Arquivo pronto para download; a ETag muda se o arquivo for refeito com outro tamanho
+     */
+    public record Arquivo(Path caminho, long tamanho, String nome, String etag) {
+    }
+
+    // Escrito só pela thread da exportação, lido pelas consultas de andamento
+    private static final class Andamento {
+        private volatile long linhas;
+        private volatile long ultimoId;
+    }
+}
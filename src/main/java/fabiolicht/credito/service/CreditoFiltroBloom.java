@@ -0,0 +1,313 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.config.LeituraPrimaria;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.kafka.ConsumoNotificacoes;
+import fabiolicht.credito.repository.CreditoIdentificadores;
+import fabiolicht.credito.repository.CreditoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Filtro de Bloom sobre os números de crédito e de NFS-e: uma consulta por número
+ * inexistente é respondida sem ir ao banco. Construído na subida por uma varredura
+ * por faixas de id e alimentado pelas criações e alterações confirmadas neste nó e
+ * pelas notificações dos demais (tópico creditos-notification, gravadas no outbox).
+ * <p>
+ * Uma notificação perdida ou ainda em trânsito é um falso negativo: o crédito existe e
+ * o filtro responde que não. Por isso o "não existe" só é dado quando o consumo de
+ * creditos-notification está em dia (ConsumoNotificacoes: todas as partições atribuídas,
+ * lag zero confirmado há pouco) e foi atribuído antes do início da varredura do filtro;
+ * senão a consulta vai ao banco. Uma atribuição posterior à varredura (subida do nó,
+ * rebalanceamento) provoca uma reconstrução. O filtro é reconstruído também em horário
+ * fixo, e requisições do cliente que acabou de escrever (cookie de leitura após escrita)
+ * não o consultam.
+ * <p>
+ * Remoções não saem do filtro: o número removido continua "talvez presente" e cai no
+ * banco. A verificação periódica reconstrói o filtro quando as remoções ou o número de
+ * itens além da capacidade elevam a taxa de falso positivo.
+ */
+@Component
+@Slf4j
+public class CreditoFiltroBloom {
+
+    static final String PREFIXO_NUMERO = "numero:";
+    static final String PREFIXO_NFSE = "nfse:";
+    private static final String SEPARADOR = "\n";
+    private static final int TAMANHO_LOTE_CARGA = 5000;
+    private static final int IDENTIFICADORES_POR_CREDITO = 2;
+    private static final double FRACAO_MAXIMA_REMOVIDOS = 0.1;
+
+    private volatile FiltroBloom filtro;
+    // Início (System.nanoTime) da varredura do filtro atual
+    private volatile long varreduraIniciadaEm;
+    private volatile FiltroBloom emConstrucao;
+    private final AtomicLong removidos = new AtomicLong();
+
+    private Counter ausentes;
+    private Counter talvezPresentes;
+    private Counter falsosPositivos;
+
+    @Value("${credito.bloom.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${credito.bloom.probabilidade-falso-positivo:0.01}")
+    private double probabilidadeFalsoPositivo = 0.01;
+
+    @Value("${credito.bloom.capacidade-minima:100000}")
+    private long capacidadeMinima = 100000;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ConsumoNotificacoes consumoNotificacoes;
+
+    @PostConstruct
+    public void inicializar() {
+        if (meterRegistry == null) {
+            return;
+        }
+        medir("credito.bloom.fpp.estimada", "Taxa de falso positivo esperada para os itens atuais",
+                FiltroBloom::probabilidadeFalsoPositivo);
+        medir("credito.bloom.memoria", "Memória do vetor de bits em bytes", FiltroBloom::getBytes);
+        medir("credito.bloom.itens", "Identificadores adicionados", FiltroBloom::getItens);
+        medir("credito.bloom.capacidade", "Identificadores previstos no dimensionamento", FiltroBloom::getCapacidade);
+        ausentes = Counter.builder("credito.bloom.consultas").tag("resultado", "ausente")
+                .description("Consultas respondidas pelo filtro sem ir ao banco").register(meterRegistry);
+        talvezPresentes = Counter.builder("credito.bloom.consultas").tag("resultado", "talvez")
+                .description("Consultas encaminhadas ao banco").register(meterRegistry);
+        falsosPositivos = Counter.builder("credito.bloom.falsos.positivos")
+                .description("Consultas encaminhadas ao banco que não encontraram o crédito").register(meterRegistry);
+    }
+
+    /**
+     * false garante que não existe crédito com o número; true exige a consulta ao banco
+     */
+    public boolean podeConterNumero(String numero) {
+        return podeConter(PREFIXO_NUMERO + numero);
+    }
+
+    /**
+     * false garante que não existe crédito com a NFS-e; true exige a consulta ao banco
+     */
+    public boolean podeConterNFSe(String nfse) {
+        return podeConter(PREFIXO_NFSE + nfse);
+    }
+
+    /**
+     * O filtro respondeu "talvez" e o banco não encontrou o crédito
+     */
+    public void registrarFalsoPositivo() {
+        if (habilitado && filtro != null && falsosPositivos != null) {
+            falsosPositivos.increment();
+        }
+    }
+
+    /**
+     * Constrói o filtro na subida e o reconstrói quando a taxa de falso positivo
+     * esperada passa do dobro da configurada ou as remoções passam de 10% dos itens
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${credito.bloom.verificacao-ms:600000}",
+            initialDelayString = "${credito.bloom.verificacao-ms:600000}")
+    public void reconstruirSeNecessario() {
+        if (!habilitado) {
+            return;
+        }
+        FiltroBloom atual = filtro;
+        if (atual == null
+                || atual.probabilidadeFalsoPositivo() > 2 * probabilidadeFalsoPositivo
+                || removidos.get() > atual.getItens() * FRACAO_MAXIMA_REMOVIDOS) {
+            reconstruir();
+        }
+    }
+
+    /**
+     * Reconstrói quando o consumo de notificações, já em dia, foi atribuído depois da
+     * varredura do filtro atual: sem isso o filtro nunca responderia "não existe"
+     */
+    @Scheduled(fixedDelayString = "${credito.bloom.verificacao-atribuicao-ms:5000}")
+    public void reconstruirAposAtribuicao() {
+        if (!habilitado || filtro == null || consumoNotificacoes == null || !consumoNotificacoes.isEmDia()) {
+            return;
+        }
+        OptionalLong atribuidoEm = consumoNotificacoes.atribuidoEm();
+        if (atribuidoEm.isPresent() && atribuidoEm.getAsLong() - varreduraIniciadaEm > 0) {
+            log.info("Consumo de notificações atribuído após a construção do filtro de Bloom");
+            reconstruir();
+        }
+    }
+
+    /**
+     * Reconstrução diária, independente da taxa de falso positivo: recupera as
+     * notificações de outros nós que não chegaram
+     */
+    @Scheduled(cron = "${credito.bloom.reconstrucao.cron:0 30 4 * * *}")
+    public void reconstruirPeriodicamente() {
+        reconstruir();
+    }
+
+    /**
+     * Varre os identificadores por faixas de id em um filtro novo, dimensionado com folga
+     * para o dobro dos créditos atuais. Escritas confirmadas durante a varredura também
+     * entram no filtro novo, que só então substitui o anterior.
+     */
+    public synchronized void reconstruir() {
+        if (!habilitado) {
+            return;
+        }
+        long creditos = creditoRepository.count();
+        long capacidade = Math.max(capacidadeMinima, 2 * IDENTIFICADORES_POR_CREDITO * creditos);
+        log.info("Construindo filtro de Bloom de créditos - capacidade: {}", capacidade);
+        FiltroBloom novo = new FiltroBloom(capacidade, probabilidadeFalsoPositivo);
+        long iniciadaEm = System.nanoTime();
+        emConstrucao = novo;
+        removidos.set(0);
+
+        long ultimoId = 0L;
+        long total = 0L;
+        List<CreditoIdentificadores> lote;
+        // Varredura no primário: o que faltasse numa réplica atrasada ficaria fora do filtro (falso negativo)
+        try (LeituraPrimaria.Escopo primario = LeituraPrimaria.noPrimario()) {
+            do {
+                lote = creditoRepository.buscarIdentificadoresAposId(ultimoId, Limit.of(TAMANHO_LOTE_CARGA));
+                for (CreditoIdentificadores credito : lote) {
+                    adicionar(novo, credito.getNumeroCreditoConstituido(), credito.getNumeroNFSe());
+                    ultimoId = credito.getId();
+                }
+                total += lote.size();
+            } while (lote.size() == TAMANHO_LOTE_CARGA);
+        }
+
+        // Gravado depois do filtro e lido antes dele em podeConter: um filtro novo nunca é
+        // combinado com o instante de uma varredura mais recente que a dele
+        filtro = novo;
+        varreduraIniciadaEm = iniciadaEm;
+        emConstrucao = null;
+        log.info("Filtro de Bloom construído - créditos: {}, bytes: {}, funções: {}, fpp esperada: {}",
+                total, novo.getBytes(), novo.getFuncoes(), novo.probabilidadeFalsoPositivo());
+    }
+
+    /**
+     * Acrescenta os identificadores do crédito após o commit de cada escrita
+     */
+    @TransactionalEventListener
+    public void onCreditoAlterado(CreditoAlteradoEvent event) {
+        if (!habilitado) {
+            return;
+        }
+        CreditoDTO atual = event.getAtual();
+        if (atual == null) {
+            removidos.incrementAndGet();
+        } else {
+            adicionar(atual.getNumeroCreditoConstituido(), atual.getNumeroNFSe());
+        }
+    }
+
+    /**
+     * Acrescenta os números e NFS-e avisados por outro nó (mesmas chaves do CreditoCache)
+     */
+    public void onNotificacao(String mensagem) {
+        if (!habilitado || mensagem == null || mensagem.isEmpty()) {
+            return;
+        }
+        for (String chave : mensagem.split(SEPARADOR)) {
+            if (chave.startsWith(PREFIXO_NUMERO) || chave.startsWith(PREFIXO_NFSE)) {
+                adicionarChave(chave);
+            }
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public boolean isPronto() {
+        return filtro != null;
+    }
+
+    void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    private boolean podeConter(String chave) {
+        long iniciadaEm = varreduraIniciadaEm;
+        FiltroBloom atual = filtro;
+        if (!habilitado || atual == null || LeituraPrimaria.noEscopo() || !notificacoesEmDiaDesde(iniciadaEm)) {
+            return true;
+        }
+        boolean talvez = atual.podeConter(chave);
+        if (ausentes != null) {
+            (talvez ? talvezPresentes : ausentes).increment();
+        }
+        return talvez;
+    }
+
+    /**
+     * Toda escrita confirmada depois do início da varredura chegou e foi aplicada ao filtro
+     */
+    private boolean notificacoesEmDiaDesde(long iniciadaEm) {
+        if (consumoNotificacoes == null || !consumoNotificacoes.isEmDia()) {
+            return false;
+        }
+        OptionalLong atribuidoEm = consumoNotificacoes.atribuidoEm();
+        return atribuidoEm.isPresent() && atribuidoEm.getAsLong() - iniciadaEm <= 0;
+    }
+
+    private void adicionar(String numeroCreditoConstituido, String numeroNFSe) {
+        if (numeroCreditoConstituido != null) {
+            adicionarChave(PREFIXO_NUMERO + numeroCreditoConstituido);
+        }
+        if (numeroNFSe != null) {
+            adicionarChave(PREFIXO_NFSE + numeroNFSe);
+        }
+    }
+
+    private void adicionarChave(String chave) {
+        // Lê o filtro em construção antes do atual: se a troca acontecer entre as duas
+        // leituras, o atual já é o novo; se não havia construção, a varredura vê a linha
+        FiltroBloom novo = emConstrucao;
+        FiltroBloom atual = filtro;
+        if (atual != null) {
+            atual.adicionar(chave);
+        }
+        if (novo != null && novo != atual) {
+            novo.adicionar(chave);
+        }
+    }
+
+    private static void adicionar(FiltroBloom destino, String numeroCreditoConstituido, String numeroNFSe) {
+        if (numeroCreditoConstituido != null) {
+            destino.adicionar(PREFIXO_NUMERO + numeroCreditoConstituido);
+        }
+        if (numeroNFSe != null) {
+            destino.adicionar(PREFIXO_NFSE + numeroNFSe);
+        }
+    }
+
+    private void medir(String nome, String descricao, ToDoubleFunction<FiltroBloom> valor) {
+        Gauge.builder(nome, this, bloom -> bloom.filtro != null ? valor.applyAsDouble(bloom.filtro) : 0)
+                .description(descricao)
+                .register(meterRegistry);
+    }
+}
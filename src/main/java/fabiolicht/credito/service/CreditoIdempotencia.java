@@ -0,0 +1,163 @@
+package fabiolicht.credito.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.IdempotenciaCredito;
+import fabiolicht.credito.repository.IdempotenciaCreditoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Criações feitas com Idempotency-Key. A chave é gravada em creditos_idempotencia na
+ * mesma transação que cria o crédito, com a requisição e a resposta: a repetição, em
+ * qualquer nó e mesmo após reinício, devolve a resposta original sem criar de novo.
+ * Duas transações com a mesma chave se serializam na chave primária, e uma criação que
+ * falha desfaz a chave junto com o crédito.
+ * <p>
+ * Em memória ficam as execuções em andamento e as respostas recentes do nó (limitadas
+ * por tamanho e TTL): repetições simultâneas no mesmo nó esperam pela original até
+ * {@code credito.idempotencia.espera} e, passado esse prazo, recebem 409 para tentar de novo.
+ */
+@Component
+@Slf4j
+public class CreditoIdempotencia {
+
+    static final String NOME_CACHE = "idempotencia";
+
+    private Cache<String, CompletableFuture<Registro>> respostas;
+
+    @Value("${credito.idempotencia.tamanho-maximo:100000}")
+    private long tamanhoMaximo = 100000;
+
+    @Value("${credito.idempotencia.ttl:24h}")
+    private Duration ttl = Duration.ofHours(24);
+
+    @Value("${credito.idempotencia.espera:5s}")
+    private Duration espera = Duration.ofSeconds(5);
+
+    @Autowired
+    private IdempotenciaCreditoRepository idempotenciaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void inicializar() {
+        respostas = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, respostas, NOME_CACHE);
+        }
+    }
+
+    /**
+     * Executa a criação uma única vez por chave. Deve ser chamado fora de transação: a
+     * criação roda na transação aberta aqui, junto com a gravação da chave.
+     */
+    public Resposta criar(String chave, CreditoDTO requisicao, Supplier<CreditoDTO> criacao) {
+        if (chave.length() > IdempotenciaCredito.TAMANHO_MAXIMO_CHAVE) {
+            throw new IllegalArgumentException("Idempotency-Key excede " + IdempotenciaCredito.TAMANHO_MAXIMO_CHAVE + " caracteres");
+        }
+        while (true) {
+            CompletableFuture<Registro> emExecucao = new CompletableFuture<>();
+            CompletableFuture<Registro> existente = respostas.asMap().putIfAbsent(chave, emExecucao);
+            if (existente == null) {
+                return executar(chave, requisicao, criacao, emExecucao);
+            }
+            Registro registro;
+            try {
+                // A cópia expira sozinha: o prazo desta espera não afeta a execução original
+                registro = existente.copy().orTimeout(espera.toMillis(), TimeUnit.MILLISECONDS).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    throw new IdempotenciaEmAndamentoException(chave);
+                }
+                // A execução original falhou e liberou a chave: esta tentativa disputa a próxima
+                continue;
+            }
+            return repetir(chave, requisicao, registro);
+        }
+    }
+
+    /**
+     * Remove as chaves gravadas há mais que o TTL
+     */
+    @Scheduled(fixedDelayString = "${credito.idempotencia.limpeza-ms:3600000}",
+            initialDelayString = "${credito.idempotencia.limpeza-ms:3600000}")
+    public void removerExpiradas() {
+        Integer removidas = transactionTemplate.execute(status ->
+                idempotenciaRepository.removerCriadasAntesDe(LocalDateTime.now().minus(ttl)));
+        if (removidas != null && removidas > 0) {
+            log.info("{} Idempotency-Keys expiradas removidas", removidas);
+        }
+    }
+
+    private Resposta executar(String chave, CreditoDTO requisicao, Supplier<CreditoDTO> criacao,
+                              CompletableFuture<Registro> emExecucao) {
+        Registro registro;
+        try {
+            registro = transactionTemplate.execute(status -> reservarECriar(chave, requisicao, criacao));
+        } catch (RuntimeException e) {
+            respostas.asMap().remove(chave, emExecucao);
+            emExecucao.completeExceptionally(e);
+            throw e;
+        }
+        emExecucao.complete(registro);
+        return registro.gravadaAntes() ? repetir(chave, requisicao, registro) : new Resposta(registro.resposta(), false);
+    }
+
+    private Registro reservarECriar(String chave, CreditoDTO requisicao, Supplier<CreditoDTO> criacao) {
+        if (idempotenciaRepository.reservar(chave, jsonMapper.writeValueAsString(requisicao), LocalDateTime.now()) == 0) {
+            // Criada por outro nó ou antes de um reinício: a reserva esperou a transação dela terminar
+            IdempotenciaCredito gravada = idempotenciaRepository.findById(chave).orElseThrow();
+            return new Registro(jsonMapper.readValue(gravada.getRequisicao(), CreditoDTO.class),
+                    jsonMapper.readValue(gravada.getResposta(), CreditoDTO.class), true);
+        }
+        CreditoDTO criado = criacao.get();
+        idempotenciaRepository.registrarResposta(chave, jsonMapper.writeValueAsString(criado));
+        return new Registro(requisicao, criado, false);
+    }
+
+    private static Resposta repetir(String chave, CreditoDTO requisicao, Registro registro) {
+        if (!registro.requisicao().equals(requisicao)) {
+            throw new ChaveIdempotenciaReutilizadaException(chave);
+        }
+        log.info("Idempotency-Key {} repetida - devolvendo crédito ID: {}", chave, registro.resposta().getId());
+        return new Resposta(registro.resposta(), true);
+    }
+
+    private record Registro(CreditoDTO requisicao, CreditoDTO resposta, boolean gravadaAntes) {
+    }
+
+    /**
+     * Crédito da resposta e se ela é a repetição de uma criação anterior
+     */
+    public record Resposta(CreditoDTO credito, boolean repetida) {
+    }
+}
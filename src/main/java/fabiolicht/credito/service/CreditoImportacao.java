@@ -0,0 +1,582 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.ImportacaoDTO;
+import fabiolicht.credito.dto.ItemLoteDTO;
+import fabiolicht.credito.dto.ResultadoLoteDTO;
+import fabiolicht.credito.model.ImportacaoCredito;
+import fabiolicht.credito.model.SituacaoImportacao;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.ImportacaoCreditoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importação assíncrona de créditos a partir de arquivos CSV. O arquivo enviado é gravado no
+ * diretório local e processado em segundo plano: lido por janelas mapeadas em memória, linha a
+ * linha, e gravado em blocos de tamanho fixo pelo upsert em lote do CreditoService. Cada bloco
+ * é uma transação que também avança o checkpoint da importação, de modo que uma importação
+ * interrompida (falha ou parada do nó) é retomada do último bloco confirmado.
+ * <p>
+ * Linhas inválidas vão para o arquivo de rejeições (linha, erro e registro original) sem
+ * interromper a importação.
+ */
+@Component
+@Slf4j
+public class CreditoImportacao {
+
+    static final String EXTENSAO_REJEITOS = ".rejeitados.csv";
+    private static final String METRICA_LINHAS = "credito.importacao.linhas";
+    private static final int TAMANHO_MAXIMO_MENSAGEM = 1000;
+
+    @Autowired
+    private ImportacaoCreditoRepository importacaoRepository;
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${credito.importacao.diretorio:${java.io.tmpdir}/credito-importacao}")
+    private String diretorio;
+
+    @Value("${credito.importacao.tamanho-bloco:500}")
+    private int tamanhoBloco = 500;
+
+    @Value("${credito.importacao.janela-leitura:8MB}")
+    private DataSize janelaLeitura = DataSize.ofMegabytes(8);
+
+    @Value("${credito.importacao.execucoes-simultaneas:2}")
+    private int execucoesSimultaneas = 2;
+
+    @Value("${credito.importacao.retomar-na-inicializacao:true}")
+    private boolean retomarNaInicializacao = true;
+
+    private Path pasta;
+    private ExecutorService executor;
+    private final Set<String> emExecucao = ConcurrentHashMap.newKeySet();
+    private volatile boolean encerrando;
+    private Counter linhasAceitas;
+    private Counter linhasRejeitadas;
+
+    @PostConstruct
+    public void inicializar() throws IOException {
+        pasta = Files.createDirectories(Path.of(diretorio));
+        executor = Executors.newFixedThreadPool(execucoesSimultaneas,
+                Thread.ofPlatform().name("credito-importacao-", 1).factory());
+        linhasAceitas = Counter.builder(METRICA_LINHAS).tag("resultado", "aceita")
+                .description("Linhas importadas (criadas ou atualizadas)").register(meterRegistry);
+        linhasRejeitadas = Counter.builder(METRICA_LINHAS).tag("resultado", "rejeitada")
+                .description("Linhas enviadas ao arquivo de rejeições").register(meterRegistry);
+    }
+
+    /**
+     * Interrompe as importações após o bloco em andamento; elas continuam EM_ANDAMENTO e são
+     * retomadas do checkpoint quando o nó voltar
+     */
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        encerrando = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Retoma as importações interrompidas cujo arquivo está no diretório deste nó
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void retomarInterrompidas() {
+        if (!retomarNaInicializacao) {
+            return;
+        }
+        for (ImportacaoCredito importacao : importacaoRepository.findBySituacaoInOrderByDataCriacao(
+                List.of(SituacaoImportacao.AGUARDANDO, SituacaoImportacao.EM_ANDAMENTO))) {
+            if (Files.exists(Path.of(importacao.getArquivo())) && agendar(importacao.getId())) {
+                log.info("Retomando importação {} a partir do byte {}", importacao.getId(), importacao.getPosicao());
+            }
+        }
+    }
+
+    /**
+     * Grava o arquivo enviado, valida o cabeçalho e agenda a importação
+     */
+    public ImportacaoDTO iniciar(MultipartFile arquivo) {
+        String id = UUID.randomUUID().toString();
+        Path destino = pasta.resolve(id + ".csv");
+        try {
+            arquivo.transferTo(destino);
+            try (LeitorLinhasMapeado leitor = new LeitorLinhasMapeado(destino, tamanhoJanela())) {
+                Colunas.de(leitor.proxima());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            apagar(destino);
+            if (e instanceof IOException io) {
+                throw new UncheckedIOException("Falha ao gravar o arquivo da importação", io);
+            }
+            throw (IllegalArgumentException) e;
+        }
+
+        ImportacaoCredito importacao = new ImportacaoCredito();
+        importacao.setId(id);
+        importacao.setNomeArquivo(arquivo.getOriginalFilename());
+        importacao.setArquivo(destino.toString());
+        importacao.setTamanhoArquivo(arquivo.getSize());
+        importacao.setSituacao(SituacaoImportacao.AGUARDANDO);
+        importacao = importacaoRepository.save(importacao);
+        log.info("Importação {} recebida - arquivo: {} ({} bytes)", id, importacao.getNomeArquivo(),
+                importacao.getTamanhoArquivo());
+
+        agendar(id);
+        return toDTO(importacao);
+    }
+
+    public ImportacaoDTO buscar(String id) {
+        return toDTO(carregar(id));
+    }
+
+    /**
+     * Retoma do checkpoint uma importação que falhou ou ficou parada
+     */
+    public ImportacaoDTO retomar(String id) {
+        ImportacaoCredito importacao = carregar(id);
+        if (importacao.getSituacao() == SituacaoImportacao.CONCLUIDA) {
+            throw new IllegalArgumentException("Importação " + id + " já concluída");
+        }
+        if (!Files.exists(Path.of(importacao.getArquivo()))) {
+            throw new IllegalArgumentException("Arquivo da importação " + id + " não está neste nó");
+        }
+        if (!agendar(id)) {
+            throw new IllegalArgumentException("Importação " + id + " já em execução");
+        }
+        log.info("Importação {} retomada a partir do byte {}", id, importacao.getPosicao());
+        return toDTO(importacao);
+    }
+
+    /**
+     * Arquivo de rejeições da importação (linha, erro e registro original)
+     */
+    public Path rejeitos(String id) {
+        Path rejeitos = caminhoRejeitos(carregar(id));
+        if (!Files.exists(rejeitos)) {
+            throw new ImportacaoNaoEncontradaException("Importação " + id + " sem arquivo de rejeições");
+        }
+        return rejeitos;
+    }
+
+    private boolean agendar(String id) {
+        if (!emExecucao.add(id)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                executar(id);
+            } finally {
+                emExecucao.remove(id);
+            }
+        });
+        return true;
+    }
+
+    private void executar(String id) {
+        ImportacaoCredito importacao = importacaoRepository.findById(id).orElse(null);
+        if (importacao == null) {
+            return;
+        }
+        importacao.setSituacao(SituacaoImportacao.EM_ANDAMENTO);
+        importacao.setMensagemErro(null);
+        importacao.setDataFim(null);
+        if (importacao.getDataInicio() == null) {
+            importacao.setDataInicio(LocalDateTime.now());
+        }
+        importacao = importacaoRepository.save(importacao);
+        log.info("Importação {} em andamento a partir do byte {} ({} linhas já processadas)",
+                id, importacao.getPosicao(), importacao.getLinhas());
+
+        long inicioExecucao = System.nanoTime();
+        long duracaoAnteriorMs = importacao.getDuracaoMs();
+        try (LeitorLinhasMapeado leitor = new LeitorLinhasMapeado(Path.of(importacao.getArquivo()), tamanhoJanela());
+             FileChannel rejeitos = FileChannel.open(caminhoRejeitos(importacao),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            Colunas colunas = Colunas.de(leitor.proxima());
+            leitor.posicionar(Math.max(importacao.getPosicao(), leitor.posicao()));
+            // Descarta as rejeições gravadas por um bloco que não chegou a ser confirmado
+            rejeitos.truncate(importacao.getTamanhoRejeitos());
+            rejeitos.position(importacao.getTamanhoRejeitos());
+
+            while (!encerrando) {
+                List<LinhaLida> bloco = lerBloco(leitor, colunas, importacao.getLinhas());
+                if (bloco.isEmpty()) {
+                    break;
+                }
+                ImportacaoCredito checkpoint = importacao;
+                long aceitasAntes = checkpoint.getCriados() + checkpoint.getAtualizados();
+                long rejeitadasAntes = checkpoint.getRejeitados();
+                long posicao = leitor.posicao();
+                importacao = transactionTemplate.execute(status -> gravarBloco(checkpoint, bloco, posicao, rejeitos,
+                        colunas.separador(), duracaoAnteriorMs + Duration.ofNanos(System.nanoTime() - inicioExecucao).toMillis()));
+                linhasAceitas.increment(importacao.getCriados() + importacao.getAtualizados() - aceitasAntes);
+                linhasRejeitadas.increment(importacao.getRejeitados() - rejeitadasAntes);
+                log.debug("Importação {} - {} linhas, {} rejeitadas, byte {} de {}", id, importacao.getLinhas(),
+                        importacao.getRejeitados(), importacao.getPosicao(), importacao.getTamanhoArquivo());
+            }
+            if (encerrando) {
+                log.info("Importação {} interrompida no byte {}; será retomada na próxima inicialização",
+                        id, importacao.getPosicao());
+                return;
+            }
+
+            importacao.setSituacao(SituacaoImportacao.CONCLUIDA);
+            importacao.setDataFim(LocalDateTime.now());
+            importacao = importacaoRepository.save(importacao);
+            ImportacaoDTO resultado = toDTO(importacao);
+            log.info("Importação {} concluída - {} linhas ({} criados, {} atualizados, {} rejeitados) a {} linhas/s",
+                    id, resultado.getLinhas(), resultado.getCriados(), resultado.getAtualizados(),
+                    resultado.getRejeitados(), resultado.getLinhasPorSegundo());
+        } catch (Exception e) {
+            log.error("Importação {} falhou: {}", id, e.getMessage(), e);
+            falhar(id, e);
+        }
+    }
+
+    /**
+     * Lê até tamanhoBloco linhas; linhas em branco contam na numeração mas não são importadas
+     */
+    private List<LinhaLida> lerBloco(LeitorLinhasMapeado leitor, Colunas colunas, long linhasAnteriores)
+            throws IOException {
+        List<LinhaLida> bloco = new ArrayList<>(tamanhoBloco);
+        String texto;
+        while (bloco.size() < tamanhoBloco && (texto = leitor.proxima()) != null) {
+            // +1 do cabeçalho e +1 da numeração a partir de 1
+            long numero = linhasAnteriores + bloco.size() + 2;
+            bloco.add(texto.isBlank() ? new LinhaLida(numero, texto, null, null) : ler(numero, texto, colunas));
+        }
+        return bloco;
+    }
+
+    private static LinhaLida ler(long numero, String texto, Colunas colunas) {
+        try {
+            List<String> campos = separarCampos(texto, colunas.separador());
+            if (campos.size() != colunas.quantidade()) {
+                return new LinhaLida(numero, texto, null, "Esperadas " + colunas.quantidade()
+                        + " colunas, encontradas " + campos.size());
+            }
+            return new LinhaLida(numero, texto, colunas.credito(campos), null);
+        } catch (IllegalArgumentException e) {
+            return new LinhaLida(numero, texto, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Um bloco da importação: upsert dos créditos válidos, rejeições no arquivo e checkpoint,
+     * tudo na mesma transação
+     */
+    private ImportacaoCredito gravarBloco(ImportacaoCredito importacao, List<LinhaLida> bloco, long posicao,
+                                          FileChannel rejeitos, char separador, long duracaoMs) {
+        List<LinhaLida> validas = bloco.stream().filter(linha -> linha.credito() != null).toList();
+        StringBuilder rejeicoes = new StringBuilder();
+        long rejeitadas = 0;
+        for (LinhaLida linha : bloco) {
+            if (linha.erro() != null) {
+                rejeitar(rejeicoes, separador, linha, linha.erro());
+                rejeitadas++;
+            }
+        }
+        long criados = 0;
+        long atualizados = 0;
+        if (!validas.isEmpty()) {
+            ResultadoLoteDTO resultado = creditoService.processarLote(validas.stream().map(LinhaLida::credito).toList());
+            criados = resultado.getCriados();
+            atualizados = resultado.getAtualizados();
+            for (ItemLoteDTO item : resultado.getItens()) {
+                if (item.getOperacao() == ItemLoteDTO.Operacao.REJEITADO) {
+                    rejeitar(rejeicoes, separador, validas.get(item.getIndice()), item.getMensagem());
+                    rejeitadas++;
+                }
+            }
+        }
+
+        try {
+            if (!rejeicoes.isEmpty()) {
+                if (rejeitos.position() == 0) {
+                    rejeicoes.insert(0, "linha" + separador + "erro" + separador + "registro\n");
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(rejeicoes.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    rejeitos.write(bytes);
+                }
+                rejeitos.force(false);
+            }
+            importacao.setTamanhoRejeitos(rejeitos.position());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar o arquivo de rejeições", e);
+        }
+
+        importacao.setPosicao(posicao);
+        importacao.setLinhas(importacao.getLinhas() + bloco.size());
+        importacao.setCriados(importacao.getCriados() + criados);
+        importacao.setAtualizados(importacao.getAtualizados() + atualizados);
+        importacao.setRejeitados(importacao.getRejeitados() + rejeitadas);
+        importacao.setDuracaoMs(duracaoMs);
+        importacao.setDataAtualizacao(LocalDateTime.now());
+        return importacaoRepository.save(importacao);
+    }
+
+    private static void rejeitar(StringBuilder rejeicoes, char separador, LinhaLida linha, String erro) {
+        rejeicoes.append(linha.numero()).append(separador)
+                .append(aspas(erro)).append(separador)
+                .append(aspas(linha.texto())).append('\n');
+    }
+
+    private void falhar(String id, Exception erro) {
+        try {
+            importacaoRepository.findById(id).ifPresent(importacao -> {
+                String mensagem = String.valueOf(erro.getMessage());
+                importacao.setSituacao(SituacaoImportacao.FALHOU);
+                importacao.setMensagemErro(mensagem.length() > TAMANHO_MAXIMO_MENSAGEM
+                        ? mensagem.substring(0, TAMANHO_MAXIMO_MENSAGEM) : mensagem);
+                importacao.setDataFim(LocalDateTime.now());
+                importacaoRepository.save(importacao);
+            });
+        } catch (RuntimeException e) {
+            log.error("Não foi possível registrar a falha da importação {}: {}", id, e.getMessage());
+        }
+    }
+
+    private ImportacaoCredito carregar(String id) {
+        return importacaoRepository.findById(id)
+                .orElseThrow(() -> new ImportacaoNaoEncontradaException("Importação não encontrada: " + id));
+    }
+
+    private static Path caminhoRejeitos(ImportacaoCredito importacao) {
+        return Path.of(importacao.getArquivo()).resolveSibling(importacao.getId() + EXTENSAO_REJEITOS);
+    }
+
+    private int tamanhoJanela() {
+        return (int) Math.min(janelaLeitura.toBytes(), Integer.MAX_VALUE);
+    }
+
+    private static void apagar(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            log.warn("Não foi possível apagar {}: {}", arquivo, e.getMessage());
+        }
+    }
+
+    private static ImportacaoDTO toDTO(ImportacaoCredito importacao) {
+        double segundos = importacao.getDuracaoMs() / 1000.0;
+        double percentual = importacao.getTamanhoArquivo() > 0
+                ? importacao.getPosicao() * 100.0 / importacao.getTamanhoArquivo() : 100;
+        return ImportacaoDTO.builder()
+                .id(importacao.getId())
+                .nomeArquivo(importacao.getNomeArquivo())
+                .situacao(importacao.getSituacao())
+                .tamanhoArquivo(importacao.getTamanhoArquivo())
+                .bytesProcessados(importacao.getPosicao())
+                .percentual(Math.round(percentual * 100) / 100.0)
+                .linhas(importacao.getLinhas())
+                .criados(importacao.getCriados())
+                .atualizados(importacao.getAtualizados())
+                .rejeitados(importacao.getRejeitados())
+                .linhasPorSegundo(segundos > 0 ? Math.round(importacao.getLinhas() / segundos * 10) / 10.0 : 0)
+                .mensagemErro(importacao.getMensagemErro())
+                .dataCriacao(importacao.getDataCriacao())
+                .dataInicio(importacao.getDataInicio())
+                .dataFim(importacao.getDataFim())
+                .build();
+    }
+
+    /**
+     * Separa os campos de uma linha CSV. Campos entre aspas podem conter o separador e aspas
+     * duplicadas (""); quebras de linha dentro de campos não são aceitas.
+     */
+    static List<String> separarCampos(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+        boolean campoComAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreAspas = false;
+                }
+            } else if (c == '"' && campo.isEmpty() && !campoComAspas) {
+                entreAspas = true;
+                campoComAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+                campoComAspas = false;
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreAspas) {
+            throw new IllegalArgumentException("Aspas não fechadas");
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static String aspas(String valor) {
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private record LinhaLida(long numero, String texto, CreditoDTO credito, String erro) {
+    }
+
+    /**
+     * Posição de cada campo do crédito no arquivo, pelo nome no cabeçalho (o mesmo do JSON,
+     * sem diferenciar maiúsculas). Colunas desconhecidas são ignoradas; -1 indica ausente.
+     */
+    private record Colunas(char separador, int quantidade, int numero, int nfse, int data, int valor, int tipo,
+                           int descricao, int status, int responsavel, int cnpj) {
+
+        static Colunas de(String cabecalho) {
+            if (cabecalho == null || cabecalho.isBlank()) {
+                throw new IllegalArgumentException("Arquivo sem cabeçalho");
+            }
+            char separador = cabecalho.indexOf(';') >= 0 ? ';' : ',';
+            List<String> nomes = separarCampos(cabecalho, separador);
+            Map<String, Integer> indices = new HashMap<>();
+            for (int i = 0; i < nomes.size(); i++) {
+                indices.putIfAbsent(nomes.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            return new Colunas(separador, nomes.size(),
+                    obrigatoria(indices, "numeroCreditoConstituido"),
+                    obrigatoria(indices, "numeroNFSe"),
+                    obrigatoria(indices, "dataConstituicao"),
+                    obrigatoria(indices, "valorISSQN"),
+                    obrigatoria(indices, "tipoCredito"),
+                    indices.getOrDefault("descricao", -1),
+                    indices.getOrDefault("status", -1),
+                    indices.getOrDefault("responsavel", -1),
+                    indices.getOrDefault("cnpjempresa", -1));
+        }
+
+        private static int obrigatoria(Map<String, Integer> indices, String nome) {
+            Integer indice = indices.get(nome.toLowerCase(Locale.ROOT));
+            if (indice == null) {
+                throw new IllegalArgumentException("Coluna obrigatória ausente no cabeçalho: " + nome);
+            }
+            return indice;
+        }
+
+        /**
+         * Converte os campos no crédito; os limites de tamanho são os das colunas da tabela,
+         * para que uma linha inválida seja rejeitada sozinha em vez de derrubar o bloco
+         */
+        CreditoDTO credito(List<String> campos) {
+            String valor = texto(campos, this.valor, "valorISSQN", 40);
+            String tipo = texto(campos, this.tipo, "tipoCredito", 50);
+            String status = texto(campos, this.status, "status", 50);
+            return CreditoDTO.builder()
+                    .numeroCreditoConstituido(texto(campos, numero, "numeroCreditoConstituido", 50))
+                    .numeroNFSe(texto(campos, nfse, "numeroNFSe", 50))
+                    .dataConstituicao(data(texto(campos, data, "dataConstituicao", 10)))
+                    .valorISSQN(valor != null ? valor(valor) : null)
+                    .tipoCredito(tipo != null ? constante(TipoCredito.class, tipo, "tipoCredito") : null)
+                    .descricao(texto(campos, descricao, "descricao", 255))
+                    .status(status != null ? constante(StatusCredito.class, status, "status") : null)
+                    .responsavel(texto(campos, responsavel, "responsavel", 100))
+                    .cnpjEmpresa(texto(campos, cnpj, "cnpjEmpresa", 20))
+                    .build();
+        }
+
+        private static String texto(List<String> campos, int indice, String nome, int tamanhoMaximo) {
+            if (indice < 0) {
+                return null;
+            }
+            String valor = campos.get(indice).trim();
+            if (valor.isEmpty()) {
+                return null;
+            }
+            if (valor.length() > tamanhoMaximo) {
+                throw new IllegalArgumentException(nome + " excede " + tamanhoMaximo + " caracteres");
+            }
+            return valor;
+        }
+
+        private static LocalDate data(String valor) {
+            if (valor == null) {
+                return null;
+            }
+            try {
+                return LocalDate.parse(valor);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("dataConstituicao inválida (esperado aaaa-mm-dd): " + valor);
+            }
+        }
+
+        private static BigDecimal valor(String valor) {
+            BigDecimal numero;
+            try {
+                numero = new BigDecimal(valor.indexOf('.') < 0 ? valor.replace(',', '.') : valor).stripTrailingZeros();
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("valorISSQN inválido: " + valor);
+            }
+            // numeric(15, 2)
+            if (numero.scale() > 2 || numero.precision() - numero.scale() > 13) {
+                throw new IllegalArgumentException("valorISSQN fora de numeric(15, 2): " + valor);
+            }
+            return numero.setScale(2);
+        }
+
+        private static <E extends Enum<E>> E constante(Class<E> tipo, String valor, String nome) {
+            try {
+                return Enum.valueOf(tipo, valor.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(nome + " inválido: " + valor);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package fabiolicht.credito.service;
+
+/**
+ * Crédito inexistente. Sem stack trace: é o resultado esperado de boa parte das consultas
+ * por número e NFS-e, e o custo de capturar a pilha não traz informação.
+ */
+public class CreditoNaoEncontradoException extends RuntimeException {
+
+    public CreditoNaoEncontradoException(String message) {
+        super(message, null, false, false);
+    }
+}
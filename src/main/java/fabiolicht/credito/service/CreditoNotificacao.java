@@ -0,0 +1,82 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.config.KafkaTopicConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Aviso aos demais nós das chaves (id, número e NFS-e) dos créditos escritos, pelo
+ * tópico creditos-notification: invalida o cache local e o de segundo nível e
+ * alimenta o filtro de Bloom e o índice de trigramas. As chaves de uma transação são reunidas em uma única
+ * mensagem, gravada no outbox antes do commit: o aviso sai junto com a escrita, sem
+ * chamada ao broker na thread da requisição.
+ */
+@Component
+@Slf4j
+public class CreditoNotificacao {
+
+    private static final String SEPARADOR = "\n";
+
+    @Autowired
+    private CreditoCache creditoCache;
+
+    @Autowired
+    private CreditoFiltroBloom creditoFiltroBloom;
+
+    @Autowired
+    private CreditoTermoIndex creditoTermoIndex;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    /**
+     * Acumula as chaves do crédito alterado na transação corrente
+     */
+    @EventListener
+    public void onCreditoAlterado(CreditoAlteradoEvent event) {
+        if (!creditoCache.isHabilitado() && !creditoFiltroBloom.isHabilitado() && !creditoTermoIndex.isHabilitado()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            log.warn("Escrita fora de transação, sem notificação aos demais nós: {}", event);
+            return;
+        }
+        Set<String> chaves = daTransacao();
+        CreditoCache.adicionarChaves(chaves, event.getAnterior());
+        CreditoCache.adicionarChaves(chaves, event.getAtual());
+    }
+
+    private Set<String> daTransacao() {
+        @SuppressWarnings("unchecked")
+        Set<String> chaves = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (chaves != null) {
+            return chaves;
+        }
+        Set<String> novas = new LinkedHashSet<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!novas.isEmpty()) {
+                    outboxService.registrarMensagem(KafkaTopicConfig.TOPICO_NOTIFICACAO, creditoCache.getIdNo(),
+                            String.join(SEPARADOR, novas).getBytes(StandardCharsets.UTF_8));
+                    novas.clear();
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CreditoNotificacao.this);
+            }
+        });
+        TransactionSynchronizationManager.bindResource(this, novas);
+        return novas;
+    }
+}
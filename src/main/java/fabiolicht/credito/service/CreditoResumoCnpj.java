@@ -0,0 +1,98 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.ResumoCnpjDTO;
+import fabiolicht.credito.dto.TotaisDTO;
+import fabiolicht.credito.model.ResumoCnpj;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.ResumoCnpjRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Totais por CNPJ, status e tipo mantidos na tabela creditos_resumo_cnpj.
+ * Cada escrita gera deltas (-1/-valor do estado anterior, +1/+valor do atual),
+ * acumulados por transação e somados às linhas antes do commit: um lote com
+ * milhares de itens vira uma linha por grupo afetado. A leitura de um CNPJ
+ * lê no máximo status x tipo linhas, qualquer que seja o volume da empresa.
+ */
+@Component
+@Slf4j
+public class CreditoResumoCnpj {
+
+    @Autowired
+    private ResumoCnpjRepository resumoCnpjRepository;
+
+    private final DeltasPorTransacao<Grupo> deltas = new DeltasPorTransacao<>(
+            Comparator.comparing(Grupo::cnpj).thenComparing(Grupo::status).thenComparing(Grupo::tipo),
+            (grupo, delta) -> resumoCnpjRepository.aplicarDelta(grupo.cnpj(), grupo.status().name(),
+                    grupo.tipo().name(), delta.getQuantidade(), delta.getValor()));
+
+    /**
+     * Acumula os deltas da escrita na transação corrente
+     */
+    @EventListener
+    public void onCreditoAlterado(CreditoAlteradoEvent event) {
+        acumular(event.getAnterior(), -1);
+        acumular(event.getAtual(), 1);
+    }
+
+    public ResumoCnpjDTO buscar(String cnpj) {
+        Map<StatusCredito, TotaisDTO> porStatus = new EnumMap<>(StatusCredito.class);
+        Map<TipoCredito, TotaisDTO> porTipo = new EnumMap<>(TipoCredito.class);
+        long quantidade = 0;
+        BigDecimal valorTotal = BigDecimal.ZERO;
+
+        for (ResumoCnpj linha : resumoCnpjRepository.findByCnpjEmpresa(cnpj)) {
+            if (linha.getQuantidade() == 0) {
+                continue;
+            }
+            porStatus.computeIfAbsent(linha.getStatus(), s -> TotaisDTO.zero())
+                    .somar(linha.getQuantidade(), linha.getValorTotal());
+            porTipo.computeIfAbsent(linha.getTipoCredito(), t -> TotaisDTO.zero())
+                    .somar(linha.getQuantidade(), linha.getValorTotal());
+            quantidade += linha.getQuantidade();
+            valorTotal = valorTotal.add(linha.getValorTotal());
+        }
+        return new ResumoCnpjDTO(cnpj, quantidade, valorTotal, porStatus, porTipo);
+    }
+
+    /**
+     * Recalcula o resumo de um CNPJ a partir da tabela creditos. Escritas
+     * concorrentes no mesmo CNPJ durante a reconstrução podem ficar de fora.
+     */
+    public void reconstruir(String cnpj) {
+        resumoCnpjRepository.removerPorCnpj(cnpj);
+        int linhas = resumoCnpjRepository.recalcularPorCnpj(cnpj);
+        log.info("Resumo do CNPJ {} reconstruído - grupos: {}", cnpj, linhas);
+    }
+
+    /**
+     * Recalcula todos os resumos; pensado para manutenção, com as escritas pausadas
+     */
+    public void reconstruirTodos() {
+        resumoCnpjRepository.removerTodos();
+        int linhas = resumoCnpjRepository.recalcularTodos();
+        log.info("Resumos por CNPJ reconstruídos - grupos: {}", linhas);
+    }
+
+    private void acumular(CreditoDTO credito, int sinal) {
+        if (credito == null || credito.getCnpjEmpresa() == null
+                || credito.getStatus() == null || credito.getTipoCredito() == null) {
+            return;
+        }
+        deltas.somar(new Grupo(credito.getCnpjEmpresa(), credito.getStatus(), credito.getTipoCredito()),
+                sinal, credito.getValorISSQN());
+    }
+
+    private record Grupo(String cnpj, StatusCredito status, TipoCredito tipo) {
+    }
+}
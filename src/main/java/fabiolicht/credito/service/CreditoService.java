@@ -1,21 +1,59 @@
 package fabiolicht.credito.service;
 
+import fabiolicht.credito.dto.AgregadoPeriodoDTO;
 import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.CursorPageDTO;
+import fabiolicht.credito.dto.FiltroCredito;
+import fabiolicht.credito.dto.ItemLoteDTO;
+import fabiolicht.credito.dto.ResultadoAlteracaoStatusDTO;
+import fabiolicht.credito.dto.ResultadoLoteDTO;
+import fabiolicht.credito.dto.ResumoCnpjDTO;
+import fabiolicht.credito.kafka.CreditoEvento;
 import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.GranularidadePeriodo;
 import fabiolicht.credito.model.StatusCredito;
 import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.model.TipoEventoCredito;
+import fabiolicht.credito.repository.CreditoProjecaoRepository;
 import fabiolicht.credito.repository.CreditoRepository;
+import fabiolicht.credito.repository.CreditoVersao;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -23,52 +61,161 @@ import java.util.stream.Collectors;
 public class CreditoService {
 
     private static final String KAFKA_TOPIC = "creditos-events";
+    private static final String CHAVE_EVENTO_CNPJ = "cnpj:";
+    private static final String CHAVE_EVENTO_LOTE = "lote";
+    private static final String ORDENACAO_ID = "id";
+    private static final String ORDENACAO_DATA_CONSTITUICAO = "dataConstituicao";
     @Autowired
     private CreditoRepository creditoRepository;
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private OutboxService outboxService;
+    @Autowired
+    private CreditoTermoIndex termoIndex;
+    @Autowired
+    private CreditoCache creditoCache;
+    @Autowired
+    private CreditoFiltroBloom creditoFiltroBloom;
+    @Autowired
+    private CreditoContagem creditoContagem;
+    @Autowired
+    private CreditoResumoCnpj creditoResumoCnpj;
+    @Autowired
+    private CreditoAgregadoPeriodo creditoAgregadoPeriodo;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Value("${credito.lote.tamanho-maximo:10000}")
+    private int tamanhoMaximoLote = 10000;
+    @Value("${credito.lote.tamanho-bloco:500}")
+    private int tamanhoBlocoLote = 500;
+    @Value("${credito.alteracao-status.tamanho-bloco:1000}")
+    private int tamanhoBlocoStatus = 1000;
+    @Value("${credito.busca.indice.paginas-contadas:10}")
+    private int paginasContadas = 10;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     /**
      * Busca todos os créditos com paginação
      */
+    @Transactional(readOnly = true)
     public Page<CreditoDTO> buscarTodos(Pageable pageable) {
         log.info("Buscando todos os créditos - página: {}, tamanho: {}", pageable.getPageNumber(), pageable.getPageSize());
         return creditoRepository.findAll(pageable).map(this::convertToDTO);
     }
 
+    /**
+     * Busca créditos retornando apenas os campos pedidos em ?fields=, lidos direto
+     * das colunas (sem entidades gerenciadas nem conversão para DTO). Sempre paginada;
+     * só pelo termo, sem ordenação, os ids da página vêm do índice de trigramas.
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> buscarCampos(FiltroCredito filtro, String fields, Pageable pageable) {
+        log.info("Buscando campos {} de créditos - filtro: {}", fields, filtro);
+        if (pageable.isUnpaged()) {
+            throw new IllegalArgumentException("Consultas com fields exigem paginação (page e size)");
+        }
+        List<String> campos = camposSolicitados(fields);
+        if (somenteTermo(filtro) && pageable.getSort().isUnsorted() && termoIndex.isDisponivel(filtro.getTermo())) {
+            return buscarCamposNoIndice(filtro.getTermo(), campos, pageable);
+        }
+        return creditoRepository.buscarCampos(filtro, campos, pageable);
+    }
+
+    /**
+     * Projeta só os ids da página, na ordem decrescente do índice (a mesma do buscarPorTermo)
+     */
+    private Page<Map<String, Object>> buscarCamposNoIndice(String termo, List<String> campos, Pageable pageable) {
+        List<Long> ids = termoIndex.buscar(termo, Long.MAX_VALUE, limiteDaPagina(pageable, 0));
+        List<Long> pagina = ids.subList((int) Math.min(pageable.getOffset(), ids.size()), ids.size());
+        List<Map<String, Object>> conteudo = pagina.isEmpty() ? List.of() : creditoRepository.buscarCampos(
+                FiltroCredito.builder().ids(pagina).build(), campos,
+                Pageable.unpaged(Sort.by(Sort.Direction.DESC, ORDENACAO_ID))).getContent();
+        return new PageImpl<>(conteudo, pageable, totalDoIndice(termo, pageable));
+    }
+
+    private static boolean somenteTermo(FiltroCredito filtro) {
+        return filtro.getTermo() != null && filtro.getStatus() == null && filtro.getTipoCredito() == null
+                && filtro.getCnpjEmpresa() == null && filtro.getDataInicio() == null && filtro.getDataFim() == null
+                && filtro.getIds() == null;
+    }
+
     /**
      * Busca crédito por ID
      */
+    @Transactional(readOnly = true)
     public CreditoDTO buscarPorId(Long id) {
         log.info("Buscando crédito com ID: {}", id);
-        return creditoRepository.findById(id)
+        return creditoCache.porId(id, () -> creditoRepository.findById(id)
                 .map(this::convertToDTO)
-                .orElseThrow(() -> new RuntimeException("Crédito não encontrado com ID: " + id));
+                .orElseThrow(() -> new CreditoNaoEncontradoException("Crédito não encontrado com ID: " + id)));
     }
 
     /**
-     * Busca crédito por número de crédito constituído
+     * Busca crédito por número de crédito constituído. Número ausente do filtro de Bloom
+     * é respondido sem consulta ao banco.
      */
+    @Transactional(readOnly = true)
     public CreditoDTO buscarPorNumeroCreditoConstituido(String numero) {
         log.info("Buscando crédito com número: {}", numero);
-        return creditoRepository.findByNumeroCreditoConstituido(numero)
+        if (!creditoFiltroBloom.podeConterNumero(numero)) {
+            throw new CreditoNaoEncontradoException("Crédito não encontrado com número: " + numero);
+        }
+        return creditoCache.porNumero(numero, () -> creditoRepository.findByNumeroCreditoConstituido(numero)
                 .map(this::convertToDTO)
-                .orElseThrow(() -> new RuntimeException("Crédito não encontrado com número: " + numero));
+                .orElseThrow(() -> falsoPositivo("Crédito não encontrado com número: " + numero)));
     }
 
     /**
-     * Busca crédito por número de NFS-e
+     * Busca crédito por número de NFS-e. NFS-e ausente do filtro de Bloom é respondida
+     * sem consulta ao banco.
      */
+    @Transactional(readOnly = true)
     public CreditoDTO buscarPorNFSe(String nfse) {
         log.info("Buscando crédito com NFS-e: {}", nfse);
-        return creditoRepository.findByNumeroNFSe(nfse)
+        if (!creditoFiltroBloom.podeConterNFSe(nfse)) {
+            throw new CreditoNaoEncontradoException("Crédito não encontrado com NFS-e: " + nfse);
+        }
+        return creditoCache.porNFSe(nfse, () -> creditoRepository.findByNumeroNFSe(nfse)
                 .map(this::convertToDTO)
-                .orElseThrow(() -> new RuntimeException("Crédito não encontrado com NFS-e: " + nfse));
+                .orElseThrow(() -> falsoPositivo("Crédito não encontrado com NFS-e: " + nfse)));
+    }
+
+    /**
+     * Versão atual do crédito por ID, sem carregar a entidade
+     */
+    @Transactional(readOnly = true)
+    public Optional<CreditoVersao> buscarVersaoPorId(Long id) {
+        return creditoRepository.buscarVersaoPorId(id);
+    }
+
+    /**
+     * Versão atual do crédito por número, sem carregar a entidade
+     */
+    @Transactional(readOnly = true)
+    public Optional<CreditoVersao> buscarVersaoPorNumero(String numero) {
+        if (!creditoFiltroBloom.podeConterNumero(numero)) {
+            return Optional.empty();
+        }
+        return creditoRepository.buscarVersaoPorNumero(numero);
+    }
+
+    /**
+     * Versão atual do crédito por NFS-e, sem carregar a entidade
+     */
+    @Transactional(readOnly = true)
+    public Optional<CreditoVersao> buscarVersaoPorNFSe(String nfse) {
+        if (!creditoFiltroBloom.podeConterNFSe(nfse)) {
+            return Optional.empty();
+        }
+        return creditoRepository.buscarVersaoPorNFSe(nfse);
     }
 
     /**
      * Busca créditos por status
      */
+    @Transactional(readOnly = true)
     public Page<CreditoDTO> buscarPorStatus(StatusCredito status, Pageable pageable) {
         log.info("Buscando créditos com status: {}", status);
         return creditoRepository.findByStatus(status, pageable).map(this::convertToDTO);
@@ -77,6 +224,7 @@ public class CreditoService {
     /**
      * Busca créditos por tipo
      */
+    @Transactional(readOnly = true)
     public Page<CreditoDTO> buscarPorTipo(TipoCredito tipo, Pageable pageable) {
         log.info("Buscando créditos com tipo: {}", tipo);
         return creditoRepository.findByTipoCredito(tipo, pageable).map(this::convertToDTO);
@@ -85,6 +233,7 @@ public class CreditoService {
     /**
      * Busca créditos por CNPJ
      */
+    @Transactional(readOnly = true)
     public List<CreditoDTO> buscarPorCNPJ(String cnpj) {
         log.info("Buscando créditos com CNPJ: {}", cnpj);
         return creditoRepository.findByCnpjEmpresa(cnpj)
@@ -93,9 +242,34 @@ public class CreditoService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Totais de quantidade e valor do CNPJ por status e por tipo, lidos da tabela de resumo
+     */
+    @Transactional(readOnly = true)
+    public ResumoCnpjDTO buscarResumoPorCNPJ(String cnpj) {
+        log.info("Buscando resumo do CNPJ: {}", cnpj);
+        return creditoResumoCnpj.buscar(cnpj);
+    }
+
+    /**
+     * Reconstrói o resumo de um CNPJ a partir dos créditos gravados
+     */
+    public ResumoCnpjDTO reconstruirResumoPorCNPJ(String cnpj) {
+        creditoResumoCnpj.reconstruir(cnpj);
+        return creditoResumoCnpj.buscar(cnpj);
+    }
+
+    /**
+     * Reconstrói os resumos de todos os CNPJs
+     */
+    public void reconstruirResumos() {
+        creditoResumoCnpj.reconstruirTodos();
+    }
+
     /**
      * Busca créditos por intervalo de data de constituição
      */
+    @Transactional(readOnly = true)
     public List<CreditoDTO> buscarPorPeriodo(LocalDate dataInicio, LocalDate dataFim) {
         log.info("Buscando créditos no período de {} a {}", dataInicio, dataFim);
         return creditoRepository.findByDataConstituicaoEntre(dataInicio, dataFim)
@@ -104,9 +278,70 @@ public class CreditoService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Totais por dia ou mês de constituição e por tipo, lidos das tabelas de agregados
+     */
+    @Transactional(readOnly = true)
+    public List<AgregadoPeriodoDTO> buscarAgregadoPorPeriodo(LocalDate dataInicio, LocalDate dataFim,
+                                                             GranularidadePeriodo granularidade) {
+        log.info("Buscando agregado {} no período de {} a {}", granularidade, dataInicio, dataFim);
+        if (dataInicio.isAfter(dataFim)) {
+            throw new IllegalArgumentException("dataInicio deve ser anterior ou igual a dataFim");
+        }
+        return creditoAgregadoPeriodo.buscar(dataInicio, dataFim, granularidade);
+    }
+
+    /**
+     * Reconstrói os agregados por período a partir dos créditos gravados
+     */
+    public void reconstruirAgregadosPorPeriodo() {
+        creditoAgregadoPeriodo.reconstruir();
+    }
+
+    /**
+     * Exporta os créditos de um CNPJ linha a linha, sem acumular o resultado em memória
+     */
+    @Transactional(readOnly = true)
+    public void exportarPorCNPJ(String cnpj, Consumer<CreditoDTO> consumidor) {
+        log.info("Exportando créditos com CNPJ: {}", cnpj);
+        exportar(() -> creditoRepository.streamPorCnpjEmpresa(cnpj), consumidor);
+    }
+
+    /**
+     * Exporta os créditos de um período linha a linha, sem acumular o resultado em memória
+     */
+    @Transactional(readOnly = true)
+    public void exportarPorPeriodo(LocalDate dataInicio, LocalDate dataFim, Consumer<CreditoDTO> consumidor) {
+        log.info("Exportando créditos no período de {} a {}", dataInicio, dataFim);
+        exportar(() -> creditoRepository.streamPorDataConstituicaoEntre(dataInicio, dataFim), consumidor);
+    }
+
+    /**
+     * Percorre o stream com a sessão em CacheMode.IGNORE. O hint da consulta só vale durante
+     * a execução dela, e as linhas de um stream são montadas depois, na iteração, com o modo
+     * da sessão: sem isso cada linha exportada entraria na região credito.
+     */
+    private void exportar(Supplier<Stream<Credito>> consulta, Consumer<CreditoDTO> consumidor) {
+        Session sessao = entityManager.unwrap(Session.class);
+        CacheMode anterior = sessao.getCacheMode();
+        sessao.setCacheMode(CacheMode.IGNORE);
+        try (Stream<Credito> creditos = consulta.get()) {
+            creditos.forEach(credito -> exportar(credito, consumidor));
+        } finally {
+            sessao.setCacheMode(anterior);
+        }
+    }
+
+    private void exportar(Credito credito, Consumer<CreditoDTO> consumidor) {
+        consumidor.accept(convertToDTO(credito));
+        // Desanexa a linha já escrita para o contexto de persistência não crescer com o resultado
+        entityManager.detach(credito);
+    }
+
     /**
      * Busca créditos por CNPJ e status com paginação
      */
+    @Transactional(readOnly = true)
     public Page<CreditoDTO> buscarPorCNPJEStatus(String cnpj, StatusCredito status, Pageable pageable) {
         log.info("Buscando créditos com CNPJ: {} e status: {}", cnpj, status);
         return creditoRepository.findByCnpjEmpresaAndStatus(cnpj, status, pageable).map(this::convertToDTO);
@@ -115,70 +350,416 @@ public class CreditoService {
     /**
      * Busca créditos por termo (número ou NFS-e)
      */
+    @Transactional(readOnly = true)
     public Page<CreditoDTO> buscarPorTermo(String termo, Pageable pageable) {
         log.info("Buscando créditos com termo: {}", termo);
+        if (termoIndex.isDisponivel(termo)) {
+            return buscarPorTermoNoIndice(termo, pageable);
+        }
         return creditoRepository.buscarPorTermo(termo, pageable).map(this::convertToDTO);
     }
 
     /**
-     * Cria um novo crédito
+     * Busca créditos por status sem contagem (Slice)
+     */
+    @Transactional(readOnly = true)
+    public Slice<CreditoDTO> buscarPorStatusSemContagem(StatusCredito status, Pageable pageable) {
+        log.info("Buscando créditos com status: {} sem contagem", status);
+        return creditoRepository.findSliceByStatus(status, pageable).map(this::convertToDTO);
+    }
+
+    /**
+     * Busca créditos por tipo sem contagem (Slice)
+     */
+    @Transactional(readOnly = true)
+    public Slice<CreditoDTO> buscarPorTipoSemContagem(TipoCredito tipo, Pageable pageable) {
+        log.info("Buscando créditos com tipo: {} sem contagem", tipo);
+        return creditoRepository.findSliceByTipoCredito(tipo, pageable).map(this::convertToDTO);
+    }
+
+    /**
+     * Busca créditos por CNPJ e status sem contagem (Slice)
+     */
+    @Transactional(readOnly = true)
+    public Slice<CreditoDTO> buscarPorCNPJEStatusSemContagem(String cnpj, StatusCredito status, Pageable pageable) {
+        log.info("Buscando créditos com CNPJ: {} e status: {} sem contagem", cnpj, status);
+        return creditoRepository.buscarSlicePorCnpjEmpresaEStatus(cnpj, status, pageable).map(this::convertToDTO);
+    }
+
+    /**
+     * Busca créditos por termo sem contagem (Slice)
+     */
+    @Transactional(readOnly = true)
+    public Slice<CreditoDTO> buscarPorTermoSemContagem(String termo, Pageable pageable) {
+        log.info("Buscando créditos com termo: {} sem contagem", termo);
+        if (termoIndex.isDisponivel(termo)) {
+            // Um id além da página basta para saber se há próxima
+            List<Long> ids = termoIndex.buscar(termo, Long.MAX_VALUE, limiteDaPagina(pageable, 1));
+            boolean haProxima = ids.size() > pageable.getOffset() + pageable.getPageSize();
+            return new SliceImpl<>(paginaDoIndice(ids, pageable), pageable, haProxima);
+        }
+        return creditoRepository.buscarSlicePorTermo(termo, pageable).map(this::convertToDTO);
+    }
+
+    /**
+     * Busca créditos por status com o total aproximado mantido em memória pelo CreditoContagem
+     */
+    @Transactional(readOnly = true)
+    public Page<CreditoDTO> buscarPorStatusComTotalAproximado(StatusCredito status, Pageable pageable) {
+        Slice<CreditoDTO> slice = buscarPorStatusSemContagem(status, pageable);
+        return comTotalAproximado(slice, creditoContagem.totalPorStatus(status));
+    }
+
+    /**
+     * Busca créditos por tipo com o total aproximado mantido em memória pelo CreditoContagem
+     */
+    @Transactional(readOnly = true)
+    public Page<CreditoDTO> buscarPorTipoComTotalAproximado(TipoCredito tipo, Pageable pageable) {
+        Slice<CreditoDTO> slice = buscarPorTipoSemContagem(tipo, pageable);
+        return comTotalAproximado(slice, creditoContagem.totalPorTipo(tipo));
+    }
+
+    private static Page<CreditoDTO> comTotalAproximado(Slice<CreditoDTO> slice, long total) {
+        // O total nunca fica abaixo do que a própria página prova existir
+        long minimo = slice.getPageable().getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+        return new PageImpl<>(slice.getContent(), slice.getPageable(), Math.max(total, minimo));
+    }
+
+    /**
+     * Resolve os ids pelo índice de trigramas e carrega apenas as linhas da página
+     */
+    private Page<CreditoDTO> buscarPorTermoNoIndice(String termo, Pageable pageable) {
+        List<Long> ids = termoIndex.buscar(termo, Long.MAX_VALUE, limiteDaPagina(pageable, 0));
+        return new PageImpl<>(paginaDoIndice(ids, pageable), pageable, totalDoIndice(termo, pageable));
+    }
+
+    /**
+     * Converte a parte dos ids do índice que cabe na página (os primeiros são das páginas anteriores)
+     */
+    private List<CreditoDTO> paginaDoIndice(List<Long> ids, Pageable pageable) {
+        int inicio = (int) Math.min(pageable.getOffset(), ids.size());
+        int fim = Math.min(inicio + pageable.getPageSize(), ids.size());
+        return carregarNaOrdem(ids.subList(inicio, fim))
+                .stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Total das páginas do índice, contado só até paginasContadas páginas além da atual:
+     * um termo comum não percorre todas as ocorrências a cada requisição. Ao atingir o
+     * limite o total é um piso, que avança junto com a página pedida.
+     */
+    private long totalDoIndice(String termo, Pageable pageable) {
+        long limite = pageable.getOffset() + (long) pageable.getPageSize() * (paginasContadas + 1);
+        return termoIndex.contar(termo, (int) Math.min(Integer.MAX_VALUE, limite));
+    }
+
+    private static int limiteDaPagina(Pageable pageable, int excedente) {
+        return (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize() + excedente);
+    }
+
+    /**
+     * Busca todos os créditos com paginação por cursor
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CreditoDTO> buscarTodosComCursor(String cursor, int size, String sortBy, Sort.Direction direction) {
+        log.info("Buscando todos os créditos por cursor - tamanho: {}, sortBy: {}, direction: {}", size, sortBy, direction);
+        // O id desempata as demais ordenações; ordenando pelo próprio id, não se repete no ORDER BY
+        Sort ordenacao = ORDENACAO_ID.equals(sortBy)
+                ? Sort.by(direction, ORDENACAO_ID)
+                : Sort.by(direction, sortBy).and(Sort.by(direction, ORDENACAO_ID));
+        Pageable pageable = PageRequest.of(0, size, ordenacao);
+        boolean crescente = direction.isAscending();
+
+        Slice<Credito> slice;
+        if (ORDENACAO_ID.equals(sortBy)) {
+            Long ultimoId = ultimoId(cursor, sortBy, direction);
+            slice = crescente
+                    ? creditoRepository.buscarDepoisDoId(ultimoId, pageable)
+                    : creditoRepository.buscarAntesDoId(ultimoId, pageable);
+        } else if (ORDENACAO_DATA_CONSTITUICAO.equals(sortBy)) {
+            if (cursor == null || cursor.isBlank()) {
+                slice = creditoRepository.buscarSlice(pageable);
+            } else {
+                KeysetCursor posicao = KeysetCursor.decode(cursor, sortBy, direction);
+                LocalDate data = LocalDate.parse(posicao.getChave());
+                slice = crescente
+                        ? creditoRepository.buscarDepoisDaDataConstituicao(data, posicao.getId(), pageable)
+                        : creditoRepository.buscarAntesDaDataConstituicao(data, posicao.getId(), pageable);
+            }
+        } else {
+            throw new IllegalArgumentException("Ordenação não suportada na paginação por cursor: " + sortBy);
+        }
+        return paginaComCursor(slice, sortBy, direction);
+    }
+
+    /**
+     * Busca créditos por status com paginação por cursor
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CreditoDTO> buscarPorStatusComCursor(StatusCredito status, String cursor, int size) {
+        log.info("Buscando créditos com status: {} por cursor", status);
+        Slice<Credito> slice = creditoRepository.buscarPorStatusAntesDoId(
+                status, ultimoId(cursor, ORDENACAO_ID, Sort.Direction.DESC), porIdDecrescente(size));
+        return paginaComCursor(slice, ORDENACAO_ID, Sort.Direction.DESC);
+    }
+
+    /**
+     * Busca créditos por tipo com paginação por cursor
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CreditoDTO> buscarPorTipoComCursor(TipoCredito tipo, String cursor, int size) {
+        log.info("Buscando créditos com tipo: {} por cursor", tipo);
+        Slice<Credito> slice = creditoRepository.buscarPorTipoAntesDoId(
+                tipo, ultimoId(cursor, ORDENACAO_ID, Sort.Direction.DESC), porIdDecrescente(size));
+        return paginaComCursor(slice, ORDENACAO_ID, Sort.Direction.DESC);
+    }
+
+    /**
+     * Busca créditos por CNPJ e status com paginação por cursor
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CreditoDTO> buscarPorCNPJEStatusComCursor(String cnpj, StatusCredito status, String cursor, int size) {
+        log.info("Buscando créditos com CNPJ: {} e status: {} por cursor", cnpj, status);
+        Slice<Credito> slice = creditoRepository.buscarPorCnpjEmpresaEStatusAntesDoId(
+                cnpj, status, ultimoId(cursor, ORDENACAO_ID, Sort.Direction.DESC), porIdDecrescente(size));
+        return paginaComCursor(slice, ORDENACAO_ID, Sort.Direction.DESC);
+    }
+
+    /**
+     * Busca créditos por termo (número ou NFS-e) com paginação por cursor
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CreditoDTO> buscarPorTermoComCursor(String termo, String cursor, int size) {
+        log.info("Buscando créditos com termo: {} por cursor", termo);
+        Long ultimoId = ultimoId(cursor, ORDENACAO_ID, Sort.Direction.DESC);
+        Pageable pageable = porIdDecrescente(size);
+
+        if (!termoIndex.isDisponivel(termo)) {
+            Slice<Credito> slice = creditoRepository.buscarPorTermoAntesDoId(termo, ultimoId, pageable);
+            return paginaComCursor(slice, ORDENACAO_ID, Sort.Direction.DESC);
+        }
+
+        // O índice começa abaixo do cursor e para um id depois da página
+        List<Long> ids = termoIndex.buscar(termo, ultimoId, size + 1);
+        int fim = Math.min(size, ids.size());
+
+        Slice<Credito> slice = new SliceImpl<>(carregarNaOrdem(ids.subList(0, fim)), pageable, fim < ids.size());
+        return paginaComCursor(slice, ORDENACAO_ID, Sort.Direction.DESC);
+    }
+
+    /**
+     * Cria um novo crédito. A verificação de número duplicado e a gravação são o mesmo
+     * INSERT ... ON CONFLICT (numero) DO NOTHING, sem a janela entre consultar e inserir.
      */
     public CreditoDTO criar(CreditoDTO creditoDTO) {
         log.info("Criando novo crédito com número: {}", creditoDTO.getNumeroCreditoConstituido());
 
-        if (creditoRepository.findByNumeroCreditoConstituido(creditoDTO.getNumeroCreditoConstituido()).isPresent()) {
-            throw new RuntimeException("Crédito já existe com este número");
+        Credito saved = convertToEntity(creditoDTO);
+        // O INSERT nativo não passa pelo @PrePersist nem pelo @Version
+        saved.setStatus(StatusCredito.ATIVO);
+        saved.setDataRegistro(LocalDateTime.now());
+        saved.setVersao(0L);
+        if (!creditoRepository.inserirSeAusente(saved)) {
+            throw new CreditoDuplicadoException(creditoDTO.getNumeroCreditoConstituido());
         }
 
-        Credito credito = convertToEntity(creditoDTO);
-        Credito saved = creditoRepository.save(credito);
+        CreditoDTO criado = convertToDTO(saved);
+
+        // Registra o evento no outbox, na mesma transação
+        outboxService.registrar(KAFKA_TOPIC, String.valueOf(saved.getId()),
+                CreditoEvento.of(TipoEventoCredito.CREDITO_CRIADO, criado, null));
 
-        // Publica evento no Kafka
-        kafkaTemplate.send(KAFKA_TOPIC, "CREDITO_CRIADO:" + saved.getId() + ":" + saved.getNumeroCreditoConstituido());
+        eventPublisher.publishEvent(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_CRIADO, null, criado));
 
         log.info("Crédito criado com sucesso - ID: {}", saved.getId());
-        return convertToDTO(saved);
+        return criado;
     }
 
     /**
-     * Atualiza um crédito existente
+     * Cria ou atualiza (upsert) um lote de créditos pelo número do crédito constituído.
+     * Os itens são gravados em blocos com inserts/updates em batch JDBC e cada bloco
+     * publica um único evento no Kafka. Itens inválidos são rejeitados sem abortar o lote.
+     */
+    public ResultadoLoteDTO processarLote(List<CreditoDTO> creditos) {
+        log.info("Processando lote de {} créditos", creditos.size());
+        if (creditos.size() > tamanhoMaximoLote) {
+            throw new IllegalArgumentException("Lote excede o tamanho máximo de " + tamanhoMaximoLote + " créditos");
+        }
+
+        List<ItemLoteDTO> itens = new ArrayList<>(creditos.size());
+        Set<String> numerosNoLote = new HashSet<>();
+        for (int inicio = 0; inicio < creditos.size(); inicio += tamanhoBlocoLote) {
+            List<CreditoDTO> bloco = creditos.subList(inicio, Math.min(inicio + tamanhoBlocoLote, creditos.size()));
+            itens.addAll(processarBloco(bloco, inicio, numerosNoLote));
+        }
+
+        ResultadoLoteDTO resultado = ResultadoLoteDTO.of(itens);
+        log.info("Lote processado - criados: {}, atualizados: {}, rejeitados: {}",
+                resultado.getCriados(), resultado.getAtualizados(), resultado.getRejeitados());
+        return resultado;
+    }
+
+    private List<ItemLoteDTO> processarBloco(List<CreditoDTO> bloco, int deslocamento, Set<String> numerosNoLote) {
+        ItemLoteDTO[] itens = new ItemLoteDTO[bloco.size()];
+        List<Integer> validos = new ArrayList<>(bloco.size());
+        for (int i = 0; i < bloco.size(); i++) {
+            CreditoDTO dto = bloco.get(i);
+            String erro = validarItemLote(dto);
+            if (erro == null && !numerosNoLote.add(dto.getNumeroCreditoConstituido())) {
+                erro = "Número duplicado no lote";
+            }
+            if (erro != null) {
+                itens[i] = ItemLoteDTO.builder()
+                        .indice(deslocamento + i)
+                        .numeroCreditoConstituido(dto.getNumeroCreditoConstituido())
+                        .operacao(ItemLoteDTO.Operacao.REJEITADO)
+                        .mensagem(erro)
+                        .build();
+            } else {
+                validos.add(i);
+            }
+        }
+
+        if (validos.isEmpty()) {
+            return List.of(itens);
+        }
+
+        // Uma única consulta resolve quais itens já existem
+        Map<String, Credito> existentes = creditoRepository.findByNumeroCreditoConstituidoIn(
+                        validos.stream().map(i -> bloco.get(i).getNumeroCreditoConstituido()).toList())
+                .stream()
+                .collect(Collectors.toMap(Credito::getNumeroCreditoConstituido, Function.identity()));
+
+        List<Credito> gravar = new ArrayList<>(validos.size());
+        List<CreditoDTO> anteriores = new ArrayList<>(validos.size());
+        for (int i : validos) {
+            CreditoDTO dto = bloco.get(i);
+            Credito credito = existentes.get(dto.getNumeroCreditoConstituido());
+            if (credito == null) {
+                anteriores.add(null);
+                credito = convertToEntity(dto);
+            } else {
+                anteriores.add(convertToDTO(credito));
+                aplicarAtualizacao(credito, dto);
+            }
+            gravar.add(credito);
+        }
+
+        List<Credito> gravados = creditoRepository.saveAll(gravar);
+        entityManager.flush();
+
+        List<Long> idsCriados = new ArrayList<>();
+        List<Long> idsAtualizados = new ArrayList<>();
+        for (int j = 0; j < validos.size(); j++) {
+            Credito gravado = gravados.get(j);
+            CreditoDTO anterior = anteriores.get(j);
+            CreditoDTO atual = convertToDTO(gravado);
+            boolean criado = anterior == null;
+            (criado ? idsCriados : idsAtualizados).add(gravado.getId());
+            eventPublisher.publishEvent(new CreditoAlteradoEvent(
+                    criado ? TipoEventoCredito.CREDITO_CRIADO : TipoEventoCredito.CREDITO_ATUALIZADO, anterior, atual));
+
+            itens[validos.get(j)] = ItemLoteDTO.builder()
+                    .indice(deslocamento + validos.get(j))
+                    .numeroCreditoConstituido(gravado.getNumeroCreditoConstituido())
+                    .id(gravado.getId())
+                    .operacao(criado ? ItemLoteDTO.Operacao.CRIADO : ItemLoteDTO.Operacao.ATUALIZADO)
+                    .build();
+        }
+        // Libera o contexto de persistência: o próximo bloco não precisa das entidades deste
+        entityManager.clear();
+
+        if (!gravados.isEmpty()) {
+            // Registra um evento por bloco no outbox
+            outboxService.registrar(KAFKA_TOPIC, chaveEventoLote(gravados), CreditoEvento.lote(idsCriados.size(), idsAtualizados.size(),
+                    Stream.concat(idsCriados.stream(), idsAtualizados.stream()).toList()));
+        }
+        return List.of(itens);
+    }
+
+    private static List<String> camposSolicitados(String fields) {
+        List<String> campos = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(campo -> !campo.isEmpty())
+                .distinct()
+                .toList();
+        if (campos.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um campo em fields");
+        }
+        for (String campo : campos) {
+            if (!CreditoProjecaoRepository.CAMPOS_PROJETAVEIS.contains(campo)) {
+                throw new IllegalArgumentException("Campo inválido: " + campo);
+            }
+        }
+        return campos;
+    }
+
+    private String validarItemLote(CreditoDTO dto) {
+        if (dto.getNumeroCreditoConstituido() == null || dto.getNumeroCreditoConstituido().isBlank()) {
+            return "Número do crédito constituído é obrigatório";
+        }
+        if (dto.getNumeroNFSe() == null || dto.getNumeroNFSe().isBlank()) {
+            return "Número da NFS-e é obrigatório";
+        }
+        if (dto.getDataConstituicao() == null) {
+            return "Data de constituição é obrigatória";
+        }
+        if (dto.getValorISSQN() == null) {
+            return "Valor do ISSQN é obrigatório";
+        }
+        if (dto.getTipoCredito() == null) {
+            return "Tipo do crédito é obrigatório";
+        }
+        return null;
+    }
+
+    /**
+     * Atualiza um crédito existente. Se o DTO traz a versao, ela precisa ser a atual;
+     * uma escrita concorrente após a leitura é detectada pelo @Version no commit.
      */
     public CreditoDTO atualizar(Long id, CreditoDTO creditoDTO) {
         log.info("Atualizando crédito com ID: {}", id);
 
         Credito credito = creditoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Crédito não encontrado com ID: " + id));
+                .orElseThrow(() -> new CreditoNaoEncontradoException("Crédito não encontrado com ID: " + id));
+        verificarVersao(credito, creditoDTO.getVersao());
+        CreditoDTO anterior = convertToDTO(credito);
 
-        credito.setNumeroNFSe(creditoDTO.getNumeroNFSe());
-        credito.setValorISSQN(creditoDTO.getValorISSQN());
-        credito.setTipoCredito(credito.getTipoCredito());
-        credito.setDescricao(creditoDTO.getDescricao());
-        credito.setStatus(creditoDTO.getStatus());
-        credito.setResponsavel(creditoDTO.getResponsavel());
-        credito.setCnpjEmpresa(creditoDTO.getCnpjEmpresa());
+        aplicarAtualizacao(credito, creditoDTO);
 
         Credito updated = creditoRepository.save(credito);
+        // Antecipa o UPDATE: a resposta e o evento levam a versão incrementada
+        creditoRepository.flush();
 
-        // Publica evento no Kafka
-        kafkaTemplate.send(KAFKA_TOPIC, "CREDITO_ATUALIZADO:" + updated.getId() + ":" + updated.getNumeroCreditoConstituido());
+        CreditoDTO atualizado = convertToDTO(updated);
+
+        // Registra o evento no outbox, na mesma transação
+        outboxService.registrar(KAFKA_TOPIC, String.valueOf(updated.getId()),
+                CreditoEvento.of(TipoEventoCredito.CREDITO_ATUALIZADO, atualizado, anterior.getStatus()));
+
+        eventPublisher.publishEvent(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_ATUALIZADO, anterior, atualizado));
 
         log.info("Crédito atualizado com sucesso - ID: {}", id);
-        return convertToDTO(updated);
+        return atualizado;
     }
 
     /**
-     * Deleta um crédito
+     * Deleta um crédito com um único DELETE, que devolve a linha removida para o evento
      */
     public void deletar(Long id) {
         log.info("Deletando crédito com ID: {}", id);
 
-        Credito credito = creditoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Crédito não encontrado com ID: " + id));
+        CreditoDTO removido = creditoRepository.removerRetornando(id)
+                .map(this::convertToDTO)
+                .orElseThrow(() -> new CreditoNaoEncontradoException("Crédito não encontrado com ID: " + id));
 
-        creditoRepository.deleteById(id);
+        // Registra o evento no outbox, na mesma transação, com o último estado do crédito
+        outboxService.registrar(KAFKA_TOPIC, String.valueOf(id),
+                CreditoEvento.of(TipoEventoCredito.CREDITO_DELETADO, removido, null));
 
-        // Publica evento no Kafka
-        kafkaTemplate.send(KAFKA_TOPIC, "CREDITO_DELETADO:" + id + ":" + credito.getNumeroCreditoConstituido());
+        eventPublisher.publishEvent(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_DELETADO, removido, null));
 
         log.info("Crédito deletado com sucesso - ID: {}", id);
     }
@@ -187,25 +768,218 @@ public class CreditoService {
      * Altera o status de um crédito
      */
     public CreditoDTO alterarStatus(Long id, StatusCredito novoStatus) {
+        return alterarStatus(id, novoStatus, null);
+    }
+
+    /**
+     * Altera o status de um crédito, exigindo a versão informada (null = qualquer versão).
+     * Um único UPDATE grava o status e devolve a linha anterior; o estado novo é derivado
+     * dela, já que versao e dataAtualizacao são definidas aqui e não pelo Hibernate.
+     */
+    public CreditoDTO alterarStatus(Long id, StatusCredito novoStatus, Long versaoEsperada) {
         log.info("Alterando status do crédito ID: {} para: {}", id, novoStatus);
 
-        Credito credito = creditoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Crédito não encontrado com ID: " + id));
+        LocalDateTime dataAtualizacao = LocalDateTime.now();
+        Credito credito = creditoRepository.alterarStatusRetornandoAnterior(id, novoStatus, versaoEsperada, dataAtualizacao)
+                .orElseThrow(() -> falhaNaAlteracao(id, versaoEsperada));
+        CreditoDTO anterior = convertToDTO(credito);
 
         credito.setStatus(novoStatus);
-        Credito updated = creditoRepository.save(credito);
+        credito.setVersao(credito.getVersao() + 1);
+        credito.setDataAtualizacao(dataAtualizacao);
+        CreditoDTO alterado = convertToDTO(credito);
+
+        // Registra o evento no outbox, na mesma transação
+        outboxService.registrar(KAFKA_TOPIC, String.valueOf(id),
+                CreditoEvento.of(TipoEventoCredito.CREDITO_STATUS_ALTERADO, alterado, anterior.getStatus()));
 
-        // Publica evento no Kafka
-        kafkaTemplate.send(KAFKA_TOPIC, "CREDITO_STATUS_ALTERADO:" + id + ":" + novoStatus);
+        eventPublisher.publishEvent(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_STATUS_ALTERADO, anterior, alterado));
 
         log.info("Status alterado com sucesso - ID: {}", id);
-        return convertToDTO(updated);
+        return alterado;
+    }
+
+    /**
+     * Altera para novoStatus o status dos créditos do filtro (CNPJ, tipo, status e período),
+     * em blocos percorridos por id. Cada bloco é um único UPDATE na sua própria transação e
+     * registra um evento no outbox; créditos já em novoStatus ficam de fora. Se um bloco
+     * falha, os anteriores continuam confirmados.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultadoAlteracaoStatusDTO alterarStatusEmLote(FiltroCredito filtro, StatusCredito novoStatus) {
+        if (filtro.getStatus() == null && filtro.getTipoCredito() == null && filtro.getCnpjEmpresa() == null
+                && filtro.getDataInicio() == null && filtro.getDataFim() == null) {
+            throw new IllegalArgumentException("Informe ao menos um filtro para a alteração de status em lote");
+        }
+        if (filtro.getTermo() != null) {
+            throw new IllegalArgumentException("Filtro por termo não é aceito na alteração de status em lote");
+        }
+        log.info("Alterando status em lote para {} - filtro: {}", novoStatus, filtro);
+
+        long inicio = System.nanoTime();
+        Map<StatusCredito, Long> porStatusAnterior = new EnumMap<>(StatusCredito.class);
+        long alterados = 0;
+        int blocos = 0;
+        long ultimoId = 0;
+        while (true) {
+            long aposId = ultimoId;
+            List<CreditoDTO> anteriores = transactionTemplate.execute(
+                    status -> alterarBlocoDeStatus(filtro, novoStatus, aposId));
+            if (anteriores == null || anteriores.isEmpty()) {
+                break;
+            }
+            blocos++;
+            alterados += anteriores.size();
+            for (CreditoDTO anterior : anteriores) {
+                ultimoId = Math.max(ultimoId, anterior.getId());
+                porStatusAnterior.merge(anterior.getStatus(), 1L, Long::sum);
+            }
+            log.info("Alteração de status em lote - bloco {}: {} créditos (total {}, último id {})",
+                    blocos, anteriores.size(), alterados, ultimoId);
+            if (anteriores.size() < tamanhoBlocoStatus) {
+                break;
+            }
+        }
+
+        ResultadoAlteracaoStatusDTO resultado = ResultadoAlteracaoStatusDTO.builder()
+                .novoStatus(novoStatus)
+                .alterados(alterados)
+                .blocos(blocos)
+                .porStatusAnterior(porStatusAnterior)
+                .ultimoId(ultimoId)
+                .duracaoMs(Duration.ofNanos(System.nanoTime() - inicio).toMillis())
+                .build();
+        log.info("Status alterado em lote - {} créditos em {} blocos", alterados, blocos);
+        return resultado;
+    }
+
+    /**
+     * Um bloco da alteração em lote: os créditos alterados notificam os componentes
+     * derivados um a um, e o Kafka recebe um único evento com os ids do bloco
+     */
+    private List<CreditoDTO> alterarBlocoDeStatus(FiltroCredito filtro, StatusCredito novoStatus, long aposId) {
+        LocalDateTime dataAtualizacao = LocalDateTime.now();
+        List<Credito> creditos = creditoRepository.alterarStatusEmBloco(filtro, novoStatus, aposId, tamanhoBlocoStatus,
+                dataAtualizacao);
+        List<CreditoDTO> anteriores = new ArrayList<>(creditos.size());
+        for (Credito credito : creditos) {
+            CreditoDTO anterior = convertToDTO(credito);
+            credito.setStatus(novoStatus);
+            credito.setVersao(credito.getVersao() + 1);
+            credito.setDataAtualizacao(dataAtualizacao);
+            eventPublisher.publishEvent(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_STATUS_ALTERADO,
+                    anterior, convertToDTO(credito)));
+            anteriores.add(anterior);
+        }
+
+        if (!creditos.isEmpty()) {
+            List<Long> ids = creditos.stream().map(Credito::getId).sorted().toList();
+            outboxService.registrar(KAFKA_TOPIC, chaveEventoLote(creditos),
+                    CreditoEvento.statusLote(novoStatus, filtro.getStatus(), ids));
+        }
+        return anteriores;
+    }
+
+    /**
+     * Chave dos eventos de lote: "cnpj:" + CNPJ quando todos os créditos são da mesma
+     * empresa, senão "lote". As operações em massa de uma empresa ficam assim na mesma
+     * partição, na ordem do outbox (ver CreditoEvento)
+     */
+    private static String chaveEventoLote(List<Credito> creditos) {
+        String cnpj = creditos.get(0).getCnpjEmpresa();
+        for (Credito credito : creditos) {
+            if (cnpj == null || !cnpj.equals(credito.getCnpjEmpresa())) {
+                return CHAVE_EVENTO_LOTE;
+            }
+        }
+        return CHAVE_EVENTO_CNPJ + cnpj;
+    }
+
+    /**
+     * Carrega os créditos pelos ids, preservando a ordem recebida
+     */
+    private List<Credito> carregarNaOrdem(List<Long> ids) {
+        Map<Long, Credito> creditos = creditoRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Credito::getId, Function.identity()));
+        return ids.stream()
+                .map(creditos::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Último id lido segundo o cursor; sem cursor, parte do início da ordenação
+     */
+    private Long ultimoId(String cursor, String sortBy, Sort.Direction direction) {
+        if (cursor == null || cursor.isBlank()) {
+            return direction.isAscending() ? 0L : Long.MAX_VALUE;
+        }
+        return KeysetCursor.decode(cursor, sortBy, direction).getId();
+    }
+
+    private Pageable porIdDecrescente(int size) {
+        return PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, ORDENACAO_ID));
+    }
+
+    /**
+     * Monta a página de resposta com o cursor apontando para o último elemento lido
+     */
+    private CursorPageDTO<CreditoDTO> paginaComCursor(Slice<Credito> slice, String sortBy, Sort.Direction direction) {
+        List<Credito> creditos = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !creditos.isEmpty()) {
+            Credito ultimo = creditos.get(creditos.size() - 1);
+            String chave = ORDENACAO_DATA_CONSTITUICAO.equals(sortBy) ? ultimo.getDataConstituicao().toString() : null;
+            nextCursor = new KeysetCursor(sortBy, direction, chave, ultimo.getId()).encode();
+        }
+        List<CreditoDTO> conteudo = creditos.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return new CursorPageDTO<>(conteudo, slice.getSize(), nextCursor != null, nextCursor);
+    }
+
+    /**
+     * O filtro de Bloom deixou a consulta passar e o banco não encontrou o crédito
+     */
+    private CreditoNaoEncontradoException falsoPositivo(String mensagem) {
+        creditoFiltroBloom.registrarFalsoPositivo();
+        return new CreditoNaoEncontradoException(mensagem);
+    }
+
+    /**
+     * Nenhuma linha alterada: distingue crédito inexistente de versão divergente
+     */
+    private RuntimeException falhaNaAlteracao(Long id, Long versaoEsperada) {
+        return creditoRepository.buscarVersaoPorId(id)
+                .<RuntimeException>map(atual -> new VersaoDivergenteException(id, versaoEsperada, atual.getVersao()))
+                .orElseGet(() -> new CreditoNaoEncontradoException("Crédito não encontrado com ID: " + id));
+    }
+
+    private static void verificarVersao(Credito credito, Long versaoEsperada) {
+        if (versaoEsperada != null && !versaoEsperada.equals(credito.getVersao())) {
+            throw new VersaoDivergenteException(credito.getId(), versaoEsperada, credito.getVersao());
+        }
+    }
+
+    /**
+     * Aplica os campos alteráveis do DTO a um crédito existente
+     */
+    private void aplicarAtualizacao(Credito credito, CreditoDTO creditoDTO) {
+        credito.setNumeroNFSe(creditoDTO.getNumeroNFSe());
+        credito.setValorISSQN(creditoDTO.getValorISSQN());
+        credito.setDescricao(creditoDTO.getDescricao());
+        if (creditoDTO.getStatus() != null) {
+            credito.setStatus(creditoDTO.getStatus());
+        }
+        credito.setResponsavel(creditoDTO.getResponsavel());
+        credito.setCnpjEmpresa(creditoDTO.getCnpjEmpresa());
     }
 
     /**
-     * Converte Credito entity para CreditoDTO
+     * Converte Credito entity para CreditoDTO (visível no pacote para o ConversaoBenchmark)
      */
-    private CreditoDTO convertToDTO(Credito credito) {
+    CreditoDTO convertToDTO(Credito credito) {
         return CreditoDTO.builder()
                 .id(credito.getId())
                 .numeroCreditoConstituido(credito.getNumeroCreditoConstituido())
@@ -219,13 +993,14 @@ public class CreditoService {
                 .dataAtualizacao(credito.getDataAtualizacao())
                 .responsavel(credito.getResponsavel())
                 .cnpjEmpresa(credito.getCnpjEmpresa())
+                .versao(credito.getVersao())
                 .build();
     }
 
     /**
-     * Converte CreditoDTO para Credito entity
+     * Converte CreditoDTO para Credito entity (visível no pacote para o ConversaoBenchmark)
      */
-    private Credito convertToEntity(CreditoDTO dto) {
+    Credito convertToEntity(CreditoDTO dto) {
         Credito credito = new Credito();
         credito.setNumeroCreditoConstituido(dto.getNumeroCreditoConstituido());
         credito.setNumeroNFSe(dto.getNumeroNFSe());
@@ -0,0 +1,406 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.config.LeituraPrimaria;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.repository.CreditoIdentificadores;
+import fabiolicht.credito.repository.CreditoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido de trigramas sobre o número do crédito e o número da NFS-e.
+ * Resolve a busca por substring sem varrer a tabela: os ids candidatos são a
+ * interseção das listas de cada trigrama do termo, confirmados em memória.
+ * <p>
+ * Cada lista é um long[] ordenado (8 bytes por id, sem objetos por entrada). A busca
+ * percorre a menor lista do maior id para o menor, procura cada candidato nas demais
+ * por busca binária e para ao juntar o limite pedido: uma página custa o que ela
+ * contém, não o total de ocorrências do termo.
+ * <p>
+ * A reconstrução monta um índice novo enquanto o atual segue atendendo; as escritas
+ * confirmadas nesse intervalo vão para o atual e para uma fila, reaplicada no novo
+ * logo após a troca, para que a varredura não traga de volta um valor já alterado.
+ * <p>
+ * As escritas de outros nós chegam pelo tópico creditos-notification: os ids avisados
+ * são relidos no primário e reindexados (ou removidos, se não existem mais). Uma
+ * notificação perdida fica de fora até a reconstrução diária.
+ */
+@Component
+@Slf4j
+public class CreditoTermoIndex {
+
+    static final int TAMANHO_TRIGRAMA = 3;
+    private static final String SEPARADOR = "\n";
+    private static final int TAMANHO_LOTE_CARGA = 5000;
+
+    private Indice indice = new Indice();
+    private List<Alteracao> pendentes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean pronto;
+
+    @Value("${credito.busca.indice.habilitado:false}")
+    private boolean habilitado;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private CreditoCache creditoCache;
+
+    /**
+     * Indica se o termo pode ser resolvido pelo índice
+     */
+    public boolean isDisponivel(String termo) {
+        return habilitado && pronto && termo != null && termo.length() >= TAMANHO_TRIGRAMA;
+    }
+
+    /**
+     * Carrega um índice novo a partir de uma varredura por faixas de id e o troca pelo atual
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconstruir() {
+        if (!habilitado) {
+            return;
+        }
+        log.info("Construindo índice de trigramas de créditos");
+        Indice novo = new Indice();
+        comLockDeEscrita(() -> pendentes = new ArrayList<>());
+
+        long ultimoId = 0L;
+        long total = 0L;
+        List<CreditoIdentificadores> lote;
+        // Varredura no primário: o que faltasse numa réplica atrasada ficaria fora do índice até a próxima reconstrução
+        try (LeituraPrimaria.Escopo primario = LeituraPrimaria.noPrimario()) {
+            do {
+                lote = creditoRepository.buscarIdentificadoresAposId(ultimoId, Limit.of(TAMANHO_LOTE_CARGA));
+                for (CreditoIdentificadores credito : lote) {
+                    novo.indexar(credito.getId(), normalizar(credito.getNumeroCreditoConstituido(), credito.getNumeroNFSe()));
+                    ultimoId = credito.getId();
+                }
+                total += lote.size();
+            } while (lote.size() == TAMANHO_LOTE_CARGA);
+        } catch (RuntimeException e) {
+            comLockDeEscrita(() -> pendentes = null);
+            throw e;
+        }
+
+        comLockDeEscrita(() -> {
+            for (Alteracao alteracao : pendentes) {
+                novo.aplicar(alteracao);
+            }
+            indice = novo;
+            pendentes = null;
+        });
+        pronto = true;
+        log.info("Índice de trigramas construído - créditos: {}, trigramas: {}", total, novo.postings.size());
+    }
+
+    /**
+     * Reconstrução diária: recupera as notificações de outros nós que não chegaram
+     */
+    @Scheduled(cron = "${credito.busca.indice.reconstrucao.cron:0 45 4 * * *}")
+    public void reconstruirPeriodicamente() {
+        reconstruir();
+    }
+
+    /**
+     * Mantém o índice em dia após o commit de cada escrita
+     */
+    @TransactionalEventListener
+    public void onCreditoAlterado(CreditoAlteradoEvent event) {
+        if (!habilitado) {
+            return;
+        }
+        CreditoDTO atual = event.getAtual();
+        if (atual == null) {
+            remover(event.getId());
+        } else {
+            adicionar(atual.getId(), atual.getNumeroCreditoConstituido(), atual.getNumeroNFSe());
+        }
+    }
+
+    /**
+     * Relê no primário os créditos escritos em outro nó (chaves "id:" do CreditoCache)
+     */
+    public void onNotificacao(String origem, String mensagem) {
+        if (!habilitado || creditoCache.getIdNo().equals(origem) || mensagem == null || mensagem.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        for (String chave : mensagem.split(SEPARADOR)) {
+            if (chave.startsWith(CreditoCache.PREFIXO_ID)) {
+                try {
+                    ids.add(Long.parseLong(chave.substring(CreditoCache.PREFIXO_ID.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Chave de notificação inválida: {}", chave);
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<CreditoIdentificadores> atuais;
+        try (LeituraPrimaria.Escopo primario = LeituraPrimaria.noPrimario()) {
+            atuais = creditoRepository.buscarIdentificadoresPorIds(ids);
+        }
+        Set<Long> removidos = new HashSet<>(ids);
+        for (CreditoIdentificadores credito : atuais) {
+            adicionar(credito.getId(), credito.getNumeroCreditoConstituido(), credito.getNumeroNFSe());
+            removidos.remove(credito.getId());
+        }
+        removidos.forEach(this::remover);
+    }
+
+    /**
+     * Indexa (ou reindexa) os identificadores de um crédito
+     */
+    public void adicionar(Long id, String numeroCreditoConstituido, String numeroNFSe) {
+        registrar(new Alteracao(id, normalizar(numeroCreditoConstituido, numeroNFSe)));
+    }
+
+    /**
+     * Remove um crédito do índice
+     */
+    public void remover(Long id) {
+        registrar(new Alteracao(id, null));
+    }
+
+    /**
+     * Retorna, em ordem decrescente, até {@code limite} ids menores que {@code antesDoId}
+     * cujo número ou NFS-e contém o termo
+     */
+    public List<Long> buscar(String termo, long antesDoId, int limite) {
+        List<Long> resultado = new ArrayList<>(Math.min(limite, 64));
+        percorrer(termo, antesDoId, limite, resultado);
+        return resultado;
+    }
+
+    /**
+     * Conta os ids cujo número ou NFS-e contém o termo, parando em {@code limite}: o
+     * resultado igual ao limite é um piso, não o total
+     */
+    public int contar(String termo, int limite) {
+        return percorrer(termo, Long.MAX_VALUE, limite, null);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public boolean isPronto() {
+        return pronto;
+    }
+
+    void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    void setPronto(boolean pronto) {
+        this.pronto = pronto;
+    }
+
+    private void registrar(Alteracao alteracao) {
+        comLockDeEscrita(() -> {
+            indice.aplicar(alteracao);
+            if (pendentes != null) {
+                pendentes.add(alteracao);
+            }
+        });
+    }
+
+    private void comLockDeEscrita(Runnable acao) {
+        lock.writeLock().lock();
+        try {
+            acao.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Interseção das listas dos trigramas do termo em ordem decrescente de id, confirmando
+     * o termo completo; acumula em {@code destino} (se houver) e devolve quantos achou
+     */
+    private int percorrer(String termo, long antesDoId, int limite, List<Long> destino) {
+        String termoNormalizado = termo.toLowerCase(Locale.ROOT);
+        Set<String> trigramasTermo = trigramas(termoNormalizado);
+
+        lock.readLock().lock();
+        try {
+            List<Postagens> listas = new ArrayList<>(trigramasTermo.size());
+            for (String trigrama : trigramasTermo) {
+                Postagens ids = indice.postings.get(trigrama);
+                if (ids == null) {
+                    return 0;
+                }
+                listas.add(ids);
+            }
+            listas.sort(Comparator.comparingInt(postagens -> postagens.tamanho));
+
+            // Limite superior (exclusivo) de cada lista: os candidatos só diminuem
+            int[] fins = new int[listas.size()];
+            for (int i = 0; i < fins.length; i++) {
+                fins[i] = listas.get(i).tamanho;
+            }
+            Postagens menor = listas.get(0);
+            int encontrados = 0;
+            for (int i = menor.posicao(antesDoId) - 1; i >= 0 && encontrados < limite; i--) {
+                long id = menor.ids[i];
+                if (contemEmTodas(listas, fins, id) && contemTermo(indice.chavesPorId.get(id), termoNormalizado)) {
+                    if (destino != null) {
+                        destino.add(id);
+                    }
+                    encontrados++;
+                }
+            }
+            return encontrados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean contemEmTodas(List<Postagens> listas, int[] fins, long id) {
+        for (int i = 1; i < listas.size(); i++) {
+            int posicao = Arrays.binarySearch(listas.get(i).ids, 0, fins[i], id);
+            if (posicao < 0) {
+                fins[i] = -posicao - 1;
+                return false;
+            }
+            fins[i] = posicao;
+        }
+        return true;
+    }
+
+    private static boolean contemTermo(String[] chaves, String termo) {
+        if (chaves == null) {
+            return false;
+        }
+        for (String chave : chaves) {
+            if (chave.contains(termo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] normalizar(String numeroCreditoConstituido, String numeroNFSe) {
+        List<String> chaves = new ArrayList<>(2);
+        if (numeroCreditoConstituido != null) {
+            chaves.add(numeroCreditoConstituido.toLowerCase(Locale.ROOT));
+        }
+        if (numeroNFSe != null) {
+            chaves.add(numeroNFSe.toLowerCase(Locale.ROOT));
+        }
+        return chaves.toArray(new String[0]);
+    }
+
+    static Set<String> trigramas(String valor) {
+        Set<String> trigramas = new HashSet<>();
+        for (int i = 0; i + TAMANHO_TRIGRAMA <= valor.length(); i++) {
+            trigramas.add(valor.substring(i, i + TAMANHO_TRIGRAMA));
+        }
+        return trigramas;
+    }
+
+    /**
+     * Escrita confirmada: chaves normalizadas do crédito, ou nulas na remoção
+     */
+    private record Alteracao(Long id, String[] chaves) {
+    }
+
+    /**
+     * Listas de trigramas e chaves por id; só é alterado sob o lock de escrita,
+     * exceto durante a reconstrução, quando ainda não é visível a ninguém
+     */
+    private static final class Indice {
+
+        private final Map<String, Postagens> postings = new HashMap<>();
+        private final Map<Long, String[]> chavesPorId = new HashMap<>();
+
+        void aplicar(Alteracao alteracao) {
+            if (alteracao.chaves() == null) {
+                String[] chaves = chavesPorId.remove(alteracao.id());
+                if (chaves != null) {
+                    desindexar(alteracao.id(), chaves);
+                }
+            } else {
+                indexar(alteracao.id(), alteracao.chaves());
+            }
+        }
+
+        void indexar(Long id, String[] chaves) {
+            String[] anteriores = chavesPorId.put(id, chaves);
+            if (anteriores != null) {
+                desindexar(id, anteriores);
+            }
+            for (String chave : chaves) {
+                for (String trigrama : trigramas(chave)) {
+                    postings.computeIfAbsent(trigrama, t -> new Postagens()).adicionar(id);
+                }
+            }
+        }
+
+        private void desindexar(Long id, String[] chaves) {
+            for (String chave : chaves) {
+                for (String trigrama : trigramas(chave)) {
+                    Postagens ids = postings.get(trigrama);
+                    if (ids != null && ids.remover(id) && ids.tamanho == 0) {
+                        postings.remove(trigrama);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ids de um trigrama em ordem crescente. Ids novos são os maiores, então a
+     * inserção costuma ser no fim, sem deslocar o array.
+     */
+    private static final class Postagens {
+
+        private long[] ids = new long[4];
+        private int tamanho;
+
+        void adicionar(long id) {
+            int posicao = posicao(id);
+            if (posicao < tamanho && ids[posicao] == id) {
+                return;
+            }
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, tamanho + (tamanho >> 1));
+            }
+            System.arraycopy(ids, posicao, ids, posicao + 1, tamanho - posicao);
+            ids[posicao] = id;
+            tamanho++;
+        }
+
+        boolean remover(long id) {
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (posicao < 0) {
+                return false;
+            }
+            System.arraycopy(ids, posicao + 1, ids, posicao, tamanho - posicao - 1);
+            tamanho--;
+            return true;
+        }
+
+        /**
+         * Quantidade de ids menores que o informado (onde ele entraria)
+         */
+        int posicao(long id) {
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            return posicao >= 0 ? posicao : -posicao - 1;
+        }
+    }
+}
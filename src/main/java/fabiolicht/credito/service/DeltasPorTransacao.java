@@ -0,0 +1,81 @@
+package fabiolicht.credito.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Acumula deltas de quantidade e valor por chave durante a transação corrente e
+ * os entrega, já somados, antes do commit. As chaves são entregues em ordem para
+ * que transações concorrentes travem as linhas agregadas na mesma sequência.
+ */
+final class DeltasPorTransacao<K> {
+
+    private final Comparator<K> ordem;
+    private final BiConsumer<K, Delta> aplicar;
+
+    DeltasPorTransacao(Comparator<K> ordem, BiConsumer<K, Delta> aplicar) {
+        this.ordem = ordem;
+        this.aplicar = aplicar;
+    }
+
+    /**
+     * Soma (sinal = 1) ou subtrai (sinal = -1) uma unidade e o valor na chave
+     */
+    void somar(K chave, int sinal, BigDecimal valor) {
+        Delta delta = daTransacao().computeIfAbsent(chave, c -> new Delta());
+        delta.quantidade += sinal;
+        if (valor != null) {
+            delta.valor = sinal > 0 ? delta.valor.add(valor) : delta.valor.subtract(valor);
+        }
+    }
+
+    private Map<K, Delta> daTransacao() {
+        @SuppressWarnings("unchecked")
+        Map<K, Delta> deltas = (Map<K, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (deltas != null) {
+            return deltas;
+        }
+        Map<K, Delta> novos = new TreeMap<>(ordem);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                novos.forEach((chave, delta) -> {
+                    if (!delta.isNulo()) {
+                        aplicar.accept(chave, delta);
+                    }
+                });
+                novos.clear();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(DeltasPorTransacao.this);
+            }
+        });
+        TransactionSynchronizationManager.bindResource(this, novos);
+        return novos;
+    }
+
+    static final class Delta {
+        private long quantidade;
+        private BigDecimal valor = BigDecimal.ZERO;
+
+        long getQuantidade() {
+            return quantidade;
+        }
+
+        BigDecimal getValor() {
+            return valor;
+        }
+
+        boolean isNulo() {
+            return quantidade == 0 && valor.signum() == 0;
+        }
+    }
+}
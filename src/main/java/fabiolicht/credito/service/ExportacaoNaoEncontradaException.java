@@ -0,0 +1,11 @@
+package fabiolicht.credito.service;
+
+/**
+ * Exportação inexistente ou com o arquivo ainda não disponível
+ */
+public class ExportacaoNaoEncontradaException extends RuntimeException {
+
+    public ExportacaoNaoEncontradaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,115 @@
+package fabiolicht.credito.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom sobre strings, dimensionado pela capacidade e pela taxa de falso
+ * positivo desejada. Inserções e consultas são seguras entre threads sem lock; não há
+ * remoção. As k posições saem de dois hashes de 64 bits (h1 + i * h2).
+ */
+final class FiltroBloom {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray palavras;
+    private final long tamanhoBits;
+    private final int funcoes;
+    private final long capacidade;
+    private final AtomicLong itens = new AtomicLong();
+
+    FiltroBloom(long capacidade, double probabilidadeFalsoPositivo) {
+        if (capacidade <= 0 || probabilidadeFalsoPositivo <= 0 || probabilidadeFalsoPositivo >= 1) {
+            throw new IllegalArgumentException("Capacidade e probabilidade de falso positivo inválidas");
+        }
+        long bits = (long) Math.ceil(-capacidade * Math.log(probabilidadeFalsoPositivo) / (LN2 * LN2));
+        int quantidadePalavras = Math.toIntExact((bits + Long.SIZE - 1) / Long.SIZE);
+        this.palavras = new AtomicLongArray(quantidadePalavras);
+        this.tamanhoBits = (long) quantidadePalavras * Long.SIZE;
+        this.funcoes = Math.max(1, (int) Math.round((double) tamanhoBits / capacidade * LN2));
+        this.capacidade = capacidade;
+    }
+
+    /**
+     * Adiciona o valor; retorna false se todos os bits já estavam ligados
+     */
+    boolean adicionar(String valor) {
+        long h1 = hash(valor);
+        long h2 = misturar(h1 ^ FNV_PRIMO) | 1;
+        boolean alterou = false;
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, tamanhoBits);
+            long mascara = 1L << bit;
+            int indice = (int) (bit >>> 6);
+            if ((palavras.get(indice) & mascara) == 0) {
+                palavras.getAndAccumulate(indice, mascara, (atual, m) -> atual | m);
+                alterou = true;
+            }
+        }
+        if (alterou) {
+            itens.incrementAndGet();
+        }
+        return alterou;
+    }
+
+    /**
+     * false garante que o valor nunca foi adicionado; true pode ser falso positivo
+     */
+    boolean podeConter(String valor) {
+        long h1 = hash(valor);
+        long h2 = misturar(h1 ^ FNV_PRIMO) | 1;
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, tamanhoBits);
+            if ((palavras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Taxa de falso positivo esperada para os itens já adicionados: (1 - e^(-kn/m))^k
+     */
+    double probabilidadeFalsoPositivo() {
+        return Math.pow(1 - Math.exp(-(double) funcoes * itens.get() / tamanhoBits), funcoes);
+    }
+
+    long getItens() {
+        return itens.get();
+    }
+
+    long getCapacidade() {
+        return capacidade;
+    }
+
+    int getFuncoes() {
+        return funcoes;
+    }
+
+    long getBytes() {
+        return (long) palavras.length() * Long.BYTES;
+    }
+
+    private static long hash(String valor) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < valor.length(); i++) {
+            h ^= valor.charAt(i);
+            h *= FNV_PRIMO;
+        }
+        return misturar(h);
+    }
+
+    /**
+     * Finalizador do MurmurHash3: espalha os bits do FNV, fraco nos bits altos
+     */
+    private static long misturar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
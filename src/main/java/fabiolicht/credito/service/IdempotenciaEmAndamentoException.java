@@ -0,0 +1,11 @@
+package fabiolicht.credito.service;
+
+/**
+ * A criação original com a mesma Idempotency-Key não terminou dentro da espera
+ */
+public class IdempotenciaEmAndamentoException extends RuntimeException {
+
+    public IdempotenciaEmAndamentoException(String chave) {
+        super("Criação com a Idempotency-Key " + chave + " ainda em andamento");
+    }
+}
@@ -0,0 +1,11 @@
+package fabiolicht.credito.service;
+
+/**
+ * Importação (ou arquivo de rejeições) inexistente
+ */
+public class ImportacaoNaoEncontradaException extends RuntimeException {
+
+    public ImportacaoNaoEncontradaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package fabiolicht.credito.service;
+
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor opaco da paginação keyset: codifica a ordenação e a última
+ * posição lida (chave de ordenação + id) em Base64 URL-safe
+ */
+@Getter
+public class KeysetCursor {
+
+    private static final String SEPARADOR = "|";
+
+    private final String sortBy;
+    private final Sort.Direction direction;
+    private final String chave;
+    private final Long id;
+
+    public KeysetCursor(String sortBy, Sort.Direction direction, String chave, Long id) {
+        this.sortBy = sortBy;
+        this.direction = direction;
+        this.chave = chave;
+        this.id = id;
+    }
+
+    public String encode() {
+        String valor = sortBy + SEPARADOR + direction + SEPARADOR + (chave != null ? chave : "") + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica o cursor e confere se ele pertence à ordenação solicitada
+     */
+    public static KeysetCursor decode(String cursor, String sortBy, Sort.Direction direction) {
+        KeysetCursor decodificado;
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = valor.split("\\|", -1);
+            if (partes.length != 4) {
+                throw new IllegalArgumentException(valor);
+            }
+            decodificado = new KeysetCursor(partes[0], Sort.Direction.valueOf(partes[1]),
+                    partes[2].isEmpty() ? null : partes[2], Long.valueOf(partes[3]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+        if (!decodificado.sortBy.equals(sortBy) || decodificado.direction != direction) {
+            throw new IllegalArgumentException("Cursor inválido para a ordenação solicitada");
+        }
+        return decodificado;
+    }
+}
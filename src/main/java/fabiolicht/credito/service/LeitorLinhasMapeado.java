@@ -0,0 +1,107 @@
+package fabiolicht.credito.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lê um arquivo texto UTF-8 linha a linha por janelas mapeadas em memória (FileChannel.map),
+ * sem carregar o arquivo inteiro. A posição em bytes após a última linha lida serve de
+ * checkpoint: um novo leitor posicionado nela continua da linha seguinte.
+ * <p>
+ * Uma linha que cruza o fim da janela faz a janela ser remapeada a partir do início da linha;
+ * linhas maiores que a janela inteira são rejeitadas.
+ */
+final class LeitorLinhasMapeado implements Closeable {
+
+    private static final byte[] BOM_UTF8 = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FileChannel canal;
+    private final long tamanho;
+    private final int tamanhoJanela;
+    private MappedByteBuffer janela;
+    private long inicioJanela;
+    private long posicao;
+
+    LeitorLinhasMapeado(Path arquivo, int tamanhoJanela) throws IOException {
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        this.tamanho = canal.size();
+        this.tamanhoJanela = tamanhoJanela;
+        posicionar(0);
+        if (tamanho >= BOM_UTF8.length && janela.get(0) == BOM_UTF8[0] && janela.get(1) == BOM_UTF8[1]
+                && janela.get(2) == BOM_UTF8[2]) {
+            posicao = BOM_UTF8.length;
+        }
+    }
+
+    /**
+     * Posição em bytes logo após a última linha lida
+     */
+    long posicao() {
+        return posicao;
+    }
+
+    long tamanho() {
+        return tamanho;
+    }
+
+    void posicionar(long novaPosicao) throws IOException {
+        posicao = Math.min(novaPosicao, tamanho);
+        mapear(posicao);
+    }
+
+    /**
+     * Próxima linha, sem o terminador (\n ou \r\n); null no fim do arquivo
+     */
+    String proxima() throws IOException {
+        while (posicao < tamanho) {
+            if (posicao < inicioJanela || posicao >= inicioJanela + janela.limit()) {
+                mapear(posicao);
+            }
+            int inicio = (int) (posicao - inicioJanela);
+            int limite = janela.limit();
+            int fim = inicio;
+            while (fim < limite && janela.get(fim) != '\n') {
+                fim++;
+            }
+            if (fim < limite) {
+                posicao = inicioJanela + fim + 1;
+                return texto(inicio, fim);
+            }
+            if (inicioJanela + limite == tamanho) {
+                // Última linha, sem terminador
+                posicao = tamanho;
+                return texto(inicio, fim);
+            }
+            if (inicio == 0) {
+                throw new IOException("Linha na posição " + posicao + " maior que a janela de leitura de "
+                        + tamanhoJanela + " bytes");
+            }
+            mapear(posicao);
+        }
+        return null;
+    }
+
+    private String texto(int inicio, int fim) {
+        if (fim > inicio && janela.get(fim - 1) == '\r') {
+            fim--;
+        }
+        byte[] bytes = new byte[fim - inicio];
+        janela.get(inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void mapear(long inicio) throws IOException {
+        inicioJanela = inicio;
+        janela = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(tamanhoJanela, tamanho - inicio));
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
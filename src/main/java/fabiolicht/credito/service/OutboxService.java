@@ -0,0 +1,60 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.kafka.CreditoEvento;
+import fabiolicht.credito.kafka.CreditoEventoCodec;
+import fabiolicht.credito.model.OutboxEvento;
+import fabiolicht.credito.repository.OutboxEventoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Registra eventos no outbox. Só pode ser chamado dentro da transação da escrita:
+ * o evento é confirmado ou desfeito junto com ela e publicado depois pelo OutboxRelay.
+ */
+@Service
+@Slf4j
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventoRepository outboxEventoRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Grava o evento já no formato binário publicado pelo OutboxRelay
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(String topico, String chave, CreditoEvento creditoEvento) {
+        salvar(topico, chave, CreditoEventoCodec.encode(creditoEvento));
+        log.debug("Evento registrado no outbox - tópico: {}, chave: {}, tipo: {}", topico, chave, creditoEvento.getTipo());
+    }
+
+    /**
+     * Grava uma mensagem já serializada (notificações entre nós)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarMensagem(String topico, String chave, byte[] payload) {
+        salvar(topico, chave, payload);
+        log.debug("Mensagem registrada no outbox - tópico: {}, chave: {}", topico, chave);
+    }
+
+    /**
+     * Envia ao banco a escrita que originou o evento antes de tirar o id da sequence: outra
+     * transação sobre as mesmas linhas espera este commit e recebe um id maior, e o relay
+     * publica na ordem do id.
+     */
+    private void salvar(String topico, String chave, byte[] payload) {
+        entityManager.flush();
+        OutboxEvento evento = new OutboxEvento();
+        evento.setTopico(topico);
+        evento.setChave(chave);
+        evento.setPayload(payload);
+        outboxEventoRepository.save(evento);
+    }
+}
@@ -0,0 +1,19 @@
+package fabiolicht.credito.service;
+
+import lombok.Getter;
+
+/**
+ * A versão informada pelo cliente (If-Match ou campo versao) não é a versão atual do crédito
+ */
+@Getter
+public class VersaoDivergenteException extends RuntimeException {
+
+    private final Long id;
+    private final Long versaoAtual;
+
+    public VersaoDivergenteException(Long id, Long versaoEsperada, Long versaoAtual) {
+        super("Versão " + versaoEsperada + " do crédito " + id + " está desatualizada; versão atual: " + versaoAtual);
+        this.id = id;
+        this.versaoAtual = versaoAtual;
+    }
+}
@@ -0,0 +1,34 @@
+package fabiolicht.credito;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.TipoCredito;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Créditos válidos para os testes que gravam pelo CreditoService: NFS-e derivada do
+ * número e os demais campos obrigatórios preenchidos. Cada teste ajusta pelo builder
+ * o que a verificação exige (CNPJ, data, valor, tipo ou status).
+ */
+public final class CreditosTeste {
+
+    public static final String CNPJ = "55666777000188";
+
+    private CreditosTeste() {
+    }
+
+    public static CreditoDTO credito(String numero) {
+        return novo(numero).build();
+    }
+
+    public static CreditoDTO.CreditoDTOBuilder novo(String numero) {
+        return CreditoDTO.builder()
+                .numeroCreditoConstituido(numero)
+                .numeroNFSe("NFS-" + numero)
+                .dataConstituicao(LocalDate.of(2024, 5, 1))
+                .valorISSQN(new BigDecimal("150.00"))
+                .tipoCredito(TipoCredito.PRINCIPAL)
+                .cnpjEmpresa(CNPJ);
+    }
+}
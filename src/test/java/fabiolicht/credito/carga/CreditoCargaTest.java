@@ -0,0 +1,105 @@
+package fabiolicht.credito.carga;
+
+import fabiolicht.credito.config.KafkaTopicConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Teste de carga de ponta a ponta: a aplicação sobe com H2 em arquivo e um broker
+ * Kafka embutido (outbox e listeners ligados), recebe uma massa determinística de
+ * créditos e é exercitada por clientes HTTP concorrentes segundo um mix de operações.
+ * Latências (HdrHistogram) e vazão por operação vão para um relatório em target/carga.
+ * A massa, as requisições e os clientes ficam em MassaCarga, RequisicoesCarga e
+ * ExecucaoCarga, compartilhados com o ThreadsVirtuaisBenchmarkTest.
+ * <p>
+ * Executar com: mvn test -Dtest=CreditoCargaTest -Dcredito.carga=true
+ * Parâmetros (propriedades de sistema, com os padrões):
+ * credito.carga.creditos=1000000, credito.carga.cnpjs=5000, credito.carga.zipf=1.1,
+ * credito.carga.semente=42, credito.carga.concorrencia=32, credito.carga.aquecimento-s=15,
+ * credito.carga.duracao-s=60, credito.carga.mix=MixOperacoes.PADRAO
+ */
+@EnabledIfSystemProperty(named = "credito.carga", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/carga/creditos;MODE=PostgreSQL;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.listener.auto-startup=true",
+        "credito.outbox.relay.habilitado=true",
+        "logging.level.fabiolicht.credito=WARN"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 3, topics = {KafkaTopicConfig.TOPICO_EVENTOS, KafkaTopicConfig.TOPICO_NOTIFICACAO})
+public class CreditoCargaTest {
+
+    private static final int CREDITOS = Integer.getInteger("credito.carga.creditos", 1_000_000);
+    private static final int CNPJS = Integer.getInteger("credito.carga.cnpjs", 5_000);
+    private static final double ZIPF = Double.parseDouble(System.getProperty("credito.carga.zipf", "1.1"));
+    private static final long SEMENTE = Long.getLong("credito.carga.semente", 42L);
+    private static final int CONCORRENCIA = Integer.getInteger("credito.carga.concorrencia", 32);
+    private static final int AQUECIMENTO_S = Integer.getInteger("credito.carga.aquecimento-s", 15);
+    private static final int DURACAO_S = Integer.getInteger("credito.carga.duracao-s", 60);
+    private static final String MIX = System.getProperty("credito.carga.mix", MixOperacoes.PADRAO);
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    private final GeradorCreditos gerador = new GeradorCreditos(SEMENTE, CNPJS, ZIPF);
+    private final MixOperacoes mix = new MixOperacoes(MIX);
+
+    @Test
+    public void executarCarga() throws Exception {
+        long inicioCarga = System.nanoTime();
+        MassaCarga.semear(contexto, gerador, CREDITOS);
+        System.out.printf("Massa de %d créditos carregada em %.1f s%n", CREDITOS, (System.nanoTime() - inicioCarga) / 1e9);
+
+        ExecucaoCarga execucao = new ExecucaoCarga(new RequisicoesCarga(porta, gerador, CREDITOS), mix, CONCORRENCIA, SEMENTE);
+        execucao.executar(Duration.ofSeconds(AQUECIMENTO_S));
+        ExecucaoCarga.Resultado resultado = execucao.executar(Duration.ofSeconds(DURACAO_S));
+
+        Path relatorio = gravarRelatorio(resultado);
+        System.out.println("Relatório do teste de carga: " + relatorio.toAbsolutePath());
+
+        long total = resultado.total();
+        long erros = resultado.totalErros();
+        assertTrue(total > 0, "Nenhuma requisição concluída");
+        assertTrue(erros <= total / 100, "Taxa de erros acima de 1%: " + erros + " de " + total);
+    }
+
+    private Path gravarRelatorio(ExecucaoCarga.Resultado resultado) throws IOException {
+        Path diretorio = Path.of("target", "carga");
+        Files.createDirectories(diretorio);
+        Path arquivo = diretorio.resolve("relatorio-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt");
+
+        try (PrintStream saida = new PrintStream(Files.newOutputStream(arquivo), true, "UTF-8")) {
+            saida.printf("Créditos: %d, CNPJs: %d (Zipf %.2f), semente: %d%n", CREDITOS, CNPJS, ZIPF, SEMENTE);
+            saida.printf("Clientes: %d, aquecimento: %d s, medição: %.1f s%n", CONCORRENCIA, AQUECIMENTO_S, resultado.segundos());
+            saida.printf("Mix: %s%n%n", MIX);
+            resultado.imprimirTabela(saida);
+            for (OperacaoCarga operacao : mix.getOperacoes()) {
+                saida.printf("%n=== %s (%s) - latência em ms%n", operacao, operacao.getEndpoint());
+                resultado.latencias().get(operacao).outputPercentileDistribution(saida, 1_000.0);
+            }
+        }
+        resultado.imprimirTabela(System.out);
+        return arquivo;
+    }
+}
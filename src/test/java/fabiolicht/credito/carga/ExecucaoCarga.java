@@ -0,0 +1,122 @@
+package fabiolicht.credito.carga;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clientes HTTP concorrentes em laço fechado (cada um espera a resposta anterior)
+ * sorteando operações do mix; latências em HdrHistogram e erros por operação.
+ * Os percentis não corrigem a omissão coordenada: servem para comparar, não como SLA.
+ */
+class ExecucaoCarga {
+
+    static final long LATENCIA_MAXIMA_US = Duration.ofMinutes(1).toNanos() / 1_000;
+
+    private final RequisicoesCarga requisicoes;
+    private final MixOperacoes mix;
+    private final int concorrencia;
+    private final long semente;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    ExecucaoCarga(RequisicoesCarga requisicoes, MixOperacoes mix, int concorrencia, long semente) {
+        this.requisicoes = requisicoes;
+        this.mix = mix;
+        this.concorrencia = concorrencia;
+        this.semente = semente;
+    }
+
+    Resultado executar(Duration duracao) throws Exception {
+        Map<OperacaoCarga, Histogram> latencias = new EnumMap<>(OperacaoCarga.class);
+        Map<OperacaoCarga, AtomicLong> erros = new EnumMap<>(OperacaoCarga.class);
+        for (OperacaoCarga operacao : mix.getOperacoes()) {
+            latencias.put(operacao, new ConcurrentHistogram(LATENCIA_MAXIMA_US, 3));
+            erros.put(operacao, new AtomicLong());
+        }
+
+        long inicio = System.nanoTime();
+        long prazo = inicio + duracao.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> clientes = new ArrayList<>(concorrencia);
+            for (int cliente = 0; cliente < concorrencia; cliente++) {
+                Random random = new Random(semente * 1_000 + cliente);
+                clientes.add(executor.submit(() -> {
+                    while (System.nanoTime() < prazo) {
+                        OperacaoCarga operacao = mix.sortear(random);
+                        HttpRequest requisicao = requisicoes.montar(operacao, random);
+                        long enviada = System.nanoTime();
+                        int status;
+                        try {
+                            status = httpClient.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (IOException e) {
+                            status = -1;
+                        }
+                        latencias.get(operacao).recordValue(Math.min((System.nanoTime() - enviada) / 1_000, LATENCIA_MAXIMA_US));
+                        if (status < 200 || status >= 300) {
+                            erros.get(operacao).incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> cliente : clientes) {
+                cliente.get();
+            }
+        }
+        return new Resultado(latencias, erros, (System.nanoTime() - inicio) / 1e9);
+    }
+
+    record Resultado(Map<OperacaoCarga, Histogram> latencias, Map<OperacaoCarga, AtomicLong> errosPorOperacao, double segundos) {
+
+        long total() {
+            return latencias.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        }
+
+        long totalErros() {
+            return errosPorOperacao.values().stream().mapToLong(AtomicLong::get).sum();
+        }
+
+        Histogram totalLatencias() {
+            Histogram total = new Histogram(LATENCIA_MAXIMA_US, 3);
+            latencias.values().forEach(total::add);
+            return total;
+        }
+
+        void imprimirTabela(PrintStream saida) {
+            imprimirCabecalho(saida, "operação");
+            latencias.forEach((operacao, histograma) ->
+                    imprimirLinha(saida, operacao.name(), histograma, errosPorOperacao.get(operacao).get(), segundos));
+            imprimirLinha(saida, "TOTAL", totalLatencias(), totalErros(), segundos);
+        }
+    }
+
+    static void imprimirCabecalho(PrintStream saida, String primeiraColuna) {
+        saida.printf("%-18s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                primeiraColuna, "requisições", "erros", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    static void imprimirLinha(PrintStream saida, String nome, Histogram histograma, long erros, double segundos) {
+        saida.printf("%-18s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                nome, histograma.getTotalCount(), erros, histograma.getTotalCount() / segundos,
+                histograma.getValueAtPercentile(50) / 1_000.0, histograma.getValueAtPercentile(90) / 1_000.0,
+                histograma.getValueAtPercentile(99) / 1_000.0, histograma.getValueAtPercentile(99.9) / 1_000.0,
+                histograma.getMaxValue() / 1_000.0);
+    }
+}
@@ -0,0 +1,101 @@
+package fabiolicht.credito.carga;
+
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Gera créditos sintéticos de forma determinística: o crédito de um id é sempre
+ * o mesmo para a mesma semente, então o teste de carga sabe o número, a NFS-e e
+ * o CNPJ de qualquer id sem consultar o banco.
+ * <p>
+ * Distribuições: CNPJs seguem uma Zipf (poucas empresas concentram a maior parte
+ * dos créditos), status e tipo têm pesos fixos e as datas se concentram nos anos
+ * mais recentes.
+ */
+public class GeradorCreditos {
+
+    static final LocalDate DATA_INICIAL = LocalDate.of(2020, 1, 1);
+    static final int DIAS = 5 * 365;
+
+    private static final StatusCredito[] STATUS = StatusCredito.values();
+    // ATIVO, INATIVO, PENDENTE, PROCESSANDO, ERRO
+    private static final double[] PESOS_STATUS = {0.70, 0.15, 0.08, 0.05, 0.02};
+    private static final TipoCredito[] TIPOS = TipoCredito.values();
+    // PRINCIPAL, COMPLEMENTAR, ADICIONAL, RETIFICACAO, CANCELAMENTO
+    private static final double[] PESOS_TIPO = {0.60, 0.20, 0.12, 0.06, 0.02};
+
+    private final long semente;
+    private final double[] acumuladoCnpj;
+    private final double[] acumuladoStatus = acumular(PESOS_STATUS);
+    private final double[] acumuladoTipo = acumular(PESOS_TIPO);
+
+    public GeradorCreditos(long semente, int quantidadeCnpjs, double expoenteZipf) {
+        this.semente = semente;
+        double[] pesos = new double[quantidadeCnpjs];
+        for (int k = 0; k < quantidadeCnpjs; k++) {
+            pesos[k] = 1.0 / Math.pow(k + 1, expoenteZipf);
+        }
+        this.acumuladoCnpj = acumular(pesos);
+    }
+
+    public CreditoGerado gerar(long id) {
+        SplittableRandom random = new SplittableRandom(semente * 31 + id);
+        // Datas mais recentes são mais frequentes (raiz quadrada puxa para o fim do intervalo)
+        int dia = (int) (Math.sqrt(random.nextDouble()) * DIAS);
+        long centavos = (long) Math.exp(random.nextDouble(4.0, 13.0));
+        return new CreditoGerado(
+                id,
+                numero(id),
+                nfse(id),
+                DATA_INICIAL.plusDays(dia),
+                BigDecimal.valueOf(centavos, 2),
+                TIPOS[sortear(acumuladoTipo, random.nextDouble())],
+                STATUS[sortear(acumuladoStatus, random.nextDouble())],
+                cnpj(sortear(acumuladoCnpj, random.nextDouble())));
+    }
+
+    /**
+     * CNPJ sorteado com a mesma distribuição dos dados: as empresas grandes também são as mais consultadas
+     */
+    public String sortearCnpj(Random random) {
+        return cnpj(sortear(acumuladoCnpj, random.nextDouble()));
+    }
+
+    public static String numero(long id) {
+        return String.format("CR%010d", id);
+    }
+
+    public static String nfse(long id) {
+        return String.format("NFS%010d", (id * 7919) % 10_000_000_000L);
+    }
+
+    static String cnpj(int indice) {
+        return String.format("%014d", 10_000_000_000_000L + indice * 9973L);
+    }
+
+    private static int sortear(double[] acumulado, double valor) {
+        int posicao = Arrays.binarySearch(acumulado, valor * acumulado[acumulado.length - 1]);
+        return Math.min(posicao >= 0 ? posicao : -posicao - 1, acumulado.length - 1);
+    }
+
+    private static double[] acumular(double[] pesos) {
+        double[] acumulado = new double[pesos.length];
+        double soma = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            soma += pesos[i];
+            acumulado[i] = soma;
+        }
+        return acumulado;
+    }
+
+    public record CreditoGerado(long id, String numeroCreditoConstituido, String numeroNFSe,
+                                LocalDate dataConstituicao, BigDecimal valorISSQN, TipoCredito tipoCredito,
+                                StatusCredito status, String cnpjEmpresa) {
+    }
+}
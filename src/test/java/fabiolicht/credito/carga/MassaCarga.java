@@ -0,0 +1,55 @@
+package fabiolicht.credito.carga;
+
+import fabiolicht.credito.service.CreditoContagem;
+import fabiolicht.credito.service.CreditoFiltroBloom;
+import fabiolicht.credito.service.CreditoService;
+import fabiolicht.credito.service.CreditoTermoIndex;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Semeia a massa de carga por JDBC e reconstrói as estruturas derivadas
+ * (resumos, agregados, contagens, índice de busca e filtro de Bloom), como numa implantação
+ */
+final class MassaCarga {
+
+    private static final int TAMANHO_LOTE = 5_000;
+    private static final int ALOCACAO_SEQUENCIA = 50;
+
+    private MassaCarga() {
+    }
+
+    static void semear(ApplicationContext contexto, GeradorCreditos gerador, int creditos) {
+        JdbcTemplate jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        String insert = "INSERT INTO creditos (id, numero_credito_constituido, numeronfse, data_constituicao, valorissqn, "
+                + "tipo_credito, descricao, status, data_registro, responsavel, cnpj_empresa) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        for (long inicio = 1; inicio <= creditos; inicio += TAMANHO_LOTE) {
+            List<Object[]> lote = new ArrayList<>(TAMANHO_LOTE);
+            for (long id = inicio; id < inicio + TAMANHO_LOTE && id <= creditos; id++) {
+                GeradorCreditos.CreditoGerado credito = gerador.gerar(id);
+                lote.add(new Object[]{id, credito.numeroCreditoConstituido(), credito.numeroNFSe(),
+                        Date.valueOf(credito.dataConstituicao()), credito.valorISSQN(), credito.tipoCredito().name(),
+                        "Crédito sintético", credito.status().name(), agora, "Carga", credito.cnpjEmpresa()});
+            }
+            jdbcTemplate.batchUpdate(insert, lote);
+        }
+        // O otimizador pooled do Hibernate trata o valor lido como o topo do bloco de ids
+        jdbcTemplate.execute("ALTER SEQUENCE creditos_seq RESTART WITH " + (creditos + 1 + ALOCACAO_SEQUENCIA));
+
+        CreditoService creditoService = contexto.getBean(CreditoService.class);
+        creditoService.reconstruirResumos();
+        creditoService.reconstruirAgregadosPorPeriodo();
+        contexto.getBean(CreditoContagem.class).ressincronizar();
+        contexto.getBean(CreditoTermoIndex.class).reconstruir();
+        // A massa entrou por JDBC, sem eventos: sem a varredura, o filtro daria 404 para ela
+        contexto.getBean(CreditoFiltroBloom.class).reconstruir();
+    }
+}
@@ -0,0 +1,55 @@
+package fabiolicht.credito.carga;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Proporção de cada operação no teste de carga, no formato "POR_ID=25,BUSCAR=10,...".
+ * Operações ausentes da lista não são executadas.
+ */
+public class MixOperacoes {
+
+    public static final String PADRAO = "POR_ID=25,POR_NUMERO=10,POR_NFSE=5,BUSCAR=10,POR_STATUS=15,"
+            + "POR_CNPJ_E_STATUS=10,RESUMO_CNPJ=5,AGREGADO_PERIODO=5,CRIAR=10,ALTERAR_STATUS=5";
+
+    private final List<OperacaoCarga> operacoes = new ArrayList<>();
+    private final double[] acumulado;
+
+    public MixOperacoes(String mix) {
+        Map<OperacaoCarga, Integer> pesos = new EnumMap<>(OperacaoCarga.class);
+        for (String item : mix.split(",")) {
+            String[] partes = item.trim().split("=");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Item inválido no mix: " + item);
+            }
+            pesos.put(OperacaoCarga.valueOf(partes[0].trim()), Integer.parseInt(partes[1].trim()));
+        }
+        acumulado = new double[pesos.size()];
+        double soma = 0;
+        for (Map.Entry<OperacaoCarga, Integer> peso : pesos.entrySet()) {
+            soma += peso.getValue();
+            acumulado[operacoes.size()] = soma;
+            operacoes.add(peso.getKey());
+        }
+        if (soma <= 0) {
+            throw new IllegalArgumentException("Mix sem operações: " + mix);
+        }
+    }
+
+    public OperacaoCarga sortear(Random random) {
+        double valor = random.nextDouble() * acumulado[acumulado.length - 1];
+        for (int i = 0; i < acumulado.length; i++) {
+            if (valor < acumulado[i]) {
+                return operacoes.get(i);
+            }
+        }
+        return operacoes.get(operacoes.size() - 1);
+    }
+
+    public List<OperacaoCarga> getOperacoes() {
+        return operacoes;
+    }
+}
@@ -0,0 +1,27 @@
+package fabiolicht.credito.carga;
+
+/**
+ * Operações do teste de carga; cada uma corresponde a um endpoint do CreditoController
+ */
+public enum OperacaoCarga {
+    POR_ID("GET /{id}"),
+    POR_NUMERO("GET /numero/{numero}"),
+    POR_NFSE("GET /nfse/{nfse}"),
+    BUSCAR("GET /buscar?termo="),
+    POR_STATUS("GET /status/{status}"),
+    POR_CNPJ_E_STATUS("GET /cnpj/{cnpj}/status/{status}"),
+    RESUMO_CNPJ("GET /cnpj/{cnpj}/resumo"),
+    AGREGADO_PERIODO("GET /periodo/agregado"),
+    CRIAR("POST /"),
+    ALTERAR_STATUS("PATCH /{id}/status");
+
+    private final String endpoint;
+
+    OperacaoCarga(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+}
@@ -0,0 +1,69 @@
+package fabiolicht.credito.carga;
+
+import fabiolicht.credito.model.StatusCredito;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monta a requisição HTTP de cada operação do mix contra a massa gerada: os ids,
+ * números, NFS-e e CNPJs sorteados existem no banco semeado com o mesmo gerador
+ */
+public class RequisicoesCarga {
+
+    private final String baseUrl;
+    private final GeradorCreditos gerador;
+    private final int creditos;
+    private final AtomicLong sequenciaCriacao = new AtomicLong();
+
+    public RequisicoesCarga(int porta, GeradorCreditos gerador, int creditos) {
+        this.baseUrl = "http://localhost:" + porta + "/api/v1/creditos";
+        this.gerador = gerador;
+        this.creditos = creditos;
+    }
+
+    public HttpRequest montar(OperacaoCarga operacao, Random random) {
+        long id = 1 + random.nextInt(creditos);
+        String cnpj = gerador.sortearCnpj(random);
+        StatusCredito status = StatusCredito.values()[random.nextInt(StatusCredito.values().length)];
+        return switch (operacao) {
+            case POR_ID -> get("/" + id);
+            case POR_NUMERO -> get("/numero/" + GeradorCreditos.numero(id));
+            case POR_NFSE -> get("/nfse/" + GeradorCreditos.nfse(id));
+            // Os últimos 7 dígitos do número identificam poucos créditos
+            case BUSCAR -> get("/buscar?size=20&termo=" + GeradorCreditos.numero(id).substring(5));
+            case POR_STATUS -> get("/status/" + status + "?size=20&page=" + random.nextInt(10));
+            case POR_CNPJ_E_STATUS -> get("/cnpj/" + cnpj + "/status/ATIVO?size=20");
+            case RESUMO_CNPJ -> get("/cnpj/" + cnpj + "/resumo");
+            case AGREGADO_PERIODO -> get("/periodo/agregado?granularidade=MES&dataInicio="
+                    + GeradorCreditos.DATA_INICIAL + "&dataFim=" + GeradorCreditos.DATA_INICIAL.plusDays(GeradorCreditos.DIAS));
+            case CRIAR -> requisicao("")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(novoCredito(cnpj)))
+                    .build();
+            case ALTERAR_STATUS -> requisicao("/" + id + "/status?novoStatus=" + status)
+                    .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                    .build();
+        };
+    }
+
+    private String novoCredito(String cnpj) {
+        long sequencia = sequenciaCriacao.incrementAndGet();
+        return """
+                {"numeroCreditoConstituido":"LT%010d","numeroNFSe":"NFSLT%010d","dataConstituicao":"2024-06-01",\
+                "valorISSQN":123.45,"tipoCredito":"PRINCIPAL","cnpjEmpresa":"%s","responsavel":"Carga"}"""
+                .formatted(sequencia, sequencia, cnpj);
+    }
+
+    private HttpRequest get(String caminho) {
+        return requisicao(caminho).GET().build();
+    }
+
+    private HttpRequest.Builder requisicao(String caminho) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + caminho))
+                .timeout(Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,117 @@
+package fabiolicht.credito.carga;
+
+import fabiolicht.credito.CreditoApplication;
+import fabiolicht.credito.config.TestConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara o perfil padrão (pool fixo de threads do Tomcat) com o perfil "virtual"
+ * (uma thread virtual por requisição) nos endpoints reais: a aplicação sobe uma vez
+ * em cada perfil, cada uma com seu banco H2 semeado com a mesma massa, e recebe o
+ * mesmo mix de operações de clientes HTTP concorrentes. A concorrência padrão fica
+ * acima das 200 threads do Tomcat para que o modo de plataforma enfileire.
+ * <p>
+ * O relatório (tabela por operação de cada perfil e o resumo) vai para target/carga
+ * e o resumo também para o log.
+ * <p>
+ * Executar com: mvn test -Dtest=ThreadsVirtuaisBenchmarkTest -Dcredito.benchmark=true
+ * Parâmetros (propriedades de sistema, com os padrões):
+ * credito.benchmark.creditos=100000, credito.benchmark.concorrencia=400,
+ * credito.benchmark.aquecimento-s=10, credito.benchmark.duracao-s=30,
+ * credito.benchmark.mix=MixOperacoes.PADRAO
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "credito.benchmark", matches = "true")
+public class ThreadsVirtuaisBenchmarkTest {
+
+    private static final int CREDITOS = Integer.getInteger("credito.benchmark.creditos", 100_000);
+    private static final int CONCORRENCIA = Integer.getInteger("credito.benchmark.concorrencia", 400);
+    private static final int AQUECIMENTO_S = Integer.getInteger("credito.benchmark.aquecimento-s", 10);
+    private static final int DURACAO_S = Integer.getInteger("credito.benchmark.duracao-s", 30);
+    private static final String MIX = System.getProperty("credito.benchmark.mix", MixOperacoes.PADRAO);
+    private static final long SEMENTE = 42L;
+
+    private final GeradorCreditos gerador = new GeradorCreditos(SEMENTE, 1_000, 1.1);
+    private final MixOperacoes mix = new MixOperacoes(MIX);
+
+    @Test
+    public void compararThreadsDePlataformaEVirtuais() throws Exception {
+        Map<String, ExecucaoCarga.Resultado> resultados = new LinkedHashMap<>();
+        resultados.put("plataforma", medir("plataforma", "test"));
+        resultados.put("virtuais", medir("virtuais", "test", "virtual"));
+
+        Path relatorio = gravarRelatorio(resultados);
+        ByteArrayOutputStream resumo = new ByteArrayOutputStream();
+        imprimirResumo(new PrintStream(resumo, true, StandardCharsets.UTF_8), resultados);
+        log.info("Threads de plataforma x virtuais ({}):{}{}", relatorio.toAbsolutePath(), System.lineSeparator(),
+                resumo.toString(StandardCharsets.UTF_8));
+
+        for (Map.Entry<String, ExecucaoCarga.Resultado> resultado : resultados.entrySet()) {
+            long total = resultado.getValue().total();
+            long erros = resultado.getValue().totalErros();
+            assertTrue(total > 0, "Nenhuma requisição concluída no modo " + resultado.getKey());
+            assertTrue(erros <= total / 100, "Taxa de erros acima de 1% no modo " + resultado.getKey() + ": " + erros + " de " + total);
+        }
+    }
+
+    /**
+     * Sobe a aplicação nos perfis informados, semeia, aquece e mede
+     */
+    private ExecucaoCarga.Resultado medir(String modo, String... perfis) throws Exception {
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(CreditoApplication.class, TestConfig.class)
+                .profiles(perfis)
+                // Argumentos, e não propriedades padrão, para prevalecer sobre application-test.properties
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-" + modo + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--logging.level.fabiolicht.credito=WARN",
+                        "--logging.level.fabiolicht.credito.carga=INFO")) {
+            MassaCarga.semear(contexto, gerador, CREDITOS);
+            int porta = contexto.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+            ExecucaoCarga execucao = new ExecucaoCarga(new RequisicoesCarga(porta, gerador, CREDITOS), mix, CONCORRENCIA, SEMENTE);
+            execucao.executar(Duration.ofSeconds(AQUECIMENTO_S));
+            return execucao.executar(Duration.ofSeconds(DURACAO_S));
+        }
+    }
+
+    private Path gravarRelatorio(Map<String, ExecucaoCarga.Resultado> resultados) throws IOException {
+        Path diretorio = Path.of("target", "carga");
+        Files.createDirectories(diretorio);
+        Path arquivo = diretorio.resolve("threads-virtuais-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt");
+
+        try (PrintStream saida = new PrintStream(Files.newOutputStream(arquivo), true, "UTF-8")) {
+            saida.printf("Créditos: %d, clientes: %d, aquecimento: %d s, medição: %d s%n", CREDITOS, CONCORRENCIA, AQUECIMENTO_S, DURACAO_S);
+            saida.printf("Mix: %s%n%n", MIX);
+            imprimirResumo(saida, resultados);
+            resultados.forEach((modo, resultado) -> {
+                saida.printf("%n=== %s%n", modo);
+                resultado.imprimirTabela(saida);
+            });
+        }
+        return arquivo;
+    }
+
+    private static void imprimirResumo(PrintStream saida, Map<String, ExecucaoCarga.Resultado> resultados) {
+        ExecucaoCarga.imprimirCabecalho(saida, "modo");
+        resultados.forEach((modo, resultado) ->
+                ExecucaoCarga.imprimirLinha(saida, modo, resultado.totalLatencias(), resultado.totalErros(), resultado.segundos()));
+    }
+}
@@ -0,0 +1,124 @@
+package fabiolicht.credito.config;
+
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.CreditoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class MetricasConfigTest {
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private Credito credito;
+
+    @BeforeEach
+    void setUp() {
+        creditoRepository.deleteAll();
+        credito = new Credito();
+        credito.setNumeroCreditoConstituido("CR-MET-001");
+        credito.setNumeroNFSe("NFS-MET-001");
+        credito.setDataConstituicao(LocalDate.of(2024, 1, 15));
+        credito.setValorISSQN(new BigDecimal("100.00"));
+        credito.setTipoCredito(TipoCredito.PRINCIPAL);
+        credito.setStatus(StatusCredito.ATIVO);
+        credito.setCnpjEmpresa("12345678000190");
+        credito = creditoRepository.save(credito);
+    }
+
+    @Test
+    void testMetodoDeRepositorioTemHistograma() {
+        creditoRepository.findByNumeroCreditoConstituido("CR-MET-001");
+
+        Timer timer = meterRegistry.find("spring.data.repository.invocations")
+                .tag("repository", "CreditoRepository")
+                .tag("method", "findByNumeroCreditoConstituido")
+                .tag("state", "SUCCESS")
+                .timer();
+        assertNotNull(timer);
+        assertTrue(timer.count() >= 1);
+        assertTrue(timer.takeSnapshot().histogramCounts().length > 0);
+    }
+
+    @Test
+    void testRotaHttpTemHistogramaPorUriEStatus() throws Exception {
+        assertEquals(200, get("/api/v1/creditos/" + credito.getId()).statusCode());
+        get("/api/v1/creditos/" + (credito.getId() + 1_000));
+
+        Timer encontrado = meterRegistry.find("http.server.requests")
+                .tag("uri", "/api/v1/creditos/{id}")
+                .tag("status", "200")
+                .tag("outcome", "SUCCESS")
+                .timer();
+        assertNotNull(encontrado);
+        assertTrue(encontrado.takeSnapshot().histogramCounts().length > 0);
+        assertNotNull(meterRegistry.find("http.server.requests")
+                .tag("uri", "/api/v1/creditos/{id}")
+                .tag("outcome", "CLIENT_ERROR")
+                .timer());
+    }
+
+    @Test
+    void testEndpointPrometheusExpoeOsBuckets() throws Exception {
+        get("/api/v1/creditos/" + credito.getId());
+
+        HttpResponse<String> resposta = get("/actuator/prometheus");
+
+        assertEquals(200, resposta.statusCode());
+        assertTrue(resposta.body().contains("http_server_requests_seconds_bucket{"));
+        assertTrue(resposta.body().contains("spring_data_repository_invocations_seconds_bucket{"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testKafkaTemplateRecebeTagDoTopico() {
+        ProducerFactory<String, byte[]> producerFactory = mock(ProducerFactory.class);
+        KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(producerFactory);
+
+        MetricasConfig.tagTopicoKafkaTemplate().postProcessAfterInitialization(template, "kafkaTemplate");
+
+        assertEquals(Map.of("topico", KafkaTopicConfig.TOPICO_EVENTOS),
+                template.getMicrometerTagsProvider().apply(new ProducerRecord<>(KafkaTopicConfig.TOPICO_EVENTOS, "1", null)));
+    }
+
+    private HttpResponse<String> get(String caminho) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + porta + caminho)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,121 @@
+package fabiolicht.credito.config;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.service.CreditoService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static fabiolicht.credito.CreditosTeste.credito;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Réplica apontando para o mesmo H2 do primário: os dados são os mesmos e o heartbeat é
+ * visto sem atraso. O destino de cada transação read-only é contado em credito.replicas.leituras.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicasdb;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "credito.replicas.habilitado=true",
+        "credito.replicas.urls=jdbc:h2:mem:replicasdb;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "credito.replicas.selecao=ROUND_ROBIN"
+})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class ReplicasConfigTest {
+
+    private static final String REPLICA = "credito-replica-1";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private LeituraAposEscritaFilter leituraAposEscritaFilter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTransacoesReadOnlyDoServicoUsamOPoolDaReplica() throws Exception {
+        assertInstanceOf(LazyConnectionDataSourceProxy.class, dataSource);
+        double leiturasReplica = leituras(REPLICA);
+
+        CreditoDTO criado = creditoService.criar(credito("CR-REPL-001"));
+        assertEquals(leiturasReplica, leituras(REPLICA));
+
+        // Thread sem escrita recente: a listagem vai à réplica
+        assertEquals(1L, emOutraThread(() -> creditoService.buscarTodos(PageRequest.of(0, 10)).getTotalElements()));
+        assertEquals(leiturasReplica + 1, leituras(REPLICA));
+
+        // Carga do cache por id: primário, mesmo em thread sem escrita. A listagem deixou o
+        // crédito no cache de segundo nível; sem ele, a busca vai ao banco
+        entityManagerFactory.getCache().evict(Credito.class, criado.getId());
+        double leiturasPrimario = leituras("primario");
+        assertNotNull(emOutraThread(() -> creditoService.buscarPorId(criado.getId())));
+        assertEquals(leiturasReplica + 1, leituras(REPLICA));
+        assertEquals(leiturasPrimario + 1, leituras("primario"));
+
+        // Na thread que escreveu, leitura logo após a escrita: primário
+        creditoService.buscarTodos(PageRequest.of(0, 10));
+        assertEquals(leiturasReplica + 1, leituras(REPLICA));
+        assertEquals(leiturasPrimario + 2, leituras("primario"));
+    }
+
+    @Test
+    public void testCookieDeEscritaLevaAsLeiturasDoClienteAoPrimario() throws Exception {
+        MockHttpServletResponse escrita = new MockHttpServletResponse();
+        leituraAposEscritaFilter.doFilter(new MockHttpServletRequest("POST", "/api/v1/creditos"), escrita,
+                (request, response) -> assertFalse(LeituraPrimaria.exigida(0)));
+        Cookie cookie = escrita.getCookie(LeituraAposEscritaFilter.COOKIE);
+        assertNotNull(cookie);
+        assertEquals(6, cookie.getMaxAge());
+
+        MockHttpServletRequest leitura = new MockHttpServletRequest("GET", "/api/v1/creditos");
+        leitura.setCookies(cookie);
+        MockHttpServletResponse resposta = new MockHttpServletResponse();
+        leituraAposEscritaFilter.doFilter(leitura, resposta, (request, response) -> assertTrue(LeituraPrimaria.exigida(0)));
+        assertNull(resposta.getCookie(LeituraAposEscritaFilter.COOKIE));
+        assertFalse(LeituraPrimaria.exigida(0));
+    }
+
+    private <T> T emOutraThread(Callable<T> tarefa) throws Exception {
+        return executor.submit(tarefa).get();
+    }
+
+    private double leituras(String destino) {
+        return meterRegistry.get("credito.replicas.leituras").tag("destino", destino).counter().count();
+    }
+}
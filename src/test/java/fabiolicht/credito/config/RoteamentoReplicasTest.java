@@ -0,0 +1,196 @@
+package fabiolicht.credito.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Roteamento contra três bancos H2 independentes (primário e duas réplicas). Cada banco
+ * tem uma linha diferente em "origem", e o heartbeat das réplicas é gravado pelo teste:
+ * sem replicação, o atraso é o que o teste definir.
+ */
+public class RoteamentoReplicasTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HikariDataSource primario;
+    private final Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+    private RoteamentoReplicas roteamento;
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void setUp() {
+        primario = banco("primario");
+        replicas.put("replica-1", banco("replica-1"));
+        replicas.put("replica-2", banco("replica-2"));
+        replicas.values().forEach(replica -> {
+            JdbcTemplate jdbc = new JdbcTemplate(replica);
+            jdbc.execute("CREATE TABLE IF NOT EXISTS " + RoteamentoReplicas.TABELA_HEARTBEAT
+                    + " (id INTEGER PRIMARY KEY, instante TIMESTAMP NOT NULL)");
+            jdbc.update("MERGE INTO " + RoteamentoReplicas.TABELA_HEARTBEAT + " KEY (id) VALUES (1, ?)", LocalDateTime.now());
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (HikariDataSource banco : replicas.values()) {
+            new JdbcTemplate(banco).execute("SHUTDOWN");
+            banco.close();
+        }
+        new JdbcTemplate(primario).execute("SHUTDOWN");
+        primario.close();
+    }
+
+    @Test
+    public void testReadOnlyVaiAsReplicasEmRodizioEEscritaAoPrimario() {
+        rotear(RoteamentoReplicas.Selecao.ROUND_ROBIN, Duration.ZERO);
+
+        assertEquals("replica-1", ler());
+        assertEquals("replica-2", ler());
+        assertEquals("replica-1", ler());
+        assertEquals("primario", escrever());
+        assertEquals(3.0, meterRegistry.get("credito.replicas.leituras").tag("destino", "replica-1").counter().count()
+                + meterRegistry.get("credito.replicas.leituras").tag("destino", "replica-2").counter().count());
+    }
+
+    @Test
+    public void testMenosCarregadaEvitaAReplicaComConexoesEmUso() throws Exception {
+        rotear(RoteamentoReplicas.Selecao.MENOS_CARREGADA, Duration.ZERO);
+
+        try (Connection emUso = replicas.get("replica-1").getConnection()) {
+            assertEquals("replica-2", ler());
+            assertEquals("replica-2", ler());
+        }
+        try (Connection emUso = replicas.get("replica-2").getConnection()) {
+            assertEquals("replica-1", ler());
+        }
+    }
+
+    @Test
+    public void testReplicaAtrasadaSaiDoRoteamentoEVoltaQuandoEmDia() {
+        rotear(RoteamentoReplicas.Selecao.ROUND_ROBIN, Duration.ZERO);
+        JdbcTemplate replica2 = new JdbcTemplate(replicas.get("replica-2"));
+        String heartbeat = "UPDATE " + RoteamentoReplicas.TABELA_HEARTBEAT + " SET instante = ? WHERE id = 1";
+
+        replica2.update(heartbeat, LocalDateTime.now().minusMinutes(1));
+        roteamento.medirAtraso();
+
+        assertEquals("replica-1", ler());
+        assertEquals("replica-1", ler());
+        assertTrue(meterRegistry.get("credito.replica.atraso").tag("replica", "replica-2").gauge().value() >= 60);
+        assertEquals(0.0, meterRegistry.get("credito.replica.disponivel").tag("replica", "replica-2").gauge().value());
+
+        // Sem heartbeat na réplica 1 e a 2 atrasada: nenhuma disponível, leitura no primário
+        new JdbcTemplate(replicas.get("replica-1")).update("DELETE FROM " + RoteamentoReplicas.TABELA_HEARTBEAT);
+        roteamento.medirAtraso();
+        assertEquals("primario", ler());
+        assertTrue(Double.isNaN(meterRegistry.get("credito.replica.atraso").tag("replica", "replica-1").gauge().value()));
+
+        replica2.update(heartbeat, LocalDateTime.now());
+        roteamento.medirAtraso();
+        assertEquals("replica-2", ler());
+        assertEquals(1.0, meterRegistry.get("credito.replica.disponivel").tag("replica", "replica-2").gauge().value());
+    }
+
+    @Test
+    public void testHeartbeatGravadoNoPrimario() {
+        rotear(RoteamentoReplicas.Selecao.ROUND_ROBIN, Duration.ZERO);
+
+        LocalDateTime instante = new JdbcTemplate(primario).queryForObject(
+                "SELECT instante FROM " + RoteamentoReplicas.TABELA_HEARTBEAT + " WHERE id = 1", LocalDateTime.class);
+        assertTrue(Duration.between(instante, LocalDateTime.now()).abs().getSeconds() < 5);
+    }
+
+    @Test
+    public void testLeituraAposEscritaNaMesmaThreadVaiAoPrimario() throws Exception {
+        rotear(RoteamentoReplicas.Selecao.ROUND_ROBIN, Duration.ofMinutes(1));
+
+        // Threads novas: a última escrita fica registrada na thread que a fez
+        List<String> destinos = emThreadNova(() -> {
+            List<String> lidos = new ArrayList<>();
+            try (LeituraPrimaria.Escopo primario = LeituraPrimaria.noPrimario()) {
+                lidos.add(ler());
+            }
+            lidos.add(ler());
+            lidos.add(escrever());
+            lidos.add(ler());
+            return lidos;
+        });
+
+        assertEquals(List.of("primario", "replica-1", "primario", "primario"), destinos);
+        // Outra thread, sem escrita própria, continua nas réplicas
+        assertEquals("replica-2", emThreadNova(this::ler));
+    }
+
+    /**
+     * Monta o DataSource como o ReplicasConfig
+     */
+    private void rotear(RoteamentoReplicas.Selecao selecao, Duration janelaLeituraAposEscrita) {
+        roteamento = new RoteamentoReplicas(primario, replicas, selecao, Duration.ofSeconds(5), janelaLeituraAposEscrita,
+                meterRegistry);
+        roteamento.afterPropertiesSet();
+        dataSource = ReplicasConfig.roteado(primario, roteamento);
+    }
+
+    private String ler() {
+        return origem(true);
+    }
+
+    private String escrever() {
+        return origem(false);
+    }
+
+    /**
+     * Banco que atendeu a transação
+     */
+    private String origem(boolean readOnly) {
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transacao.setReadOnly(readOnly);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        return transacao.execute(status -> jdbc.queryForObject("SELECT nome FROM origem", String.class));
+    }
+
+    private static <T> T emThreadNova(Callable<T> tarefa) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(tarefa).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static HikariDataSource banco(String nome) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + nome + "-roteamento;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPoolName(nome);
+        config.setMaximumPoolSize(4);
+        HikariDataSource banco = new HikariDataSource(config);
+        JdbcTemplate jdbc = new JdbcTemplate(banco);
+        jdbc.execute("CREATE TABLE origem (nome VARCHAR(20))");
+        jdbc.update("INSERT INTO origem VALUES (?)", nome);
+        return banco;
+    }
+}
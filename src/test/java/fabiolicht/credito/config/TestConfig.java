@@ -15,7 +15,7 @@ public class TestConfig {
 
     @Bean
     @Primary
-    public KafkaTemplate<String, String> kafkaTemplate() {
+    public KafkaTemplate<String, byte[]> kafkaTemplate() {
         return Mockito.mock(KafkaTemplate.class);
     }
 }
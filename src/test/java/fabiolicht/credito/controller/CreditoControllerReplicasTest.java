@@ -0,0 +1,84 @@
+package fabiolicht.credito.controller;
+
+import com.zaxxer.hikari.HikariDataSource;
+import fabiolicht.credito.config.RoteamentoReplicas;
+import fabiolicht.credito.config.TestConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pool da réplica esgotado com réplicas habilitadas: a conexão só é pedida no primeiro
+ * comando da transação read-only, e a falha precisa virar 503. Mesmo contexto do
+ * ReplicasConfigTest (réplica apontando para o H2 do primário).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicasdb;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "credito.replicas.habilitado=true",
+        "credito.replicas.urls=jdbc:h2:mem:replicasdb;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "credito.replicas.selecao=ROUND_ROBIN"
+})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class CreditoControllerReplicasTest {
+
+    private static final String REPLICA = "credito-replica-1";
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private RoteamentoReplicas roteamentoReplicas;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<Connection> ocupadas = new ArrayList<>();
+    private HikariDataSource replica;
+    private long connectionTimeout;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        replica = (HikariDataSource) roteamentoReplicas.getResolvedDataSources().get(REPLICA);
+        connectionTimeout = replica.getConnectionTimeout();
+        replica.getHikariConfigMXBean().setConnectionTimeout(250);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (Connection conexao : ocupadas) {
+            conexao.close();
+        }
+        replica.getHikariConfigMXBean().setConnectionTimeout(connectionTimeout);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPoolDaReplicaEsgotadoResponde503() throws Exception {
+        for (int i = 0; i < replica.getMaximumPoolSize(); i++) {
+            ocupadas.add(replica.getConnection());
+        }
+
+        // Thread sem escrita recente: a listagem é roteada para a réplica
+        executor.submit(() -> mockMvc.perform(get("/api/v1/creditos"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))).get();
+    }
+}
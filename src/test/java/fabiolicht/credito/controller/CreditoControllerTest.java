@@ -2,31 +2,87 @@ package fabiolicht.credito.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import fabiolicht.credito.dto.AgregadoPeriodoDTO;
 import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.CursorPageDTO;
+import fabiolicht.credito.dto.ExportacaoDTO;
+import fabiolicht.credito.dto.FiltroCredito;
+import fabiolicht.credito.dto.ImportacaoDTO;
+import fabiolicht.credito.dto.ItemLoteDTO;
+import fabiolicht.credito.dto.ResultadoAlteracaoStatusDTO;
+import fabiolicht.credito.dto.ResultadoLoteDTO;
+import fabiolicht.credito.dto.ResumoCnpjDTO;
+import fabiolicht.credito.dto.TotaisDTO;
+import fabiolicht.credito.model.FormatoExportacao;
+import fabiolicht.credito.model.GranularidadePeriodo;
+import fabiolicht.credito.model.SituacaoExportacao;
+import fabiolicht.credito.model.SituacaoImportacao;
 import fabiolicht.credito.model.StatusCredito;
 import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.CreditoVersao;
+import fabiolicht.credito.repository.IdempotenciaCreditoRepository;
+import fabiolicht.credito.service.CreditoDuplicadoException;
+import fabiolicht.credito.service.CreditoExportacao;
+import fabiolicht.credito.service.CreditoIdempotencia;
+import fabiolicht.credito.service.CreditoImportacao;
 import fabiolicht.credito.service.CreditoService;
+import fabiolicht.credito.service.ExportacaoNaoEncontradaException;
+import fabiolicht.credito.service.IdempotenciaEmAndamentoException;
+import fabiolicht.credito.service.ImportacaoNaoEncontradaException;
+import fabiolicht.credito.service.VersaoDivergenteException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class CreditoControllerTest {
@@ -34,6 +90,24 @@ public class CreditoControllerTest {
     @Mock
     private CreditoService creditoService;
 
+    @Spy
+    private JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @Spy
+    private CreditoIdempotencia creditoIdempotencia = new CreditoIdempotencia();
+
+    @Mock
+    private IdempotenciaCreditoRepository idempotenciaRepository;
+
+    @Mock
+    private CreditoImportacao creditoImportacao;
+
+    @Mock
+    private CreditoExportacao creditoExportacao;
+
+    @TempDir
+    Path pasta;
+
     @InjectMocks
     private CreditoController creditoController;
 
@@ -44,6 +118,11 @@ public class CreditoControllerTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(creditoIdempotencia, "idempotenciaRepository", idempotenciaRepository);
+        ReflectionTestUtils.setField(creditoIdempotencia, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(creditoIdempotencia, "jsonMapper", jsonMapper);
+        when(idempotenciaRepository.reservar(anyString(), anyString(), any())).thenReturn(1);
+        creditoIdempotencia.inicializar();
 
         // Configura ObjectMapper diretamente com suporte a Java 8 Time (sem usar classes deprecadas)
         objectMapper = new ObjectMapper();
@@ -92,6 +171,58 @@ public class CreditoControllerTest {
                 .andExpect(jsonPath("$.numeroCreditoConstituido").value("CR001"));
     }
 
+    @Test
+    public void testPoolEsgotadoRetorna503() throws Exception {
+        when(creditoService.buscarPorId(1L))
+                .thenThrow(new CannotCreateTransactionException("Connection is not available, request timed out"));
+
+        mockMvc.perform(get("/api/v1/creditos/1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    public void testBuscarPorStatusSemContagem() throws Exception {
+        when(creditoService.buscarPorStatusSemContagem(eq(StatusCredito.ATIVO), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(creditoDTO), PageRequest.of(0, 10), true));
+
+        mockMvc.perform(get("/api/v1/creditos/status/ATIVO").param("contar", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].numeroCreditoConstituido").value("CR001"))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    public void testBuscarPorStatusComCampos() throws Exception {
+        Map<String, Object> linha = new LinkedHashMap<>();
+        linha.put("numeroCreditoConstituido", "CR001");
+        linha.put("status", StatusCredito.ATIVO);
+        when(creditoService.buscarCampos(eq(FiltroCredito.builder().status(StatusCredito.ATIVO).build()),
+                eq("numeroCreditoConstituido,status"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(linha), PageRequest.of(0, 10), 1));
+
+        mockMvc.perform(get("/api/v1/creditos/status/ATIVO").param("fields", "numeroCreditoConstituido,status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].numeroCreditoConstituido").value("CR001"))
+                .andExpect(jsonPath("$.content[0].status").value("ATIVO"))
+                .andExpect(jsonPath("$.content[0].valorISSQN").doesNotExist());
+    }
+
+    @Test
+    public void testBuscarPorCNPJComCamposEPaginado() throws Exception {
+        Map<String, Object> linha = Map.of("numeroCreditoConstituido", "CR001");
+        when(creditoService.buscarCampos(eq(FiltroCredito.builder().cnpjEmpresa("12345678000100").build()),
+                eq("numeroCreditoConstituido"), eq(PageRequest.of(2, 50))))
+                .thenReturn(new PageImpl<>(List.of(linha), PageRequest.of(2, 50), 101));
+
+        mockMvc.perform(get("/api/v1/creditos/cnpj/12345678000100")
+                        .param("fields", "numeroCreditoConstituido").param("page", "2").param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].numeroCreditoConstituido").value("CR001"))
+                .andExpect(jsonPath("$.totalElements").value(101));
+    }
+
     @Test
     public void testBuscarPorNumero() throws Exception {
         when(creditoService.buscarPorNumeroCreditoConstituido("CR001"))
@@ -113,12 +244,69 @@ public class CreditoControllerTest {
                 .andExpect(jsonPath("$.id").value(1L));
     }
 
+    @Test
+    public void testCriarComIdempotencyKeyRepetidaDevolveARespostaOriginal() throws Exception {
+        when(creditoService.criar(any())).thenReturn(creditoDTO);
+        String corpo = objectMapper.writeValueAsString(creditoDTO);
+
+        mockMvc.perform(post("/api/v1/creditos").header("Idempotency-Key", "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        mockMvc.perform(post("/api/v1/creditos").header("Idempotency-Key", "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(1L));
+
+        verify(creditoService, times(1)).criar(any());
+    }
+
+    @Test
+    public void testCriarComIdempotencyKeyEmAndamentoRetorna409() throws Exception {
+        doThrow(new IdempotenciaEmAndamentoException("chave-1")).when(creditoIdempotencia).criar(eq("chave-1"), any(), any());
+
+        mockMvc.perform(post("/api/v1/creditos").header("Idempotency-Key", "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(creditoDTO)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        verify(creditoService, never()).criar(any());
+    }
+
+    @Test
+    public void testCriarComIdempotencyKeyReutilizadaEmOutraRequisicao() throws Exception {
+        when(creditoService.criar(any())).thenReturn(creditoDTO);
+        mockMvc.perform(post("/api/v1/creditos").header("Idempotency-Key", "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(creditoDTO)))
+                .andExpect(status().isCreated());
+        creditoDTO.setNumeroCreditoConstituido("CR002");
+
+        mockMvc.perform(post("/api/v1/creditos").header("Idempotency-Key", "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(creditoDTO)))
+                .andExpect(status().isUnprocessableContent());
+        verify(creditoService, times(1)).criar(any());
+    }
+
+    @Test
+    public void testCriarCreditoDuplicadoRetornaConflito() throws Exception {
+        when(creditoService.criar(any())).thenThrow(new CreditoDuplicadoException("CR001"));
+
+        mockMvc.perform(post("/api/v1/creditos").header("Idempotency-Key", "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(creditoDTO)))
+                .andExpect(status().isConflict());
+        // A falha libera a chave: a nova tentativa executa de novo
+        mockMvc.perform(post("/api/v1/creditos").header("Idempotency-Key", "chave-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(creditoDTO)))
+                .andExpect(status().isConflict());
+        verify(creditoService, times(2)).criar(any());
+    }
+
     @Test
     public void testAlterarStatus() throws Exception {
         CreditoDTO creditoAtualizado = creditoDTO;
         creditoAtualizado.setStatus(StatusCredito.INATIVO);
 
-        when(creditoService.alterarStatus(1L, StatusCredito.INATIVO))
+        when(creditoService.alterarStatus(1L, StatusCredito.INATIVO, null))
                 .thenReturn(creditoAtualizado);
 
         mockMvc.perform(patch("/api/v1/creditos/1/status")
@@ -148,7 +336,7 @@ public class CreditoControllerTest {
         PageRequest pageRequest = PageRequest.of(0, 10);
         Page<CreditoDTO> page = new PageImpl<>(creditos, pageRequest, creditos.size());
 
-        when(creditoService.buscarPorStatus(StatusCredito.ATIVO, any())).thenReturn(page);
+        when(creditoService.buscarPorStatus(eq(StatusCredito.ATIVO), any())).thenReturn(page);
 
         mockMvc.perform(get("/api/v1/creditos/status/ATIVO"))
                 .andExpect(status().isOk())
@@ -161,7 +349,7 @@ public class CreditoControllerTest {
         PageRequest pageRequest = PageRequest.of(0, 10);
         Page<CreditoDTO> page = new PageImpl<>(creditos, pageRequest, creditos.size());
 
-        when(creditoService.buscarPorTipo(TipoCredito.PRINCIPAL, any())).thenReturn(page);
+        when(creditoService.buscarPorTipo(eq(TipoCredito.PRINCIPAL), any())).thenReturn(page);
 
         mockMvc.perform(get("/api/v1/creditos/tipo/PRINCIPAL"))
                 .andExpect(status().isOk())
@@ -178,6 +366,36 @@ public class CreditoControllerTest {
                 .andExpect(jsonPath("$[0].cnpjEmpresa").value("12345678000100"));
     }
 
+    @Test
+    public void testBuscarResumoPorCNPJ() throws Exception {
+        ResumoCnpjDTO resumo = new ResumoCnpjDTO("12345678000100", 2, new BigDecimal("1500.00"),
+                Map.of(StatusCredito.ATIVO, new TotaisDTO(2, new BigDecimal("1500.00"))),
+                Map.of(TipoCredito.PRINCIPAL, new TotaisDTO(2, new BigDecimal("1500.00"))));
+        when(creditoService.buscarResumoPorCNPJ("12345678000100")).thenReturn(resumo);
+
+        mockMvc.perform(get("/api/v1/creditos/cnpj/12345678000100/resumo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantidade").value(2))
+                .andExpect(jsonPath("$.porStatus.ATIVO.valorTotal").value(1500.00))
+                .andExpect(jsonPath("$.porTipo.PRINCIPAL.quantidade").value(2));
+    }
+
+    @Test
+    public void testBuscarAgregadoPorPeriodo() throws Exception {
+        AgregadoPeriodoDTO mes = AgregadoPeriodoDTO.vazio(LocalDate.of(2024, 1, 1));
+        mes.somar(TipoCredito.PRINCIPAL, 3, new BigDecimal("300.00"));
+        when(creditoService.buscarAgregadoPorPeriodo(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31),
+                GranularidadePeriodo.MES)).thenReturn(List.of(mes));
+
+        mockMvc.perform(get("/api/v1/creditos/periodo/agregado")
+                        .param("dataInicio", "2024-01-01")
+                        .param("dataFim", "2024-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].periodo").value("2024-01-01"))
+                .andExpect(jsonPath("$[0].quantidade").value(3))
+                .andExpect(jsonPath("$[0].porTipo.PRINCIPAL.valorTotal").value(300.00));
+    }
+
     @Test
     public void testBuscarPorPeriodo() throws Exception {
         List<CreditoDTO> creditos = Arrays.asList(creditoDTO);
@@ -196,7 +414,7 @@ public class CreditoControllerTest {
         PageRequest pageRequest = PageRequest.of(0, 10);
         Page<CreditoDTO> page = new PageImpl<>(creditos, pageRequest, creditos.size());
 
-        when(creditoService.buscarPorCNPJEStatus("12345678000100", StatusCredito.ATIVO, any()))
+        when(creditoService.buscarPorCNPJEStatus(eq("12345678000100"), eq(StatusCredito.ATIVO), any()))
                 .thenReturn(page);
 
         mockMvc.perform(get("/api/v1/creditos/cnpj/12345678000100/status/ATIVO"))
@@ -210,7 +428,7 @@ public class CreditoControllerTest {
         PageRequest pageRequest = PageRequest.of(0, 10);
         Page<CreditoDTO> page = new PageImpl<>(creditos, pageRequest, creditos.size());
 
-        when(creditoService.buscarPorTermo("CR001", any())).thenReturn(page);
+        when(creditoService.buscarPorTermo(eq("CR001"), any())).thenReturn(page);
 
         mockMvc.perform(get("/api/v1/creditos/buscar")
                         .param("termo", "CR001"))
@@ -220,7 +438,7 @@ public class CreditoControllerTest {
 
     @Test
     public void testAtualizarCredito() throws Exception {
-        when(creditoService.atualizar(1L, any())).thenReturn(creditoDTO);
+        when(creditoService.atualizar(eq(1L), any())).thenReturn(creditoDTO);
 
         mockMvc.perform(put("/api/v1/creditos/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -229,6 +447,81 @@ public class CreditoControllerTest {
                 .andExpect(jsonPath("$.id").value(1L));
     }
 
+    @Test
+    public void testBuscarPorIdDevolveEtag() throws Exception {
+        creditoDTO.setVersao(3L);
+        when(creditoService.buscarPorId(1L)).thenReturn(creditoDTO);
+
+        mockMvc.perform(get("/api/v1/creditos/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""))
+                .andExpect(jsonPath("$.versao").value(3));
+    }
+
+    @Test
+    public void testBuscarPorIdNaoModificadoConsultaSoAVersao() throws Exception {
+        when(creditoService.buscarVersaoPorId(1L)).thenReturn(Optional.of(versao(1L, 3L)));
+
+        mockMvc.perform(get("/api/v1/creditos/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\", W/\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""))
+                .andExpect(content().string(""));
+
+        verify(creditoService, never()).buscarPorId(1L);
+    }
+
+    @Test
+    public void testBuscarPorNumeroComEtagAntigaDevolveCorpo() throws Exception {
+        creditoDTO.setVersao(4L);
+        when(creditoService.buscarVersaoPorNumero("CR001")).thenReturn(Optional.of(versao(1L, 4L)));
+        when(creditoService.buscarPorNumeroCreditoConstituido("CR001")).thenReturn(creditoDTO);
+
+        mockMvc.perform(get("/api/v1/creditos/numero/CR001")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""))
+                .andExpect(jsonPath("$.numeroCreditoConstituido").value("CR001"));
+    }
+
+    @Test
+    public void testAtualizarComIfMatchDesatualizado() throws Exception {
+        when(creditoService.atualizar(eq(1L), any()))
+                .thenThrow(new VersaoDivergenteException(1L, 2L, 3L));
+
+        mockMvc.perform(put("/api/v1/creditos/1")
+                        .header(HttpHeaders.IF_MATCH, "\"1-2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creditoDTO)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""));
+
+        verify(creditoService).atualizar(eq(1L), argThat(dto -> Long.valueOf(2L).equals(dto.getVersao())));
+    }
+
+    @Test
+    public void testAlterarStatusComEtagDeOutroCredito() throws Exception {
+        when(creditoService.alterarStatus(1L, StatusCredito.INATIVO, -1L))
+                .thenThrow(new VersaoDivergenteException(1L, -1L, 3L));
+
+        mockMvc.perform(patch("/api/v1/creditos/1/status")
+                        .header(HttpHeaders.IF_MATCH, "\"2-3\"")
+                        .param("novoStatus", "INATIVO"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testAlterarStatusConcorrenteDevolveConflito() throws Exception {
+        when(creditoService.alterarStatus(1L, StatusCredito.INATIVO, 3L))
+                .thenThrow(new ObjectOptimisticLockingFailureException("Credito", 1L));
+
+        mockMvc.perform(patch("/api/v1/creditos/1/status")
+                        .header(HttpHeaders.IF_MATCH, "\"1-3\"")
+                        .param("novoStatus", "INATIVO"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").exists());
+    }
+
     @Test
     public void testBuscarPorIdNaoEncontrado() throws Exception {
         when(creditoService.buscarPorId(999L))
@@ -248,4 +541,225 @@ public class CreditoControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").exists());
     }
+
+    @Test
+    public void testBuscarPorStatusComCursor() throws Exception {
+        CursorPageDTO<CreditoDTO> pagina = new CursorPageDTO<>(Arrays.asList(creditoDTO), 10, true, "abc");
+
+        when(creditoService.buscarPorStatusComCursor(StatusCredito.ATIVO, "", 10)).thenReturn(pagina);
+
+        mockMvc.perform(get("/api/v1/creditos/status/ATIVO")
+                        .param("cursor", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].status").value("ATIVO"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.nextCursor").value("abc"));
+    }
+
+    @Test
+    public void testBuscarTodosComCursorInvalido() throws Exception {
+        when(creditoService.buscarTodosComCursor(eq("invalido"), eq(10), eq("id"), any()))
+                .thenThrow(new IllegalArgumentException("Cursor inválido: invalido"));
+
+        mockMvc.perform(get("/api/v1/creditos")
+                        .param("cursor", "invalido"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cursor inválido: invalido"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExportarPorCNPJEmNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<CreditoDTO> consumidor = invocation.getArgument(1);
+            consumidor.accept(creditoDTO);
+            consumidor.accept(creditoDTO);
+            return null;
+        }).when(creditoService).exportarPorCNPJ(eq("12345678000100"), any(Consumer.class));
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/creditos/cnpj/12345678000100")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] linhas = corpo.split("\n");
+        org.junit.jupiter.api.Assertions.assertEquals(2, linhas.length);
+        org.junit.jupiter.api.Assertions.assertEquals("CR001",
+                jsonMapper.readTree(linhas[0]).get("numeroCreditoConstituido").asString());
+    }
+
+    @Test
+    public void testProcessarLote() throws Exception {
+        ItemLoteDTO item = ItemLoteDTO.builder()
+                .indice(0)
+                .numeroCreditoConstituido("CR001")
+                .id(1L)
+                .operacao(ItemLoteDTO.Operacao.CRIADO)
+                .build();
+        when(creditoService.processarLote(any())).thenReturn(ResultadoLoteDTO.of(List.of(item)));
+
+        mockMvc.perform(post("/api/v1/creditos/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(creditoDTO))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.criados").value(1))
+                .andExpect(jsonPath("$.itens[0].operacao").value("CRIADO"));
+    }
+
+    @Test
+    public void testAlterarStatusEmLote() throws Exception {
+        FiltroCredito filtro = FiltroCredito.builder()
+                .cnpjEmpresa("12345678000100")
+                .status(StatusCredito.PENDENTE)
+                .dataInicio(LocalDate.of(2024, 1, 1))
+                .build();
+        when(creditoService.alterarStatusEmLote(filtro, StatusCredito.PROCESSANDO)).thenReturn(
+                ResultadoAlteracaoStatusDTO.builder()
+                        .novoStatus(StatusCredito.PROCESSANDO)
+                        .alterados(3)
+                        .blocos(1)
+                        .porStatusAnterior(Map.of(StatusCredito.PENDENTE, 3L))
+                        .ultimoId(9L)
+                        .build());
+
+        mockMvc.perform(patch("/api/v1/creditos/status")
+                        .param("novoStatus", "PROCESSANDO")
+                        .param("cnpjEmpresa", "12345678000100")
+                        .param("status", "PENDENTE")
+                        .param("dataInicio", "2024-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.alterados").value(3))
+                .andExpect(jsonPath("$.porStatusAnterior.PENDENTE").value(3));
+    }
+
+    @Test
+    public void testImportarArquivo() throws Exception {
+        MockMultipartFile arquivo = new MockMultipartFile("arquivo", "creditos.csv", "text/csv",
+                "numeroCreditoConstituido;numeroNFSe;dataConstituicao;valorISSQN;tipoCredito\n".getBytes());
+        when(creditoImportacao.iniciar(any())).thenReturn(ImportacaoDTO.builder()
+                .id("imp-1")
+                .nomeArquivo("creditos.csv")
+                .situacao(SituacaoImportacao.AGUARDANDO)
+                .build());
+
+        mockMvc.perform(multipart("/api/v1/creditos/importacoes").file(arquivo))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/v1/creditos/importacoes/imp-1"))
+                .andExpect(jsonPath("$.situacao").value("AGUARDANDO"));
+    }
+
+    @Test
+    public void testBuscarImportacao() throws Exception {
+        when(creditoImportacao.buscar("imp-1")).thenReturn(ImportacaoDTO.builder()
+                .id("imp-1")
+                .situacao(SituacaoImportacao.EM_ANDAMENTO)
+                .linhas(1500)
+                .linhasPorSegundo(750.0)
+                .build());
+        when(creditoImportacao.buscar("imp-2")).thenThrow(new ImportacaoNaoEncontradaException("Importação não encontrada: imp-2"));
+
+        mockMvc.perform(get("/api/v1/creditos/importacoes/imp-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.linhas").value(1500))
+                .andExpect(jsonPath("$.linhasPorSegundo").value(750.0));
+        mockMvc.perform(get("/api/v1/creditos/importacoes/imp-2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testExportarPorCnpj() throws Exception {
+        when(creditoExportacao.exportarPorCNPJ("12345678000100", FormatoExportacao.NDJSON)).thenReturn(
+                ExportacaoDTO.builder().id("exp-1").situacao(SituacaoExportacao.AGUARDANDO).build());
+
+        mockMvc.perform(post("/api/v1/creditos/exportacoes")
+                        .param("cnpjEmpresa", "12345678000100")
+                        .param("formato", "NDJSON"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/v1/creditos/exportacoes/exp-1"));
+
+        // CNPJ e período juntos (ou nenhum dos dois) não são aceitos
+        mockMvc.perform(post("/api/v1/creditos/exportacoes")
+                        .param("cnpjEmpresa", "12345678000100")
+                        .param("dataInicio", "2024-01-01")
+                        .param("dataFim", "2024-01-31"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/creditos/exportacoes"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testBaixarExportacaoComRange() throws Exception {
+        byte[] conteudo = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+        Path arquivo = Files.write(pasta.resolve("exp-1.csv.gz"), conteudo);
+        when(creditoExportacao.arquivo("exp-1")).thenReturn(
+                new CreditoExportacao.Arquivo(arquivo, conteudo.length, "creditos-1.csv.gz", "\"exp-1-20\""));
+        when(creditoExportacao.arquivo("exp-2")).thenThrow(new ExportacaoNaoEncontradaException("não disponível"));
+
+        mockMvc.perform(get("/api/v1/creditos/exportacoes/exp-1/arquivo"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "20"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"creditos-1.csv.gz\""))
+                .andExpect(content().bytes(conteudo));
+
+        mockMvc.perform(get("/api/v1/creditos/exportacoes/exp-1/arquivo").header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/20"))
+                .andExpect(content().string("abcdefghij"));
+        mockMvc.perform(get("/api/v1/creditos/exportacoes/exp-1/arquivo").header(HttpHeaders.RANGE, "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("234"));
+        mockMvc.perform(get("/api/v1/creditos/exportacoes/exp-1/arquivo").header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 17-19/20"))
+                .andExpect(content().string("hij"));
+        mockMvc.perform(get("/api/v1/creditos/exportacoes/exp-1/arquivo").header(HttpHeaders.RANGE, "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */20"));
+        // If-Range de outra versão do arquivo: envia o arquivo inteiro
+        mockMvc.perform(get("/api/v1/creditos/exportacoes/exp-1/arquivo")
+                        .header(HttpHeaders.RANGE, "bytes=10-")
+                        .header(HttpHeaders.IF_RANGE, "\"exp-1-15\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(conteudo));
+        mockMvc.perform(get("/api/v1/creditos/exportacoes/exp-2/arquivo"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testBaixarExportacaoPorSendfile() throws Exception {
+        Path arquivo = Files.write(pasta.resolve("exp-3.csv.gz"), new byte[100]);
+        when(creditoExportacao.arquivo("exp-3")).thenReturn(
+                new CreditoExportacao.Arquivo(arquivo, 100, "creditos-3.csv.gz", "\"exp-3-100\""));
+
+        // Com sendfile o corpo fica para o conector, a partir dos atributos da requisição
+        mockMvc.perform(get("/api/v1/creditos/exportacoes/exp-3/arquivo")
+                        .requestAttr(EnvioArquivo.SENDFILE_SUPORTADO, Boolean.TRUE)
+                        .header(HttpHeaders.RANGE, "bytes=40-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "60"))
+                .andExpect(request().attribute(EnvioArquivo.SENDFILE_ARQUIVO, arquivo.toAbsolutePath().toString()))
+                .andExpect(request().attribute(EnvioArquivo.SENDFILE_INICIO, 40L))
+                .andExpect(request().attribute(EnvioArquivo.SENDFILE_FIM, 100L))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    private static CreditoVersao versao(Long id, Long versao) {
+        return new CreditoVersao() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getVersao() {
+                return versao;
+            }
+        };
+    }
 }
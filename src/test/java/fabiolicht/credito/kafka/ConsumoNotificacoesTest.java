@@ -0,0 +1,122 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.config.KafkaTopicConfig;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConsumoNotificacoesTest {
+
+    private static final TopicPartition PARTICAO_0 = new TopicPartition(KafkaTopicConfig.TOPICO_NOTIFICACAO, 0);
+    private static final TopicPartition PARTICAO_1 = new TopicPartition(KafkaTopicConfig.TOPICO_NOTIFICACAO, 1);
+
+    private ConsumoNotificacoes consumoNotificacoes;
+    private Consumer<?, ?> consumer0;
+    private Consumer<?, ?> consumer1;
+
+    @BeforeEach
+    public void setUp() {
+        consumoNotificacoes = new ConsumoNotificacoes();
+        consumer0 = consumer(PARTICAO_0);
+        consumer1 = consumer(PARTICAO_1);
+    }
+
+    @Test
+    public void testEmDiaSoComTodasAsParticoesAtribuidasESemLag() {
+        assertFalse(consumoNotificacoes.isEmDia());
+        assertTrue(consumoNotificacoes.atribuidoEm().isEmpty());
+
+        consumoNotificacoes.onPartitionsAssigned(consumer0, List.of(PARTICAO_0));
+        consumoNotificacoes.registrarLag(consumer0);
+        assertTrue(consumoNotificacoes.atribuidoEm().isEmpty());
+        assertFalse(consumoNotificacoes.isEmDia());
+
+        consumoNotificacoes.onPartitionsAssigned(consumer1, List.of(PARTICAO_1));
+        assertTrue(consumoNotificacoes.atribuidoEm().isPresent());
+        assertFalse(consumoNotificacoes.isEmDia());
+
+        consumoNotificacoes.registrarLag(consumer1);
+        assertTrue(consumoNotificacoes.isEmDia());
+        // A posição é resolvida na atribuição: o que for publicado depois é entregue
+        verify(consumer0).position(PARTICAO_0);
+    }
+
+    @Test
+    public void testLagPendenteOuDesconhecidoNaoEstaEmDia() {
+        atribuirTodas();
+
+        when(consumer1.currentLag(PARTICAO_1)).thenReturn(OptionalLong.of(3));
+        consumoNotificacoes.registrarLag(consumer1);
+        assertFalse(consumoNotificacoes.isEmDia());
+
+        when(consumer1.currentLag(PARTICAO_1)).thenReturn(OptionalLong.empty());
+        consumoNotificacoes.registrarLag(consumer1);
+        assertFalse(consumoNotificacoes.isEmDia());
+    }
+
+    @Test
+    public void testConfirmacaoDoLagExpiraSemLotesNemOciosidade() {
+        ReflectionTestUtils.setField(consumoNotificacoes, "validadeLag", Duration.ZERO);
+        atribuirTodas();
+
+        assertFalse(consumoNotificacoes.isEmDia());
+    }
+
+    @Test
+    public void testOciosidadeRenovaAConfirmacao() {
+        consumoNotificacoes.onPartitionsAssigned(consumer0, List.of(PARTICAO_0));
+        consumoNotificacoes.onPartitionsAssigned(consumer1, List.of(PARTICAO_1));
+
+        consumoNotificacoes.onOcioso(new ListenerContainerIdleEvent(this, this, 1000, "notificacao",
+                List.of(PARTICAO_0), consumer0, false));
+        consumoNotificacoes.onOcioso(new ListenerContainerIdleEvent(this, this, 1000, "notificacao",
+                List.of(PARTICAO_1), consumer1, false));
+
+        assertTrue(consumoNotificacoes.isEmDia());
+    }
+
+    @Test
+    public void testParticaoRevogadaOuPerdidaSaiDoConsumo() {
+        atribuirTodas();
+        assertTrue(consumoNotificacoes.isEmDia());
+
+        consumoNotificacoes.onPartitionsRevokedAfterCommit(consumer1, List.of(PARTICAO_1));
+        assertFalse(consumoNotificacoes.isEmDia());
+
+        consumoNotificacoes.onPartitionsAssigned(consumer1, List.of(PARTICAO_1));
+        consumoNotificacoes.registrarLag(consumer1);
+        assertTrue(consumoNotificacoes.isEmDia());
+
+        consumoNotificacoes.onPartitionsLost(consumer0, List.of(PARTICAO_0));
+        assertFalse(consumoNotificacoes.isEmDia());
+    }
+
+    private void atribuirTodas() {
+        consumoNotificacoes.onPartitionsAssigned(consumer0, List.of(PARTICAO_0));
+        consumoNotificacoes.onPartitionsAssigned(consumer1, List.of(PARTICAO_1));
+        consumoNotificacoes.registrarLag(consumer0);
+        consumoNotificacoes.registrarLag(consumer1);
+    }
+
+    private static Consumer<?, ?> consumer(TopicPartition particao) {
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        when(consumer.assignment()).thenReturn(Set.of(particao));
+        when(consumer.currentLag(particao)).thenReturn(OptionalLong.of(0));
+        when(consumer.partitionsFor(KafkaTopicConfig.TOPICO_NOTIFICACAO)).thenReturn(List.of(
+                new PartitionInfo(KafkaTopicConfig.TOPICO_NOTIFICACAO, 0, null, null, null),
+                new PartitionInfo(KafkaTopicConfig.TOPICO_NOTIFICACAO, 1, null, null, null)));
+        return consumer;
+    }
+}
@@ -0,0 +1,133 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.model.TipoEventoCredito;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CreditoEventoCodecTest {
+
+    private final CreditoEventoDeserializer deserializer = new CreditoEventoDeserializer();
+
+    @Test
+    public void testRoundTripEventoCompleto() {
+        CreditoEvento evento = CreditoEvento.builder()
+                .tipo(TipoEventoCredito.CREDITO_STATUS_ALTERADO)
+                .id(42L)
+                .numeroCreditoConstituido("CR:001")
+                .numeroNFSe("NFSe-ç001")
+                .dataConstituicao(LocalDate.of(2024, 1, 15))
+                .valorISSQN(new BigDecimal("1500.75"))
+                .tipoCredito(TipoCredito.PRINCIPAL)
+                .status(StatusCredito.INATIVO)
+                .statusAnterior(StatusCredito.ATIVO)
+                .cnpjEmpresa("12345678000195")
+                .responsavel("João")
+                .build();
+
+        byte[] bytes = new CreditoEventoSerializer().serialize("creditos-events", evento);
+
+        assertEquals(CreditoEventoCodec.MAGIC, bytes[0]);
+        assertEquals(evento, deserializer.deserialize("creditos-events", bytes));
+    }
+
+    @Test
+    public void testLeituraSemCopiaEmBufferDeslocado() {
+        CreditoEvento evento = CreditoEvento.builder()
+                .tipo(TipoEventoCredito.CREDITO_CRIADO)
+                .id(7L)
+                .numeroCreditoConstituido("CR007")
+                .build();
+        byte[] bytes = CreditoEventoCodec.encode(evento);
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 5).position(5).put(bytes).position(5).slice();
+
+        assertEquals(TipoEventoCredito.CREDITO_CRIADO, CreditoEventoCodec.lerTipo(buffer));
+        assertEquals(7L, CreditoEventoCodec.lerId(buffer));
+        assertEquals(evento, CreditoEventoCodec.decode(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testRoundTripLote() {
+        CreditoEvento evento = CreditoEvento.lote(1, 2, List.of(3L, 1L, 2L));
+
+        CreditoEvento lido = CreditoEventoCodec.decode(ByteBuffer.wrap(CreditoEventoCodec.encode(evento)));
+
+        assertEquals(TipoEventoCredito.CREDITO_LOTE_PROCESSADO, lido.getTipo());
+        assertEquals(1, lido.getCriados());
+        assertEquals(2, lido.getAtualizados());
+        assertEquals(List.of(3L, 1L, 2L), lido.getIds());
+    }
+
+    @Test
+    public void testRoundTripStatusLote() {
+        CreditoEvento evento = CreditoEvento.statusLote(StatusCredito.PROCESSANDO, StatusCredito.PENDENTE, List.of(4L, 9L));
+        CreditoEvento semAnterior = CreditoEvento.statusLote(StatusCredito.INATIVO, null, List.of());
+
+        assertEquals(evento, CreditoEventoCodec.decode(ByteBuffer.wrap(CreditoEventoCodec.encode(evento))));
+        assertEquals(semAnterior, CreditoEventoCodec.decode(ByteBuffer.wrap(CreditoEventoCodec.encode(semAnterior))));
+    }
+
+    @Test
+    public void testEventosLegados() {
+        CreditoEvento criado = deserializer.deserialize("creditos-events", legado("CREDITO_CRIADO:1:CR:001"));
+        assertEquals(TipoEventoCredito.CREDITO_CRIADO, criado.getTipo());
+        assertEquals(1L, criado.getId());
+        assertEquals("CR:001", criado.getNumeroCreditoConstituido());
+
+        CreditoEvento status = deserializer.deserialize("creditos-events", legado("CREDITO_STATUS_ALTERADO:2:INATIVO"));
+        assertEquals(2L, status.getId());
+        assertEquals(StatusCredito.INATIVO, status.getStatus());
+
+        CreditoEvento lote = deserializer.deserialize("creditos-events", legado("CREDITO_LOTE_PROCESSADO:1:1:2,1"));
+        assertEquals(1, lote.getCriados());
+        assertEquals(1, lote.getAtualizados());
+        assertEquals(List.of(2L, 1L), lote.getIds());
+    }
+
+    @Test
+    public void testMensagemInvalidaRetornaNulo() {
+        assertNull(deserializer.deserialize("creditos-events", legado("lixo")));
+        assertNull(deserializer.deserialize("creditos-events", new byte[]{CreditoEventoCodec.MAGIC, 0, 1, 0, 0, 0, 0, 0, 0, 0, 1}));
+    }
+
+    @Test
+    public void testVersaoMaiorComCamposNovosNoFinalELida() {
+        CreditoEvento evento = CreditoEvento.builder()
+                .tipo(TipoEventoCredito.CREDITO_ATUALIZADO)
+                .id(9L)
+                .numeroCreditoConstituido("CR009")
+                .tipoCredito(TipoCredito.ADICIONAL)
+                .status(StatusCredito.PENDENTE)
+                .build();
+        byte[] atual = CreditoEventoCodec.encode(evento);
+        byte[] futura = ByteBuffer.allocate(atual.length + 6).put(atual).putShort((short) 4).putInt(123).array();
+        futura[1] = (byte) (CreditoEventoCodec.VERSAO + 1);
+
+        assertEquals(evento, deserializer.deserialize("creditos-events", futura));
+    }
+
+    @Test
+    public void testEnumsPeloCodigoFixo() {
+        CreditoEvento evento = CreditoEvento.statusLote(StatusCredito.ERRO, StatusCredito.PROCESSANDO, List.of(1L));
+        byte[] bytes = CreditoEventoCodec.encode(evento);
+
+        // Códigos da versão 1: PROCESSANDO = 3, ERRO = 4
+        assertEquals(4, bytes[11]);
+        assertEquals(3, bytes[12]);
+        assertEquals(TipoCredito.CANCELAMENTO, TipoCredito.porCodigo((byte) 4));
+        assertThrows(IllegalArgumentException.class, () -> StatusCredito.porCodigo((byte) 5));
+    }
+
+    private byte[] legado(String mensagem) {
+        return mensagem.getBytes(StandardCharsets.UTF_8);
+    }
+}
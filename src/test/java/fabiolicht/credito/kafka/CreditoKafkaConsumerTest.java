@@ -0,0 +1,95 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.model.TipoEventoCredito;
+import fabiolicht.credito.service.CreditoCache;
+import fabiolicht.credito.service.CreditoCacheSegundoNivel;
+import fabiolicht.credito.service.CreditoFiltroBloom;
+import fabiolicht.credito.service.CreditoTermoIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class CreditoKafkaConsumerTest {
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private Consumer<?, ?> consumer;
+
+    @Mock
+    private CreditoCache creditoCache;
+
+    @Mock
+    private CreditoCacheSegundoNivel creditoCacheSegundoNivel;
+
+    @Mock
+    private CreditoFiltroBloom creditoFiltroBloom;
+
+    @Mock
+    private CreditoTermoIndex creditoTermoIndex;
+
+    @Mock
+    private ConsumoNotificacoes consumoNotificacoes;
+
+    @InjectMocks
+    private CreditoKafkaConsumer creditoKafkaConsumer;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testLoteRegistraTamanhoELag() {
+        TopicPartition particao0 = new TopicPartition("creditos-events", 0);
+        TopicPartition particao1 = new TopicPartition("creditos-events", 1);
+        when(consumer.assignment()).thenReturn(Set.of(particao0, particao1));
+        when(consumer.currentLag(particao0)).thenReturn(OptionalLong.of(12L));
+        when(consumer.currentLag(particao1)).thenReturn(OptionalLong.empty());
+
+        List<ConsumerRecord<String, CreditoEvento>> registros = new ArrayList<>();
+        registros.add(new ConsumerRecord<>("creditos-events", 0, 0L, "1",
+                CreditoEvento.builder().tipo(TipoEventoCredito.CREDITO_CRIADO).id(1L).numeroCreditoConstituido("CR001").build()));
+        registros.add(new ConsumerRecord<>("creditos-events", 0, 1L, "2", null));
+        registros.add(new ConsumerRecord<>("creditos-events", 0, 2L, null, CreditoEvento.lote(1, 0, List.of(3L))));
+
+        creditoKafkaConsumer.consumeCreditosEvent(registros, consumer);
+
+        assertEquals(3.0, meterRegistry.get(CreditoKafkaConsumer.METRICA_TAMANHO_LOTE)
+                .tag("topico", "creditos-events").summary().totalAmount());
+        assertEquals(12.0, meterRegistry.get(CreditoKafkaConsumer.METRICA_LAG)
+                .tag("particao", "0").gauge().value());
+        assertEquals(1, meterRegistry.find(CreditoKafkaConsumer.METRICA_LAG).gauges().size());
+    }
+
+    @Test
+    public void testNotificacaoInvalidaCache() {
+        List<ConsumerRecord<String, String>> registros = List.of(
+                new ConsumerRecord<>("creditos-notification", 0, 0L, "no-1", "id:1\nnumero:CR001"));
+
+        creditoKafkaConsumer.consumeNotification(registros, consumer);
+
+        verify(creditoCache, times(1)).onNotificacao("no-1", "id:1\nnumero:CR001");
+        verify(creditoCacheSegundoNivel, times(1)).onNotificacao("no-1", "id:1\nnumero:CR001");
+        verify(creditoFiltroBloom, times(1)).onNotificacao("id:1\nnumero:CR001");
+        verify(creditoTermoIndex, times(1)).onNotificacao("no-1", "id:1\nnumero:CR001");
+        verify(consumoNotificacoes, times(1)).registrarLag(consumer);
+    }
+}
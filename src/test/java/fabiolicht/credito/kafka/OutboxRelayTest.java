@@ -0,0 +1,158 @@
+package fabiolicht.credito.kafka;
+
+import fabiolicht.credito.model.OutboxEvento;
+import fabiolicht.credito.repository.OutboxEventoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventoRepository outboxEventoRepository;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(outboxEventoRepository.travarPublicacao()).thenReturn(true);
+    }
+
+    @Test
+    public void testPublicarPendentesMarcaEnviados() {
+        when(outboxEventoRepository.buscarPendentes(any()))
+                .thenReturn(List.of(evento(1L, "CREDITO_CRIADO:1:CR001"), evento(2L, "CREDITO_CRIADO:2:CR002")));
+        when(kafkaTemplate.send(eq("creditos-events"), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(resultadoEnvio()));
+
+        outboxRelay.publicarPendentes();
+
+        verify(kafkaTemplate, times(1)).send("creditos-events", "1", payload("CREDITO_CRIADO:1:CR001"));
+        verify(kafkaTemplate, times(1)).send("creditos-events", "2", payload("CREDITO_CRIADO:2:CR002"));
+        verify(outboxEventoRepository, times(1)).marcarEnviados(eq(List.of(1L, 2L)), any());
+        verify(outboxEventoRepository, never()).registrarFalha(any());
+    }
+
+    @Test
+    public void testFalhaDeEnvioMantemEventoPendente() {
+        when(outboxEventoRepository.buscarPendentes(any()))
+                .thenReturn(List.of(evento(1L, "CREDITO_CRIADO:1:CR001"), evento(2L, "CREDITO_CRIADO:2:CR002")));
+        when(kafkaTemplate.send("creditos-events", "1", payload("CREDITO_CRIADO:1:CR001")))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker indisponível")));
+        when(kafkaTemplate.send("creditos-events", "2", payload("CREDITO_CRIADO:2:CR002")))
+                .thenReturn(CompletableFuture.completedFuture(resultadoEnvio()));
+
+        OutboxRelay.ResultadoEnvio resultado = outboxRelay.publicarLote();
+
+        assertEquals(1, resultado.enviados());
+        assertEquals(1, resultado.falhas());
+        verify(outboxEventoRepository, times(1)).marcarEnviados(eq(List.of(2L)), any());
+        verify(outboxEventoRepository, times(1)).registrarFalha(List.of(1L));
+    }
+
+    @Test
+    public void testFalhaAdiaOsEventosSeguintesDaMesmaChave() {
+        OutboxEvento primeiro = evento(1L, "CREDITO_ATUALIZADO:7:CR007");
+        OutboxEvento segundo = evento(2L, "CREDITO_DELETADO:7:CR007");
+        primeiro.setChave("7");
+        segundo.setChave("7");
+        when(outboxEventoRepository.buscarPendentes(any())).thenReturn(List.of(primeiro, segundo));
+        when(kafkaTemplate.send("creditos-events", "7", payload("CREDITO_ATUALIZADO:7:CR007")))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker indisponível")));
+
+        OutboxRelay.ResultadoEnvio resultado = outboxRelay.publicarLote();
+
+        assertEquals(0, resultado.enviados());
+        verify(kafkaTemplate, never()).send("creditos-events", "7", payload("CREDITO_DELETADO:7:CR007"));
+        verify(outboxEventoRepository, never()).marcarEnviados(any(), any());
+        verify(outboxEventoRepository, times(1)).registrarFalha(List.of(1L));
+        verify(outboxEventoRepository, times(1)).marcarFalhaDefinitiva(eq(List.of(1L)), eq(20), any());
+    }
+
+    @Test
+    public void testMesmaChaveEnviadaNaOrdem() {
+        OutboxEvento primeiro = evento(1L, "CREDITO_CRIADO:7:CR007");
+        OutboxEvento segundo = evento(2L, "CREDITO_ATUALIZADO:7:CR007");
+        primeiro.setChave("7");
+        segundo.setChave("7");
+        when(outboxEventoRepository.buscarPendentes(any())).thenReturn(List.of(primeiro, segundo));
+        CompletableFuture<SendResult<String, byte[]>> confirmacao = new CompletableFuture<>();
+        when(kafkaTemplate.send("creditos-events", "7", payload("CREDITO_CRIADO:7:CR007"))).thenReturn(confirmacao);
+        when(kafkaTemplate.send("creditos-events", "7", payload("CREDITO_ATUALIZADO:7:CR007")))
+                .thenReturn(CompletableFuture.completedFuture(resultadoEnvio()));
+
+        // O segundo só é enviado quando o primeiro é confirmado
+        CompletableFuture.runAsync(() -> {
+            verify(kafkaTemplate, timeout(1000)).send("creditos-events", "7", payload("CREDITO_CRIADO:7:CR007"));
+            verify(kafkaTemplate, never()).send("creditos-events", "7", payload("CREDITO_ATUALIZADO:7:CR007"));
+            confirmacao.complete(resultadoEnvio());
+        });
+        OutboxRelay.ResultadoEnvio resultado = outboxRelay.publicarLote();
+
+        assertEquals(2, resultado.enviados());
+        verify(outboxEventoRepository, times(1)).marcarEnviados(eq(List.of(1L, 2L)), any());
+    }
+
+    @Test
+    public void testOutroNoPublicandoNaoLeAFila() {
+        when(outboxEventoRepository.travarPublicacao()).thenReturn(false);
+
+        OutboxRelay.ResultadoEnvio resultado = outboxRelay.publicarLote();
+
+        assertEquals(0, resultado.enviados());
+        verify(outboxEventoRepository, never()).buscarPendentes(any());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    public void testSemPendentesNaoPublica() {
+        when(outboxEventoRepository.buscarPendentes(any())).thenReturn(List.of());
+
+        outboxRelay.publicarPendentes();
+
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    private OutboxEvento evento(Long id, String payload) {
+        OutboxEvento evento = new OutboxEvento();
+        evento.setId(id);
+        evento.setTopico("creditos-events");
+        evento.setChave(String.valueOf(id));
+        evento.setPayload(payload(payload));
+        return evento;
+    }
+
+    private byte[] payload(String legado) {
+        return legado.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private SendResult<String, byte[]> resultadoEnvio() {
+        return mock(SendResult.class);
+    }
+}
@@ -0,0 +1,256 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.dto.FiltroCredito;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes das consultas escritas à mão, executadas contra o H2
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@Transactional
+public class CreditoRepositoryTest {
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    private List<Credito> creditos;
+
+    @BeforeEach
+    public void setUp() {
+        creditoRepository.deleteAll();
+        creditos = creditoRepository.saveAll(List.of(
+                novoCredito("CR001", LocalDate.of(2024, 1, 10)),
+                novoCredito("CR002", LocalDate.of(2024, 1, 10)),
+                novoCredito("CR003", LocalDate.of(2024, 2, 1)),
+                novoCredito("CR004", LocalDate.of(2023, 12, 31))));
+    }
+
+    @Test
+    public void testBuscarAntesDoIdPercorreTodasAsPaginas() {
+        PageRequest pageable = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "id"));
+
+        Slice<Credito> primeira = creditoRepository.buscarAntesDoId(Long.MAX_VALUE, pageable);
+        assertEquals(3, primeira.getNumberOfElements());
+        assertTrue(primeira.hasNext());
+
+        Long ultimoId = primeira.getContent().get(2).getId();
+        Slice<Credito> segunda = creditoRepository.buscarAntesDoId(ultimoId, pageable);
+        assertEquals(1, segunda.getNumberOfElements());
+        assertFalse(segunda.hasNext());
+        assertEquals(creditos.get(0).getId(), segunda.getContent().get(0).getId());
+    }
+
+    @Test
+    public void testBuscarDepoisDaDataConstituicaoDesempataPorId() {
+        PageRequest pageable = PageRequest.of(0, 10,
+                Sort.by(Sort.Direction.ASC, "dataConstituicao").and(Sort.by(Sort.Direction.ASC, "id")));
+
+        Slice<Credito> slice = creditoRepository.buscarDepoisDaDataConstituicao(
+                LocalDate.of(2024, 1, 10), creditos.get(0).getId(), pageable);
+
+        assertEquals(List.of("CR002", "CR003"),
+                slice.getContent().stream().map(Credito::getNumeroCreditoConstituido).toList());
+    }
+
+    @Test
+    public void testBuscarPorTermoAntesDoId() {
+        PageRequest pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"));
+
+        Slice<Credito> slice = creditoRepository.buscarPorTermoAntesDoId("cr00", creditos.get(2).getId(), pageable);
+
+        assertEquals(List.of("CR002", "CR001"),
+                slice.getContent().stream().map(Credito::getNumeroCreditoConstituido).toList());
+    }
+
+    @Test
+    public void testStreamPorDataConstituicaoEntreOrdenadoPorId() {
+        try (Stream<Credito> stream = creditoRepository.streamPorDataConstituicaoEntre(
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31))) {
+            assertEquals(List.of("CR001", "CR002"), stream.map(Credito::getNumeroCreditoConstituido).toList());
+        }
+    }
+
+    @Test
+    public void testFindSliceByStatusSemContagem() {
+        Slice<Credito> primeira = creditoRepository.findSliceByStatus(StatusCredito.ATIVO, PageRequest.of(0, 3));
+        assertEquals(3, primeira.getNumberOfElements());
+        assertTrue(primeira.hasNext());
+
+        Slice<Credito> segunda = creditoRepository.findSliceByStatus(StatusCredito.ATIVO, PageRequest.of(1, 3));
+        assertEquals(1, segunda.getNumberOfElements());
+        assertFalse(segunda.hasNext());
+    }
+
+    @Test
+    public void testContarPorStatus() {
+        List<Object[]> totais = creditoRepository.contarPorStatus();
+
+        assertEquals(1, totais.size());
+        assertEquals(StatusCredito.ATIVO, totais.get(0)[0]);
+        assertEquals(4L, totais.get(0)[1]);
+    }
+
+    @Test
+    public void testBuscarCamposProjetaSomenteOsCamposPedidos() {
+        FiltroCredito filtro = FiltroCredito.builder()
+                .dataInicio(LocalDate.of(2024, 1, 1))
+                .dataFim(LocalDate.of(2024, 1, 31))
+                .build();
+
+        Page<Map<String, Object>> pagina = creditoRepository.buscarCampos(filtro,
+                List.of("numeroCreditoConstituido", "valorISSQN"),
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.ASC, "numeroCreditoConstituido")));
+
+        assertEquals(2, pagina.getTotalElements());
+        assertEquals(List.of("numeroCreditoConstituido", "valorISSQN"), List.copyOf(pagina.getContent().get(0).keySet()));
+        assertEquals("CR001", pagina.getContent().get(0).get("numeroCreditoConstituido"));
+        assertEquals(0, new BigDecimal("100.00").compareTo((BigDecimal) pagina.getContent().get(0).get("valorISSQN")));
+    }
+
+    @Test
+    public void testBuscarCamposRestritaAosIds() {
+        Long id = creditoRepository.findByNumeroCreditoConstituido("CR001").orElseThrow().getId();
+
+        Page<Map<String, Object>> pagina = creditoRepository.buscarCampos(FiltroCredito.builder().ids(List.of(id)).build(),
+                List.of("numeroCreditoConstituido"), Pageable.unpaged(Sort.by(Sort.Direction.DESC, "id")));
+
+        assertEquals(1, pagina.getTotalElements());
+        assertEquals("CR001", pagina.getContent().get(0).get("numeroCreditoConstituido"));
+    }
+
+    @Test
+    public void testBuscarCamposRejeitaCampoDesconhecido() {
+        assertThrows(InvalidDataAccessApiUsageException.class, () -> creditoRepository.buscarCampos(new FiltroCredito(),
+                List.of("numeroCreditoConstituido", "id) FROM Credito c --"), PageRequest.of(0, 10)));
+    }
+
+    @Test
+    public void testVersaoIncrementaACadaAtualizacao() {
+        Credito credito = creditos.get(0);
+        assertEquals(0L, creditoRepository.buscarVersaoPorId(credito.getId()).orElseThrow().getVersao());
+
+        credito.setStatus(StatusCredito.INATIVO);
+        creditoRepository.saveAndFlush(credito);
+
+        CreditoVersao porNumero = creditoRepository.buscarVersaoPorNumero("CR001").orElseThrow();
+        assertEquals(credito.getId(), porNumero.getId());
+        assertEquals(1L, porNumero.getVersao());
+        assertEquals(1L, creditoRepository.buscarVersaoPorNFSe("NFSCR001").orElseThrow().getVersao());
+        assertTrue(creditoRepository.buscarVersaoPorId(-1L).isEmpty());
+    }
+
+    @Test
+    public void testGravarCopiaDesatualizadaFalhaPorVersao() {
+        Credito credito = creditos.get(0);
+        Credito desatualizado = new Credito();
+        BeanUtils.copyProperties(credito, desatualizado);
+
+        credito.setStatus(StatusCredito.INATIVO);
+        creditoRepository.saveAndFlush(credito);
+
+        desatualizado.setDescricao("Alteração concorrente");
+        assertThrows(OptimisticLockingFailureException.class, () -> creditoRepository.saveAndFlush(desatualizado));
+    }
+
+    @Test
+    public void testAlterarStatusRetornandoAnterior() {
+        Credito credito = creditos.get(0);
+        LocalDateTime agora = LocalDateTime.of(2024, 3, 1, 10, 30);
+
+        Credito anterior = creditoRepository.alterarStatusRetornandoAnterior(
+                credito.getId(), StatusCredito.INATIVO, 0L, agora).orElseThrow();
+
+        assertEquals(StatusCredito.ATIVO, anterior.getStatus());
+        assertEquals(0L, anterior.getVersao());
+        assertEquals("CR001", anterior.getNumeroCreditoConstituido());
+        assertEquals(0, new BigDecimal("100.00").compareTo(anterior.getValorISSQN()));
+        assertEquals(TipoCredito.PRINCIPAL, anterior.getTipoCredito());
+        assertEquals(1L, creditoRepository.buscarVersaoPorId(credito.getId()).orElseThrow().getVersao());
+        assertEquals(List.of(credito.getId()), creditoRepository.buscarCampos(
+                        FiltroCredito.builder().status(StatusCredito.INATIVO).build(), List.of("id"), PageRequest.of(0, 10))
+                .map(linha -> linha.get("id")).getContent());
+
+        // Versão antiga ou id inexistente não alteram nada
+        assertTrue(creditoRepository.alterarStatusRetornandoAnterior(
+                credito.getId(), StatusCredito.PENDENTE, 0L, agora).isEmpty());
+        assertTrue(creditoRepository.alterarStatusRetornandoAnterior(
+                -1L, StatusCredito.PENDENTE, null, agora).isEmpty());
+    }
+
+    @Test
+    public void testRemoverRetornando() {
+        Credito credito = creditos.get(1);
+
+        Credito removido = creditoRepository.removerRetornando(credito.getId()).orElseThrow();
+
+        assertEquals("CR002", removido.getNumeroCreditoConstituido());
+        assertEquals(LocalDate.of(2024, 1, 10), removido.getDataConstituicao());
+        assertTrue(creditoRepository.buscarVersaoPorId(credito.getId()).isEmpty());
+        assertTrue(creditoRepository.removerRetornando(credito.getId()).isEmpty());
+    }
+
+    @Test
+    public void testInserirSeAusente() {
+        Credito novo = novoCredito("CR005", LocalDate.of(2024, 3, 1));
+        novo.setDataRegistro(LocalDateTime.of(2024, 3, 1, 9, 0));
+        novo.setVersao(0L);
+
+        assertTrue(creditoRepository.inserirSeAusente(novo));
+
+        assertNotNull(novo.getId());
+        assertTrue(creditos.stream().noneMatch(credito -> credito.getId().equals(novo.getId())));
+        Credito gravado = creditoRepository.findByNumeroCreditoConstituido("CR005").orElseThrow();
+        assertEquals(novo.getId(), gravado.getId());
+        assertEquals(TipoCredito.PRINCIPAL, gravado.getTipoCredito());
+        assertEquals(0L, gravado.getVersao());
+
+        // Número existente: nada é gravado e o id não é atribuído
+        Credito duplicado = novoCredito("CR001", LocalDate.of(2024, 3, 2));
+        duplicado.setDataRegistro(LocalDateTime.now());
+        duplicado.setVersao(0L);
+        assertFalse(creditoRepository.inserirSeAusente(duplicado));
+        assertNull(duplicado.getId());
+        assertEquals(5, creditoRepository.count());
+    }
+
+    private Credito novoCredito(String numero, LocalDate dataConstituicao) {
+        Credito credito = new Credito();
+        credito.setNumeroCreditoConstituido(numero);
+        credito.setNumeroNFSe("NFS" + numero);
+        credito.setDataConstituicao(dataConstituicao);
+        credito.setValorISSQN(new BigDecimal("100.00"));
+        credito.setTipoCredito(TipoCredito.PRINCIPAL);
+        credito.setStatus(StatusCredito.ATIVO);
+        credito.setCnpjEmpresa("12345678000100");
+        return credito;
+    }
+}
@@ -0,0 +1,64 @@
+package fabiolicht.credito.repository;
+
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.model.OutboxEvento;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@Transactional
+public class OutboxEventoRepositoryTest {
+
+    @Autowired
+    private OutboxEventoRepository outboxEventoRepository;
+
+    @BeforeEach
+    public void setUp() {
+        outboxEventoRepository.deleteAll();
+    }
+
+    @Test
+    public void testBuscarPendentesEmOrdemEMarcarEnviados() {
+        List<OutboxEvento> eventos = outboxEventoRepository.saveAll(List.of(
+                evento("CREDITO_CRIADO:1:CR001"), evento("CREDITO_CRIADO:2:CR002"), evento("CREDITO_CRIADO:3:CR003")));
+
+        List<OutboxEvento> pendentes = outboxEventoRepository.buscarPendentes(Limit.of(2));
+        assertEquals(List.of(eventos.get(0).getId(), eventos.get(1).getId()),
+                pendentes.stream().map(OutboxEvento::getId).toList());
+
+        outboxEventoRepository.marcarEnviados(List.of(eventos.get(0).getId()), LocalDateTime.now());
+
+        assertEquals(2, outboxEventoRepository.countByDataEnvioIsNull());
+    }
+
+    @Test
+    public void testIdsConsecutivosNaOrdemDeGravacao() {
+        Long primeiro = outboxEventoRepository.save(evento("CREDITO_CRIADO:1:CR001")).getId();
+        Long segundo = outboxEventoRepository.save(evento("CREDITO_ATUALIZADO:1:CR001")).getId();
+
+        assertEquals(primeiro + 1, segundo);
+        assertTrue(outboxEventoRepository.travarPublicacao());
+    }
+
+    private OutboxEvento evento(String payload) {
+        OutboxEvento evento = new OutboxEvento();
+        evento.setTopico("creditos-events");
+        evento.setPayload(payload.getBytes(StandardCharsets.UTF_8));
+        return evento;
+    }
+}
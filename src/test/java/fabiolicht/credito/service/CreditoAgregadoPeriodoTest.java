@@ -0,0 +1,126 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.CreditosTeste;
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.dto.AgregadoPeriodoDTO;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.GranularidadePeriodo;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.AgregadoDiarioRepository;
+import fabiolicht.credito.repository.AgregadoMensalRepository;
+import fabiolicht.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Agregados por período mantidos pelas escritas do CreditoService. Sem @Transactional:
+ * os deltas só são gravados no commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class CreditoAgregadoPeriodoTest {
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private CreditoAgregadoPeriodo creditoAgregadoPeriodo;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private AgregadoDiarioRepository agregadoDiarioRepository;
+
+    @Autowired
+    private AgregadoMensalRepository agregadoMensalRepository;
+
+    @BeforeEach
+    public void setUp() {
+        creditoRepository.deleteAll();
+        agregadoDiarioRepository.deleteAll();
+        agregadoMensalRepository.deleteAll();
+    }
+
+    @Test
+    public void testAgregadoDiarioSeparaPorTipo() {
+        LocalDate ontem = LocalDate.now().minusDays(1);
+        creditoService.criar(credito("AGR001", ontem.minusDays(1), "10.00", TipoCredito.PRINCIPAL));
+        creditoService.criar(credito("AGR002", ontem, "5.00", TipoCredito.ADICIONAL));
+        CreditoDTO alterado = creditoService.criar(credito("AGR003", ontem, "1.00", TipoCredito.PRINCIPAL));
+        creditoService.atualizar(alterado.getId(), credito("AGR003", ontem, "2.00", TipoCredito.PRINCIPAL));
+
+        List<AgregadoPeriodoDTO> dias = creditoService.buscarAgregadoPorPeriodo(
+                ontem.minusDays(1), ontem, GranularidadePeriodo.DIA);
+
+        assertEquals(2, dias.size());
+        assertEquals(new BigDecimal("10.00"), dias.get(0).getValorTotal());
+        assertEquals(2, dias.get(1).getQuantidade());
+        assertEquals(new BigDecimal("2.00"), dias.get(1).getPorTipo().get(TipoCredito.PRINCIPAL).getValorTotal());
+        assertEquals(new BigDecimal("5.00"), dias.get(1).getPorTipo().get(TipoCredito.ADICIONAL).getValorTotal());
+    }
+
+    @Test
+    public void testCompactacaoPreservaOsTotais() {
+        creditoService.criar(credito("AGR010", LocalDate.of(2020, 3, 5), "100.00", TipoCredito.PRINCIPAL));
+        creditoService.criar(credito("AGR011", LocalDate.of(2020, 3, 20), "50.00", TipoCredito.PRINCIPAL));
+        creditoService.criar(credito("AGR012", LocalDate.of(2020, 4, 1), "7.00", TipoCredito.ADICIONAL));
+
+        List<AgregadoPeriodoDTO> antes = creditoService.buscarAgregadoPorPeriodo(
+                LocalDate.of(2020, 3, 10), LocalDate.of(2020, 4, 1), GranularidadePeriodo.MES);
+        creditoAgregadoPeriodo.compactar();
+        List<AgregadoPeriodoDTO> depois = creditoService.buscarAgregadoPorPeriodo(
+                LocalDate.of(2020, 3, 10), LocalDate.of(2020, 4, 1), GranularidadePeriodo.MES);
+
+        assertTrue(agregadoDiarioRepository.findAll().isEmpty());
+        assertEquals(2, agregadoMensalRepository.count());
+        assertEquals(antes, depois);
+        assertEquals(LocalDate.of(2020, 3, 1), depois.get(0).getPeriodo());
+        assertEquals(2, depois.get(0).getQuantidade());
+        assertEquals(new BigDecimal("150.00"), depois.get(0).getValorTotal());
+
+        // Antes do limite de compactação não há visão diária: o erro aponta para MES
+        IllegalArgumentException erro = assertThrows(IllegalArgumentException.class, () -> creditoService.buscarAgregadoPorPeriodo(
+                LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31), GranularidadePeriodo.DIA));
+        assertTrue(erro.getMessage().contains("granularidade=MES"));
+    }
+
+    @Test
+    public void testReconstruirRecalculaAsDuasTabelas() {
+        LocalDate hoje = LocalDate.now();
+        creditoService.criar(credito("AGR020", LocalDate.of(2021, 6, 1), "3.00", TipoCredito.PRINCIPAL));
+        creditoService.criar(credito("AGR021", hoje, "4.00", TipoCredito.PRINCIPAL));
+        agregadoDiarioRepository.deleteAll();
+
+        creditoService.reconstruirAgregadosPorPeriodo();
+
+        assertEquals(1, agregadoMensalRepository.count());
+        assertEquals(1, agregadoDiarioRepository.count());
+        assertEquals(new BigDecimal("4.00"), creditoService.buscarAgregadoPorPeriodo(
+                hoje, hoje, GranularidadePeriodo.DIA).get(0).getValorTotal());
+    }
+
+    private CreditoDTO credito(String numero, LocalDate data, String valor, TipoCredito tipo) {
+        return CreditosTeste.novo(numero)
+                .dataConstituicao(data)
+                .valorISSQN(new BigDecimal(valor))
+                .tipoCredito(tipo)
+                .status(StatusCredito.ATIVO)
+                .cnpjEmpresa("11222333000144")
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.CreditosTeste;
+import fabiolicht.credito.config.KafkaTopicConfig;
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.FiltroCredito;
+import fabiolicht.credito.dto.ResultadoAlteracaoStatusDTO;
+import fabiolicht.credito.dto.ResumoCnpjDTO;
+import fabiolicht.credito.kafka.CreditoEvento;
+import fabiolicht.credito.kafka.CreditoEventoCodec;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.OutboxEvento;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.model.TipoEventoCredito;
+import fabiolicht.credito.repository.CreditoRepository;
+import fabiolicht.credito.repository.OutboxEventoRepository;
+import fabiolicht.credito.repository.ResumoCnpjRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Alteração de status em lote com blocos de 2 créditos: cada bloco é uma transação com
+ * um evento no outbox e os agregados acompanham as linhas alteradas.
+ */
+@SpringBootTest(properties = "credito.alteracao-status.tamanho-bloco=2")
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class CreditoAlteracaoStatusLoteTest {
+
+    private static final String CNPJ = "33444555000166";
+    private static final String OUTRO_CNPJ = "44555666000177";
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private ResumoCnpjRepository resumoCnpjRepository;
+
+    @Autowired
+    private OutboxEventoRepository outboxEventoRepository;
+
+    @BeforeEach
+    public void setUp() {
+        creditoRepository.deleteAll();
+        resumoCnpjRepository.deleteAll();
+    }
+
+    @Test
+    public void testAlteraOsCreditosDoFiltroEmBlocos() {
+        List<Long> pendentes = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            CreditoDTO criado = creditoService.criar(credito("BLK-" + i, CNPJ));
+            creditoService.alterarStatus(criado.getId(), StatusCredito.PENDENTE);
+            pendentes.add(criado.getId());
+        }
+        CreditoDTO ativo = creditoService.criar(credito("BLK-6", CNPJ));
+        CreditoDTO outroCnpj = creditoService.criar(credito("BLK-7", OUTRO_CNPJ));
+        creditoService.alterarStatus(outroCnpj.getId(), StatusCredito.PENDENTE);
+        outboxEventoRepository.deleteAll();
+
+        ResultadoAlteracaoStatusDTO resultado = creditoService.alterarStatusEmLote(
+                FiltroCredito.builder().cnpjEmpresa(CNPJ).status(StatusCredito.PENDENTE).build(),
+                StatusCredito.PROCESSANDO);
+
+        assertEquals(5, resultado.getAlterados());
+        assertEquals(3, resultado.getBlocos());
+        assertEquals(Map.of(StatusCredito.PENDENTE, 5L), resultado.getPorStatusAnterior());
+        assertEquals(pendentes.get(4), resultado.getUltimoId());
+        for (Long id : pendentes) {
+            Credito credito = creditoRepository.findById(id).orElseThrow();
+            assertEquals(StatusCredito.PROCESSANDO, credito.getStatus());
+            assertEquals(2L, credito.getVersao());
+        }
+        assertEquals(StatusCredito.ATIVO, creditoRepository.findById(ativo.getId()).orElseThrow().getStatus());
+        assertEquals(StatusCredito.PENDENTE, creditoRepository.findById(outroCnpj.getId()).orElseThrow().getStatus());
+
+        // Um evento por bloco, com os ids do bloco, todos com a chave do CNPJ
+        List<OutboxEvento> registrados = outboxEventoRepository.findAll().stream()
+                .filter(evento -> KafkaTopicConfig.TOPICO_EVENTOS.equals(evento.getTopico()))
+                .toList();
+        registrados.forEach(evento -> assertEquals("cnpj:" + CNPJ, evento.getChave()));
+        List<CreditoEvento> eventos = registrados.stream()
+                .map(evento -> CreditoEventoCodec.decode(ByteBuffer.wrap(evento.getPayload())))
+                .toList();
+        assertEquals(3, eventos.size());
+        List<Long> idsNosEventos = new ArrayList<>();
+        for (CreditoEvento evento : eventos) {
+            assertEquals(TipoEventoCredito.CREDITO_STATUS_LOTE_ALTERADO, evento.getTipo());
+            assertEquals(StatusCredito.PROCESSANDO, evento.getStatus());
+            assertEquals(StatusCredito.PENDENTE, evento.getStatusAnterior());
+            idsNosEventos.addAll(evento.getIds());
+        }
+        assertEquals(pendentes, idsNosEventos.stream().sorted().toList());
+
+        ResumoCnpjDTO resumo = creditoService.buscarResumoPorCNPJ(CNPJ);
+        assertEquals(5, resumo.getPorStatus().get(StatusCredito.PROCESSANDO).getQuantidade());
+        assertNull(resumo.getPorStatus().get(StatusCredito.PENDENTE));
+    }
+
+    @Test
+    public void testCreditosJaNoStatusNovoFicamDeFora() {
+        CreditoDTO ativo = creditoService.criar(credito("BLK-10", CNPJ));
+        CreditoDTO inativo = creditoService.criar(credito("BLK-11", CNPJ));
+        creditoService.alterarStatus(inativo.getId(), StatusCredito.INATIVO);
+
+        ResultadoAlteracaoStatusDTO resultado = creditoService.alterarStatusEmLote(
+                FiltroCredito.builder().cnpjEmpresa(CNPJ).tipoCredito(TipoCredito.PRINCIPAL).build(),
+                StatusCredito.INATIVO);
+
+        assertEquals(1, resultado.getAlterados());
+        assertEquals(1, resultado.getBlocos());
+        assertEquals(Map.of(StatusCredito.ATIVO, 1L), resultado.getPorStatusAnterior());
+        assertEquals(1L, creditoRepository.findById(inativo.getId()).orElseThrow().getVersao());
+        assertEquals(StatusCredito.INATIVO, creditoService.buscarPorId(ativo.getId()).getStatus());
+
+        ResultadoAlteracaoStatusDTO repetido = creditoService.alterarStatusEmLote(
+                FiltroCredito.builder().cnpjEmpresa(CNPJ).build(), StatusCredito.INATIVO);
+        assertEquals(0, repetido.getAlterados());
+        assertEquals(0, repetido.getBlocos());
+    }
+
+    @Test
+    public void testFiltroVazioOuPorTermoERejeitado() {
+        assertThrows(IllegalArgumentException.class,
+                () -> creditoService.alterarStatusEmLote(new FiltroCredito(), StatusCredito.INATIVO));
+        assertThrows(IllegalArgumentException.class, () -> creditoService.alterarStatusEmLote(
+                FiltroCredito.builder().cnpjEmpresa(CNPJ).termo("BLK").build(), StatusCredito.INATIVO));
+    }
+
+    private static CreditoDTO credito(String numero, String cnpj) {
+        return CreditosTeste.novo(numero)
+                .dataConstituicao(LocalDate.of(2024, 7, 1))
+                .valorISSQN(new BigDecimal("80.00"))
+                .cnpjEmpresa(cnpj)
+                .build();
+    }
+}
@@ -0,0 +1,164 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.CreditosTeste;
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.repository.CreditoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cache de segundo nível do Hibernate com o CreditoCache desligado: as leituras do
+ * CreditoService chegam ao Hibernate.
+ */
+@SpringBootTest(properties = "credito.cache.habilitado=false")
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class CreditoCacheSegundoNivelTest {
+
+    private static final String CNPJ = "22333444000155";
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private CreditoCacheSegundoNivel creditoCacheSegundoNivel;
+
+    @Autowired
+    private CreditoCache creditoCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics estatisticas;
+    private Cache cache;
+
+    @BeforeEach
+    public void setUp() {
+        creditoRepository.deleteAll();
+        cache = entityManagerFactory.getCache();
+        cache.evictAll();
+        // Limpa e cria as regiões de consultas (criadas no primeiro uso): as estatísticas
+        // de uma região pedidas antes da criação ficariam nulas
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictQueryRegion(CreditoRepository.REGIAO_CONSULTAS_ENUM);
+        sessionFactory.getCache().evictQueryRegion(CreditoRepository.REGIAO_CONSULTAS_IDENTIFICADOR);
+        estatisticas = sessionFactory.getStatistics();
+    }
+
+    @Test
+    public void testBuscaPorIdRepetidaVemDoCache() {
+        CreditoDTO criado = creditoService.criar(CreditosTeste.novo("L2-001").cnpjEmpresa(CNPJ).build());
+        long acertos = acertosCredito();
+
+        creditoService.buscarPorId(criado.getId());
+        assertTrue(cache.contains(Credito.class, criado.getId()));
+        creditoService.buscarPorId(criado.getId());
+
+        assertEquals(acertos + 1, acertosCredito());
+        assertTrue(meterRegistry.get("cache.gets").tag("cache", Credito.REGIAO_CACHE).tag("result", "hit")
+                .functionCounter().count() >= 1);
+    }
+
+    @Test
+    public void testConsultasPorEnumENumeroVemDoCacheAteAEscrita() {
+        CreditoDTO criado = creditoService.criar(CreditosTeste.novo("L2-002").cnpjEmpresa(CNPJ).build());
+        long acertosEnum = acertosConsulta(CreditoRepository.REGIAO_CONSULTAS_ENUM);
+        long acertosIdentificador = acertosConsulta(CreditoRepository.REGIAO_CONSULTAS_IDENTIFICADOR);
+
+        creditoService.buscarPorStatus(StatusCredito.ATIVO, PageRequest.of(0, 10));
+        creditoService.buscarPorStatus(StatusCredito.ATIVO, PageRequest.of(0, 10));
+        creditoService.buscarPorNumeroCreditoConstituido("L2-002");
+        creditoService.buscarPorNumeroCreditoConstituido("L2-002");
+
+        // Página incompleta: o Spring Data dispensa a contagem, só a listagem é consultada
+        assertEquals(acertosEnum + 1, acertosConsulta(CreditoRepository.REGIAO_CONSULTAS_ENUM));
+        assertEquals(acertosIdentificador + 1, acertosConsulta(CreditoRepository.REGIAO_CONSULTAS_IDENTIFICADOR));
+
+        // A escrita na tabela creditos invalida as consultas em cache
+        creditoService.alterarStatus(criado.getId(), StatusCredito.INATIVO);
+        assertEquals(0, creditoService.buscarPorStatus(StatusCredito.ATIVO, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(StatusCredito.INATIVO, creditoService.buscarPorNumeroCreditoConstituido("L2-002").getStatus());
+    }
+
+    @Test
+    public void testExportacaoEmStreamNaoPovoaOCache() {
+        CreditoDTO primeiro = creditoService.criar(CreditosTeste.novo("L2-005").cnpjEmpresa(CNPJ).build());
+        CreditoDTO segundo = creditoService.criar(CreditosTeste.novo("L2-006").cnpjEmpresa(CNPJ).build());
+        cache.evictAll();
+        List<Long> exportados = new ArrayList<>();
+
+        creditoService.exportarPorCNPJ(CNPJ, credito -> exportados.add(credito.getId()));
+
+        assertEquals(List.of(primeiro.getId(), segundo.getId()), exportados);
+        assertFalse(cache.contains(Credito.class, primeiro.getId()));
+        assertFalse(cache.contains(Credito.class, segundo.getId()));
+    }
+
+    @Test
+    public void testAtualizacaoNaoRemoveOsOutrosCreditos() {
+        CreditoDTO primeiro = creditoService.criar(CreditosTeste.novo("L2-003").cnpjEmpresa(CNPJ).build());
+        CreditoDTO segundo = creditoService.criar(CreditosTeste.novo("L2-004").cnpjEmpresa(CNPJ).build());
+        creditoService.buscarPorId(primeiro.getId());
+        creditoService.buscarPorId(segundo.getId());
+
+        // O UPDATE do segundo e o delta nativo do resumo por CNPJ não tocam o primeiro
+        CreditoDTO alteracao = CreditosTeste.novo("L2-004").cnpjEmpresa(CNPJ).build();
+        alteracao.setValorISSQN(new BigDecimal("99.00"));
+        creditoService.atualizar(segundo.getId(), alteracao);
+
+        assertTrue(cache.contains(Credito.class, primeiro.getId()));
+        assertEquals(new BigDecimal("99.00"), creditoService.buscarPorId(segundo.getId()).getValorISSQN());
+    }
+
+    @Test
+    public void testNotificacaoDeOutroNoRemoveOCreditoEAsConsultas() {
+        CreditoDTO criado = creditoService.criar(CreditosTeste.novo("L2-005").cnpjEmpresa(CNPJ).build());
+        creditoService.buscarPorId(criado.getId());
+        creditoService.buscarPorStatus(StatusCredito.ATIVO, PageRequest.of(0, 10));
+        String mensagem = CreditoCache.PREFIXO_ID + criado.getId() + "\nnumero:L2-005";
+
+        creditoCacheSegundoNivel.onNotificacao(creditoCache.getIdNo(), mensagem);
+        assertTrue(cache.contains(Credito.class, criado.getId()));
+
+        creditoCacheSegundoNivel.onNotificacao("outro-no", mensagem);
+        assertFalse(cache.contains(Credito.class, criado.getId()));
+        long acertosEnum = acertosConsulta(CreditoRepository.REGIAO_CONSULTAS_ENUM);
+        creditoService.buscarPorStatus(StatusCredito.ATIVO, PageRequest.of(0, 10));
+        assertEquals(acertosEnum, acertosConsulta(CreditoRepository.REGIAO_CONSULTAS_ENUM));
+    }
+
+    private long acertosCredito() {
+        return estatisticas.getDomainDataRegionStatistics(Credito.REGIAO_CACHE).getHitCount();
+    }
+
+    private long acertosConsulta(String regiao) {
+        return estatisticas.getQueryRegionStatistics(regiao).getHitCount();
+    }
+}
@@ -0,0 +1,93 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.TipoEventoCredito;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CreditoCacheTest {
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private CreditoCache creditoCache;
+
+    private final AtomicInteger carregamentos = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        creditoCache.setHabilitado(true);
+        creditoCache.inicializar();
+    }
+
+    @Test
+    public void testCarregaUmaVezParaTodasAsChaves() {
+        assertEquals("CR001", creditoCache.porId(1L, carregar(credito("CR001", "NFSE001"))).getNumeroCreditoConstituido());
+        creditoCache.porId(1L, carregar(credito("CR001", "NFSE001")));
+        creditoCache.porNumero("CR001", carregar(credito("CR001", "NFSE001")));
+        creditoCache.porNFSe("NFSE001", carregar(credito("CR001", "NFSE001")));
+
+        assertEquals(1, carregamentos.get());
+        assertEquals(3.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    public void testCreditoInexistenteNaoECacheado() {
+        Supplier<CreditoDTO> inexistente = () -> {
+            carregamentos.incrementAndGet();
+            throw new RuntimeException("Crédito não encontrado com ID: 9");
+        };
+
+        assertThrows(RuntimeException.class, () -> creditoCache.porId(9L, inexistente));
+        assertThrows(RuntimeException.class, () -> creditoCache.porId(9L, inexistente));
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    public void testEscritaInvalidaChavesAntigas() {
+        CreditoDTO anterior = credito("CR001", "NFSE001");
+        creditoCache.porId(1L, carregar(anterior));
+        CreditoDTO atual = credito("CR001", "NFSE002");
+
+        creditoCache.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_ATUALIZADO, anterior, atual));
+
+        creditoCache.porNFSe("NFSE001", carregar(anterior));
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    public void testNotificacaoDeOutroNoInvalida() {
+        creditoCache.porId(1L, carregar(credito("CR001", "NFSE001")));
+
+        creditoCache.onNotificacao(creditoCache.getIdNo(), "id:1");
+        creditoCache.porId(1L, carregar(credito("CR001", "NFSE001")));
+        assertEquals(1, carregamentos.get());
+
+        creditoCache.onNotificacao("outro-no", "id:1");
+        creditoCache.porId(1L, carregar(credito("CR001", "NFSE001")));
+        assertEquals(2, carregamentos.get());
+    }
+
+    private Supplier<CreditoDTO> carregar(CreditoDTO credito) {
+        return () -> {
+            carregamentos.incrementAndGet();
+            return credito;
+        };
+    }
+
+    private CreditoDTO credito(String numero, String nfse) {
+        return CreditoDTO.builder().id(1L).numeroCreditoConstituido(numero).numeroNFSe(nfse).build();
+    }
+}
@@ -0,0 +1,64 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.model.TipoEventoCredito;
+import fabiolicht.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+public class CreditoContagemTest {
+
+    @Mock
+    private CreditoRepository creditoRepository;
+
+    @InjectMocks
+    private CreditoContagem creditoContagem;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testRessincronizarUsaTotaisDoBanco() {
+        when(creditoRepository.contarPorStatus()).thenReturn(List.<Object[]>of(new Object[]{StatusCredito.ATIVO, 7L}));
+        when(creditoRepository.contarPorTipo()).thenReturn(List.<Object[]>of(new Object[]{TipoCredito.PRINCIPAL, 5L},
+                new Object[]{TipoCredito.ADICIONAL, 2L}));
+
+        creditoContagem.ressincronizar();
+
+        assertEquals(7, creditoContagem.totalPorStatus(StatusCredito.ATIVO));
+        assertEquals(0, creditoContagem.totalPorStatus(StatusCredito.INATIVO));
+        assertEquals(5, creditoContagem.totalPorTipo(TipoCredito.PRINCIPAL));
+        assertEquals(2, creditoContagem.totalPorTipo(TipoCredito.ADICIONAL));
+    }
+
+    @Test
+    public void testEscritasAjustamOsTotais() {
+        CreditoDTO ativo = credito(StatusCredito.ATIVO);
+        CreditoDTO inativo = credito(StatusCredito.INATIVO);
+
+        creditoContagem.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_CRIADO, null, ativo));
+        creditoContagem.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_CRIADO, null, ativo));
+        creditoContagem.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_STATUS_ALTERADO, ativo, inativo));
+        creditoContagem.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_DELETADO, inativo, null));
+
+        assertEquals(1, creditoContagem.totalPorStatus(StatusCredito.ATIVO));
+        assertEquals(0, creditoContagem.totalPorStatus(StatusCredito.INATIVO));
+        assertEquals(1, creditoContagem.totalPorTipo(TipoCredito.PRINCIPAL));
+    }
+
+    private CreditoDTO credito(StatusCredito status) {
+        return CreditoDTO.builder().id(1L).status(status).tipoCredito(TipoCredito.PRINCIPAL).build();
+    }
+}
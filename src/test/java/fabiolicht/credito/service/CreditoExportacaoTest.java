@@ -0,0 +1,164 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.CreditosTeste;
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.ExportacaoDTO;
+import fabiolicht.credito.model.FormatoExportacao;
+import fabiolicht.credito.model.SituacaoExportacao;
+import fabiolicht.credito.repository.CreditoRepository;
+import fabiolicht.credito.repository.ExportacaoCreditoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class CreditoExportacaoTest {
+
+    private static final String CNPJ = "66777888000199";
+
+    @Autowired
+    private CreditoExportacao creditoExportacao;
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private ExportacaoCreditoRepository exportacaoRepository;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @BeforeEach
+    public void setUp() {
+        creditoRepository.deleteAll();
+        exportacaoRepository.deleteAll();
+    }
+
+    @Test
+    public void testExportaCnpjEmCsvCompactadoNaOrdemDoId() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            CreditoDTO credito = credito("EXP-" + i, CNPJ, LocalDate.of(2024, 10, i));
+            credito.setDescricao(i == 2 ? "Serviço; com \"aspas\"" : null);
+            ids.add(creditoService.criar(credito).getId());
+        }
+        creditoService.criar(credito("EXP-9", "11111111000111", LocalDate.of(2024, 10, 1)));
+
+        ExportacaoDTO exportacao = aguardar(creditoExportacao.exportarPorCNPJ(CNPJ, FormatoExportacao.CSV).getId());
+
+        assertEquals(SituacaoExportacao.CONCLUIDA, exportacao.getSituacao());
+        assertEquals(3, exportacao.getTotal());
+        assertEquals(3, exportacao.getLinhas());
+        assertEquals(100.0, exportacao.getPercentual());
+        assertEquals(ids.get(2), exportacao.getUltimoId());
+
+        CreditoExportacao.Arquivo arquivo = creditoExportacao.arquivo(exportacao.getId());
+        assertEquals(Files.size(arquivo.caminho()), arquivo.tamanho());
+        assertEquals("creditos-" + CNPJ + ".csv.gz", arquivo.nome());
+        assertFalse(Files.exists(Path.of(arquivo.caminho() + CreditoExportacao.EXTENSAO_PARCIAL)));
+
+        List<String> linhas = descompactar(arquivo.caminho()).lines().toList();
+        assertEquals(4, linhas.size());
+        assertTrue(linhas.get(0).startsWith("id;numeroCreditoConstituido;numeroNFSe;dataConstituicao;valorISSQN"));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(linhas.get(i + 1).startsWith(ids.get(i) + ";EXP-" + (i + 1) + ";NFS-EXP-" + (i + 1) + ";2024-10-0"
+                    + (i + 1) + ";50.00;PRINCIPAL;"), linhas.get(i + 1));
+        }
+        assertTrue(linhas.get(2).contains(";\"Serviço; com \"\"aspas\"\"\";ATIVO;"));
+    }
+
+    @Test
+    public void testExportaPeriodoEmNdjson() throws Exception {
+        creditoService.criar(credito("EXP-20", CNPJ, LocalDate.of(2024, 11, 5)));
+        creditoService.criar(credito("EXP-21", CNPJ, LocalDate.of(2024, 12, 5)));
+
+        ExportacaoDTO exportacao = aguardar(creditoExportacao.exportarPorPeriodo(
+                LocalDate.of(2024, 11, 1), LocalDate.of(2024, 11, 30), FormatoExportacao.NDJSON).getId());
+
+        assertEquals(SituacaoExportacao.CONCLUIDA, exportacao.getSituacao());
+        assertEquals(1, exportacao.getLinhas());
+        CreditoExportacao.Arquivo arquivo = creditoExportacao.arquivo(exportacao.getId());
+        assertEquals("creditos-2024-11-01_2024-11-30.ndjson.gz", arquivo.nome());
+        List<String> linhas = descompactar(arquivo.caminho()).lines().toList();
+        assertEquals(1, linhas.size());
+        assertEquals("EXP-20", jsonMapper.readValue(linhas.get(0), CreditoDTO.class).getNumeroCreditoConstituido());
+    }
+
+    @Test
+    public void testExportacaoExpiradaERemovida() throws Exception {
+        ExportacaoDTO exportacao = aguardar(creditoExportacao.exportarPorCNPJ(CNPJ, FormatoExportacao.CSV).getId());
+        Path arquivo = creditoExportacao.arquivo(exportacao.getId()).caminho();
+        assertEquals(0, exportacao.getLinhas());
+
+        creditoExportacao.removerExpiradas();
+        assertTrue(Files.exists(arquivo));
+
+        exportacaoRepository.findById(exportacao.getId()).ifPresent(registro -> {
+            registro.setDataFim(LocalDateTime.now().minusDays(2));
+            exportacaoRepository.save(registro);
+        });
+        creditoExportacao.removerExpiradas();
+
+        assertFalse(Files.exists(arquivo));
+        assertThrows(ExportacaoNaoEncontradaException.class, () -> creditoExportacao.buscar(exportacao.getId()));
+    }
+
+    @Test
+    public void testFiltroInvalidoERecusado() {
+        assertThrows(IllegalArgumentException.class, () -> creditoExportacao.exportarPorCNPJ(" ", FormatoExportacao.CSV));
+        assertThrows(IllegalArgumentException.class, () -> creditoExportacao.exportarPorPeriodo(
+                LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), FormatoExportacao.CSV));
+        assertEquals(0, exportacaoRepository.count());
+    }
+
+    private ExportacaoDTO aguardar(String id) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10000;
+        ExportacaoDTO exportacao = creditoExportacao.buscar(id);
+        while (exportacao.getDataFim() == null && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+            exportacao = creditoExportacao.buscar(id);
+        }
+        return exportacao;
+    }
+
+    private static String descompactar(Path arquivo) throws IOException {
+        try (InputStream entrada = new GZIPInputStream(Files.newInputStream(arquivo))) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static CreditoDTO credito(String numero, String cnpj, LocalDate dataConstituicao) {
+        return CreditosTeste.novo(numero)
+                .dataConstituicao(dataConstituicao)
+                .valorISSQN(new BigDecimal("50.00"))
+                .cnpjEmpresa(cnpj)
+                .build();
+    }
+}
@@ -0,0 +1,211 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.config.LeituraPrimaria;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.kafka.ConsumoNotificacoes;
+import fabiolicht.credito.model.TipoEventoCredito;
+import fabiolicht.credito.repository.CreditoIdentificadores;
+import fabiolicht.credito.repository.CreditoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CreditoFiltroBloomTest {
+
+    private static final int CREDITOS = 20000;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private CreditoRepository creditoRepository;
+
+    @Mock
+    private ConsumoNotificacoes consumoNotificacoes;
+
+    @InjectMocks
+    private CreditoFiltroBloom creditoFiltroBloom;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        creditoFiltroBloom.setHabilitado(true);
+        creditoFiltroBloom.inicializar();
+        // Consumo de notificações em dia e atribuído antes de qualquer varredura do teste
+        when(consumoNotificacoes.isEmDia()).thenReturn(true);
+        when(consumoNotificacoes.atribuidoEm()).thenReturn(OptionalLong.of(System.nanoTime()));
+
+        // Dois lotes: a varredura continua a partir do último id do lote cheio
+        List<CreditoIdentificadores> todos = new ArrayList<>();
+        for (long id = 1; id <= CREDITOS; id++) {
+            todos.add(identificadores(id, "CR" + id, "NFS" + id));
+        }
+        when(creditoRepository.count()).thenReturn((long) CREDITOS);
+        when(creditoRepository.buscarIdentificadoresAposId(eq(0L), any(Limit.class))).thenReturn(todos.subList(0, 5000));
+        when(creditoRepository.buscarIdentificadoresAposId(eq(5000L), any(Limit.class)))
+                .thenReturn(todos.subList(5000, CREDITOS));
+    }
+
+    @Test
+    public void testAntesDaConstrucaoTudoPodeExistir() {
+        assertFalse(creditoFiltroBloom.isPronto());
+        assertTrue(creditoFiltroBloom.podeConterNumero("INEXISTENTE"));
+    }
+
+    @Test
+    public void testConstruidoPelaVarreduraNaoTemFalsoNegativo() {
+        creditoFiltroBloom.reconstruirSeNecessario();
+
+        assertTrue(creditoFiltroBloom.isPronto());
+        for (int id = 1; id <= CREDITOS; id++) {
+            assertTrue(creditoFiltroBloom.podeConterNumero("CR" + id));
+            assertTrue(creditoFiltroBloom.podeConterNFSe("NFS" + id));
+        }
+        verify(creditoRepository, times(2)).buscarIdentificadoresAposId(any(), any(Limit.class));
+    }
+
+    @Test
+    public void testLeituraAposEscritaNaoConsultaOFiltro() {
+        creditoFiltroBloom.reconstruirSeNecessario();
+        assertFalse(creditoFiltroBloom.podeConterNumero("CRIADO-EM-OUTRO-NO"));
+
+        try (LeituraPrimaria.Escopo primario = LeituraPrimaria.noPrimario()) {
+            assertTrue(creditoFiltroBloom.podeConterNumero("CRIADO-EM-OUTRO-NO"));
+        }
+    }
+
+    @Test
+    public void testConsumoDeNotificacoesAtrasadoVaiAoBanco() {
+        creditoFiltroBloom.reconstruirSeNecessario();
+        assertFalse(creditoFiltroBloom.podeConterNumero("CRIADO-EM-OUTRO-NO"));
+
+        when(consumoNotificacoes.isEmDia()).thenReturn(false);
+        assertTrue(creditoFiltroBloom.podeConterNumero("CRIADO-EM-OUTRO-NO"));
+
+        when(consumoNotificacoes.isEmDia()).thenReturn(true);
+        when(consumoNotificacoes.atribuidoEm()).thenReturn(OptionalLong.empty());
+        assertTrue(creditoFiltroBloom.podeConterNumero("CRIADO-EM-OUTRO-NO"));
+    }
+
+    @Test
+    public void testAtribuicaoAposAVarreduraReconstroiOFiltro() {
+        creditoFiltroBloom.reconstruirSeNecessario();
+        creditoFiltroBloom.reconstruirAposAtribuicao();
+        verify(creditoRepository, times(1)).count();
+
+        // Rebalanceamento depois da varredura: notificações anteriores à atribuição podem ter ficado para trás
+        when(consumoNotificacoes.atribuidoEm()).thenReturn(OptionalLong.of(System.nanoTime()));
+        assertTrue(creditoFiltroBloom.podeConterNumero("CRIADO-EM-OUTRO-NO"));
+
+        creditoFiltroBloom.reconstruirAposAtribuicao();
+        verify(creditoRepository, times(2)).count();
+        assertFalse(creditoFiltroBloom.podeConterNumero("CRIADO-EM-OUTRO-NO"));
+    }
+
+    @Test
+    public void testReconstrucaoPeriodicaIndependeDaTaxaDeFalsoPositivo() {
+        creditoFiltroBloom.reconstruirSeNecessario();
+        creditoFiltroBloom.reconstruirSeNecessario();
+        verify(creditoRepository, times(1)).count();
+
+        creditoFiltroBloom.reconstruirPeriodicamente();
+        verify(creditoRepository, times(2)).count();
+    }
+
+    @Test
+    public void testTaxaDeFalsoPositivoPertoDaConfigurada() {
+        creditoFiltroBloom.reconstruirSeNecessario();
+
+        int falsosPositivos = 0;
+        int consultas = 100000;
+        for (int i = 0; i < consultas; i++) {
+            if (creditoFiltroBloom.podeConterNumero("XX" + i)) {
+                falsosPositivos++;
+            }
+        }
+
+        // Dimensionado com folga (o dobro dos créditos): a taxa real fica abaixo de 1%
+        assertTrue(falsosPositivos < consultas * 0.01, "falsos positivos: " + falsosPositivos);
+        assertEquals(consultas - falsosPositivos,
+                meterRegistry.get("credito.bloom.consultas").tag("resultado", "ausente").counter().count());
+        double fppEstimada = meterRegistry.get("credito.bloom.fpp.estimada").gauge().value();
+        assertTrue(fppEstimada > 0 && fppEstimada < 0.01);
+        assertTrue(meterRegistry.get("credito.bloom.memoria").gauge().value() > 0);
+        assertEquals(2.0 * CREDITOS, meterRegistry.get("credito.bloom.itens").gauge().value(), CREDITOS * 0.01);
+    }
+
+    @Test
+    public void testCriacaoEConfirmadaENotificacaoDeOutroNoEntramNoFiltro() {
+        creditoFiltroBloom.reconstruirSeNecessario();
+        assertFalse(creditoFiltroBloom.podeConterNumero("NOVO-1"));
+
+        creditoFiltroBloom.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_CRIADO, null,
+                CreditoDTO.builder().id(CREDITOS + 1L).numeroCreditoConstituido("NOVO-1").numeroNFSe("NFS-NOVO-1").build()));
+        creditoFiltroBloom.onNotificacao("id:30000\nnumero:NOVO-2\nnfse:NFS-NOVO-2");
+
+        assertTrue(creditoFiltroBloom.podeConterNumero("NOVO-1"));
+        assertTrue(creditoFiltroBloom.podeConterNFSe("NFS-NOVO-1"));
+        assertTrue(creditoFiltroBloom.podeConterNumero("NOVO-2"));
+        assertTrue(creditoFiltroBloom.podeConterNFSe("NFS-NOVO-2"));
+    }
+
+    @Test
+    public void testRemocoesAcimaDoLimiteReconstroemOFiltro() {
+        creditoFiltroBloom.reconstruirSeNecessario();
+        CreditoDTO removido = CreditoDTO.builder().id(1L).numeroCreditoConstituido("CR1").numeroNFSe("NFS1").build();
+
+        creditoFiltroBloom.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_DELETADO, removido, null));
+        creditoFiltroBloom.reconstruirSeNecessario();
+        verify(creditoRepository, times(1)).count();
+
+        for (int i = 0; i < CREDITOS / 2; i++) {
+            creditoFiltroBloom.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_DELETADO, removido, null));
+        }
+        creditoFiltroBloom.reconstruirSeNecessario();
+        verify(creditoRepository, times(2)).count();
+    }
+
+    @Test
+    public void testDesabilitadoNaoConstroiNemFiltra() {
+        creditoFiltroBloom.setHabilitado(false);
+
+        creditoFiltroBloom.reconstruirSeNecessario();
+
+        assertTrue(creditoFiltroBloom.podeConterNumero("INEXISTENTE"));
+        verify(creditoRepository, never()).buscarIdentificadoresAposId(any(), any(Limit.class));
+    }
+
+    private static CreditoIdentificadores identificadores(Long id, String numero, String nfse) {
+        return new CreditoIdentificadores() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getNumeroCreditoConstituido() {
+                return numero;
+            }
+
+            @Override
+            public String getNumeroNFSe() {
+                return nfse;
+            }
+        };
+    }
+}
@@ -0,0 +1,234 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.config.KafkaTopicConfig;
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.OutboxEvento;
+import fabiolicht.credito.repository.CreditoRepository;
+import fabiolicht.credito.repository.IdempotenciaCreditoRepository;
+import fabiolicht.credito.repository.OutboxEventoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static fabiolicht.credito.CreditosTeste.credito;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Criações concorrentes com a mesma Idempotency-Key e com o mesmo número, contra o H2.
+ * Sem @Transactional: cada criação confirma a própria transação, junto com a chave.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class CreditoIdempotenciaTest {
+
+    private static final int CHAVES = 10;
+    private static final int REPETICOES_POR_CHAVE = 8;
+
+    @Autowired
+    private CreditoIdempotencia creditoIdempotencia;
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private OutboxEventoRepository outboxEventoRepository;
+
+    @Autowired
+    private IdempotenciaCreditoRepository idempotenciaRepository;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+    @BeforeEach
+    public void setUp() {
+        creditoRepository.deleteAll();
+        outboxEventoRepository.deleteAll();
+        idempotenciaRepository.deleteAll();
+        esquecerRespostasEmMemoria();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRepeticoesConcorrentesDaMesmaChaveCriamUmaVez() throws Exception {
+        List<Callable<CreditoIdempotencia.Resposta>> tarefas = new ArrayList<>();
+        for (int k = 0; k < CHAVES; k++) {
+            String chave = "chave-" + k;
+            CreditoDTO requisicao = credito("IDEM" + k);
+            for (int r = 0; r < REPETICOES_POR_CHAVE; r++) {
+                tarefas.add(() -> creditoIdempotencia.criar(chave, requisicao, () -> creditoService.criar(requisicao)));
+            }
+        }
+
+        List<Future<CreditoIdempotencia.Resposta>> resultados = executarJuntas(tarefas);
+
+        List<CreditoIdempotencia.Resposta> respostas = new ArrayList<>();
+        for (Future<CreditoIdempotencia.Resposta> resultado : resultados) {
+            respostas.add(resultado.get());
+        }
+        assertEquals(CHAVES, respostas.stream().filter(resposta -> !resposta.repetida()).count());
+        Map<String, Long> idsPorNumero = respostas.stream()
+                .map(CreditoIdempotencia.Resposta::credito)
+                .collect(Collectors.groupingBy(CreditoDTO::getNumeroCreditoConstituido,
+                        Collectors.mapping(CreditoDTO::getId, Collectors.collectingAndThen(Collectors.toSet(), ids -> (long) ids.size()))));
+        // Todas as respostas de uma chave apontam para o mesmo crédito
+        assertEquals(CHAVES, idsPorNumero.size());
+        idsPorNumero.values().forEach(ids -> assertEquals(1L, ids));
+        assertUmaLinhaEUmEventoPorCredito(CHAVES);
+    }
+
+    @Test
+    public void testChaveGravadaDevolveARespostaOriginalSemAMemoriaDoNo() {
+        CreditoDTO requisicao = credito("IDEM-NO");
+        CreditoIdempotencia.Resposta original = creditoIdempotencia.criar("chave-no", requisicao, () -> creditoService.criar(requisicao));
+        assertNotNull(idempotenciaRepository.findById("chave-no").orElseThrow().getResposta());
+
+        // Como outro nó (ou este após reiniciar), sem a resposta em memória
+        esquecerRespostasEmMemoria();
+        CreditoIdempotencia.Resposta repetida = creditoIdempotencia.criar("chave-no", requisicao, () -> creditoService.criar(requisicao));
+
+        assertTrue(repetida.repetida());
+        assertEquals(original.credito(), repetida.credito());
+        esquecerRespostasEmMemoria();
+        assertThrows(ChaveIdempotenciaReutilizadaException.class, () ->
+                creditoIdempotencia.criar("chave-no", credito("IDEM-OUTRO"), () -> creditoService.criar(credito("IDEM-OUTRO"))));
+        assertUmaLinhaEUmEventoPorCredito(1);
+    }
+
+    @Test
+    public void testCriacaoQueFalhaDesfazAChave() {
+        creditoService.criar(credito("IDEM-DUP"));
+
+        assertThrows(CreditoDuplicadoException.class, () ->
+                creditoIdempotencia.criar("chave-dup", credito("IDEM-DUP"), () -> creditoService.criar(credito("IDEM-DUP"))));
+
+        assertFalse(idempotenciaRepository.existsById("chave-dup"));
+    }
+
+    @Test
+    public void testRepeticaoAlemDaEsperaRecebeEmAndamento() throws Exception {
+        Duration espera = (Duration) ReflectionTestUtils.getField(creditoIdempotencia, "espera");
+        ReflectionTestUtils.setField(creditoIdempotencia, "espera", Duration.ofMillis(100));
+        CreditoDTO requisicao = credito("IDEM-LENTO");
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        try {
+            Future<CreditoIdempotencia.Resposta> original = executor.submit(() -> creditoIdempotencia.criar("chave-lenta", requisicao, () -> {
+                iniciada.countDown();
+                aguardar(liberar);
+                return creditoService.criar(requisicao);
+            }));
+            iniciada.await();
+
+            assertThrows(IdempotenciaEmAndamentoException.class, () ->
+                    creditoIdempotencia.criar("chave-lenta", requisicao, () -> creditoService.criar(requisicao)));
+
+            liberar.countDown();
+            assertFalse(original.get().repetida());
+            assertTrue(creditoIdempotencia.criar("chave-lenta", requisicao, () -> creditoService.criar(requisicao)).repetida());
+        } finally {
+            liberar.countDown();
+            ReflectionTestUtils.setField(creditoIdempotencia, "espera", espera);
+        }
+        assertUmaLinhaEUmEventoPorCredito(1);
+    }
+
+    @Test
+    public void testCriacoesConcorrentesDoMesmoNumeroSemChaveGravamUmaLinha() throws Exception {
+        List<Callable<CreditoDTO>> tarefas = new ArrayList<>();
+        for (int k = 0; k < CHAVES; k++) {
+            CreditoDTO requisicao = credito("CONC" + k);
+            for (int r = 0; r < REPETICOES_POR_CHAVE; r++) {
+                tarefas.add(() -> creditoService.criar(requisicao));
+            }
+        }
+
+        List<Future<CreditoDTO>> resultados = executarJuntas(tarefas);
+
+        int criados = 0;
+        for (Future<CreditoDTO> resultado : resultados) {
+            try {
+                resultado.get();
+                criados++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(CreditoDuplicadoException.class, e.getCause());
+            }
+        }
+        assertEquals(CHAVES, criados);
+        assertUmaLinhaEUmEventoPorCredito(CHAVES);
+    }
+
+    /**
+     * Submete todas as tarefas e as libera ao mesmo tempo
+     */
+    private <T> List<Future<T>> executarJuntas(List<Callable<T>> tarefas) {
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<T>> resultados = new ArrayList<>();
+        for (Callable<T> tarefa : tarefas) {
+            resultados.add(executor.submit(() -> {
+                largada.await();
+                return tarefa.call();
+            }));
+        }
+        largada.countDown();
+        return resultados;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void esquecerRespostasEmMemoria() {
+        ((Cache<String, ?>) ReflectionTestUtils.getField(creditoIdempotencia, "respostas")).invalidateAll();
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void assertUmaLinhaEUmEventoPorCredito(int quantidade) {
+        List<Credito> creditos = creditoRepository.findAll();
+        assertEquals(quantidade, creditos.size());
+        Map<String, Long> eventosPorChave = outboxEventoRepository.findAll().stream()
+                .filter(evento -> KafkaTopicConfig.TOPICO_EVENTOS.equals(evento.getTopico()))
+                .collect(Collectors.groupingBy(OutboxEvento::getChave, Collectors.counting()));
+        assertEquals(quantidade, eventosPorChave.size());
+        for (Credito credito : creditos) {
+            assertEquals(1L, eventosPorChave.get(String.valueOf(credito.getId())));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.dto.ImportacaoDTO;
+import fabiolicht.credito.model.Credito;
+import fabiolicht.credito.model.ImportacaoCredito;
+import fabiolicht.credito.model.SituacaoImportacao;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.repository.CreditoRepository;
+import fabiolicht.credito.repository.ImportacaoCreditoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Importação de CSV em blocos de 2 linhas, com janela de leitura menor que o arquivo
+ */
+@SpringBootTest(properties = {
+        "credito.importacao.tamanho-bloco=2",
+        "credito.importacao.janela-leitura=128B",
+        "credito.importacao.diretorio=target/credito-importacao-teste"})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class CreditoImportacaoTest {
+
+    private static final String CABECALHO = "numeroCreditoConstituido;numeroNFSe;dataConstituicao;valorISSQN;tipoCredito;status;cnpjEmpresa\n";
+    private static final String CNPJ = "55666777000188";
+
+    @Autowired
+    private CreditoImportacao creditoImportacao;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private ImportacaoCreditoRepository importacaoRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        creditoRepository.deleteAll();
+        importacaoRepository.deleteAll();
+    }
+
+    @Test
+    public void testImportaEmBlocosERejeitaLinhasInvalidas() throws IOException, InterruptedException {
+        String conteudo = CABECALHO
+                + "IMP-1;NFS-1;2024-08-01;100.50;PRINCIPAL;;" + CNPJ + "\n"
+                + "IMP-2;NFS-2;01/08/2024;100;PRINCIPAL;;" + CNPJ + "\n"
+                + "IMP-3;;2024-08-02;200,75;COMPLEMENTAR;PENDENTE;" + CNPJ + "\n"
+                + "\n"
+                + "IMP-4;NFS-4;2024-08-03;300;ADICIONAL;;" + CNPJ + "\n"
+                + "IMP-5;\"NFS;5\";2024-08-04;400;PRINCIPAL\n"
+                + "IMP-6;NFS-6;2024-08-05;1.999;PRINCIPAL;ATIVO;" + CNPJ + "\n"
+                + "IMP-1;NFS-1B;2024-08-01;150;PRINCIPAL;PENDENTE;" + CNPJ;
+        double aceitas = contador("aceita");
+
+        ImportacaoDTO importacao = aguardar(creditoImportacao.iniciar(arquivo(conteudo)).getId());
+
+        assertEquals(SituacaoImportacao.CONCLUIDA, importacao.getSituacao());
+        assertEquals(8, importacao.getLinhas());
+        assertEquals(2, importacao.getCriados());
+        assertEquals(1, importacao.getAtualizados());
+        assertEquals(4, importacao.getRejeitados());
+        assertEquals(importacao.getTamanhoArquivo(), importacao.getBytesProcessados());
+        assertEquals(100.0, importacao.getPercentual());
+        assertEquals(aceitas + 3, contador("aceita"));
+
+        // A última linha atualiza o crédito criado no primeiro bloco
+        Credito atualizado = creditoRepository.findByNumeroCreditoConstituido("IMP-1").orElseThrow();
+        assertEquals("NFS-1B", atualizado.getNumeroNFSe());
+        assertEquals(StatusCredito.PENDENTE, atualizado.getStatus());
+        assertEquals(new BigDecimal("300.00"),
+                creditoRepository.findByNumeroCreditoConstituido("IMP-4").orElseThrow().getValorISSQN());
+        assertFalse(creditoRepository.findByNumeroCreditoConstituido("IMP-3").isPresent());
+
+        List<String> rejeitos = Files.readAllLines(creditoImportacao.rejeitos(importacao.getId()));
+        assertEquals(List.of(
+                "linha;erro;registro",
+                "3;\"dataConstituicao inválida (esperado aaaa-mm-dd): 01/08/2024\";\"IMP-2;NFS-2;01/08/2024;100;PRINCIPAL;;" + CNPJ + "\"",
+                "4;\"Número da NFS-e é obrigatório\";\"IMP-3;;2024-08-02;200,75;COMPLEMENTAR;PENDENTE;" + CNPJ + "\"",
+                "7;\"Esperadas 7 colunas, encontradas 5\";\"IMP-5;\"\"NFS;5\"\";2024-08-04;400;PRINCIPAL\"",
+                "8;\"valorISSQN fora de numeric(15, 2): 1.999\";\"IMP-6;NFS-6;2024-08-05;1.999;PRINCIPAL;ATIVO;" + CNPJ + "\""),
+                rejeitos);
+    }
+
+    @Test
+    public void testRetomaDoUltimoCheckpoint() throws IOException, InterruptedException {
+        String conteudo = CABECALHO
+                + "RET-1;NFS-1;2024-09-01;10;PRINCIPAL;;" + CNPJ + "\n"
+                + "RET-2;NFS-2;data;10;PRINCIPAL;;" + CNPJ + "\n"
+                + "RET-3;NFS-3;2024-09-03;10;PRINCIPAL;;" + CNPJ + "\n"
+                + "RET-4;NFS-4;2024-09-04;10;COMPLEMENTAR;;" + CNPJ + "\n";
+        String rejeitoConfirmado = "linha;erro;registro\n3;\"x\";\"RET-2\"\n";
+        Path pasta = Path.of("target/credito-importacao-teste");
+        Path arquivo = Files.writeString(pasta.resolve("retomada.csv"), conteudo);
+        // Rejeição de um bloco que falhou antes do commit: não pode sobreviver à retomada
+        Files.writeString(pasta.resolve("retomada" + CreditoImportacao.EXTENSAO_REJEITOS),
+                rejeitoConfirmado + "5;\"nao confirmado\";\"RET-4\"\n");
+
+        ImportacaoCredito interrompida = new ImportacaoCredito();
+        interrompida.setId("retomada");
+        interrompida.setArquivo(arquivo.toString());
+        interrompida.setTamanhoArquivo(Files.size(arquivo));
+        interrompida.setSituacao(SituacaoImportacao.FALHOU);
+        interrompida.setPosicao(conteudo.indexOf("RET-3"));
+        interrompida.setLinhas(2);
+        interrompida.setRejeitados(1);
+        interrompida.setTamanhoRejeitos(rejeitoConfirmado.getBytes(StandardCharsets.UTF_8).length);
+        interrompida.setDuracaoMs(1000);
+        importacaoRepository.save(interrompida);
+
+        ImportacaoDTO importacao = aguardar(creditoImportacao.retomar("retomada").getId());
+
+        assertEquals(SituacaoImportacao.CONCLUIDA, importacao.getSituacao());
+        assertEquals(4, importacao.getLinhas());
+        assertEquals(2, importacao.getCriados());
+        assertEquals(1, importacao.getRejeitados());
+        assertTrue(importacao.getLinhasPorSegundo() > 0);
+        // As linhas anteriores ao checkpoint não são relidas
+        assertFalse(creditoRepository.findByNumeroCreditoConstituido("RET-1").isPresent());
+        assertTrue(creditoRepository.findByNumeroCreditoConstituido("RET-3").isPresent());
+        assertTrue(creditoRepository.findByNumeroCreditoConstituido("RET-4").isPresent());
+        assertEquals(rejeitoConfirmado, Files.readString(creditoImportacao.rejeitos("retomada")));
+
+        assertThrows(IllegalArgumentException.class, () -> creditoImportacao.retomar("retomada"));
+    }
+
+    @Test
+    public void testCabecalhoSemColunaObrigatoriaERecusado() {
+        IllegalArgumentException erro = assertThrows(IllegalArgumentException.class, () -> creditoImportacao.iniciar(
+                arquivo("numeroCreditoConstituido,numeroNFSe,dataConstituicao,tipoCredito\nIMP-9,NFS-9,2024-08-01,COMPLEMENTAR\n")));
+
+        assertEquals("Coluna obrigatória ausente no cabeçalho: valorISSQN", erro.getMessage());
+        assertEquals(0, importacaoRepository.count());
+        assertThrows(ImportacaoNaoEncontradaException.class, () -> creditoImportacao.buscar("inexistente"));
+    }
+
+    @Test
+    public void testSeparacaoDeCampos() {
+        assertEquals(List.of("a", "b;c", "d\"e", ""), CreditoImportacao.separarCampos("a;\"b;c\";\"d\"\"e\";", ';'));
+        assertThrows(IllegalArgumentException.class, () -> CreditoImportacao.separarCampos("a,\"b", ','));
+    }
+
+    private ImportacaoDTO aguardar(String id) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10000;
+        ImportacaoDTO importacao = creditoImportacao.buscar(id);
+        while (importacao.getDataFim() == null && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+            importacao = creditoImportacao.buscar(id);
+        }
+        return importacao;
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.get("credito.importacao.linhas").tag("resultado", resultado).counter().count();
+    }
+
+    private static MockMultipartFile arquivo(String conteudo) {
+        return new MockMultipartFile("arquivo", "creditos.csv", "text/csv", conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+}
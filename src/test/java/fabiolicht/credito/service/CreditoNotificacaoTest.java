@@ -0,0 +1,95 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.model.TipoEventoCredito;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CreditoNotificacaoTest {
+
+    @Mock
+    private CreditoCache creditoCache;
+
+    @Mock
+    private CreditoFiltroBloom creditoFiltroBloom;
+
+    @Mock
+    private CreditoTermoIndex creditoTermoIndex;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @InjectMocks
+    private CreditoNotificacao creditoNotificacao;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(creditoCache.isHabilitado()).thenReturn(true);
+        when(creditoCache.getIdNo()).thenReturn("no-1");
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testUmaMensagemNoOutboxPorTransacao() {
+        CreditoDTO anterior = credito(1L, "CR001", "NFSE001");
+        creditoNotificacao.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_ATUALIZADO,
+                anterior, credito(1L, "CR001", "NFSE002")));
+        creditoNotificacao.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_CRIADO,
+                null, credito(2L, "CR002", "NFSE003")));
+        verifyNoInteractions(outboxService);
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        verify(outboxService, times(1)).registrarMensagem(eq("creditos-notification"), eq("no-1"),
+                eq("id:1\nnumero:CR001\nnfse:NFSE001\nnfse:NFSE002\nid:2\nnumero:CR002\nnfse:NFSE003".getBytes()));
+    }
+
+    @Test
+    public void testFiltroDeBloomSemCacheTambemNotifica() {
+        when(creditoCache.isHabilitado()).thenReturn(false);
+        when(creditoFiltroBloom.isHabilitado()).thenReturn(true);
+        creditoNotificacao.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_CRIADO,
+                null, credito(1L, "CR001", "NFSE001")));
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        verify(outboxService, times(1)).registrarMensagem(eq("creditos-notification"), eq("no-1"),
+                eq("id:1\nnumero:CR001\nnfse:NFSE001".getBytes()));
+    }
+
+    @Test
+    public void testCacheEFiltroDesabilitadosNaoNotificam() {
+        when(creditoCache.isHabilitado()).thenReturn(false);
+        creditoNotificacao.onCreditoAlterado(new CreditoAlteradoEvent(TipoEventoCredito.CREDITO_CRIADO,
+                null, credito(1L, "CR001", "NFSE001")));
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        verify(outboxService, never()).registrarMensagem(anyString(), anyString(), any(byte[].class));
+    }
+
+    private static CreditoDTO credito(Long id, String numero, String nfse) {
+        return CreditoDTO.builder().id(id).numeroCreditoConstituido(numero).numeroNFSe(nfse).build();
+    }
+}
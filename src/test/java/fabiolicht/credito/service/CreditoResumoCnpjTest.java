@@ -0,0 +1,111 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.CreditosTeste;
+import fabiolicht.credito.config.TestConfig;
+import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.ResumoCnpjDTO;
+import fabiolicht.credito.model.StatusCredito;
+import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.repository.CreditoRepository;
+import fabiolicht.credito.repository.ResumoCnpjRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Resumo por CNPJ mantido pelas escritas do CreditoService. Sem @Transactional:
+ * os deltas só são gravados no commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+public class CreditoResumoCnpjTest {
+
+    private static final String CNPJ = "11222333000144";
+
+    @Autowired
+    private CreditoService creditoService;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private ResumoCnpjRepository resumoCnpjRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        creditoRepository.deleteAll();
+        resumoCnpjRepository.deleteAll();
+    }
+
+    @Test
+    public void testEscritasAtualizamOResumo() {
+        CreditoDTO primeiro = creditoService.criar(credito("RES001", "100.00", TipoCredito.PRINCIPAL));
+        CreditoDTO segundo = creditoService.criar(credito("RES002", "50.50", TipoCredito.PRINCIPAL));
+        creditoService.criar(credito("RES003", "10.00", TipoCredito.ADICIONAL));
+
+        creditoService.alterarStatus(primeiro.getId(), StatusCredito.INATIVO);
+        CreditoDTO alteracao = credito("RES002", "70.50", TipoCredito.PRINCIPAL);
+        creditoService.atualizar(segundo.getId(), alteracao);
+
+        ResumoCnpjDTO resumo = creditoService.buscarResumoPorCNPJ(CNPJ);
+        assertEquals(3, resumo.getQuantidade());
+        assertEquals(new BigDecimal("180.50"), resumo.getValorTotal());
+        assertEquals(2, resumo.getPorStatus().get(StatusCredito.ATIVO).getQuantidade());
+        assertEquals(new BigDecimal("80.50"), resumo.getPorStatus().get(StatusCredito.ATIVO).getValorTotal());
+        assertEquals(new BigDecimal("100.00"), resumo.getPorStatus().get(StatusCredito.INATIVO).getValorTotal());
+        assertEquals(new BigDecimal("170.50"), resumo.getPorTipo().get(TipoCredito.PRINCIPAL).getValorTotal());
+
+        creditoService.deletar(primeiro.getId());
+        resumo = creditoService.buscarResumoPorCNPJ(CNPJ);
+        assertEquals(2, resumo.getQuantidade());
+        assertNull(resumo.getPorStatus().get(StatusCredito.INATIVO));
+    }
+
+    @Test
+    public void testLoteAcumulaOsDeltasDaTransacao() {
+        creditoService.processarLote(List.of(
+                credito("RES010", "1.00", TipoCredito.PRINCIPAL),
+                credito("RES011", "2.00", TipoCredito.PRINCIPAL),
+                credito("RES012", "3.00", TipoCredito.PRINCIPAL)));
+
+        assertEquals(1, resumoCnpjRepository.findByCnpjEmpresa(CNPJ).size());
+        assertEquals(new BigDecimal("6.00"), creditoService.buscarResumoPorCNPJ(CNPJ).getValorTotal());
+    }
+
+    @Test
+    public void testReconstruirCorrigeOResumo() {
+        creditoService.criar(credito("RES020", "100.00", TipoCredito.PRINCIPAL));
+        transactionTemplate.executeWithoutResult(status ->
+                resumoCnpjRepository.aplicarDelta(CNPJ, "ATIVO", "PRINCIPAL", 5, new BigDecimal("999.00")));
+
+        ResumoCnpjDTO resumo = creditoService.reconstruirResumoPorCNPJ(CNPJ);
+
+        assertEquals(1, resumo.getQuantidade());
+        assertEquals(new BigDecimal("100.00"), resumo.getValorTotal());
+    }
+
+    private CreditoDTO credito(String numero, String valor, TipoCredito tipo) {
+        return CreditosTeste.novo(numero)
+                .dataConstituicao(LocalDate.of(2024, 3, 1))
+                .valorISSQN(new BigDecimal(valor))
+                .tipoCredito(tipo)
+                .status(StatusCredito.ATIVO)
+                .cnpjEmpresa(CNPJ)
+                .build();
+    }
+}
@@ -1,25 +1,38 @@
 package fabiolicht.credito.service;
 
 import fabiolicht.credito.dto.CreditoDTO;
+import fabiolicht.credito.dto.CursorPageDTO;
+import fabiolicht.credito.dto.FiltroCredito;
+import fabiolicht.credito.dto.ItemLoteDTO;
+import fabiolicht.credito.dto.ResultadoLoteDTO;
 import fabiolicht.credito.model.Credito;
 import fabiolicht.credito.model.StatusCredito;
 import fabiolicht.credito.model.TipoCredito;
+import fabiolicht.credito.model.TipoEventoCredito;
 import fabiolicht.credito.repository.CreditoRepository;
+import fabiolicht.credito.repository.CreditoVersao;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 public class CreditoServiceTest {
@@ -28,7 +41,26 @@ public class CreditoServiceTest {
     private CreditoRepository creditoRepository;
 
     @Mock
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private OutboxService outboxService;
+
+    @Mock
+    private CreditoTermoIndex termoIndex;
+
+    @Mock
+    private CreditoContagem creditoContagem;
+
+    // Cache desabilitado: as consultas vão direto ao repositório
+    @Spy
+    private CreditoCache creditoCache = new CreditoCache();
+
+    @Spy
+    private CreditoFiltroBloom creditoFiltroBloom = new CreditoFiltroBloom();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
 
     @InjectMocks
     private CreditoService creditoService;
@@ -110,58 +142,68 @@ public class CreditoServiceTest {
 
     @Test
     public void testCriarCredito() {
-        when(creditoRepository.findByNumeroCreditoConstituido("CR001"))
-                .thenReturn(Optional.empty());
-        when(creditoRepository.save(any(Credito.class)))
-                .thenReturn(credito);
+        inserirComId(1L);
 
         CreditoDTO resultado = creditoService.criar(creditoDTO);
 
         assertNotNull(resultado);
         assertEquals("CR001", resultado.getNumeroCreditoConstituido());
-        verify(creditoRepository, times(1)).save(any(Credito.class));
-        verify(kafkaTemplate, times(1)).send("creditos-events", "CREDITO_CRIADO:1:CR001");
+        assertEquals(StatusCredito.ATIVO, resultado.getStatus());
+        assertEquals(0L, resultado.getVersao());
+        assertNotNull(resultado.getDataRegistro());
+        verify(creditoRepository, never()).findByNumeroCreditoConstituido(any());
+        verify(creditoRepository, times(1)).inserirSeAusente(any(Credito.class));
+        verify(outboxService, times(1)).registrar(eq("creditos-events"), eq("1"), argThat(e ->
+                e.getTipo() == TipoEventoCredito.CREDITO_CRIADO && e.getId() == 1L && "CR001".equals(e.getNumeroCreditoConstituido())));
     }
 
     @Test
     public void testCriarCreditoDuplicado() {
-        when(creditoRepository.findByNumeroCreditoConstituido("CR001"))
-                .thenReturn(Optional.of(credito));
+        when(creditoRepository.inserirSeAusente(any(Credito.class))).thenReturn(false);
 
-        assertThrows(RuntimeException.class, () -> creditoService.criar(creditoDTO));
-        verify(creditoRepository, never()).save(any(Credito.class));
+        assertThrows(CreditoDuplicadoException.class, () -> creditoService.criar(creditoDTO));
+        verify(outboxService, never()).registrar(any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
     public void testAlterarStatus() {
-        when(creditoRepository.findById(1L)).thenReturn(Optional.of(credito));
-        when(creditoRepository.save(any(Credito.class))).thenReturn(credito);
+        credito.setVersao(0L);
+        when(creditoRepository.alterarStatusRetornandoAnterior(eq(1L), eq(StatusCredito.INATIVO), isNull(), any()))
+                .thenReturn(Optional.of(credito));
 
         CreditoDTO resultado = creditoService.alterarStatus(1L, StatusCredito.INATIVO);
 
         assertNotNull(resultado);
-        verify(creditoRepository, times(1)).findById(1L);
-        verify(creditoRepository, times(1)).save(any(Credito.class));
+        assertEquals(1L, resultado.getVersao());
+        assertNotNull(resultado.getDataAtualizacao());
+        verify(creditoRepository, never()).findById(any());
+        verify(creditoRepository, never()).save(any(Credito.class));
+        verify(eventPublisher).publishEvent(argThat((Object e) -> e instanceof CreditoAlteradoEvent evento
+                && evento.getAnterior().getStatus() == StatusCredito.ATIVO
+                && evento.getAtual().getStatus() == StatusCredito.INATIVO));
+        verify(outboxService, times(1)).registrar(eq("creditos-events"), eq("1"), argThat(e ->
+                e.getTipo() == TipoEventoCredito.CREDITO_STATUS_ALTERADO && e.getId() == 1L && e.getStatus() == StatusCredito.INATIVO));
     }
 
     @Test
     public void testDeletarCredito() {
-        when(creditoRepository.findById(1L)).thenReturn(Optional.of(credito));
-        doNothing().when(creditoRepository).deleteById(1L);
+        when(creditoRepository.removerRetornando(1L)).thenReturn(Optional.of(credito));
 
         creditoService.deletar(1L);
 
-        verify(creditoRepository, times(1)).findById(1L);
-        verify(creditoRepository, times(1)).deleteById(1L);
-        verify(kafkaTemplate, times(1)).send("creditos-events", "CREDITO_DELETADO:1:CR001");
+        verify(creditoRepository, never()).findById(any());
+        verify(creditoRepository, times(1)).removerRetornando(1L);
+        verify(outboxService, times(1)).registrar(eq("creditos-events"), eq("1"), argThat(e ->
+                e.getTipo() == TipoEventoCredito.CREDITO_DELETADO && e.getId() == 1L && "CR001".equals(e.getNumeroCreditoConstituido())));
     }
 
     @Test
     public void testDeletarCreditoNaoEncontrado() {
-        when(creditoRepository.findById(99L)).thenReturn(Optional.empty());
+        when(creditoRepository.removerRetornando(99L)).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> creditoService.deletar(99L));
-        verify(creditoRepository, never()).deleteById(any());
+        verify(outboxService, never()).registrar(any(), any(), any());
     }
 
     @Test
@@ -254,6 +296,80 @@ public class CreditoServiceTest {
         verify(creditoRepository, times(1)).findByCnpjEmpresaAndStatus("12345678000100", StatusCredito.ATIVO, pageable);
     }
 
+    @Test
+    public void testBuscarPorStatusComTotalAproximado() {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(0, 1);
+        when(creditoRepository.findSliceByStatus(StatusCredito.ATIVO, pageable))
+                .thenReturn(new org.springframework.data.domain.SliceImpl<>(List.of(credito), pageable, true));
+        when(creditoContagem.totalPorStatus(StatusCredito.ATIVO)).thenReturn(40L);
+
+        org.springframework.data.domain.Page<CreditoDTO> resultado =
+                creditoService.buscarPorStatusComTotalAproximado(StatusCredito.ATIVO, pageable);
+
+        assertEquals(40, resultado.getTotalElements());
+        assertEquals(1, resultado.getContent().size());
+        verify(creditoRepository, never()).findByStatus(any(), any(org.springframework.data.domain.Pageable.class));
+    }
+
+    @Test
+    public void testTotalAproximadoNuncaFicaAbaixoDaPagina() {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(2, 1);
+        when(creditoRepository.findSliceByTipoCredito(TipoCredito.PRINCIPAL, pageable))
+                .thenReturn(new org.springframework.data.domain.SliceImpl<>(List.of(credito), pageable, true));
+        when(creditoContagem.totalPorTipo(TipoCredito.PRINCIPAL)).thenReturn(0L);
+
+        assertEquals(4, creditoService.buscarPorTipoComTotalAproximado(TipoCredito.PRINCIPAL, pageable).getTotalElements());
+    }
+
+    @Test
+    public void testBuscarCamposNormalizaLista() {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(0, 10);
+        FiltroCredito filtro = FiltroCredito.builder().status(StatusCredito.ATIVO).build();
+        when(creditoRepository.buscarCampos(any(), any(), any()))
+                .thenReturn(org.springframework.data.domain.Page.empty(pageable));
+
+        creditoService.buscarCampos(filtro, " numeroCreditoConstituido,valorISSQN,,numeroCreditoConstituido ", pageable);
+
+        verify(creditoRepository, times(1)).buscarCampos(filtro, List.of("numeroCreditoConstituido", "valorISSQN"), pageable);
+    }
+
+    @Test
+    public void testBuscarCamposPorTermoPeloIndice() {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(1, 2);
+        Map<String, Object> linha = Map.of("numeroCreditoConstituido", "CR003");
+        when(termoIndex.isDisponivel("CR0")).thenReturn(true);
+        when(termoIndex.buscar("CR0", Long.MAX_VALUE, 4)).thenReturn(List.of(9L, 7L, 3L));
+        when(termoIndex.contar("CR0", 24)).thenReturn(3);
+        when(creditoRepository.buscarCampos(argThat(f -> List.of(3L).equals(f.getIds()) && f.getTermo() == null),
+                eq(List.of("numeroCreditoConstituido")), argThat(p -> p.isUnpaged() && p.getSort().getOrderFor("id").isDescending())))
+                .thenReturn(new org.springframework.data.domain.PageImpl<>(List.of(linha)));
+
+        org.springframework.data.domain.Page<Map<String, Object>> pagina = creditoService.buscarCampos(
+                FiltroCredito.builder().termo("CR0").build(), "numeroCreditoConstituido", pageable);
+
+        assertEquals(List.of(linha), pagina.getContent());
+        assertEquals(3, pagina.getTotalElements());
+    }
+
+    @Test
+    public void testBuscarCamposExigePaginacao() {
+        assertThrows(IllegalArgumentException.class, () -> creditoService.buscarCampos(
+                FiltroCredito.builder().cnpjEmpresa("12345678000100").build(), "numeroCreditoConstituido",
+                org.springframework.data.domain.Pageable.unpaged()));
+        verify(creditoRepository, never()).buscarCampos(any(), any(), any());
+    }
+
+    @Test
+    public void testBuscarCamposRejeitaCampoInvalido() {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(0, 10);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> creditoService.buscarCampos(new FiltroCredito(), "numeroCreditoConstituido,senha", pageable));
+        assertThrows(IllegalArgumentException.class,
+                () -> creditoService.buscarCampos(new FiltroCredito(), " , ", pageable));
+        verify(creditoRepository, never()).buscarCampos(any(), any(), any());
+    }
+
     @Test
     public void testBuscarPorTermo() {
         org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(0, 10);
@@ -279,7 +395,57 @@ public class CreditoServiceTest {
         assertNotNull(resultado);
         verify(creditoRepository, times(1)).findById(1L);
         verify(creditoRepository, times(1)).save(any(Credito.class));
-        verify(kafkaTemplate, times(1)).send("creditos-events", "CREDITO_ATUALIZADO:1:CR001");
+        verify(outboxService, times(1)).registrar(eq("creditos-events"), eq("1"), argThat(e ->
+                e.getTipo() == TipoEventoCredito.CREDITO_ATUALIZADO && e.getId() == 1L && "CR001".equals(e.getNumeroCreditoConstituido())));
+    }
+
+    @Test
+    public void testAtualizarComVersaoDesatualizada() {
+        credito.setVersao(3L);
+        creditoDTO.setVersao(2L);
+        when(creditoRepository.findById(1L)).thenReturn(Optional.of(credito));
+
+        VersaoDivergenteException erro = assertThrows(VersaoDivergenteException.class,
+                () -> creditoService.atualizar(1L, creditoDTO));
+
+        assertEquals(3L, erro.getVersaoAtual());
+        verify(creditoRepository, never()).save(any(Credito.class));
+        verify(outboxService, never()).registrar(any(), any(), any());
+    }
+
+    @Test
+    public void testAlterarStatusComVersaoAtual() {
+        credito.setVersao(3L);
+        when(creditoRepository.alterarStatusRetornandoAnterior(eq(1L), eq(StatusCredito.INATIVO), eq(3L), any()))
+                .thenReturn(Optional.of(credito));
+
+        CreditoDTO resultado = creditoService.alterarStatus(1L, StatusCredito.INATIVO, 3L);
+
+        assertEquals(StatusCredito.INATIVO, resultado.getStatus());
+        assertEquals(4L, resultado.getVersao());
+    }
+
+    @Test
+    public void testAlterarStatusComVersaoDivergente() {
+        when(creditoRepository.alterarStatusRetornandoAnterior(eq(1L), eq(StatusCredito.INATIVO), eq(2L), any()))
+                .thenReturn(Optional.empty());
+        when(creditoRepository.buscarVersaoPorId(1L)).thenReturn(Optional.of(new CreditoVersao() {
+            @Override
+            public Long getId() {
+                return 1L;
+            }
+
+            @Override
+            public Long getVersao() {
+                return 3L;
+            }
+        }));
+
+        VersaoDivergenteException erro = assertThrows(VersaoDivergenteException.class,
+                () -> creditoService.alterarStatus(1L, StatusCredito.INATIVO, 2L));
+
+        assertEquals(3L, erro.getVersaoAtual());
+        verify(outboxService, never()).registrar(any(), any(), any());
     }
 
     @Test
@@ -299,6 +465,22 @@ public class CreditoServiceTest {
         verify(creditoRepository, times(1)).findByNumeroNFSe("INVALIDO");
     }
 
+    @Test
+    public void testBuscarPorNumeroAusenteDoFiltroNaoConsultaOBanco() {
+        doReturn(false).when(creditoFiltroBloom).podeConterNumero("INVALIDO");
+        doReturn(false).when(creditoFiltroBloom).podeConterNFSe("INVALIDO");
+
+        CreditoNaoEncontradoException erro = assertThrows(CreditoNaoEncontradoException.class,
+                () -> creditoService.buscarPorNumeroCreditoConstituido("INVALIDO"));
+        assertThrows(CreditoNaoEncontradoException.class, () -> creditoService.buscarPorNFSe("INVALIDO"));
+
+        assertEquals(0, erro.getStackTrace().length);
+        assertTrue(creditoService.buscarVersaoPorNumero("INVALIDO").isEmpty());
+        verify(creditoRepository, never()).findByNumeroCreditoConstituido(any());
+        verify(creditoRepository, never()).findByNumeroNFSe(any());
+        verify(creditoRepository, never()).buscarVersaoPorNumero(any());
+    }
+
     @Test
     public void testBuscarPorNumeroNaoEncontrado() {
         when(creditoRepository.findByNumeroCreditoConstituido("INVALIDO"))
@@ -307,4 +489,172 @@ public class CreditoServiceTest {
         assertThrows(RuntimeException.class, () -> creditoService.buscarPorNumeroCreditoConstituido("INVALIDO"));
         verify(creditoRepository, times(1)).findByNumeroCreditoConstituido("INVALIDO");
     }
+
+    @Test
+    public void testBuscarPorTermoPeloIndice() {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(0, 10);
+
+        when(termoIndex.isDisponivel("CR0")).thenReturn(true);
+        when(termoIndex.buscar("CR0", Long.MAX_VALUE, 10)).thenReturn(Arrays.asList(1L));
+        when(termoIndex.contar("CR0", 110)).thenReturn(1);
+        when(creditoRepository.findAllById(Arrays.asList(1L))).thenReturn(Arrays.asList(credito));
+
+        org.springframework.data.domain.Page<CreditoDTO> resultado = creditoService.buscarPorTermo("CR0", pageable);
+
+        assertEquals(1, resultado.getTotalElements());
+        assertEquals("CR001", resultado.getContent().get(0).getNumeroCreditoConstituido());
+        verify(creditoRepository, never()).buscarPorTermo(any(), any());
+    }
+
+    @Test
+    public void testTotalPeloIndiceContaAteAlgumasPaginasAlemDaAtual() {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(3, 10);
+        when(termoIndex.isDisponivel("CR0")).thenReturn(true);
+        when(termoIndex.buscar("CR0", Long.MAX_VALUE, 40)).thenReturn(List.of());
+        // Termo comum: a contagem para no limite e o total informado é um piso
+        when(termoIndex.contar("CR0", 140)).thenReturn(140);
+
+        org.springframework.data.domain.Page<CreditoDTO> resultado = creditoService.buscarPorTermo("CR0", pageable);
+
+        assertEquals(140, resultado.getTotalElements());
+        verify(termoIndex, never()).contar(eq("CR0"), eq(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testCriarCreditoPublicaEventoDeAlteracao() {
+        inserirComId(1L);
+
+        creditoService.criar(creditoDTO);
+
+        verify(eventPublisher, times(1)).publishEvent(any(CreditoAlteradoEvent.class));
+    }
+
+    @Test
+    public void testBuscarPorStatusComCursor() {
+        org.springframework.data.domain.Slice<Credito> slice = new org.springframework.data.domain.SliceImpl<>(
+                Arrays.asList(credito), org.springframework.data.domain.PageRequest.of(0, 1), true);
+
+        when(creditoRepository.buscarPorStatusAntesDoId(eq(StatusCredito.ATIVO), eq(Long.MAX_VALUE), any()))
+                .thenReturn(slice);
+
+        CursorPageDTO<CreditoDTO> resultado = creditoService.buscarPorStatusComCursor(StatusCredito.ATIVO, "", 1);
+
+        assertEquals(1, resultado.getContent().size());
+        assertTrue(resultado.isHasNext());
+        assertEquals(1L, KeysetCursor.decode(resultado.getNextCursor(), "id",
+                org.springframework.data.domain.Sort.Direction.DESC).getId());
+    }
+
+    @Test
+    public void testBuscarTodosComCursorPorIdNaoRepeteODesempate() {
+        org.springframework.data.domain.Slice<Credito> slice = new org.springframework.data.domain.SliceImpl<>(
+                Arrays.asList(credito), org.springframework.data.domain.PageRequest.of(0, 1), false);
+        when(creditoRepository.buscarDepoisDoId(eq(0L), any())).thenReturn(slice);
+
+        creditoService.buscarTodosComCursor("", 1, "id", org.springframework.data.domain.Sort.Direction.ASC);
+
+        verify(creditoRepository).buscarDepoisDoId(eq(0L), argThat(pageable ->
+                pageable.getSort().equals(org.springframework.data.domain.Sort.by(
+                        org.springframework.data.domain.Sort.Direction.ASC, "id"))));
+    }
+
+    @Test
+    public void testBuscarTodosComCursorOrdenacaoNaoSuportada() {
+        assertThrows(IllegalArgumentException.class, () -> creditoService.buscarTodosComCursor(
+                "", 10, "descricao", org.springframework.data.domain.Sort.Direction.DESC));
+    }
+
+    @Test
+    public void testCursorDeOutraOrdenacaoERejeitado() {
+        String cursor = new KeysetCursor("dataConstituicao", org.springframework.data.domain.Sort.Direction.ASC,
+                "2024-01-01", 5L).encode();
+
+        assertThrows(IllegalArgumentException.class, () -> creditoService.buscarTodosComCursor(
+                cursor, 10, "id", org.springframework.data.domain.Sort.Direction.DESC));
+    }
+
+    @Test
+    public void testExportarPorCNPJDesanexaCadaLinha() {
+        org.hibernate.Session sessao = mock(org.hibernate.Session.class);
+        when(sessao.getCacheMode()).thenReturn(org.hibernate.CacheMode.NORMAL);
+        when(entityManager.unwrap(org.hibernate.Session.class)).thenReturn(sessao);
+        when(creditoRepository.streamPorCnpjEmpresa("12345678000100"))
+                .thenReturn(java.util.stream.Stream.of(credito));
+
+        List<CreditoDTO> exportados = new ArrayList<>();
+        creditoService.exportarPorCNPJ("12345678000100", exportados::add);
+
+        assertEquals(1, exportados.size());
+        assertEquals("CR001", exportados.get(0).getNumeroCreditoConstituido());
+        verify(entityManager, times(1)).detach(credito);
+        // Sem cache de segundo nível durante a iteração, e o modo anterior restaurado no fim
+        verify(sessao).setCacheMode(org.hibernate.CacheMode.IGNORE);
+        verify(sessao).setCacheMode(org.hibernate.CacheMode.NORMAL);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testProcessarLote() {
+        CreditoDTO novo = CreditoDTO.builder()
+                .numeroCreditoConstituido("CR002")
+                .numeroNFSe("NFS002")
+                .dataConstituicao(LocalDate.now())
+                .valorISSQN(new BigDecimal("50.00"))
+                .tipoCredito(TipoCredito.PRINCIPAL)
+                .build();
+        CreditoDTO semNFSe = CreditoDTO.builder()
+                .numeroCreditoConstituido("CR003")
+                .dataConstituicao(LocalDate.now())
+                .valorISSQN(BigDecimal.ONE)
+                .tipoCredito(TipoCredito.PRINCIPAL)
+                .build();
+
+        when(creditoRepository.findByNumeroCreditoConstituidoIn(any())).thenReturn(Arrays.asList(credito));
+        when(creditoRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Credito> gravar = new ArrayList<>(invocation.getArgument(0));
+            gravar.get(1).setId(2L);
+            return gravar;
+        });
+
+        ResultadoLoteDTO resultado = creditoService.processarLote(Arrays.asList(creditoDTO, novo, semNFSe, creditoDTO));
+
+        assertEquals(4, resultado.getTotal());
+        assertEquals(1, resultado.getCriados());
+        assertEquals(1, resultado.getAtualizados());
+        assertEquals(2, resultado.getRejeitados());
+        assertEquals(ItemLoteDTO.Operacao.ATUALIZADO, resultado.getItens().get(0).getOperacao());
+        assertEquals(2L, resultado.getItens().get(1).getId());
+        assertEquals("Número da NFS-e é obrigatório", resultado.getItens().get(2).getMensagem());
+        assertEquals("Número duplicado no lote", resultado.getItens().get(3).getMensagem());
+        verify(creditoRepository, times(1)).saveAll(any());
+        verify(outboxService, times(1)).registrar(eq("creditos-events"), eq("lote"), argThat(e ->
+                e.getTipo() == TipoEventoCredito.CREDITO_LOTE_PROCESSADO && e.getCriados() == 1 && e.getAtualizados() == 1 && e.getIds().equals(List.of(2L, 1L))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testProcessarLoteDeUmaEmpresaUsaChaveDoCnpj() {
+        when(creditoRepository.findByNumeroCreditoConstituidoIn(any())).thenReturn(Arrays.asList(credito));
+        when(creditoRepository.saveAll(any())).thenAnswer(invocation -> new ArrayList<>(invocation.getArgument(0)));
+
+        creditoService.processarLote(Arrays.asList(creditoDTO));
+
+        verify(outboxService, times(1)).registrar(eq("creditos-events"), eq("cnpj:12345678000100"), argThat(e ->
+                e.getTipo() == TipoEventoCredito.CREDITO_LOTE_PROCESSADO));
+    }
+
+    @Test
+    public void testProcessarLoteAcimaDoTamanhoMaximo() {
+        List<CreditoDTO> lote = java.util.Collections.nCopies(10001, creditoDTO);
+
+        assertThrows(IllegalArgumentException.class, () -> creditoService.processarLote(lote));
+        verify(creditoRepository, never()).saveAll(any());
+    }
+
+    private void inserirComId(Long id) {
+        when(creditoRepository.inserirSeAusente(any(Credito.class))).thenAnswer(invocacao -> {
+            invocacao.<Credito>getArgument(0).setId(id);
+            return true;
+        });
+    }
 }
@@ -0,0 +1,153 @@
+package fabiolicht.credito.service;
+
+import fabiolicht.credito.repository.CreditoIdentificadores;
+import fabiolicht.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class CreditoTermoIndexTest {
+
+    private CreditoTermoIndex termoIndex;
+
+    @BeforeEach
+    public void setUp() {
+        termoIndex = new CreditoTermoIndex();
+        termoIndex.setHabilitado(true);
+        termoIndex.setPronto(true);
+
+        termoIndex.adicionar(1L, "CR2024001", "NFS-7788");
+        termoIndex.adicionar(2L, "CR2024002", "NFS-1234");
+        termoIndex.adicionar(3L, "CR2023099", "NFS-7790");
+    }
+
+    @Test
+    public void testBuscarPorSubstringDoNumero() {
+        assertEquals(Arrays.asList(2L, 1L), buscar("2024"));
+    }
+
+    @Test
+    public void testBuscarPorSubstringDaNFSeIgnorandoCaixa() {
+        assertEquals(Arrays.asList(3L, 1L), buscar("nfs-77"));
+    }
+
+    @Test
+    public void testBuscarConfirmaTermoCompleto() {
+        // "cr2" e "024" existem no crédito 3, mas a sequência "cr2024" não
+        List<Long> resultado = buscar("CR2024");
+        assertFalse(resultado.contains(3L));
+    }
+
+    @Test
+    public void testBuscarSemOcorrencia() {
+        assertTrue(buscar("XYZ").isEmpty());
+        assertEquals(0, termoIndex.contar("XYZ", 10));
+    }
+
+    @Test
+    public void testBuscarParaNoLimite() {
+        assertEquals(List.of(3L), termoIndex.buscar("CR20", Long.MAX_VALUE, 1));
+        assertEquals(3, termoIndex.contar("CR20", 10));
+        assertEquals(2, termoIndex.contar("CR20", 2));
+    }
+
+    @Test
+    public void testBuscarAbaixoDoCursor() {
+        assertEquals(List.of(2L, 1L), termoIndex.buscar("CR20", 3L, 10));
+        assertEquals(List.of(1L), termoIndex.buscar("CR20", 2L, 10));
+    }
+
+    @Test
+    public void testBuscarForaDeOrdemDeInsercao() {
+        termoIndex.adicionar(10L, "CR2024010", null);
+        termoIndex.adicionar(5L, "CR2024005", null);
+
+        assertEquals(List.of(10L, 5L, 2L, 1L), buscar("2024"));
+    }
+
+    @Test
+    public void testReindexarAoAtualizar() {
+        termoIndex.adicionar(2L, "CR2024002", "NFS-5555");
+
+        assertTrue(buscar("1234").isEmpty());
+        assertEquals(List.of(2L), buscar("5555"));
+    }
+
+    @Test
+    public void testRemover() {
+        termoIndex.remover(1L);
+
+        assertEquals(List.of(2L), buscar("2024"));
+    }
+
+    @Test
+    public void testReconstruirReaplicaEscritasFeitasDuranteAVarredura() {
+        CreditoRepository creditoRepository = mock(CreditoRepository.class);
+        ReflectionTestUtils.setField(termoIndex, "creditoRepository", creditoRepository);
+        // A varredura lê os créditos 1 e 2 como estavam; a alteração e a exclusão são confirmadas durante a leitura
+        List<CreditoIdentificadores> lidos = List.of(
+                identificadores(1L, "CR2024001", "NFS-7788"), identificadores(2L, "CR2024002", "NFS-1234"));
+        when(creditoRepository.buscarIdentificadoresAposId(anyLong(), any())).thenAnswer(invocation -> {
+            termoIndex.adicionar(2L, "CR2024002", "NFS-5555");
+            termoIndex.remover(1L);
+            return lidos;
+        });
+
+        termoIndex.reconstruir();
+
+        assertEquals(List.of(2L), buscar("5555"));
+        assertTrue(buscar("1234").isEmpty());
+        assertEquals(List.of(2L), buscar("2024"));
+    }
+
+    @Test
+    public void testNotificacaoDeOutroNoReleOsCreditosAvisados() {
+        CreditoRepository creditoRepository = mock(CreditoRepository.class);
+        CreditoCache creditoCache = new CreditoCache();
+        ReflectionTestUtils.setField(termoIndex, "creditoRepository", creditoRepository);
+        ReflectionTestUtils.setField(termoIndex, "creditoCache", creditoCache);
+        // Crédito 2 renomeado e crédito 3 removido em outro nó
+        List<CreditoIdentificadores> atuais = List.of(identificadores(2L, "CR2024002", "NFS-5555"));
+        when(creditoRepository.buscarIdentificadoresPorIds(any())).thenReturn(atuais);
+
+        termoIndex.onNotificacao("outro-no", "id:2\nnumero:CR2024002\nid:3");
+
+        assertEquals(List.of(2L), buscar("5555"));
+        assertTrue(buscar("1234").isEmpty());
+        assertTrue(buscar("7790").isEmpty());
+        verify(creditoRepository).buscarIdentificadoresPorIds(Set.of(2L, 3L));
+
+        termoIndex.onNotificacao(creditoCache.getIdNo(), "id:1");
+        verifyNoMoreInteractions(creditoRepository);
+    }
+
+    @Test
+    public void testDisponibilidade() {
+        assertTrue(termoIndex.isDisponivel("CR2"));
+        assertFalse(termoIndex.isDisponivel("CR"));
+
+        termoIndex.setHabilitado(false);
+        assertFalse(termoIndex.isDisponivel("CR2"));
+    }
+
+    private List<Long> buscar(String termo) {
+        return termoIndex.buscar(termo, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static CreditoIdentificadores identificadores(Long id, String numero, String nfse) {
+        CreditoIdentificadores credito = mock(CreditoIdentificadores.class);
+        when(credito.getId()).thenReturn(id);
+        when(credito.getNumeroCreditoConstituido()).thenReturn(numero);
+        when(credito.getNumeroNFSe()).thenReturn(nfse);
+        return credito;
+    }
+}
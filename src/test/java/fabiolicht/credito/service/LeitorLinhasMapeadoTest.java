@@ -0,0 +1,78 @@
+package fabiolicht.credito.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LeitorLinhasMapeadoTest {
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    public void testLinhasQueCruzamAJanelaSaoRemapeadas() throws IOException {
+        // Janela de 16 bytes: as linhas cruzam o fim da janela
+        Path arquivo = arquivo("﻿cabeçalho\r\num\ndois;três\n\nfim sem quebra");
+
+        try (LeitorLinhasMapeado leitor = new LeitorLinhasMapeado(arquivo, 16)) {
+            assertEquals(List.of("cabeçalho", "um", "dois;três", "", "fim sem quebra"), todas(leitor));
+            assertEquals(Files.size(arquivo), leitor.posicao());
+        }
+    }
+
+    @Test
+    public void testContinuaDaPosicaoDoCheckpoint() throws IOException {
+        Path arquivo = arquivo("cabecalho\nlinha 1\nlinha 2\nlinha 3\n");
+        long checkpoint;
+        try (LeitorLinhasMapeado leitor = new LeitorLinhasMapeado(arquivo, 12)) {
+            leitor.proxima();
+            leitor.proxima();
+            checkpoint = leitor.posicao();
+        }
+
+        try (LeitorLinhasMapeado leitor = new LeitorLinhasMapeado(arquivo, 12)) {
+            leitor.posicionar(checkpoint);
+            assertEquals(List.of("linha 2", "linha 3"), todas(leitor));
+        }
+    }
+
+    @Test
+    public void testLinhaMaiorQueAJanelaFalha() throws IOException {
+        Path arquivo = arquivo("curta\numa linha longa demais\n");
+
+        try (LeitorLinhasMapeado leitor = new LeitorLinhasMapeado(arquivo, 8)) {
+            assertEquals("curta", leitor.proxima());
+            assertThrows(IOException.class, leitor::proxima);
+        }
+    }
+
+    @Test
+    public void testArquivoVazio() throws IOException {
+        try (LeitorLinhasMapeado leitor = new LeitorLinhasMapeado(arquivo(""), 8)) {
+            assertNull(leitor.proxima());
+        }
+    }
+
+    private Path arquivo(String conteudo) throws IOException {
+        return Files.write(pasta.resolve("linhas.csv"), conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> todas(LeitorLinhasMapeado leitor) throws IOException {
+        List<String> linhas = new ArrayList<>();
+        String linha;
+        while ((linha = leitor.proxima()) != null) {
+            linhas.add(linha);
+        }
+        return linhas;
+    }
+}